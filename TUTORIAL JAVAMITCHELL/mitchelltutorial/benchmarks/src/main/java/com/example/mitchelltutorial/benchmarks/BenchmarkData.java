@@ -0,0 +1,94 @@
+package com.example.mitchelltutorial.benchmarks;
+
+import com.example.mitchelltutorial.OfflineStore;
+import com.example.mitchelltutorial.OfflineStore.BookingRecord;
+import com.example.mitchelltutorial.VehicleRentalSystem.Customer;
+import com.example.mitchelltutorial.VehicleRentalSystem.Payment;
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Generated fleets for the benchmarks. The same size always produces the same rows, so runs from
+// different releases measure the same data. A fleet of n vehicles has n / 10 customers and one booking
+// per vehicle spread over two years; bookings that have ended are completed and paid, the rest active.
+final class BenchmarkData {
+
+    static final String[] CATEGORIES = {"Car", "SUV", "Truck", "Van", "Bike"};
+    static final String[] BRANDS = {"Toyota", "Honda", "Ford", "BMW", "Tesla", "Mazda", "Isuzu", "Nissan",
+            "Hyundai", "Kia", "Volkswagen", "Mercedes"};
+    static final String[] MODELS = {"Corolla", "Civic", "Transit", "X5", "Model S", "CX-5", "D-Max", "Hilux",
+            "Tucson", "Sportage", "Golf", "Sprinter"};
+    static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    static final int DAYS = 730;
+    static final LocalDate TODAY = FIRST_DAY.plusDays(DAYS - 30);
+
+    private static final long SEED = 20240101L;
+
+    private BenchmarkData() {
+    }
+
+    static List<Vehicle> vehicles(int count) {
+        Random random = new Random(SEED);
+        List<Vehicle> vehicles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            vehicles.add(new Vehicle(String.format("V%07d", i),
+                    BRANDS[random.nextInt(BRANDS.length)],
+                    MODELS[random.nextInt(MODELS.length)] + " " + (2000 + random.nextInt(25)),
+                    CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    40 + random.nextInt(4000) / 10.0,
+                    "Available"));
+        }
+        return vehicles;
+    }
+
+    static List<Customer> customers(int fleetSize) {
+        int count = Math.max(1, fleetSize / 10);
+        List<Customer> customers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            customers.add(new Customer(String.format("C%07d", i), "Customer " + i, "555" + i,
+                    "customer" + i + "@example.com", "DL" + i, LocalDate.of(1960 + i % 40, 1 + i % 12, 1 + i % 28)));
+        }
+        return customers;
+    }
+
+    static List<BookingRecord> bookings(List<Vehicle> vehicles, int customerCount) {
+        Random random = new Random(SEED + 1);
+        List<BookingRecord> bookings = new ArrayList<>(vehicles.size());
+        for (int i = 0; i < vehicles.size(); i++) {
+            Vehicle vehicle = vehicles.get(i);
+            LocalDate start = FIRST_DAY.plusDays(random.nextInt(DAYS));
+            LocalDate end = start.plusDays(1 + random.nextInt(14));
+            bookings.add(new BookingRecord(String.format("B%07d", i), String.format("C%07d", random.nextInt(customerCount)),
+                    vehicle.getId(), start, end, vehicle.getDailyRate(),
+                    end.isAfter(TODAY) ? "Active" : "Completed", "employee"));
+        }
+        return bookings;
+    }
+
+    static List<Payment> payments(List<BookingRecord> bookings) {
+        List<Payment> payments = new ArrayList<>();
+        for (BookingRecord b : bookings) {
+            if ("Completed".equals(b.getStatus())) {
+                long days = b.getEndDate().toEpochDay() - b.getStartDate().toEpochDay();
+                payments.add(new Payment("P" + b.getId().substring(1), b.getId(), days * b.getDailyRate(),
+                        "Cash", b.getEndDate()));
+            }
+        }
+        return payments;
+    }
+
+    static OfflineStore store(int fleetSize) {
+        OfflineStore store = new OfflineStore();
+        List<Vehicle> vehicles = vehicles(fleetSize);
+        List<Customer> customers = customers(fleetSize);
+        List<BookingRecord> bookings = bookings(vehicles, customers.size());
+        vehicles.forEach(store::putVehicle);
+        customers.forEach(store::putCustomer);
+        bookings.forEach(store::putBooking);
+        payments(bookings).forEach(store::putPayment);
+        return store;
+    }
+}
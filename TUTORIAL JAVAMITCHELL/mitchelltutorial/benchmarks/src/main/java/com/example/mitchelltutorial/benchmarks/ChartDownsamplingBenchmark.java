@@ -0,0 +1,50 @@
+package com.example.mitchelltutorial.benchmarks;
+
+import com.example.mitchelltutorial.SeriesDownsampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Thinning a daily series to a chart's width, which the daily trend chart does on every redraw while the
+// user zooms or pans: a year, five years and the fifty the chart zooms out to
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ChartDownsamplingBenchmark {
+
+    private static final int PLOT_WIDTH = 1200;
+
+    @Param({"365", "1826", "18262"})
+    int days;
+
+    private double[] values;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        values = new double[days];
+        for (int i = 0; i < days; i++) {
+            // A weekly rhythm with noise, roughly like daily revenue
+            values[i] = 5000 + 1500 * Math.sin(i * 2 * Math.PI / 7) + random.nextGaussian() * 800;
+        }
+    }
+
+    @Benchmark
+    public int[] lttb() {
+        return SeriesDownsampler.lttb(values, 0, values.length, PLOT_WIDTH);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.mitchelltutorial.benchmarks;
+
+import com.example.mitchelltutorial.CsvExporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Table exports from the offline store to a local file, so the numbers are the exporter's formatting
+// and writing rather than the database's
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CsvExportBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int fleetSize;
+
+    @Param({"VEHICLES", "BOOKINGS"})
+    CsvExporter.Table table;
+
+    @Param({"csv", "csv.gz"})
+    String extension;
+
+    private CsvExporter exporter;
+    private Path directory;
+    private Path target;
+
+    @Setup
+    public void setUp() throws IOException {
+        exporter = new CsvExporter(BenchmarkData.store(fleetSize));
+        directory = Files.createTempDirectory("csv-export-benchmark");
+        target = directory.resolve("export." + extension);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(target);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public long export() throws IOException, SQLException {
+        return exporter.export(table, target, (rows, total) -> { });
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.mitchelltutorial.benchmarks;
+
+import com.example.mitchelltutorial.InvoiceRenderer;
+import com.example.mitchelltutorial.OfflineStore;
+import com.example.mitchelltutorial.VehicleRentalSystem.Booking;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// One invoice: looking the booking up with its joins, then rendering the HTML and the text shown in
+// the dialog. The fleet size only matters for the lookup
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InvoiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int fleetSize;
+
+    private OfflineStore store;
+    private Booking booking;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        store = BenchmarkData.store(fleetSize);
+        booking = store.booking("B0000000");
+    }
+
+    @Benchmark
+    public String html() {
+        return InvoiceRenderer.html(booking, BenchmarkData.TODAY);
+    }
+
+    @Benchmark
+    public String text() {
+        return InvoiceRenderer.text(booking, BenchmarkData.TODAY);
+    }
+
+    @Benchmark
+    public String lookupAndRender() {
+        next = (next + 7919) % fleetSize;
+        return InvoiceRenderer.text(store.booking(String.format("B%07d", next)), BenchmarkData.TODAY);
+    }
+}
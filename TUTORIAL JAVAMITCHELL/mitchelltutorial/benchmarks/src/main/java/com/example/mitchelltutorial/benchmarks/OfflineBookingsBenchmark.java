@@ -0,0 +1,48 @@
+package com.example.mitchelltutorial.benchmarks;
+
+import com.example.mitchelltutorial.OfflineStore;
+import com.example.mitchelltutorial.VehicleRentalSystem.Booking;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The offline booking load: every booking joined with its customer's name and vehicle description
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class OfflineBookingsBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int fleetSize;
+
+    private OfflineStore store;
+
+    @Setup
+    public void setUp() {
+        store = BenchmarkData.store(fleetSize);
+    }
+
+    @Benchmark
+    public List<Booking> joinedBookings() {
+        return store.bookings();
+    }
+
+    @Benchmark
+    public List<Booking> activeBookings() {
+        return store.bookingsWithStatus("Active");
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.mitchelltutorial.benchmarks;
+
+import com.example.mitchelltutorial.OfflineStore.BookingRecord;
+import com.example.mitchelltutorial.PricingCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Pricing every booking of the fleet, as the end-of-day closeout does for the ones due back
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PricingBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int fleetSize;
+
+    private List<BookingRecord> bookings;
+
+    @Setup
+    public void setUp() {
+        bookings = BenchmarkData.bookings(BenchmarkData.vehicles(fleetSize), BenchmarkData.customers(fleetSize).size());
+    }
+
+    @Benchmark
+    public double priceAll() {
+        double sum = 0;
+        for (BookingRecord b : bookings) {
+            sum += PricingCalculator.total(b.getStartDate(), b.getEndDate(), b.getDailyRate());
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.mitchelltutorial.benchmarks;
+
+import com.example.mitchelltutorial.OfflineStore.BookingRecord;
+import com.example.mitchelltutorial.ReportRollups;
+import com.example.mitchelltutorial.SqlDialect;
+import com.example.mitchelltutorial.VehicleRentalSystem.Payment;
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+// The report queries on the embedded database: the rollup reads the charts and summary use, against
+// the GROUP BY over the raw tables they replaced
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReportBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"1000", "100000", "1000000"})
+    int fleetSize;
+
+    private Connection conn;
+    private LocalDate from;
+    private LocalDate to;
+    private String rawMonthly;
+
+    @Setup
+    public void setUp() throws SQLException {
+        // H2 would otherwise hand back the previous result of an identical query on unchanged tables
+        conn = DriverManager.getConnection("jdbc:h2:mem:reports" + fleetSize +
+                ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE", "sa", "");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE vehicles (id VARCHAR(20) PRIMARY KEY, brand VARCHAR(50) NOT NULL, " +
+                    "model VARCHAR(50) NOT NULL, category VARCHAR(30) NOT NULL, daily_rate DECIMAL(10,2) NOT NULL, " +
+                    "status VARCHAR(20) NOT NULL)");
+            stmt.execute("CREATE TABLE bookings (id VARCHAR(20) PRIMARY KEY, customer_id VARCHAR(20) NOT NULL, " +
+                    "vehicle_id VARCHAR(20) NOT NULL, start_date DATE NOT NULL, end_date DATE NOT NULL, " +
+                    "daily_rate DECIMAL(10,2) NOT NULL, status VARCHAR(20) NOT NULL, employee_id VARCHAR(50) NOT NULL)");
+            stmt.execute("CREATE TABLE payments (id VARCHAR(20) PRIMARY KEY, booking_id VARCHAR(20) NOT NULL, " +
+                    "amount DECIMAL(10,2) NOT NULL, method VARCHAR(30) NOT NULL, payment_date DATE NOT NULL)");
+            ReportRollups.createTables(stmt);
+        }
+
+        List<Vehicle> vehicles = BenchmarkData.vehicles(fleetSize);
+        List<BookingRecord> bookings = BenchmarkData.bookings(vehicles, BenchmarkData.customers(fleetSize).size());
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO vehicles VALUES (?, ?, ?, ?, ?, ?)")) {
+            int pending = 0;
+            for (Vehicle v : vehicles) {
+                ps.setString(1, v.getId());
+                ps.setString(2, v.getBrand());
+                ps.setString(3, v.getModel());
+                ps.setString(4, v.getCategory());
+                ps.setDouble(5, v.getDailyRate());
+                ps.setString(6, v.getStatus());
+                ps.addBatch();
+                if (++pending % BATCH_SIZE == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO bookings VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            int pending = 0;
+            for (BookingRecord b : bookings) {
+                ps.setString(1, b.getId());
+                ps.setString(2, b.getCustomerId());
+                ps.setString(3, b.getVehicleId());
+                ps.setDate(4, java.sql.Date.valueOf(b.getStartDate()));
+                ps.setDate(5, java.sql.Date.valueOf(b.getEndDate()));
+                ps.setDouble(6, b.getDailyRate());
+                ps.setString(7, b.getStatus());
+                ps.setString(8, b.getEmployeeId());
+                ps.addBatch();
+                if (++pending % BATCH_SIZE == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO payments VALUES (?, ?, ?, ?, ?)")) {
+            int pending = 0;
+            for (Payment p : BenchmarkData.payments(bookings)) {
+                ps.setString(1, p.getId());
+                ps.setString(2, p.getBookingId());
+                ps.setDouble(3, p.getAmount());
+                ps.setString(4, p.getMethod());
+                ps.setDate(5, java.sql.Date.valueOf(p.getPaymentDate()));
+                ps.addBatch();
+                if (++pending % BATCH_SIZE == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        ReportRollups.rebuildAll(conn);
+        conn.commit();
+        conn.setAutoCommit(true);
+
+        // A year of the report screen's range, starting and ending mid-month
+        from = BenchmarkData.FIRST_DAY.plusMonths(6).plusDays(14);
+        to = from.plusYears(1);
+        String month = SqlDialect.H2.monthStart("p.payment_date");
+        rawMonthly = "SELECT " + month + ", SUM(p.amount) FROM payments p WHERE p.payment_date BETWEEN ? AND ? " +
+                "GROUP BY " + month;
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        }
+        conn.close();
+    }
+
+    @Benchmark
+    public SortedMap<YearMonth, ReportRollups.Totals> monthlyFromRollups() throws SQLException {
+        return ReportRollups.monthly(conn, from, to);
+    }
+
+    @Benchmark
+    public SortedMap<YearMonth, Double> monthlyFromRawTables() throws SQLException {
+        SortedMap<YearMonth, Double> revenue = new TreeMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(rawMonthly)) {
+            ps.setDate(1, java.sql.Date.valueOf(from));
+            ps.setDate(2, java.sql.Date.valueOf(to));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    revenue.put(YearMonth.from(rs.getDate(1).toLocalDate()), rs.getDouble(2));
+                }
+            }
+        }
+        return revenue;
+    }
+
+    @Benchmark
+    public double totalRevenue() throws SQLException {
+        return ReportRollups.totalRevenue(conn);
+    }
+
+    @Benchmark
+    public SortedMap<String, Double> revenueByCategory() throws SQLException {
+        return ReportRollups.revenueByCategory(conn);
+    }
+}
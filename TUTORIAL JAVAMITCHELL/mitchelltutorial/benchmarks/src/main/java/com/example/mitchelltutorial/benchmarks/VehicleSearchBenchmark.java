@@ -0,0 +1,73 @@
+package com.example.mitchelltutorial.benchmarks;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+import com.example.mitchelltutorial.VehicleSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+// The vehicle search box: the trigram index lookup plus the filter pass the table's FilteredList makes,
+// against a plain substring scan as the baseline
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class VehicleSearchBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int fleetSize;
+
+    @Param({"toyota", "cx-5 20", "zzz"})
+    String query;
+
+    private List<Vehicle> vehicles;
+    private VehicleSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        vehicles = BenchmarkData.vehicles(fleetSize);
+        index = new VehicleSearchIndex();
+        index.rebuild(vehicles);
+    }
+
+    @Benchmark
+    public int indexedSearch() {
+        Predicate<Vehicle> matches = index.search(query);
+        int count = 0;
+        for (Vehicle v : vehicles) {
+            if (matches.test(v)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int scanBaseline() {
+        String q = query.toLowerCase(Locale.ROOT);
+        int count = 0;
+        for (Vehicle v : vehicles) {
+            String text = (v.getId() + " " + v.getBrand() + " " + v.getModel() + " " + v.getCategory())
+                    .toLowerCase(Locale.ROOT);
+            if (text.contains(q)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.Booking;
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Answers "is this vehicle free between these dates" from the active bookings, including reservations
+// that start in the future, which the single status flag on a vehicle cannot express.
+// Each vehicle has its own interval tree: an AVL tree of booking ranges ordered by start date, where
+// every node also records the latest end date in its subtree. An overlap query walks a single path,
+// so it is O(log n) in the vehicle's bookings. Ranges are half-open, [start, end), matching how the
+// rental days are priced, so a booking may start on the day the previous one ends.
+// Listing the free vehicles of a category runs that check once per vehicle in the category, so it is
+// O(m log n) for m vehicles. The answer is itself a list of up to m vehicles, so no structure could
+// answer it in logarithmic time; the cost per vehicle is what the trees keep small.
+public class AvailabilityIndex {
+
+    private final Map<String, IntervalTree> treesByVehicle = new HashMap<>();
+    private final Map<String, Interval> intervalsByBooking = new HashMap<>();
+    private final Map<String, Set<String>> vehiclesByCategory = new HashMap<>();
+    private final Map<String, Vehicle> vehicles = new HashMap<>();
+
+    // Keep the index in step with the vehicle and booking lists; onUpdated runs after every change
+    public void bindTo(ObservableList<Vehicle> vehicleSource, ObservableList<Booking> bookingSource, Runnable onUpdated) {
+        vehicleSource.forEach(this::putVehicle);
+        bookingSource.forEach(this::putBooking);
+
+        vehicleSource.addListener((ListChangeListener<Vehicle>) change -> {
+            while (change.next()) {
+                for (Vehicle removed : change.getRemoved()) {
+                    removeVehicle(removed.getId());
+                }
+                change.getAddedSubList().forEach(this::putVehicle);
+            }
+            onUpdated.run();
+        });
+        bookingSource.addListener((ListChangeListener<Booking>) change -> {
+            while (change.next()) {
+                for (Booking removed : change.getRemoved()) {
+                    removeBooking(removed.getId());
+                }
+                change.getAddedSubList().forEach(this::putBooking);
+            }
+            onUpdated.run();
+        });
+    }
+
+    public synchronized void putVehicle(Vehicle vehicle) {
+        removeVehicle(vehicle.getId());
+        vehicles.put(vehicle.getId(), vehicle);
+        vehiclesByCategory.computeIfAbsent(vehicle.getCategory(), k -> new LinkedHashSet<>()).add(vehicle.getId());
+    }
+
+    // Bookings for the vehicle stay indexed; they still hold its dates if it comes back
+    public synchronized void removeVehicle(String vehicleId) {
+        Vehicle previous = vehicles.remove(vehicleId);
+        if (previous != null) {
+            Set<String> ids = vehiclesByCategory.get(previous.getCategory());
+            if (ids != null && ids.remove(vehicleId) && ids.isEmpty()) {
+                vehiclesByCategory.remove(previous.getCategory());
+            }
+        }
+    }
+
+    // Only active bookings hold the vehicle; completing one releases its dates
+    public synchronized void putBooking(Booking booking) {
+        removeBooking(booking.getId());
+        if (!"Active".equals(booking.getStatus())
+                || booking.getStartDate() == null || booking.getEndDate() == null) {
+            return;
+        }
+        Interval interval = new Interval(booking.getId(), booking.getVehicleId(),
+                booking.getStartDate().toEpochDay(), booking.getEndDate().toEpochDay());
+        intervalsByBooking.put(interval.bookingId, interval);
+        treesByVehicle.computeIfAbsent(interval.vehicleId, k -> new IntervalTree()).insert(interval);
+    }
+
+    public synchronized void removeBooking(String bookingId) {
+        Interval interval = intervalsByBooking.remove(bookingId);
+        if (interval != null) {
+            IntervalTree tree = treesByVehicle.get(interval.vehicleId);
+            tree.delete(interval);
+            if (tree.root == null) {
+                treesByVehicle.remove(interval.vehicleId);
+            }
+        }
+    }
+
+    public synchronized boolean isFree(String vehicleId, LocalDate start, LocalDate end) {
+        Vehicle vehicle = vehicles.get(vehicleId);
+        if (vehicle != null && !inService(vehicle)) {
+            return false;
+        }
+        return findConflict(vehicleId, start, end) == null;
+    }
+
+    // The id of an active booking overlapping [start, end), or null if there is none
+    public synchronized String findConflict(String vehicleId, LocalDate start, LocalDate end) {
+        IntervalTree tree = treesByVehicle.get(vehicleId);
+        if (tree == null) {
+            return null;
+        }
+        Interval conflict = tree.findOverlap(start.toEpochDay(), end.toEpochDay());
+        return conflict == null ? null : conflict.bookingId;
+    }
+
+    // Vehicles free for the whole range; a null category means every category. Linear in the candidates
+    public synchronized List<String> freeVehicles(String category, LocalDate start, LocalDate end) {
+        List<String> free = new ArrayList<>();
+        Iterable<String> candidates = category == null
+                ? vehicles.keySet()
+                : vehiclesByCategory.getOrDefault(category, Set.of());
+        for (String vehicleId : candidates) {
+            if (isFree(vehicleId, start, end)) {
+                free.add(vehicleId);
+            }
+        }
+        return free;
+    }
+
+    // Rented is not a reason to refuse: the rental may end before the requested dates
+    private static boolean inService(Vehicle vehicle) {
+        return "Available".equals(vehicle.getStatus()) || "Rented".equals(vehicle.getStatus());
+    }
+
+    private static final class Interval {
+        private final String bookingId;
+        private final String vehicleId;
+        private final long start;
+        private final long end;
+
+        private Interval(String bookingId, String vehicleId, long start, long end) {
+            this.bookingId = bookingId;
+            this.vehicleId = vehicleId;
+            this.start = start;
+            this.end = end;
+        }
+
+        private int compareTo(Interval other) {
+            int byStart = Long.compare(start, other.start);
+            return byStart != 0 ? byStart : bookingId.compareTo(other.bookingId);
+        }
+    }
+
+    private static final class Node {
+        private final Interval interval;
+        private Node left;
+        private Node right;
+        private int height = 1;
+        private long maxEnd;
+
+        private Node(Interval interval) {
+            this.interval = interval;
+            this.maxEnd = interval.end;
+        }
+    }
+
+    // AVL tree ordered by (start, booking id), augmented with the max end date per subtree
+    private static final class IntervalTree {
+        private Node root;
+
+        private void insert(Interval interval) {
+            root = insert(root, interval);
+        }
+
+        private void delete(Interval interval) {
+            root = delete(root, interval);
+        }
+
+        // If the left subtree reaches past start but holds no overlap, its latest interval starts at or
+        // after end, and so does everything to the right; one path down is enough
+        private Interval findOverlap(long start, long end) {
+            Node node = root;
+            while (node != null) {
+                Interval candidate = node.interval;
+                if (candidate.start < end && candidate.end > start) {
+                    return candidate;
+                }
+                node = node.left != null && node.left.maxEnd > start ? node.left : node.right;
+            }
+            return null;
+        }
+
+        private static Node insert(Node node, Interval interval) {
+            if (node == null) {
+                return new Node(interval);
+            }
+            if (interval.compareTo(node.interval) < 0) {
+                node.left = insert(node.left, interval);
+            } else {
+                node.right = insert(node.right, interval);
+            }
+            return rebalance(node);
+        }
+
+        private static Node delete(Node node, Interval interval) {
+            if (node == null) {
+                return null;
+            }
+            int cmp = interval.compareTo(node.interval);
+            if (cmp < 0) {
+                node.left = delete(node.left, interval);
+            } else if (cmp > 0) {
+                node.right = delete(node.right, interval);
+            } else {
+                if (node.left == null) {
+                    return node.right;
+                }
+                if (node.right == null) {
+                    return node.left;
+                }
+                Node successor = node.right;
+                while (successor.left != null) {
+                    successor = successor.left;
+                }
+                Node replacement = new Node(successor.interval);
+                replacement.left = node.left;
+                replacement.right = delete(node.right, successor.interval);
+                node = replacement;
+            }
+            return rebalance(node);
+        }
+
+        private static Node rebalance(Node node) {
+            update(node);
+            int balance = height(node.left) - height(node.right);
+            if (balance > 1) {
+                if (height(node.left.left) < height(node.left.right)) {
+                    node.left = rotateLeft(node.left);
+                }
+                return rotateRight(node);
+            }
+            if (balance < -1) {
+                if (height(node.right.right) < height(node.right.left)) {
+                    node.right = rotateRight(node.right);
+                }
+                return rotateLeft(node);
+            }
+            return node;
+        }
+
+        private static Node rotateRight(Node node) {
+            Node pivot = node.left;
+            node.left = pivot.right;
+            pivot.right = node;
+            update(node);
+            update(pivot);
+            return pivot;
+        }
+
+        private static Node rotateLeft(Node node) {
+            Node pivot = node.right;
+            node.right = pivot.left;
+            pivot.left = node;
+            update(node);
+            update(pivot);
+            return pivot;
+        }
+
+        private static void update(Node node) {
+            node.height = 1 + Math.max(height(node.left), height(node.right));
+            long maxEnd = node.interval.end;
+            if (node.left != null) {
+                maxEnd = Math.max(maxEnd, node.left.maxEnd);
+            }
+            if (node.right != null) {
+                maxEnd = Math.max(maxEnd, node.right.maxEnd);
+            }
+            node.maxEnd = maxEnd;
+        }
+
+        private static int height(Node node) {
+            return node == null ? 0 : node.height;
+        }
+    }
+}
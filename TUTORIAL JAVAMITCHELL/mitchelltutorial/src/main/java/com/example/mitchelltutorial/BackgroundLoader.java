@@ -0,0 +1,120 @@
+package com.example.mitchelltutorial;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.VBox;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// Runs blocking work (JDBC, file I/O) on virtual threads and hands the result back to the
+// JavaFX Application Thread in a single hop. Work is keyed, so starting a new load for the
+// same key cancels the one still in flight and its stale result is never applied.
+// All methods must be called on the JavaFX Application Thread.
+public class BackgroundLoader implements AutoCloseable {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Object, Task<?>> inFlight = new HashMap<>();
+    private final Map<TableView<?>, Node> originalPlaceholders = new IdentityHashMap<>();
+
+    public <T> Task<T> submit(Object key, Callable<T> work, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        cancel(key);
+
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return work.call();
+            }
+        };
+        task.setOnSucceeded(e -> {
+            inFlight.remove(key, task);
+            onSuccess.accept(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            inFlight.remove(key, task);
+            onFailure.accept(task.getException());
+        });
+        task.setOnCancelled(e -> inFlight.remove(key, task));
+
+        inFlight.put(key, task);
+        executor.execute(task);
+        return task;
+    }
+
+    // Load rows for a table: shows a loading placeholder, then replaces the list contents in one batch
+    public <T> Task<List<T>> loadInto(TableView<T> table, ObservableList<T> target,
+                                      Callable<List<T>> query, Consumer<Throwable> onFailure) {
+        showLoading(table);
+        Task<List<T>> task = submit(table,
+                query,
+                rows -> {
+                    target.setAll(rows);
+                    table.setItems(target);
+                    restorePlaceholder(table);
+                },
+                error -> {
+                    restorePlaceholder(table);
+                    onFailure.accept(error);
+                });
+        task.setOnCancelled(e -> {
+            inFlight.remove(table, task);
+            if (!inFlight.containsKey(table)) {
+                restorePlaceholder(table);
+            }
+        });
+        return task;
+    }
+
+    public boolean cancel(Object key) {
+        Task<?> previous = inFlight.remove(key);
+        return previous != null && previous.cancel(true);
+    }
+
+    public void cancelAll() {
+        for (Task<?> task : List.copyOf(inFlight.values())) {
+            task.cancel(true);
+        }
+        inFlight.clear();
+    }
+
+    public boolean isLoading(Object key) {
+        return inFlight.containsKey(key);
+    }
+
+    @Override
+    public void close() {
+        if (Platform.isFxApplicationThread()) {
+            cancelAll();
+        }
+        executor.shutdownNow();
+    }
+
+    private void showLoading(TableView<?> table) {
+        if (!originalPlaceholders.containsKey(table)) {
+            originalPlaceholders.put(table, table.getPlaceholder());
+        }
+        ProgressIndicator spinner = new ProgressIndicator();
+        spinner.setMaxSize(40, 40);
+        VBox placeholder = new VBox(10, spinner, new Label("Loading..."));
+        placeholder.setAlignment(Pos.CENTER);
+        table.setPlaceholder(placeholder);
+    }
+
+    private void restorePlaceholder(TableView<?> table) {
+        if (originalPlaceholders.containsKey(table)) {
+            table.setPlaceholder(originalPlaceholders.remove(table));
+        }
+    }
+}
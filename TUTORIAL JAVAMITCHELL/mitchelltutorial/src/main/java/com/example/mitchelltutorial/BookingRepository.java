@@ -0,0 +1,97 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.OfflineStore.BookingRecord;
+import com.example.mitchelltutorial.VehicleRentalSystem.Booking;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+// Queries and writes against the bookings table. Bookings are read from the BookingView, which already
+// holds their customer's name and their vehicle's brand and model, which is how the booking table shows them
+public class BookingRepository extends Repository {
+
+    // Vehicles per fleet calendar query. The id list is always padded to this length, so every call is the
+    // same statement and the pool's statement cache reuses it
+    public static final int CALENDAR_BLOCK = 50;
+    private static final String CALENDAR_IDS = String.join(", ", Collections.nCopies(CALENDAR_BLOCK, "?"));
+
+    public static final RowMapper<Booking> MAPPER = rs -> new Booking(
+            rs.getString("id"),
+            rs.getString("customer_id"),
+            rs.getString("customer_name"),
+            rs.getString("vehicle_id"),
+            rs.getString("vehicle_details"),
+            rs.getDate("start_date").toLocalDate(),
+            rs.getDate("end_date").toLocalDate(),
+            rs.getDouble("daily_rate"),
+            rs.getString("status"),
+            rs.getString("employee_id")
+    );
+
+    public BookingRepository(ConnectionPool pool, OperationMetrics operations) {
+        super(pool, operations, "bookings");
+    }
+
+    public List<Booking> findAll() throws SQLException {
+        return timed("findAll", () -> list("SELECT * FROM booking_view", MAPPER));
+    }
+
+    public Booking find(String id) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return find(conn, id);
+        }
+    }
+
+    public Booking find(Connection conn, String id) throws SQLException {
+        return timed("find", () -> first(conn, "SELECT * FROM booking_view WHERE id = ?", MAPPER, id));
+    }
+
+    // One vehicle's or one customer's bookings, for refreshing those rows after the vehicle or customer is edited
+    public List<Booking> findByVehicle(String vehicleId) throws SQLException {
+        return timed("findByVehicle", () -> list("SELECT * FROM booking_view WHERE vehicle_id = ?", MAPPER, vehicleId));
+    }
+
+    public List<Booking> findByCustomer(String customerId) throws SQLException {
+        return timed("findByCustomer", () -> list("SELECT * FROM booking_view WHERE customer_id = ?",
+                MAPPER, customerId));
+    }
+
+    // The id of an active booking of the vehicle overlapping [start, end), or null if it is free
+    public String findConflict(Connection conn, String vehicleId, LocalDate start, LocalDate end) throws SQLException {
+        return timed("findConflict", () -> first(conn,
+                "SELECT id FROM bookings WHERE vehicle_id = ? AND status = 'Active' AND start_date < ? AND end_date > ?",
+                rs -> rs.getString("id"), vehicleId, end, start));
+    }
+
+    // Active and completed bookings of up to CALENDAR_BLOCK vehicles overlapping [from, to)
+    public List<Booking> findForCalendar(List<String> vehicleIds, LocalDate from, LocalDate to) throws SQLException {
+        if (vehicleIds.isEmpty() || vehicleIds.size() > CALENDAR_BLOCK) {
+            throw new IllegalArgumentException("Between 1 and " + CALENDAR_BLOCK + " vehicles: " + vehicleIds.size());
+        }
+        Object[] params = new Object[CALENDAR_BLOCK + 2];
+        for (int i = 0; i < CALENDAR_BLOCK; i++) {
+            params[i] = vehicleIds.get(Math.min(i, vehicleIds.size() - 1));
+        }
+        params[CALENDAR_BLOCK] = to;
+        params[CALENDAR_BLOCK + 1] = from;
+        return timed("findForCalendar", () -> list("SELECT * FROM booking_view " +
+                "WHERE vehicle_id IN (" + CALENDAR_IDS + ") AND start_date < ? AND end_date > ? " +
+                "AND status IN ('Active', 'Completed')", MAPPER, params));
+    }
+
+    // Adds the booking's BookingView row in the same transaction
+    public void insert(Connection conn, BookingRecord booking) throws SQLException {
+        timed("insert", () -> {
+            update(conn,
+                    "INSERT INTO bookings (id, customer_id, vehicle_id, start_date, end_date, daily_rate, status, employee_id) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                    booking.getId(), booking.getCustomerId(), booking.getVehicleId(), booking.getStartDate(),
+                    booking.getEndDate(), booking.getDailyRate(), booking.getStatus(), booking.getEmployeeId());
+            BookingView.refreshBookings(conn, List.of(booking.getId()));
+            return null;
+        });
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.mitchelltutorial;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+// The bookings as the booking table, the invoices and the PDF appendix show them: each booking row with its
+// customer's name and its vehicle's brand and model copied in, so reading them is a scan of one table instead
+// of a join of three. It is a plain table kept up to date by the writers, not an SQL view.
+// Every write that changes what it shows refreshes it inside its own transaction: a new or changed booking
+// its row, a vehicle or customer edit the rows of that vehicle or customer. rebuild() recomputes it from the
+// raw tables; it is the backfill, and the way back if it ever drifts.
+public final class BookingView {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private static final String SELECT_JOINED = "SELECT b.id, b.customer_id, c.name, b.vehicle_id, " +
+            "CONCAT(v.brand, ' ', v.model), b.start_date, b.end_date, b.daily_rate, b.status, b.employee_id " +
+            "FROM bookings b " +
+            "JOIN customers c ON c.id = b.customer_id " +
+            "JOIN vehicles v ON v.id = b.vehicle_id";
+    private static final String INSERT = "INSERT INTO booking_view (id, customer_id, customer_name, vehicle_id, " +
+            "vehicle_details, start_date, end_date, daily_rate, status, employee_id) ";
+
+    private BookingView() {
+    }
+
+    public static void createTable(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS booking_view (" +
+                "id VARCHAR(20) PRIMARY KEY, " +
+                "customer_id VARCHAR(20) NOT NULL, " +
+                "customer_name VARCHAR(100) NOT NULL, " +
+                "vehicle_id VARCHAR(20) NOT NULL, " +
+                "vehicle_details VARCHAR(101) NOT NULL, " +
+                "start_date DATE NOT NULL, " +
+                "end_date DATE NOT NULL, " +
+                "daily_rate DECIMAL(10,2) NOT NULL, " +
+                "status VARCHAR(20) NOT NULL, " +
+                "employee_id VARCHAR(50) NOT NULL, " +
+                // The fleet calendar reads by vehicle and dates, the PDF appendix in start date order, and the
+                // edits find the rows of a vehicle or customer
+                "INDEX idx_booking_view_vehicle_dates (vehicle_id, start_date), " +
+                "INDEX idx_booking_view_start (start_date, id), " +
+                "INDEX idx_booking_view_customer (customer_id))");
+    }
+
+    // True when there are bookings the view has never seen, i.e. on the first start after an upgrade
+    static boolean needsBackfill(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT NOT EXISTS (SELECT 1 FROM booking_view) AND " +
+                     "EXISTS (SELECT 1 FROM bookings)")) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    // The backfill: recomputes every row from the raw tables. Runs in the caller's transaction
+    public static void rebuild(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM booking_view");
+            stmt.executeUpdate(INSERT + SELECT_JOINED);
+        }
+    }
+
+    // Recopies the given bookings, e.g. after they were inserted or their status changed; call inside the
+    // transaction that wrote them
+    public static void refreshBookings(Connection conn, Collection<String> bookingIds) throws SQLException {
+        for (List<String> chunk : chunks(bookingIds)) {
+            String in = placeholders(chunk.size());
+            execute(conn, "DELETE FROM booking_view WHERE id IN (" + in + ")", chunk);
+            execute(conn, INSERT + SELECT_JOINED + " WHERE b.id IN (" + in + ")", chunk);
+        }
+    }
+
+    // Recopies the brand and model of the given vehicles into their bookings' rows
+    public static void refreshVehicles(Connection conn, Collection<String> vehicleIds) throws SQLException {
+        for (List<String> chunk : chunks(vehicleIds)) {
+            execute(conn, "UPDATE booking_view SET vehicle_details = " +
+                    "(SELECT CONCAT(v.brand, ' ', v.model) FROM vehicles v WHERE v.id = booking_view.vehicle_id) " +
+                    "WHERE vehicle_id IN (" + placeholders(chunk.size()) + ")", chunk);
+        }
+    }
+
+    // Recopies the name of the given customers into their bookings' rows
+    public static void refreshCustomers(Connection conn, Collection<String> customerIds) throws SQLException {
+        for (List<String> chunk : chunks(customerIds)) {
+            execute(conn, "UPDATE booking_view SET customer_name = " +
+                    "(SELECT c.name FROM customers c WHERE c.id = booking_view.customer_id) " +
+                    "WHERE customer_id IN (" + placeholders(chunk.size()) + ")", chunk);
+        }
+    }
+
+    private static void execute(Connection conn, String sql, List<String> ids) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                ps.setString(i + 1, ids.get(i));
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static List<List<String>> chunks(Collection<String> ids) {
+        List<String> all = new ArrayList<>(ids);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += CHUNK_SIZE) {
+            chunks.add(all.subList(i, Math.min(i + CHUNK_SIZE, all.size())));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,553 @@
+package com.example.mitchelltutorial;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded pool of JDBC connections shared by all screens.
+// Connections are validated on borrow, evicted when idle for too long and
+// reported when a caller holds one past the leak threshold.
+// Each connection also keeps its recently used prepared statements: preparing the same SQL again hands
+// back the statement prepared last time, and closing it returns it to the connection instead of
+// discarding it, so hot queries are parsed once per connection rather than once per call.
+public final class ConnectionPool implements AutoCloseable {
+
+    private static final System.Logger LOG = System.getLogger(ConnectionPool.class.getName());
+
+    // Connections used this recently are trusted without a round trip to the server
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long HOUSEKEEPING_PERIOD_SECONDS = 30;
+    private static final int STATEMENT_CACHE_SIZE = 64;
+    // A cached statement whose caller changed one of these is closed on return rather than reused.
+    // A query timeout is not among them: it is common enough to be worth putting back instead
+    private static final Set<String> STATEMENT_SETTINGS = Set.of("setFetchSize", "setFetchDirection",
+            "setMaxRows", "setLargeMaxRows", "setMaxFieldSize", "setEscapeProcessing",
+            "setPoolable", "setCursorName", "closeOnCompletion");
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutNanos;
+    private final long leakThresholdNanos;
+    private final int validationTimeoutSeconds;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+
+    // Metrics
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+    private final LongAdder validationFailureCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    private final LongAdder statementHitCount = new LongAdder();
+    private final LongAdder statementMissCount = new LongAdder();
+
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, int maxSize) {
+        this(url, user, password, maxSize, 5_000, 600_000, 60_000, 2);
+    }
+
+    public ConnectionPool(String url, String user, String password, int maxSize,
+                          long borrowTimeoutMillis, long idleTimeoutMillis,
+                          long leakThresholdMillis, int validationTimeoutSeconds) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(leakThresholdMillis);
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                HOUSEKEEPING_PERIOD_SECONDS, HOUSEKEEPING_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Borrow a connection. Closing the returned connection hands it back to the pool.
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        waiting.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTransientConnectionException("Timed out after " + borrowTimeoutMillis +
+                        "ms waiting for a database connection (active=" + borrowed.size() + ", max=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isValid(pooled)) {
+                    break;
+                }
+                validationFailureCount.increment();
+                destroy(pooled);
+            }
+            if (pooled == null) {
+                pooled = create();
+            }
+
+            pooled.borrowedAt = System.nanoTime();
+            pooled.borrowSite = new Throwable("Connection borrowed here");
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            borrowCount.increment();
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(
+                maxSize,
+                borrowed.size(),
+                idle.size(),
+                waiting.get(),
+                borrowCount.sum(),
+                timeoutCount.sum(),
+                createdCount.sum(),
+                destroyedCount.sum(),
+                validationFailureCount.sum(),
+                leakCount.sum(),
+                statementHitCount.sum(),
+                statementMissCount.sum()
+        );
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+        // Borrowed connections are destroyed as they are returned
+    }
+
+    private PooledConnection create() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, user, password);
+        createdCount.increment();
+        return new PooledConnection(raw);
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        if (System.nanoTime() - pooled.lastReturnedAt < VALIDATION_BYPASS_NANOS) {
+            return true;
+        }
+        try {
+            return pooled.raw.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        pooled.closeOpenStatements();
+        pooled.returnCachedStatements();
+        try {
+            if (!pooled.broken && !pooled.raw.getAutoCommit()) {
+                pooled.raw.rollback();
+                pooled.raw.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            pooled.broken = true;
+        }
+
+        borrowed.remove(pooled);
+        pooled.borrowSite = null;
+        pooled.lastReturnedAt = System.nanoTime();
+
+        if (closed || pooled.broken) {
+            destroy(pooled);
+        } else {
+            // LIFO keeps the hottest connections in use and lets the rest idle out
+            idle.offerFirst(pooled);
+        }
+        permits.release();
+    }
+
+    private void destroy(PooledConnection pooled) {
+        try {
+            pooled.raw.close();
+        } catch (SQLException ignored) {
+            // Already unusable
+        }
+        destroyedCount.increment();
+    }
+
+    // Runs every HOUSEKEEPING_PERIOD_SECONDS; package-private so the tests need not wait for it
+    void housekeep() {
+        long now = System.nanoTime();
+
+        // Idle eviction, oldest first
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            if (now - pooled.lastReturnedAt > idleTimeoutNanos && idle.remove(pooled)) {
+                destroy(pooled);
+            }
+        }
+
+        // Leak detection
+        for (PooledConnection pooled : borrowed) {
+            Throwable site = pooled.borrowSite;
+            if (!pooled.leakReported && site != null && now - pooled.borrowedAt > leakThresholdNanos) {
+                pooled.leakReported = true;
+                leakCount.increment();
+                LOG.log(System.Logger.Level.WARNING, "Possible connection leak: held for "
+                        + TimeUnit.NANOSECONDS.toMillis(now - pooled.borrowedAt) + "ms", site);
+            }
+        }
+    }
+
+    private static boolean isConnectionFailure(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+
+    private final class PooledConnection {
+        private final Connection raw;
+        private final List<Statement> openStatements = new ArrayList<>();
+        // Access order, so the least recently used statement is evicted first
+        private final Map<String, CachedStatement> statementCache = new LinkedHashMap<>(16, 0.75f, true);
+        private volatile long borrowedAt;
+        private volatile long lastReturnedAt = System.nanoTime();
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+        private volatile boolean broken;
+
+        private PooledConnection(Connection raw) {
+            this.raw = raw;
+        }
+
+        private Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+
+        private synchronized void track(Statement statement) {
+            openStatements.add(statement);
+        }
+
+        private synchronized void closeOpenStatements() {
+            for (Statement statement : openStatements) {
+                closeQuietly(statement);
+            }
+            openStatements.clear();
+        }
+
+        private synchronized PreparedStatement prepareCached(String sql, Connection handle) throws SQLException {
+            CachedStatement cached = statementCache.get(sql);
+            if (cached != null && cached.lease == null) {
+                statementHitCount.increment();
+                return cached.lend(handle);
+            }
+            statementMissCount.increment();
+            PreparedStatement statement = raw.prepareStatement(sql);
+            if (cached != null) {
+                // The same SQL is already open on this connection; this copy is not cached
+                track(statement);
+                return statement;
+            }
+            cached = new CachedStatement(this, sql, statement);
+            statementCache.put(sql, cached);
+            evictStatements();
+            return cached.lend(handle);
+        }
+
+        private void evictStatements() {
+            Iterator<CachedStatement> it = statementCache.values().iterator();
+            while (statementCache.size() > STATEMENT_CACHE_SIZE && it.hasNext()) {
+                CachedStatement eldest = it.next();
+                if (eldest.lease == null) {
+                    it.remove();
+                    closeQuietly(eldest.statement);
+                }
+            }
+        }
+
+        // Called when the caller closes the statement, or when the connection goes back with it still open
+        private synchronized void giveBack(CachedStatement cached) {
+            cached.lease = null;
+            boolean reusable = !cached.dirty;
+            try {
+                ResultSet rs = cached.statement.getResultSet();
+                if (rs != null) {
+                    rs.close();
+                }
+                cached.statement.clearParameters();
+                cached.statement.clearBatch();
+                if (cached.timeoutSet) {
+                    cached.statement.setQueryTimeout(0);
+                    cached.timeoutSet = false;
+                }
+                reusable &= !cached.statement.isClosed();
+            } catch (SQLException e) {
+                reusable = false;
+            }
+            if (!reusable) {
+                statementCache.remove(cached.sql, cached);
+                closeQuietly(cached.statement);
+            }
+        }
+
+        private synchronized void returnCachedStatements() {
+            for (CachedStatement cached : new ArrayList<>(statementCache.values())) {
+                if (cached.lease != null) {
+                    giveBack(cached);
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // Statement is being discarded anyway
+        }
+    }
+
+    // A prepared statement kept open on its connection. It is lent out through a fresh proxy each time,
+    // so a caller still holding an earlier proxy cannot use it after it has been handed to someone else.
+    private final class CachedStatement {
+        private final PooledConnection owner;
+        private final String sql;
+        private final PreparedStatement statement;
+        private StatementLease lease;
+        private boolean dirty;
+        private boolean timeoutSet;
+
+        private CachedStatement(PooledConnection owner, String sql, PreparedStatement statement) {
+            this.owner = owner;
+            this.sql = sql;
+            this.statement = statement;
+        }
+
+        private PreparedStatement lend(Connection handle) {
+            lease = new StatementLease(this, handle);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    lease);
+        }
+    }
+
+    private final class StatementLease implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection handle;
+
+        private StatementLease(CachedStatement cached, Connection handle) {
+            this.cached = cached;
+            this.handle = handle;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            boolean current;
+            synchronized (cached.owner) {
+                current = cached.lease == this;
+            }
+            switch (name) {
+                case "close":
+                    if (current) {
+                        cached.owner.giveBack(cached);
+                    }
+                    return null;
+                case "isClosed":
+                    return !current || cached.statement.isClosed();
+                case "getConnection":
+                    return handle;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached" + cached.statement;
+                default:
+                    break;
+            }
+
+            if (!current) {
+                throw new SQLException("Statement has already been closed");
+            }
+            if (STATEMENT_SETTINGS.contains(name)) {
+                cached.dirty = true;
+            } else if (name.equals("setQueryTimeout")) {
+                cached.timeoutSet = true;
+            }
+
+            try {
+                return method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && isConnectionFailure((SQLException) cause)) {
+                    cached.owner.broken = true;
+                }
+                throw cause;
+            }
+        }
+    }
+
+    // One handle per borrow, so a handle that has been closed cannot touch a connection
+    // that has since been lent to someone else.
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean handleClosed;
+
+        private Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!handleClosed) {
+                        handleClosed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return handleClosed || pooled.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.raw;
+                default:
+                    break;
+            }
+
+            if (handleClosed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (name.equals("prepareStatement") && args.length == 1) {
+                return pooled.prepareCached((String) args[0], (Connection) proxy);
+            }
+
+            try {
+                Object result = method.invoke(pooled.raw, args);
+                if (result instanceof Statement) {
+                    pooled.track((Statement) result);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && isConnectionFailure((SQLException) cause)) {
+                    pooled.broken = true;
+                }
+                throw cause;
+            }
+        }
+    }
+
+    public static class Stats {
+        private final int maxSize;
+        private final int active;
+        private final int idle;
+        private final int waiting;
+        private final long borrowCount;
+        private final long timeoutCount;
+        private final long createdCount;
+        private final long destroyedCount;
+        private final long validationFailureCount;
+        private final long leakCount;
+        private final long statementHitCount;
+        private final long statementMissCount;
+
+        public Stats(int maxSize, int active, int idle, int waiting, long borrowCount, long timeoutCount,
+                     long createdCount, long destroyedCount, long validationFailureCount, long leakCount,
+                     long statementHitCount, long statementMissCount) {
+            this.maxSize = maxSize;
+            this.active = active;
+            this.idle = idle;
+            this.waiting = waiting;
+            this.borrowCount = borrowCount;
+            this.timeoutCount = timeoutCount;
+            this.createdCount = createdCount;
+            this.destroyedCount = destroyedCount;
+            this.validationFailureCount = validationFailureCount;
+            this.leakCount = leakCount;
+            this.statementHitCount = statementHitCount;
+            this.statementMissCount = statementMissCount;
+        }
+
+        public int getMaxSize() { return maxSize; }
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getWaiting() { return waiting; }
+        public long getBorrowCount() { return borrowCount; }
+        public long getTimeoutCount() { return timeoutCount; }
+        public long getCreatedCount() { return createdCount; }
+        public long getDestroyedCount() { return destroyedCount; }
+        public long getValidationFailureCount() { return validationFailureCount; }
+        public long getLeakCount() { return leakCount; }
+        public long getStatementHitCount() { return statementHitCount; }
+        public long getStatementMissCount() { return statementMissCount; }
+
+        @Override
+        public String toString() {
+            return String.format("active=%d idle=%d max=%d waiting=%d borrows=%d timeouts=%d created=%d destroyed=%d invalid=%d leaks=%d " +
+                            "statementHits=%d statementMisses=%d",
+                    active, idle, maxSize, waiting, borrowCount, timeoutCount, createdCount, destroyedCount,
+                    validationFailureCount, leakCount, statementHitCount, statementMissCount);
+        }
+    }
+}
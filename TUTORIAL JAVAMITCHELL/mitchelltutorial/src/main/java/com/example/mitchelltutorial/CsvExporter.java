@@ -0,0 +1,474 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.OfflineStore.BookingRecord;
+import com.example.mitchelltutorial.VehicleRentalSystem.Payment;
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPOutputStream;
+
+// Streams a whole table to a CSV file without holding it in memory. Rows come from a forward-only,
+// read-only ResultSet that the driver streams (see SqlDialect.streamingFetchSize), and are formatted
+// straight into a byte buffer that is written to a FileChannel (through gzip when the file name ends
+// in .gz), so each row is garbage as soon as it has been written. Numbers and dates are formatted
+// digit by digit rather than with String.format. The file is written under a temporary name and moved
+// into place once complete, so a cancelled or failed export never leaves a truncated file behind. The
+// Reports tab's summary is exported the same way.
+public class CsvExporter {
+
+    private static final int PROGRESS_EVERY = 10_000;
+    private static final int BUFFER_SIZE = 1 << 18;
+
+    // Column types: T text, M money (two decimals), D date
+    public enum Table {
+        VEHICLES("Vehicles", "ID,Brand,Model,Category,Daily Rate,Status", "TTTTMT",
+                "SELECT id, brand, model, category, daily_rate, status FROM vehicles"),
+        BOOKINGS("Bookings", "ID,Customer ID,Vehicle ID,Start Date,End Date,Daily Rate,Status,Employee ID", "TTTDDMTT",
+                "SELECT id, customer_id, vehicle_id, start_date, end_date, daily_rate, status, employee_id FROM bookings"),
+        PAYMENTS("Payments", "ID,Booking ID,Amount,Method,Payment Date", "TTMTD",
+                "SELECT id, booking_id, amount, method, payment_date FROM payments");
+
+        private final String title;
+        private final String header;
+        private final String columns;
+        private final String query;
+
+        Table(String title, String header, String columns, String query) {
+            this.title = title;
+            this.header = header;
+            this.columns = columns;
+            this.query = query;
+        }
+
+        public String getTitle() { return title; }
+
+        private String countQuery() {
+            return "SELECT COUNT(*) FROM " + query.substring(query.lastIndexOf(' ') + 1);
+        }
+    }
+
+    // Called from the exporting thread every few thousand rows
+    @FunctionalInterface
+    public interface ProgressListener {
+        void progress(long rowsWritten, long totalRows);
+    }
+
+    private final ConnectionPool pool;
+    private final OfflineStore store;
+
+    public CsvExporter(ConnectionPool pool) {
+        this.pool = pool;
+        this.store = null;
+    }
+
+    public CsvExporter(OfflineStore store) {
+        this.pool = null;
+        this.store = store;
+    }
+
+    // Returns the number of rows written
+    public long export(Table table, Path target, ProgressListener listener) throws IOException, SQLException {
+        return write(target, out -> {
+            out.line(table.header);
+            return store != null ? exportOffline(table, out, listener) : exportOnline(table, out, listener);
+        });
+    }
+
+    // Vehicles per category, then bookings and revenue for each month of [start, end] as the rollups count
+    // them (offline, counted from the store). Returns the number of rows written
+    public long exportReports(Path target, LocalDate start, LocalDate end, ProgressListener listener)
+            throws IOException, SQLException {
+        return write(target, out -> {
+            Map<String, Integer> categories;
+            SortedMap<YearMonth, ReportRollups.Totals> months;
+            if (store != null) {
+                categories = store.vehicleCountsByCategory();
+                months = ReportRollups.monthly(store, start, end);
+            } else {
+                try (Connection conn = pool.getConnection()) {
+                    categories = countByCategory(conn);
+                    months = ReportRollups.monthly(conn, start, end);
+                }
+            }
+            long total = categories.size() + months.size();
+            long rows = 0;
+            report(rows, total, listener);
+
+            out.line("Vehicle Category Summary");
+            out.line("Category,Count");
+            for (Map.Entry<String, Integer> entry : categories.entrySet()) {
+                out.text(entry.getKey());
+                out.number(entry.getValue());
+                out.endRow();
+                report(++rows, total, listener);
+            }
+
+            out.line("");
+            out.line("Monthly Summary");
+            out.line("Month,Bookings,Revenue");
+            for (Map.Entry<YearMonth, ReportRollups.Totals> entry : months.entrySet()) {
+                out.month(entry.getKey());
+                out.number(entry.getValue().getBookings());
+                out.money(entry.getValue().getRevenue());
+                out.endRow();
+                report(++rows, total, listener);
+            }
+            listener.progress(rows, rows);
+            return rows;
+        });
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        long write(CsvWriter out) throws IOException, SQLException;
+    }
+
+    private static long write(Path target, Body body) throws IOException, SQLException {
+        boolean gzip = target.getFileName().toString().endsWith(".gz");
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        boolean complete = false;
+        try {
+            long rows;
+            try (CsvWriter out = new CsvWriter(open(partial, gzip))) {
+                rows = body.write(out);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Export cancelled");
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            complete = true;
+            return rows;
+        } finally {
+            if (!complete) {
+                Files.deleteIfExists(partial);
+            }
+        }
+    }
+
+    private static Map<String, Integer> countByCategory(Connection conn) throws SQLException {
+        Map<String, Integer> counts = new TreeMap<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT category, COUNT(*) FROM vehicles GROUP BY category");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                counts.put(rs.getString(1), rs.getInt(2));
+            }
+        }
+        return counts;
+    }
+
+    private long exportOnline(Table table, CsvWriter out, ProgressListener listener) throws IOException, SQLException {
+        try (Connection conn = pool.getConnection()) {
+            long total;
+            try (PreparedStatement ps = conn.prepareStatement(table.countQuery());
+                 ResultSet rs = ps.executeQuery()) {
+                total = rs.next() ? rs.getLong(1) : 0;
+            }
+            listener.progress(0, total);
+
+            try (PreparedStatement ps = conn.prepareStatement(table.query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(SqlDialect.of(conn).streamingFetchSize());
+                try (ResultSet rs = ps.executeQuery()) {
+                    long rows = 0;
+                    while (rs.next()) {
+                        for (int i = 0; i < table.columns.length(); i++) {
+                            switch (table.columns.charAt(i)) {
+                                case 'M' -> {
+                                    double value = rs.getDouble(i + 1);
+                                    if (rs.wasNull()) {
+                                        out.empty();
+                                    } else {
+                                        out.money(value);
+                                    }
+                                }
+                                case 'D' -> out.date(rs.getObject(i + 1, LocalDate.class));
+                                default -> out.text(rs.getString(i + 1));
+                            }
+                        }
+                        out.endRow();
+                        if (++rows % PROGRESS_EVERY == 0) {
+                            if (Thread.currentThread().isInterrupted()) {
+                                // Otherwise closing a streaming result set reads the rest of it first
+                                ps.cancel();
+                                throw new CancellationException("Export cancelled");
+                            }
+                            listener.progress(rows, Math.max(rows, total));
+                        }
+                    }
+                    listener.progress(rows, rows);
+                    return rows;
+                }
+            }
+        }
+    }
+
+    // The store is already in memory; this only saves the UI thread the formatting and the disk writes
+    private long exportOffline(Table table, CsvWriter out, ProgressListener listener) throws IOException {
+        long rows = 0;
+        switch (table) {
+            case VEHICLES -> {
+                List<Vehicle> vehicles = store.vehicles();
+                for (Vehicle v : vehicles) {
+                    out.text(v.getId());
+                    out.text(v.getBrand());
+                    out.text(v.getModel());
+                    out.text(v.getCategory());
+                    out.money(v.getDailyRate());
+                    out.text(v.getStatus());
+                    out.endRow();
+                    report(++rows, vehicles.size(), listener);
+                }
+            }
+            case BOOKINGS -> {
+                List<BookingRecord> bookings = store.bookingRecords();
+                for (BookingRecord b : bookings) {
+                    out.text(b.getId());
+                    out.text(b.getCustomerId());
+                    out.text(b.getVehicleId());
+                    out.date(b.getStartDate());
+                    out.date(b.getEndDate());
+                    out.money(b.getDailyRate());
+                    out.text(b.getStatus());
+                    out.text(b.getEmployeeId());
+                    out.endRow();
+                    report(++rows, bookings.size(), listener);
+                }
+            }
+            case PAYMENTS -> {
+                List<Payment> payments = store.payments();
+                for (Payment p : payments) {
+                    out.text(p.getId());
+                    out.text(p.getBookingId());
+                    out.money(p.getAmount());
+                    out.text(p.getMethod());
+                    out.date(p.getPaymentDate());
+                    out.endRow();
+                    report(++rows, payments.size(), listener);
+                }
+            }
+        }
+        listener.progress(rows, rows);
+        return rows;
+    }
+
+    private static void report(long rows, long total, ProgressListener listener) {
+        if (rows % PROGRESS_EVERY == 0) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Export cancelled");
+            }
+            listener.progress(rows, total);
+        }
+    }
+
+    private static WritableByteChannel open(Path path, boolean gzip) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        if (!gzip) {
+            return channel;
+        }
+        return Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+    }
+
+    // Encodes fields as UTF-8 directly into one reusable buffer; fields containing a comma, quote or
+    // line break are quoted with inner quotes doubled, as the importer expects
+    private static final class CsvWriter implements Closeable {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final byte[] digits = new byte[20];
+        private boolean firstField = true;
+
+        private CsvWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        private void line(String text) throws IOException {
+            for (int i = 0; i < text.length(); i++) {
+                putChar(text, i);
+            }
+            put((byte) '\n');
+        }
+
+        private void text(String value) throws IOException {
+            separator();
+            if (value == null) {
+                return;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (quote) {
+                put((byte) '"');
+            }
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) == '"') {
+                    put((byte) '"');
+                }
+                i += putChar(value, i);
+            }
+            if (quote) {
+                put((byte) '"');
+            }
+        }
+
+        private void empty() throws IOException {
+            separator();
+        }
+
+        private void number(long value) throws IOException {
+            separator();
+            if (value < 0) {
+                put((byte) '-');
+                value = -value;
+            }
+            putLong(value);
+        }
+
+        // Rounded to cents, which is exact for the DECIMAL(10,2) columns this is used for
+        private void money(double value) throws IOException {
+            separator();
+            long cents = Math.round(value * 100);
+            if (cents < 0) {
+                put((byte) '-');
+                cents = -cents;
+            }
+            putLong(cents / 100);
+            put((byte) '.');
+            long fraction = cents % 100;
+            put((byte) ('0' + fraction / 10));
+            put((byte) ('0' + fraction % 10));
+        }
+
+        private void date(LocalDate date) throws IOException {
+            separator();
+            if (date == null) {
+                return;
+            }
+            int year = date.getYear();
+            if (year < 1000) {
+                put((byte) '0');
+                put((byte) ('0' + year / 100));
+                put((byte) ('0' + year / 10 % 10));
+                put((byte) ('0' + year % 10));
+            } else {
+                putLong(year);
+            }
+            put((byte) '-');
+            putTwoDigits(date.getMonthValue());
+            put((byte) '-');
+            putTwoDigits(date.getDayOfMonth());
+        }
+
+        // yyyy-MM, as YearMonth.toString() writes it for four-digit years
+        private void month(YearMonth month) throws IOException {
+            separator();
+            putLong(month.getYear());
+            put((byte) '-');
+            putTwoDigits(month.getMonthValue());
+        }
+
+        private void endRow() throws IOException {
+            put((byte) '\n');
+            firstField = true;
+        }
+
+        private void separator() throws IOException {
+            if (!firstField) {
+                put((byte) ',');
+            }
+            firstField = false;
+        }
+
+        private void putTwoDigits(int value) throws IOException {
+            put((byte) ('0' + value / 10));
+            put((byte) ('0' + value % 10));
+        }
+
+        private void putLong(long value) throws IOException {
+            int pos = digits.length;
+            do {
+                digits[--pos] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            while (pos < digits.length) {
+                put(digits[pos++]);
+            }
+        }
+
+        // Writes the code point at index as UTF-8; returns 1 if it used a surrogate pair, else 0
+        private int putChar(String text, int index) throws IOException {
+            char c = text.charAt(index);
+            if (c < 0x80) {
+                put((byte) c);
+                return 0;
+            }
+            if (c < 0x800) {
+                put((byte) (0xC0 | c >> 6));
+                put((byte) (0x80 | c & 0x3F));
+                return 0;
+            }
+            if (Character.isHighSurrogate(c) && index + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(index + 1))) {
+                int cp = Character.toCodePoint(c, text.charAt(index + 1));
+                put((byte) (0xF0 | cp >> 18));
+                put((byte) (0x80 | cp >> 12 & 0x3F));
+                put((byte) (0x80 | cp >> 6 & 0x3F));
+                put((byte) (0x80 | cp & 0x3F));
+                return 1;
+            }
+            if (Character.isSurrogate(c)) {
+                put((byte) '?');
+                return 0;
+            }
+            put((byte) (0xE0 | c >> 12));
+            put((byte) (0x80 | c >> 6 & 0x3F));
+            put((byte) (0x80 | c & 0x3F));
+            return 0;
+        }
+
+        private void put(byte b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put(b);
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.Customer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+// Queries and writes against the customers table
+public class CustomerRepository extends Repository {
+
+    public static final RowMapper<Customer> MAPPER = rs -> new Customer(
+            rs.getString("id"),
+            rs.getString("name"),
+            rs.getString("phone"),
+            rs.getString("email"),
+            rs.getString("license"),
+            rs.getDate("dob").toLocalDate()
+    );
+
+    public CustomerRepository(ConnectionPool pool, OperationMetrics operations) {
+        super(pool, operations, "customers");
+    }
+
+    public List<Customer> findAll() throws SQLException {
+        return timed("findAll", () -> list("SELECT * FROM customers", MAPPER));
+    }
+
+    public void insert(Customer customer) throws SQLException {
+        timed("insert", () -> update(
+                "INSERT INTO customers (id, name, phone, email, license, dob) VALUES (?, ?, ?, ?, ?, ?)",
+                customer.getId(), customer.getName(), customer.getPhone(), customer.getEmail(),
+                customer.getLicense(), customer.getDob()));
+    }
+
+    // Recopies the name into the customer's BookingView rows in the same transaction
+    public boolean update(Customer customer) throws SQLException {
+        return timed("update", () -> {
+            try (Connection conn = pool.getConnection()) {
+                conn.setAutoCommit(false);
+                int updated = update(conn,
+                        "UPDATE customers SET name = ?, phone = ?, email = ?, license = ?, dob = ? WHERE id = ?",
+                        customer.getName(), customer.getPhone(), customer.getEmail(), customer.getLicense(),
+                        customer.getDob(), customer.getId());
+                BookingView.refreshCustomers(conn, List.of(customer.getId()));
+                conn.commit();
+                return updated;
+            }
+        }) > 0;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.mitchelltutorial;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Running totals behind the dashboard, so showing it costs no queries.
+// The counters are seeded from a source (the database or the offline store) and then moved by the write
+// paths as they commit. Increments from several threads land in separate cells of each LongAdder rather
+// than contending on one value. A background reconcile reads the source again every few minutes, which
+// corrects any drift from writes made elsewhere, such as another desk or a bulk import.
+public final class DashboardMetrics implements AutoCloseable {
+
+    private static final System.Logger LOG = System.getLogger(DashboardMetrics.class.getName());
+
+    private static final long RECONCILE_PERIOD_MINUTES = 5;
+
+    private final LongAdder vehicles = new LongAdder();
+    private final LongAdder customers = new LongAdder();
+    private final LongAdder activeBookings = new LongAdder();
+    // Whole cents, so concurrent additions stay exact
+    private final LongAdder revenueCents = new LongAdder();
+
+    private final ScheduledExecutorService reconciler;
+    private volatile Callable<Snapshot> source;
+    private volatile boolean seeded;
+
+    public DashboardMetrics() {
+        this.reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dashboard-metrics-reconciler");
+            t.setDaemon(true);
+            return t;
+        });
+        reconciler.scheduleWithFixedDelay(this::reconcileQuietly,
+                RECONCILE_PERIOD_MINUTES, RECONCILE_PERIOD_MINUTES, TimeUnit.MINUTES);
+    }
+
+    // Where the true totals come from; called again when switching between offline and online.
+    // Seeds the counters in the background straight away
+    public void setSource(Callable<Snapshot> source) {
+        this.source = source;
+        reconcileAsync();
+    }
+
+    public void reconcileAsync() {
+        try {
+            reconciler.execute(this::reconcileQuietly);
+        } catch (RejectedExecutionException e) {
+            // Closed during shutdown
+        }
+    }
+
+    // Moves each counter to the source's value. A write that commits while the source is being read may be
+    // counted twice or missed; the next reconcile puts it right
+    public void reconcile() throws Exception {
+        Callable<Snapshot> current = source;
+        if (current == null) {
+            return;
+        }
+        Snapshot actual = current.call();
+        vehicles.add(actual.vehicles - vehicles.sum());
+        customers.add(actual.customers - customers.sum());
+        activeBookings.add(actual.activeBookings - activeBookings.sum());
+        revenueCents.add(actual.revenueCents - revenueCents.sum());
+        seeded = true;
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            LOG.log(System.Logger.Level.WARNING, "Could not reconcile dashboard metrics", e);
+        }
+    }
+
+    // False until the first reconcile has finished
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(vehicles.sum(), customers.sum(), activeBookings.sum(), revenueCents.sum());
+    }
+
+    // Write hooks, called once the change has been committed
+
+    public void vehicleAdded() {
+        vehicles.increment();
+    }
+
+    public void vehicleRemoved() {
+        vehicles.decrement();
+    }
+
+    public void customerAdded() {
+        customers.increment();
+    }
+
+    public void bookingOpened() {
+        activeBookings.increment();
+    }
+
+    public void bookingsClosed(int count) {
+        activeBookings.add(-count);
+    }
+
+    public void revenueAdded(double amount) {
+        revenueCents.add(toCents(amount));
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    @Override
+    public void close() {
+        reconciler.shutdownNow();
+    }
+
+    public static class Snapshot {
+        private final long vehicles;
+        private final long customers;
+        private final long activeBookings;
+        private final long revenueCents;
+
+        private Snapshot(long vehicles, long customers, long activeBookings, long revenueCents) {
+            this.vehicles = vehicles;
+            this.customers = customers;
+            this.activeBookings = activeBookings;
+            this.revenueCents = revenueCents;
+        }
+
+        public static Snapshot of(long vehicles, long customers, long activeBookings, double revenue) {
+            return new Snapshot(vehicles, customers, activeBookings, toCents(revenue));
+        }
+
+        public long getVehicles() { return vehicles; }
+        public long getCustomers() { return customers; }
+        public long getActiveBookings() { return activeBookings; }
+        public double getRevenue() { return revenueCents / 100.0; }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.mitchelltutorial;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Publishes the operation metrics and the current pool's stats on the platform MBean server.
+// The pool is looked up on every read because it is replaced when the app goes offline or reconnects
+public class Diagnostics implements DiagnosticsMXBean, AutoCloseable {
+
+    private static final System.Logger LOG = System.getLogger(Diagnostics.class.getName());
+
+    private static final String OBJECT_NAME = "com.example.mitchelltutorial:type=Diagnostics";
+
+    private final OperationMetrics operations;
+    private final Supplier<ConnectionPool> pool;
+    private ObjectName registeredAs;
+
+    public Diagnostics(OperationMetrics operations, Supplier<ConnectionPool> pool) {
+        this.operations = operations;
+        this.pool = pool;
+    }
+
+    // Failing to register only costs the JMX view, so it is logged rather than thrown
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            registeredAs = name;
+        } catch (JMException e) {
+            LOG.log(System.Logger.Level.WARNING, "Could not register " + OBJECT_NAME, e);
+        }
+    }
+
+    @Override
+    public List<OperationMetrics.Snapshot> getOperations() {
+        return operations.snapshot();
+    }
+
+    @Override
+    public ConnectionPool.Stats getConnectionPool() {
+        ConnectionPool current = pool.get();
+        return current == null ? null : current.getStats();
+    }
+
+    @Override
+    public void resetOperations() {
+        operations.reset();
+    }
+
+    @Override
+    public void close() {
+        if (registeredAs == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredAs);
+        } catch (JMException e) {
+            LOG.log(System.Logger.Level.DEBUG, "Could not unregister " + registeredAs, e);
+        }
+        registeredAs = null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.mitchelltutorial;
+
+import java.util.List;
+
+// The Diagnostics tab over JMX (jconsole, VisualVM, or any JMX client), registered as
+// com.example.mitchelltutorial:type=Diagnostics
+public interface DiagnosticsMXBean {
+
+    List<OperationMetrics.Snapshot> getOperations();
+
+    // Null while offline
+    ConnectionPool.Stats getConnectionPool();
+
+    void resetOperations();
+}
@@ -0,0 +1,520 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.Booking;
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+import javafx.geometry.Orientation;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// The whole fleet against the calendar: one row per vehicle, one column per day for a year, each booking a
+// bar across the days it holds the vehicle. Everything is drawn on one Canvas the size of the viewport, so
+// only the rows and days in view cost anything however large the fleet.
+// Bookings are fetched in tiles of ROWS_PER_TILE vehicles by DAYS_PER_TILE days, only for tiles in view and
+// a few at a time; loaded tiles are kept up to MAX_TILES, least recently drawn first out. Rows whose tile is
+// still loading are shaded. A click on an empty day from today on reports the vehicle and day, so the owner
+// can start a booking there; a click on a bar reports the booking.
+// All methods must be called on the JavaFX Application Thread.
+public final class FleetCalendarView extends Region {
+
+    @FunctionalInterface
+    public interface BookingSource {
+        // The bookings of these vehicles overlapping [from, to); called on a background thread
+        List<Booking> bookings(List<String> vehicleIds, LocalDate from, LocalDate to) throws Exception;
+    }
+
+    public static final int DAYS = 365;
+    public static final int ROWS_PER_TILE = BookingRepository.CALENDAR_BLOCK;
+    private static final int DAYS_PER_TILE = 28;
+    private static final int MAX_TILES = 400;
+    private static final int MAX_IN_FLIGHT = 4;
+
+    private static final double ROW_HEIGHT = 24;
+    private static final double DAY_WIDTH = 26;
+    private static final double LABEL_WIDTH = 200;
+    private static final double HEADER_HEIGHT = 44;
+
+    private static final DateTimeFormatter MONTH_LABEL = DateTimeFormatter.ofPattern("MMMM yyyy");
+    private static final Color GRID = Color.web("#ECEFF1");
+    private static final Color WEEKEND = Color.web("#F5F7F8");
+    private static final Color TODAY = Color.web("#FFF8E1");
+    private static final Color LOADING = Color.web("#F0F0F0");
+    private static final Color HEADER = Color.web("#E3F2FD");
+    private static final Color TEXT = Color.web("#37474F");
+    private static final Color ACTIVE = Color.web("#2196F3");
+    private static final Color COMPLETED = Color.web("#90A4AE");
+    private static final Color HOVER = Color.web("#C8E6C9");
+
+    private final BackgroundLoader loader;
+    private final BookingSource source;
+    private final Consumer<Throwable> onError;
+    private final Canvas canvas = new Canvas();
+    private final ScrollBar vertical = new ScrollBar();
+    private final ScrollBar horizontal = new ScrollBar();
+
+    private List<Vehicle> vehicles = new ArrayList<>();
+    private final Map<String, Integer> rowsById = new HashMap<>();
+    private LocalDate firstDay = LocalDate.now().minusDays(7);
+
+    // Loaded tiles in drawing order, least recently drawn first
+    private final LinkedHashMap<Tile, Map<String, List<Booking>>> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private final Set<Tile> inFlight = new HashSet<>();
+    private final Set<Tile> failed = new HashSet<>();
+    // Loaded, but fetched again because a booking in them changed; drawn as they are until then
+    private final Set<Tile> stale = new HashSet<>();
+    // Bumped whenever rows or days move, so tiles fetched for the old layout are thrown away
+    private int generation;
+
+    private BiConsumer<Vehicle, LocalDate> onEmptyCellClicked;
+    private Consumer<Booking> onBookingClicked;
+    private int hoverRow = -1;
+    private int hoverDay = -1;
+
+    public FleetCalendarView(BackgroundLoader loader, BookingSource source, Consumer<Throwable> onError) {
+        this.loader = loader;
+        this.source = source;
+        this.onError = onError;
+        vertical.setOrientation(Orientation.VERTICAL);
+        horizontal.setOrientation(Orientation.HORIZONTAL);
+        getChildren().addAll(canvas, vertical, horizontal);
+        setMinSize(300, 200);
+        setPrefSize(900, 500);
+
+        vertical.valueProperty().addListener((obs, oldValue, newValue) -> draw());
+        horizontal.valueProperty().addListener((obs, oldValue, newValue) -> draw());
+        canvas.setOnScroll(e -> {
+            double dx = e.getDeltaX();
+            double dy = e.getDeltaY();
+            if (e.isShiftDown() && dx == 0) {
+                dx = dy;
+                dy = 0;
+            }
+            scrollTo(horizontal, horizontal.getValue() - dx);
+            scrollTo(vertical, vertical.getValue() - dy);
+            e.consume();
+        });
+        canvas.setOnMouseMoved(e -> {
+            int row = rowAt(e.getY());
+            int day = dayAt(e.getX());
+            if (row != hoverRow || day != hoverDay) {
+                hoverRow = row;
+                hoverDay = day;
+                draw();
+            }
+        });
+        canvas.setOnMouseExited(e -> {
+            hoverRow = -1;
+            hoverDay = -1;
+            draw();
+        });
+        canvas.setOnMouseClicked(e -> clicked(rowAt(e.getY()), dayAt(e.getX())));
+    }
+
+    public void setOnEmptyCellClicked(BiConsumer<Vehicle, LocalDate> onEmptyCellClicked) {
+        this.onEmptyCellClicked = onEmptyCellClicked;
+    }
+
+    public void setOnBookingClicked(Consumer<Booking> onBookingClicked) {
+        this.onBookingClicked = onBookingClicked;
+    }
+
+    // The rows, in the order given. Loaded tiles are kept if the order is unchanged, e.g. after a status change
+    public void setVehicles(List<Vehicle> vehicles) {
+        boolean sameRows = vehicles.size() == this.vehicles.size();
+        for (int i = 0; sameRows && i < vehicles.size(); i++) {
+            sameRows = vehicles.get(i).getId().equals(this.vehicles.get(i).getId());
+        }
+        this.vehicles = new ArrayList<>(vehicles);
+        if (!sameRows) {
+            rowsById.clear();
+            for (int i = 0; i < this.vehicles.size(); i++) {
+                rowsById.put(this.vehicles.get(i).getId(), i);
+            }
+            clearTiles();
+        }
+        requestLayout();
+        draw();
+    }
+
+    public LocalDate getFirstDay() {
+        return firstDay;
+    }
+
+    // The first of the DAYS columns
+    public void setFirstDay(LocalDate firstDay) {
+        if (!firstDay.equals(this.firstDay)) {
+            this.firstDay = firstDay;
+            clearTiles();
+            draw();
+        }
+    }
+
+    // Scrolls so the day is the first column in view
+    public void scrollToDay(LocalDate day) {
+        scrollTo(horizontal, (day.toEpochDay() - firstDay.toEpochDay()) * DAY_WIDTH);
+    }
+
+    // Fetches the bookings in view again, e.g. after coming back online
+    public void refresh() {
+        clearTiles();
+        draw();
+    }
+
+    // A booking of this vehicle was made or changed: its tiles are fetched again
+    public void bookingChanged(String vehicleId) {
+        Integer row = rowsById.get(vehicleId);
+        if (row == null) {
+            return;
+        }
+        int rowTile = row / ROWS_PER_TILE;
+        for (Tile tile : tiles.keySet()) {
+            if (tile.rowTile == rowTile) {
+                stale.add(tile);
+            }
+        }
+        failed.removeIf(tile -> tile.rowTile == rowTile);
+        // Whatever is in flight for those rows may predate the write; the next draw asks again
+        inFlight.removeIf(tile -> tile.rowTile == rowTile);
+        draw();
+    }
+
+    public void clear() {
+        vehicles = new ArrayList<>();
+        rowsById.clear();
+        clearTiles();
+        draw();
+    }
+
+    private void clearTiles() {
+        generation++;
+        tiles.clear();
+        inFlight.clear();
+        failed.clear();
+        stale.clear();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double barWidth = vertical.prefWidth(-1);
+        double barHeight = horizontal.prefHeight(-1);
+        double width = Math.max(0, getWidth() - barWidth);
+        double height = Math.max(0, getHeight() - barHeight);
+        vertical.resizeRelocate(width, 0, barWidth, height);
+        horizontal.resizeRelocate(0, height, width, barHeight);
+        canvas.setWidth(width);
+        canvas.setHeight(height);
+
+        configure(vertical, vehicles.size() * ROW_HEIGHT, height - HEADER_HEIGHT, ROW_HEIGHT);
+        configure(horizontal, DAYS * DAY_WIDTH, width - LABEL_WIDTH, DAY_WIDTH);
+        draw();
+    }
+
+    private static void configure(ScrollBar bar, double content, double viewport, double unit) {
+        double max = Math.max(0, content - viewport);
+        bar.setMax(max);
+        bar.setVisibleAmount(max == 0 ? 1 : Math.max(viewport, 1) * max / Math.max(content, 1));
+        bar.setUnitIncrement(unit);
+        bar.setBlockIncrement(Math.max(unit, viewport - unit));
+        bar.setValue(Math.min(bar.getValue(), max));
+    }
+
+    private static void scrollTo(ScrollBar bar, double value) {
+        bar.setValue(Math.max(0, Math.min(bar.getMax(), value)));
+    }
+
+    private int rowAt(double y) {
+        if (y < HEADER_HEIGHT) {
+            return -1;
+        }
+        int row = (int) ((y - HEADER_HEIGHT + vertical.getValue()) / ROW_HEIGHT);
+        return row < vehicles.size() ? row : -1;
+    }
+
+    private int dayAt(double x) {
+        if (x < LABEL_WIDTH) {
+            return -1;
+        }
+        int day = (int) ((x - LABEL_WIDTH + horizontal.getValue()) / DAY_WIDTH);
+        return day < DAYS ? day : -1;
+    }
+
+    private void clicked(int row, int day) {
+        if (row < 0 || day < 0) {
+            return;
+        }
+        Map<String, List<Booking>> tile = tiles.get(new Tile(row / ROWS_PER_TILE, day / DAYS_PER_TILE));
+        if (tile == null) {
+            // Not loaded yet, so it is not known to be empty
+            return;
+        }
+        Vehicle vehicle = vehicles.get(row);
+        LocalDate date = firstDay.plusDays(day);
+        for (Booking b : tile.getOrDefault(vehicle.getId(), List.of())) {
+            // Bookings hold [start, end), as they are priced
+            if (!date.isBefore(b.getStartDate()) && date.isBefore(b.getEndDate())) {
+                if (onBookingClicked != null) {
+                    onBookingClicked.accept(b);
+                }
+                return;
+            }
+        }
+        if (onEmptyCellClicked != null && !date.isBefore(LocalDate.now())) {
+            onEmptyCellClicked.accept(vehicle, date);
+        }
+    }
+
+    private void draw() {
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.setFill(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        if (width <= LABEL_WIDTH || height <= HEADER_HEIGHT) {
+            return;
+        }
+
+        double scrollX = horizontal.getValue();
+        double scrollY = vertical.getValue();
+        int firstRow = (int) (scrollY / ROW_HEIGHT);
+        int lastRow = Math.min(vehicles.size() - 1, (int) ((scrollY + height - HEADER_HEIGHT) / ROW_HEIGHT));
+        int firstCol = (int) (scrollX / DAY_WIDTH);
+        int lastCol = Math.min(DAYS - 1, (int) ((scrollX + width - LABEL_WIDTH) / DAY_WIDTH));
+        int today = (int) (LocalDate.now().toEpochDay() - firstDay.toEpochDay());
+
+        // Day columns: weekends and today shaded, then the grid
+        g.save();
+        g.beginPath();
+        g.rect(LABEL_WIDTH, 0, width - LABEL_WIDTH, height);
+        g.clip();
+        for (int day = firstCol; day <= lastCol; day++) {
+            double x = columnX(day, scrollX);
+            DayOfWeek weekday = firstDay.plusDays(day).getDayOfWeek();
+            if (day == today) {
+                g.setFill(TODAY);
+                g.fillRect(x, HEADER_HEIGHT, DAY_WIDTH, height - HEADER_HEIGHT);
+            } else if (weekday == DayOfWeek.SATURDAY || weekday == DayOfWeek.SUNDAY) {
+                g.setFill(WEEKEND);
+                g.fillRect(x, HEADER_HEIGHT, DAY_WIDTH, height - HEADER_HEIGHT);
+            }
+        }
+        g.restore();
+
+        List<Tile> missing = new ArrayList<>();
+        g.save();
+        g.beginPath();
+        g.rect(0, HEADER_HEIGHT, width, height - HEADER_HEIGHT);
+        g.clip();
+        g.setTextBaseline(VPos.CENTER);
+        for (int row = firstRow; row <= lastRow; row++) {
+            drawRow(g, row, firstCol, lastCol, scrollX, scrollY, width, missing);
+        }
+        g.restore();
+
+        drawHeader(g, firstCol, lastCol, scrollX, width, today);
+        requestTiles(missing);
+    }
+
+    private void drawRow(GraphicsContext g, int row, int firstCol, int lastCol, double scrollX, double scrollY,
+                         double width, List<Tile> missing) {
+        Vehicle vehicle = vehicles.get(row);
+        double y = HEADER_HEIGHT + row * ROW_HEIGHT - scrollY;
+
+        // The bookings of the row from each tile in view, once each however many tiles they cross
+        List<Booking> bookings = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        g.save();
+        g.beginPath();
+        g.rect(LABEL_WIDTH, y, width - LABEL_WIDTH, ROW_HEIGHT);
+        g.clip();
+        for (int dayTile = firstCol / DAYS_PER_TILE; dayTile <= lastCol / DAYS_PER_TILE; dayTile++) {
+            Tile key = new Tile(row / ROWS_PER_TILE, dayTile);
+            Map<String, List<Booking>> tile = tiles.get(key);
+            if ((tile == null || stale.contains(key)) && !missing.contains(key)) {
+                missing.add(key);
+            }
+            if (tile == null) {
+                double from = columnX(dayTile * DAYS_PER_TILE, scrollX);
+                g.setFill(LOADING);
+                g.fillRect(from, y, DAYS_PER_TILE * DAY_WIDTH, ROW_HEIGHT);
+                continue;
+            }
+            for (Booking b : tile.getOrDefault(vehicle.getId(), List.of())) {
+                if (seen.add(b.getId())) {
+                    bookings.add(b);
+                }
+            }
+        }
+        if (row == hoverRow && hoverDay >= 0) {
+            g.setFill(HOVER);
+            g.fillRect(columnX(hoverDay, scrollX), y, DAY_WIDTH, ROW_HEIGHT);
+        }
+
+        g.setFont(Font.font("System", 10));
+        g.setTextAlign(TextAlignment.LEFT);
+        for (Booking b : bookings) {
+            long start = b.getStartDate().toEpochDay() - firstDay.toEpochDay();
+            long end = b.getEndDate().toEpochDay() - firstDay.toEpochDay();
+            double x = columnX(start, scrollX) + 1;
+            double barWidth = Math.max(4, (end - start) * DAY_WIDTH - 2);
+            g.setFill("Active".equals(b.getStatus()) ? ACTIVE : COMPLETED);
+            g.fillRoundRect(x, y + 3, barWidth, ROW_HEIGHT - 6, 6, 6);
+            if (barWidth > 40) {
+                // The label sticks to the left edge while the bar is scrolled past
+                double labelX = Math.max(x, LABEL_WIDTH) + 4;
+                g.setFill(Color.WHITE);
+                g.fillText(b.getCustomerName(), labelX, y + ROW_HEIGHT / 2, Math.max(0, x + barWidth - labelX - 4));
+            }
+        }
+        g.restore();
+
+        g.setStroke(GRID);
+        g.setLineWidth(1);
+        g.strokeLine(0, Math.round(y + ROW_HEIGHT) - 0.5, width, Math.round(y + ROW_HEIGHT) - 0.5);
+        g.setFill(TEXT);
+        g.setFont(Font.font("System", FontWeight.BOLD, 11));
+        g.fillText(vehicle.getId(), 8, y + ROW_HEIGHT / 2, 60);
+        g.setFont(Font.font("System", 11));
+        g.fillText(vehicle.getBrand() + " " + vehicle.getModel() + " - " + vehicle.getCategory(), 70,
+                y + ROW_HEIGHT / 2, LABEL_WIDTH - 76);
+    }
+
+    private void drawHeader(GraphicsContext g, int firstCol, int lastCol, double scrollX, double width, int today) {
+        g.setFill(HEADER);
+        g.fillRect(0, 0, width, HEADER_HEIGHT);
+        g.setFill(TEXT);
+        g.setTextBaseline(VPos.CENTER);
+        g.setTextAlign(TextAlignment.LEFT);
+        g.setFont(Font.font("System", FontWeight.BOLD, 12));
+        g.fillText(String.format("%,d vehicles", vehicles.size()), 8, HEADER_HEIGHT / 2);
+
+        g.save();
+        g.beginPath();
+        g.rect(LABEL_WIDTH, 0, width - LABEL_WIDTH, HEADER_HEIGHT);
+        g.clip();
+        g.setStroke(Color.web("#BBDEFB"));
+        for (int day = firstCol; day <= lastCol; day++) {
+            LocalDate date = firstDay.plusDays(day);
+            double x = columnX(day, scrollX);
+            // A month's name at its first day, and at the left edge for the month already under way
+            if (date.getDayOfMonth() == 1 || day == firstCol) {
+                g.setFont(Font.font("System", FontWeight.BOLD, 12));
+                g.setTextAlign(TextAlignment.LEFT);
+                g.setFill(TEXT);
+                g.fillText(date.format(MONTH_LABEL), Math.max(x, LABEL_WIDTH) + 4, HEADER_HEIGHT / 4);
+                g.strokeLine(Math.round(x) + 0.5, 0, Math.round(x) + 0.5, HEADER_HEIGHT);
+            }
+            g.setFont(Font.font("System", day == today ? FontWeight.BOLD : FontWeight.NORMAL, 10));
+            g.setTextAlign(TextAlignment.CENTER);
+            g.fillText(Integer.toString(date.getDayOfMonth()), x + DAY_WIDTH / 2, HEADER_HEIGHT * 3 / 4);
+        }
+        g.restore();
+        g.setStroke(Color.web("#90CAF9"));
+        g.strokeLine(0, HEADER_HEIGHT - 0.5, width, HEADER_HEIGHT - 0.5);
+        g.strokeLine(LABEL_WIDTH - 0.5, 0, LABEL_WIDTH - 0.5, canvas.getHeight());
+    }
+
+    private double columnX(long day, double scrollX) {
+        return LABEL_WIDTH + day * DAY_WIDTH - scrollX;
+    }
+
+    // Asks for the tiles in view that are neither loaded nor on their way, a few at a time; each
+    // arrival redraws, which asks for the next
+    private void requestTiles(List<Tile> missing) {
+        for (Tile tile : missing) {
+            if (inFlight.size() >= MAX_IN_FLIGHT) {
+                return;
+            }
+            if (inFlight.contains(tile) || failed.contains(tile)) {
+                continue;
+            }
+            int fromRow = tile.rowTile * ROWS_PER_TILE;
+            List<String> ids = new ArrayList<>();
+            for (int row = fromRow; row < Math.min(fromRow + ROWS_PER_TILE, vehicles.size()); row++) {
+                ids.add(vehicles.get(row).getId());
+            }
+            LocalDate from = firstDay.plusDays((long) tile.dayTile * DAYS_PER_TILE);
+            LocalDate to = firstDay.plusDays(Math.min((long) (tile.dayTile + 1) * DAYS_PER_TILE, DAYS));
+            int requested = generation;
+            inFlight.add(tile);
+            loader.submit("fleetCalendar:" + requested + ":" + tile.rowTile + ":" + tile.dayTile,
+                    () -> byVehicle(source.bookings(ids, from, to)),
+                    bookings -> {
+                        if (requested == generation && inFlight.remove(tile)) {
+                            stale.remove(tile);
+                            tiles.put(tile, bookings);
+                            trimTiles();
+                            draw();
+                        }
+                    },
+                    error -> {
+                        if (requested == generation && inFlight.remove(tile)) {
+                            // Not asked for again until the next refresh, so a lost connection is reported once
+                            boolean first = failed.isEmpty();
+                            failed.add(tile);
+                            if (first) {
+                                onError.accept(error);
+                            }
+                        }
+                    });
+        }
+    }
+
+    private static Map<String, List<Booking>> byVehicle(List<Booking> bookings) {
+        Map<String, List<Booking>> byVehicle = new HashMap<>();
+        for (Booking b : bookings) {
+            byVehicle.computeIfAbsent(b.getVehicleId(), k -> new ArrayList<>()).add(b);
+        }
+        byVehicle.values().forEach(list -> list.sort(Comparator.comparing(Booking::getStartDate)));
+        return byVehicle;
+    }
+
+    private void trimTiles() {
+        Iterator<Tile> it = tiles.keySet().iterator();
+        while (tiles.size() > MAX_TILES && it.hasNext()) {
+            stale.remove(it.next());
+            it.remove();
+        }
+    }
+
+    private static final class Tile {
+        private final int rowTile;
+        private final int dayTile;
+
+        private Tile(int rowTile, int dayTile) {
+            this.rowTile = rowTile;
+            this.dayTile = dayTile;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Tile other && rowTile == other.rowTile && dayTile == other.dayTile;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(rowTile, dayTile);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.mitchelltutorial;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Booking and payment ids minted locally, without a round trip per id.
+// An id is a prefix and a 63-bit number made of, high to low, the milliseconds since 2024 (41 bits),
+// the node (10 bits) and a sequence within the millisecond (12 bits), so "B" or "P" plus the number fits
+// the 20-character id columns for the next 69 years.
+// Timestamp and sequence advance together as one AtomicLong, moved by compare-and-set: a 4097th id in the
+// same millisecond, or a clock that steps backwards, simply carries into the next millisecond, so ids from
+// one node are strictly increasing and nothing ever waits or retries on a collision.
+// Nodes keep two desks apart. Online, each start claims the next node number from the database; offline,
+// or with -Drental.node=N, the node is fixed.
+public final class IdGenerator {
+
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+
+    private static final String NODE_PROPERTY = "rental.node";
+
+    private final long node;
+    private final LongSupplier clock;
+    // (milliseconds since EPOCH << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong last = new AtomicLong();
+
+    public IdGenerator(int node) {
+        this(node, System::currentTimeMillis);
+    }
+
+    IdGenerator(int node, LongSupplier clock) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node must be between 0 and " + MAX_NODE + ": " + node);
+        }
+        this.node = node;
+        this.clock = clock;
+    }
+
+    // For a desk without a database: the configured node, or a random one
+    public static IdGenerator local() {
+        Integer configured = configuredNode();
+        return new IdGenerator(configured != null ? configured : ThreadLocalRandom.current().nextInt(MAX_NODE + 1));
+    }
+
+    // The configured node, or the next one from the database's counter (wrapping after MAX_NODE)
+    public static IdGenerator claim(Connection conn) throws SQLException {
+        Integer configured = configuredNode();
+        return new IdGenerator(configured != null ? configured : claimNode(conn));
+    }
+
+    public static void createTable(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS id_nodes (" +
+                "name VARCHAR(30) PRIMARY KEY, " +
+                "next_node BIGINT NOT NULL)");
+    }
+
+    // The upsert locks the counter row until the commit, so two desks starting together get different nodes
+    private static int claimNode(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO id_nodes (name, next_node) VALUES ('ids', 1) " +
+                    "ON DUPLICATE KEY UPDATE next_node = next_node + 1");
+            long claimed;
+            try (ResultSet rs = stmt.executeQuery("SELECT next_node FROM id_nodes WHERE name = 'ids'")) {
+                rs.next();
+                claimed = rs.getLong(1) - 1;
+            }
+            conn.commit();
+            return (int) (claimed % (MAX_NODE + 1));
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static Integer configuredNode() {
+        String value = System.getProperty(NODE_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("-D" + NODE_PROPERTY + " must be a number: " + value, e);
+        }
+    }
+
+    public int getNode() {
+        return (int) node;
+    }
+
+    public String next(String prefix) {
+        return prefix + nextLong();
+    }
+
+    public long nextLong() {
+        long now = (clock.getAsLong() - EPOCH) << SEQUENCE_BITS;
+        long stamp = last.accumulateAndGet(now, (previous, current) -> Math.max(previous + 1, current));
+        long millis = stamp >>> SEQUENCE_BITS;
+        long sequence = stamp & ((1L << SEQUENCE_BITS) - 1);
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+    }
+}
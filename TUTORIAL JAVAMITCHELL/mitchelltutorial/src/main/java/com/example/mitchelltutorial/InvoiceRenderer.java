@@ -0,0 +1,98 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.Booking;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Pattern;
+
+// Builds the invoice for a booking as HTML, the plain-text version shown in the invoice dialog, and a PDF page
+public final class InvoiceRenderer {
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd MMM yyyy");
+    private static final Pattern TAG = Pattern.compile("<[^>]*>");
+
+    private static final String HEAD = "<html><head><title>Invoice</title><style>" +
+            "body { font-family: Arial, sans-serif; margin: 20px; }" +
+            "h1 { color: #0D47A1; }" +
+            "table { width: 100%; border-collapse: collapse; margin: 20px 0; }" +
+            "th { background-color: #0D47A1; color: white; text-align: left; padding: 8px; }" +
+            "td { padding: 8px; border-bottom: 1px solid #ddd; }" +
+            ".total { font-weight: bold; font-size: 1.2em; }" +
+            "</style></head><body>" +
+            "<h1>Hyacinth's Vehicle Rental - Invoice</h1>";
+
+    private InvoiceRenderer() {
+    }
+
+    public static String html(Booking booking, LocalDate invoiceDate) {
+        long days = PricingCalculator.rentalDays(booking.getStartDate(), booking.getEndDate());
+        double total = PricingCalculator.total(booking.getStartDate(), booking.getEndDate(), booking.getDailyRate());
+        return HEAD +
+                "<p><strong>Invoice Date:</strong> " + invoiceDate.format(DATE) + "</p>" +
+                "<p><strong>Booking ID:</strong> " + booking.getId() + "</p>" +
+                "<p><strong>Customer:</strong> " + booking.getCustomerName() + "</p>" +
+                "<p><strong>Vehicle:</strong> " + booking.getVehicleDetails() + "</p>" +
+                "<table>" +
+                "<tr><th>Description</th><th>Amount</th></tr>" +
+                "<tr><td>Rental from " + booking.getStartDate().format(DATE) +
+                " to " + booking.getEndDate().format(DATE) + " (" + days + " days)</td>" +
+                "<td>$" + String.format("%.2f", booking.getDailyRate()) + "/day</td></tr>" +
+                "<tr><td><strong>Subtotal</strong></td><td>$" + String.format("%.2f", total) + "</td></tr>" +
+                "<tr><td><strong>Total</strong></td><td class='total'>$" + String.format("%.2f", total) + "</td></tr>" +
+                "</table>" +
+                "<p>Thank you for choosing Hyacinth's Vehicle Rental!</p>" +
+                "</body></html>";
+    }
+
+    public static String text(Booking booking, LocalDate invoiceDate) {
+        return TAG.matcher(html(booking, invoiceDate)).replaceAll("");
+    }
+
+    // The same invoice laid out as one page of the document being written
+    public static void pdf(PdfStreamWriter pdf, Booking booking, LocalDate invoiceDate) throws IOException {
+        long days = PricingCalculator.rentalDays(booking.getStartDate(), booking.getEndDate());
+        double total = PricingCalculator.total(booking.getStartDate(), booking.getEndDate(), booking.getDailyRate());
+        float left = 56;
+        float right = PdfStreamWriter.PAGE_WIDTH - 56;
+        float amountX = right - 110;
+
+        pdf.beginPage();
+        float y = PdfStreamWriter.PAGE_HEIGHT - 80;
+        pdf.text(PdfStreamWriter.Font.BOLD, 20, left, y, "Hyacinth's Vehicle Rental - Invoice");
+        y -= 40;
+        String[][] details = {
+                {"Invoice Date:", invoiceDate.format(DATE)},
+                {"Booking ID:", booking.getId()},
+                {"Customer:", booking.getCustomerName()},
+                {"Vehicle:", booking.getVehicleDetails()}
+        };
+        for (String[] detail : details) {
+            pdf.text(PdfStreamWriter.Font.BOLD, 11, left, y, detail[0]);
+            pdf.text(PdfStreamWriter.Font.REGULAR, 11, left + 90, y, detail[1]);
+            y -= 18;
+        }
+
+        y -= 20;
+        pdf.fillRect(left, y - 6, right - left, 22, 13 / 255f, 71 / 255f, 161 / 255f);
+        pdf.text(PdfStreamWriter.Font.BOLD, 11, left + 8, y, "Description", 1, 1, 1);
+        pdf.text(PdfStreamWriter.Font.BOLD, 11, amountX, y, "Amount", 1, 1, 1);
+        y -= 26;
+        pdf.text(PdfStreamWriter.Font.REGULAR, 11, left + 8, y, "Rental from " + booking.getStartDate().format(DATE) +
+                " to " + booking.getEndDate().format(DATE) + " (" + days + " days)");
+        pdf.text(PdfStreamWriter.Font.REGULAR, 11, amountX, y, "$" + String.format("%.2f", booking.getDailyRate()) + "/day");
+        pdf.line(left, y - 8, right, y - 8, 0.5f);
+        y -= 26;
+        pdf.text(PdfStreamWriter.Font.BOLD, 11, left + 8, y, "Subtotal");
+        pdf.text(PdfStreamWriter.Font.REGULAR, 11, amountX, y, "$" + String.format("%.2f", total));
+        pdf.line(left, y - 8, right, y - 8, 0.5f);
+        y -= 26;
+        pdf.text(PdfStreamWriter.Font.BOLD, 13, left + 8, y, "Total");
+        pdf.text(PdfStreamWriter.Font.BOLD, 13, amountX, y, "$" + String.format("%.2f", total));
+
+        y -= 50;
+        pdf.text(PdfStreamWriter.Font.REGULAR, 11, left, y, "Thank you for choosing Hyacinth's Vehicle Rental!");
+        pdf.endPage();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.mitchelltutorial;
+
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Applies row-level changes to an ObservableList in place instead of reloading it.
+// Upserts and removals may be queued from any thread; everything queued before the next
+// UI pulse is merged per key and applied in a single pass on the JavaFX Application Thread.
+public class ListPatcher<K, T> {
+
+    private final ObservableList<T> list;
+    private final Function<T, K> keyOf;
+
+    // Pending changes, guarded by this
+    private Map<K, T> pendingUpserts = new LinkedHashMap<>();
+    private Set<K> pendingRemovals = new LinkedHashSet<>();
+    private boolean flushScheduled;
+
+    // Key -> position in list, FX thread only. Invalidated by any change we did not make ourselves.
+    private final Map<K, Integer> positions = new HashMap<>();
+    private boolean positionsValid;
+    private boolean applying;
+
+    public ListPatcher(ObservableList<T> list, Function<T, K> keyOf) {
+        this.list = list;
+        this.keyOf = keyOf;
+        list.addListener((ListChangeListener<T>) change -> {
+            if (!applying) {
+                positionsValid = false;
+            }
+        });
+    }
+
+    public void upsert(T row) {
+        K key = keyOf.apply(row);
+        synchronized (this) {
+            pendingRemovals.remove(key);
+            pendingUpserts.put(key, row);
+        }
+        scheduleFlush();
+    }
+
+    public void upsertAll(List<T> rows) {
+        synchronized (this) {
+            for (T row : rows) {
+                K key = keyOf.apply(row);
+                pendingRemovals.remove(key);
+                pendingUpserts.put(key, row);
+            }
+        }
+        scheduleFlush();
+    }
+
+    public void remove(K key) {
+        synchronized (this) {
+            pendingUpserts.remove(key);
+            pendingRemovals.add(key);
+        }
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        synchronized (this) {
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        Platform.runLater(this::flush);
+    }
+
+    private void flush() {
+        Map<K, T> upserts;
+        Set<K> removals;
+        synchronized (this) {
+            upserts = pendingUpserts;
+            removals = pendingRemovals;
+            pendingUpserts = new LinkedHashMap<>();
+            pendingRemovals = new LinkedHashSet<>();
+            flushScheduled = false;
+        }
+
+        applying = true;
+        try {
+            if (!removals.isEmpty()) {
+                // Removing shifts every later row, so positions are rebuilt on the next lookup
+                list.removeIf(row -> removals.contains(keyOf.apply(row)));
+                positionsValid = false;
+            }
+
+            List<T> appended = new ArrayList<>();
+            for (Map.Entry<K, T> entry : upserts.entrySet()) {
+                Integer index = positionOf(entry.getKey());
+                if (index != null) {
+                    list.set(index, entry.getValue());
+                } else {
+                    positions.put(entry.getKey(), list.size() + appended.size());
+                    appended.add(entry.getValue());
+                }
+            }
+            if (!appended.isEmpty()) {
+                list.addAll(appended);
+            }
+        } finally {
+            applying = false;
+        }
+    }
+
+    private Integer positionOf(K key) {
+        if (!positionsValid) {
+            positions.clear();
+            for (int i = 0; i < list.size(); i++) {
+                positions.put(keyOf.apply(list.get(i)), i);
+            }
+            positionsValid = true;
+        }
+        return positions.get(key);
+    }
+}
@@ -0,0 +1,483 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.OfflineStore.BookingRecord;
+import com.example.mitchelltutorial.OfflineStore.OutboxEntry;
+import com.example.mitchelltutorial.VehicleRentalSystem.Customer;
+import com.example.mitchelltutorial.VehicleRentalSystem.Payment;
+import com.example.mitchelltutorial.VehicleRentalSystem.User;
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+// Durable log of every change made to the OfflineStore, so work taken while the database is
+// unreachable survives a restart. Each change is one full-row upsert or a removal, appended to
+// a memory-mapped file as [length][crc32c][payload]. Appends are plain memory writes; the mapping
+// is forced to disk on a timer rather than per write. When the log grows past a threshold the
+// whole store is written to a snapshot and the log starts over. On startup the snapshot and then
+// the log are replayed; a torn or corrupt tail (e.g. power loss mid-write) ends the replay there.
+// Once everything has reached the database the journal is cleared, so nothing is restored twice.
+public class OfflineJournal implements AutoCloseable {
+
+    private static final System.Logger LOG = System.getLogger(OfflineJournal.class.getName());
+
+    public static final Path DEFAULT_DIRECTORY = Path.of(System.getProperty("user.home"), ".vehicle-rental");
+
+    private static final String JOURNAL_FILE = "offline.journal";
+    private static final String SNAPSHOT_FILE = "offline.snapshot";
+
+    private static final int HEADER_BYTES = 8;
+    private static final long INITIAL_MAPPING_BYTES = 1L << 20;
+    private static final long COMPACT_THRESHOLD_BYTES = 8L << 20;
+    private static final long FLUSH_PERIOD_MILLIS = 1_000;
+
+    // Record kinds and operations
+    private static final byte VEHICLE = 'V';
+    private static final byte CUSTOMER = 'C';
+    private static final byte BOOKING = 'B';
+    private static final byte PAYMENT = 'P';
+    private static final byte USER = 'U';
+    private static final byte OUTBOX = 'O';
+    private static final byte UPSERT = '+';
+    private static final byte REMOVE = '-';
+    // The row before its first queued change, see OfflineStore
+    private static final byte BASE = '=';
+
+    private final Path directory;
+    private final Path journalPath;
+    private final Path snapshotPath;
+    private final FileChannel channel;
+    private final ScheduledExecutorService flusher;
+
+    // Guarded by this
+    private MappedByteBuffer mapping;
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream record = new DataOutputStream(recordBytes);
+    private final CRC32C crc = new CRC32C();
+    private boolean dirty;
+    private boolean failed;
+    private OfflineStore store;
+
+    private OfflineJournal(Path directory) throws IOException {
+        this.directory = directory;
+        this.journalPath = directory.resolve(JOURNAL_FILE);
+        this.snapshotPath = directory.resolve(SNAPSHOT_FILE);
+        Files.createDirectories(directory);
+        this.channel = FileChannel.open(journalPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), INITIAL_MAPPING_BYTES));
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "offline-journal-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static OfflineJournal open() throws IOException {
+        return open(DEFAULT_DIRECTORY);
+    }
+
+    public static OfflineJournal open(Path directory) throws IOException {
+        return new OfflineJournal(directory);
+    }
+
+    // Replay the snapshot and the log into an empty store. Returns false if there was nothing to restore.
+    public synchronized boolean restoreInto(OfflineStore target) throws IOException {
+        int restored = 0;
+        if (Files.exists(snapshotPath)) {
+            restored += replay(ByteBuffer.wrap(Files.readAllBytes(snapshotPath)), target);
+        }
+        ByteBuffer log = mapping.duplicate();
+        restored += replay(log, target);
+
+        // Anything after the last good record is a torn write; clear it so it can never be misread later
+        int end = log.position();
+        for (int i = end; i < mapping.capacity(); i++) {
+            if (mapping.get(i) != 0) {
+                mapping.put(i, (byte) 0);
+                dirty = true;
+            }
+        }
+        mapping.position(end);
+        return restored > 0;
+    }
+
+    // Start recording every change made to the store, and flushing/compacting in the background
+    public void attach(OfflineStore target) {
+        synchronized (this) {
+            this.store = target;
+        }
+        target.setJournal(this);
+        flusher.scheduleWithFixedDelay(this::flushAndMaybeCompact,
+                FLUSH_PERIOD_MILLIS, FLUSH_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // Appends, called by OfflineStore while it holds its own lock so the log order matches the store
+
+    void vehicleUpserted(Vehicle vehicle) {
+        append(VEHICLE, UPSERT, out -> writeVehicle(out, vehicle));
+    }
+
+    void vehicleRemoved(String id) {
+        append(VEHICLE, REMOVE, out -> out.writeUTF(id));
+    }
+
+    void customerUpserted(Customer customer) {
+        append(CUSTOMER, UPSERT, out -> writeCustomer(out, customer));
+    }
+
+    void bookingUpserted(BookingRecord booking) {
+        append(BOOKING, UPSERT, out -> writeBooking(out, booking));
+    }
+
+    void paymentUpserted(Payment payment) {
+        append(PAYMENT, UPSERT, out -> writePayment(out, payment));
+    }
+
+    void userUpserted(User user) {
+        append(USER, UPSERT, out -> writeUser(out, user));
+    }
+
+    void outboxQueued(OutboxEntry entry) {
+        append(OUTBOX, UPSERT, out -> writeOutboxEntry(out, entry));
+    }
+
+    void vehicleBaseRecorded(Vehicle base) {
+        append(VEHICLE, BASE, out -> writeVehicle(out, base));
+    }
+
+    void customerBaseRecorded(Customer base) {
+        append(CUSTOMER, BASE, out -> writeCustomer(out, base));
+    }
+
+    void outboxAcknowledged(OutboxEntry entry) {
+        append(OUTBOX, REMOVE, out -> {
+            out.writeByte(entry.getKind().ordinal());
+            out.writeUTF(entry.getId());
+            out.writeLong(entry.getSequence());
+        });
+    }
+
+    // Replace the snapshot with the given rows and start an empty log. Called with the store locked.
+    synchronized void compact(Collection<Vehicle> vehicles, Collection<Customer> customers,
+                              Collection<BookingRecord> bookings, Collection<Payment> payments,
+                              Collection<User> users, Collection<OutboxEntry> outbox,
+                              Collection<Vehicle> vehicleBases, Collection<Customer> customerBases) throws IOException {
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            for (Vehicle v : vehicles) {
+                buffer = writeTo(out, buffer, VEHICLE, UPSERT, o -> writeVehicle(o, v));
+            }
+            for (Customer c : customers) {
+                buffer = writeTo(out, buffer, CUSTOMER, UPSERT, o -> writeCustomer(o, c));
+            }
+            for (BookingRecord b : bookings) {
+                buffer = writeTo(out, buffer, BOOKING, UPSERT, o -> writeBooking(o, b));
+            }
+            for (Payment p : payments) {
+                buffer = writeTo(out, buffer, PAYMENT, UPSERT, o -> writePayment(o, p));
+            }
+            for (User u : users) {
+                buffer = writeTo(out, buffer, USER, UPSERT, o -> writeUser(o, u));
+            }
+            for (OutboxEntry e : outbox) {
+                buffer = writeTo(out, buffer, OUTBOX, UPSERT, o -> writeOutboxEntry(o, e));
+            }
+            for (Vehicle v : vehicleBases) {
+                buffer = writeTo(out, buffer, VEHICLE, BASE, o -> writeVehicle(o, v));
+            }
+            for (Customer c : customerBases) {
+                buffer = writeTo(out, buffer, CUSTOMER, BASE, o -> writeCustomer(o, c));
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // The snapshot now holds everything, so the log can start over. If we crash before this point the
+        // old log is replayed on top of the new snapshot, which is harmless because every record is a full row.
+        channel.truncate(0);
+        mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_MAPPING_BYTES);
+        dirty = false;
+    }
+
+    // Forget everything saved, once every offline change has reached the database or been rejected.
+    // The snapshot goes first: a crash in between replays less, never more. The log is zeroed in place
+    // rather than truncated, as the file is still mapped.
+    public synchronized void clear() throws IOException {
+        Files.deleteIfExists(snapshotPath);
+        mapping.put(0, new byte[mapping.position()]);
+        mapping.position(0);
+        mapping.force();
+        dirty = false;
+    }
+
+    public synchronized void flush() {
+        if (dirty) {
+            mapping.force();
+            dirty = false;
+        }
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        synchronized (this) {
+            flush();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.log(System.Logger.Level.WARNING, "Failed to close offline journal", e);
+            }
+        }
+    }
+
+    private void flushAndMaybeCompact() {
+        OfflineStore target;
+        boolean compact;
+        synchronized (this) {
+            flush();
+            target = store;
+            compact = !failed && mapping.position() > COMPACT_THRESHOLD_BYTES;
+        }
+        if (compact && target != null) {
+            // Takes the store lock, then ours, the same order as an append
+            target.compactJournal();
+        }
+    }
+
+    private synchronized void append(byte kind, byte op, RecordWriter body) {
+        if (failed) {
+            return;
+        }
+        try {
+            byte[] payload = encode(kind, op, body);
+            int needed = HEADER_BYTES + payload.length;
+            if (mapping.remaining() < needed + HEADER_BYTES) {
+                grow(needed);
+            }
+            crc.reset();
+            crc.update(payload);
+            int start = mapping.position();
+            mapping.position(start + HEADER_BYTES);
+            mapping.put(payload);
+            mapping.putInt(start + 4, (int) crc.getValue());
+            // Length last: a record is only visible once it is complete
+            mapping.putInt(start, payload.length);
+            dirty = true;
+        } catch (IOException | RuntimeException e) {
+            // Keep trading from memory rather than failing the user's action
+            failed = true;
+            LOG.log(System.Logger.Level.ERROR, "Offline journal write failed; further offline changes will not be saved", e);
+        }
+    }
+
+    private void grow(int needed) throws IOException {
+        int position = mapping.position();
+        long size = mapping.capacity();
+        while (size - position < needed + HEADER_BYTES) {
+            size *= 2;
+        }
+        mapping.force();
+        mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        mapping.position(position);
+    }
+
+    private byte[] encode(byte kind, byte op, RecordWriter body) throws IOException {
+        recordBytes.reset();
+        record.writeByte(kind);
+        record.writeByte(op);
+        body.write(record);
+        record.flush();
+        return recordBytes.toByteArray();
+    }
+
+    private ByteBuffer writeTo(FileChannel out, ByteBuffer buffer, byte kind, byte op, RecordWriter body) throws IOException {
+        byte[] payload = encode(kind, op, body);
+        if (buffer.remaining() < HEADER_BYTES + payload.length) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+            if (buffer.capacity() < HEADER_BYTES + payload.length) {
+                buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+            }
+        }
+        crc.reset();
+        crc.update(payload);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        return buffer;
+    }
+
+    // Applies records from the buffer's position until the end, a zero length or a bad checksum.
+    // Leaves the buffer positioned just after the last good record.
+    private int replay(ByteBuffer buffer, OfflineStore target) throws IOException {
+        int applied = 0;
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt(start);
+            int checksum = buffer.getInt(start + 4);
+            if (length <= 0 || length > buffer.remaining() - HEADER_BYTES) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(start + HEADER_BYTES, payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                LOG.log(System.Logger.Level.WARNING, "Offline journal checksum mismatch at offset " + start
+                        + "; ignoring the rest of the log");
+                break;
+            }
+            apply(new DataInputStream(new ByteArrayInputStream(payload)), target);
+            buffer.position(start + HEADER_BYTES + length);
+            applied++;
+        }
+        return applied;
+    }
+
+    private static void apply(DataInputStream in, OfflineStore target) throws IOException {
+        byte kind = in.readByte();
+        byte op = in.readByte();
+        if (op == BASE) {
+            if (kind == VEHICLE) {
+                target.restoreVehicleBase(readVehicle(in));
+            } else if (kind == CUSTOMER) {
+                target.restoreCustomerBase(readCustomer(in));
+            }
+            return;
+        }
+        if (op == REMOVE) {
+            if (kind == VEHICLE) {
+                target.removeVehicle(in.readUTF());
+            } else if (kind == OUTBOX) {
+                target.restoreOutboxAcknowledgement(OfflineStore.Kind.values()[in.readByte()], in.readUTF(), in.readLong());
+            }
+            return;
+        }
+        switch (kind) {
+            case VEHICLE -> target.putVehicle(readVehicle(in));
+            case CUSTOMER -> target.putCustomer(readCustomer(in));
+            case BOOKING -> target.putBooking(new BookingRecord(in.readUTF(), in.readUTF(), in.readUTF(),
+                    readDate(in), readDate(in), in.readDouble(), readString(in), readString(in)));
+            case PAYMENT -> target.putPayment(new Payment(in.readUTF(), in.readUTF(), in.readDouble(), readString(in),
+                    readDate(in)));
+            case USER -> target.addUser(new User(in.readUTF(), in.readUTF(), in.readUTF()));
+            case OUTBOX -> target.restoreOutboxEntry(new OutboxEntry(OfflineStore.Kind.values()[in.readByte()],
+                    in.readUTF(), in.readBoolean(), in.readLong()));
+            default -> throw new IOException("Unknown offline journal record kind: " + (char) kind);
+        }
+    }
+
+    private static Vehicle readVehicle(DataInputStream in) throws IOException {
+        return new Vehicle(in.readUTF(), readString(in), readString(in), readString(in), in.readDouble(),
+                readString(in));
+    }
+
+    private static Customer readCustomer(DataInputStream in) throws IOException {
+        return new Customer(in.readUTF(), readString(in), readString(in), readString(in), readString(in),
+                readDate(in));
+    }
+
+    private static void writeVehicle(DataOutputStream out, Vehicle v) throws IOException {
+        out.writeUTF(v.getId());
+        writeString(out, v.getBrand());
+        writeString(out, v.getModel());
+        writeString(out, v.getCategory());
+        out.writeDouble(v.getDailyRate());
+        writeString(out, v.getStatus());
+    }
+
+    private static void writeCustomer(DataOutputStream out, Customer c) throws IOException {
+        out.writeUTF(c.getId());
+        writeString(out, c.getName());
+        writeString(out, c.getPhone());
+        writeString(out, c.getEmail());
+        writeString(out, c.getLicense());
+        writeDate(out, c.getDob());
+    }
+
+    private static void writeBooking(DataOutputStream out, BookingRecord b) throws IOException {
+        out.writeUTF(b.getId());
+        out.writeUTF(b.getCustomerId());
+        out.writeUTF(b.getVehicleId());
+        writeDate(out, b.getStartDate());
+        writeDate(out, b.getEndDate());
+        out.writeDouble(b.getDailyRate());
+        writeString(out, b.getStatus());
+        writeString(out, b.getEmployeeId());
+    }
+
+    private static void writePayment(DataOutputStream out, Payment p) throws IOException {
+        out.writeUTF(p.getId());
+        out.writeUTF(p.getBookingId());
+        out.writeDouble(p.getAmount());
+        writeString(out, p.getMethod());
+        writeDate(out, p.getPaymentDate());
+    }
+
+    private static void writeUser(DataOutputStream out, User u) throws IOException {
+        out.writeUTF(u.getUsername());
+        out.writeUTF(u.getPassword());
+        out.writeUTF(u.getRole());
+    }
+
+    private static void writeOutboxEntry(DataOutputStream out, OutboxEntry e) throws IOException {
+        out.writeByte(e.getKind().ordinal());
+        out.writeUTF(e.getId());
+        out.writeBoolean(e.isRemoval());
+        out.writeLong(e.getSequence());
+    }
+
+    // Row fields other than ids can be null (an unset combo box, a NULL column); writeUTF(null) would throw
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate date) throws IOException {
+        out.writeLong(date == null ? Long.MIN_VALUE : date.toEpochDay());
+    }
+
+    private static LocalDate readDate(DataInputStream in) throws IOException {
+        long epochDay = in.readLong();
+        return epochDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
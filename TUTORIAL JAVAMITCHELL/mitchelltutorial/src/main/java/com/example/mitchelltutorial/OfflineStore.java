@@ -0,0 +1,503 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.Booking;
+import com.example.mitchelltutorial.VehicleRentalSystem.Customer;
+import com.example.mitchelltutorial.VehicleRentalSystem.Payment;
+import com.example.mitchelltutorial.VehicleRentalSystem.User;
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// In-memory repository used when the database is unreachable.
+// Rows are kept in insertion order in primary-key hash maps, with secondary indexes on
+// booking vehicle/customer/status and payment booking, so lookups, joins and status
+// updates are O(1) per row. Access is synchronized because the UI thread writes while
+// background loaders read. Once a journal is attached every change is also appended to it.
+// Once outbox recording starts, every changed row is also queued for the SyncEngine to send
+// to the database when it becomes reachable again. For vehicles and customers the row as it was
+// before its first queued change is kept too, so the sync can tell what changed on which side.
+public class OfflineStore {
+
+    public enum Kind { VEHICLE, CUSTOMER, BOOKING, PAYMENT, USER }
+
+    private static final System.Logger LOG = System.getLogger(OfflineStore.class.getName());
+
+    private final Map<String, Vehicle> vehicles = new LinkedHashMap<>();
+    private final Map<String, Customer> customers = new LinkedHashMap<>();
+    private final Map<String, BookingRecord> bookings = new LinkedHashMap<>();
+    private final Map<String, Payment> payments = new LinkedHashMap<>();
+    private final Map<String, User> users = new LinkedHashMap<>();
+
+    // Secondary indexes: key -> ids of matching rows
+    private final Map<String, Set<String>> bookingsByVehicle = new HashMap<>();
+    private final Map<String, Set<String>> bookingsByCustomer = new HashMap<>();
+    private final Map<String, Set<String>> bookingsByStatus = new HashMap<>();
+    private final Map<String, Set<String>> paymentsByBooking = new HashMap<>();
+
+    // Rows changed while offline, in the order they were first changed; one entry per row
+    private final Map<String, OutboxEntry> outbox = new LinkedHashMap<>();
+    private long outboxSequence;
+    private boolean recordingOutbox;
+    // Base rows of queued vehicles and customers; a row created offline has none
+    private final Map<String, Vehicle> vehicleBases = new HashMap<>();
+    private final Map<String, Customer> customerBases = new HashMap<>();
+
+    private OfflineJournal journal;
+
+    synchronized void setJournal(OfflineJournal journal) {
+        this.journal = journal;
+    }
+
+    // Write every row to a fresh snapshot so the journal can start over
+    synchronized void compactJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.compact(vehicles.values(), customers.values(), bookings.values(), payments.values(), users.values(),
+                    outbox.values(), vehicleBases.values(), customerBases.values());
+        } catch (IOException e) {
+            LOG.log(System.Logger.Level.WARNING, "Offline journal compaction failed; will retry", e);
+        }
+    }
+
+    // Vehicles
+
+    public synchronized List<Vehicle> vehicles() {
+        return new ArrayList<>(vehicles.values());
+    }
+
+    public synchronized Vehicle vehicle(String id) {
+        return vehicles.get(id);
+    }
+
+    public synchronized void putVehicle(Vehicle vehicle) {
+        Vehicle previous = vehicles.put(vehicle.getId(), vehicle);
+        if (journal != null) {
+            journal.vehicleUpserted(vehicle);
+        }
+        if (previous != null && isFirstChange(Kind.VEHICLE, previous.getId())) {
+            putVehicleBase(previous);
+        }
+        queue(Kind.VEHICLE, vehicle.getId(), false);
+    }
+
+    public synchronized boolean removeVehicle(String id) {
+        if (vehicles.remove(id) == null) {
+            return false;
+        }
+        if (journal != null) {
+            journal.vehicleRemoved(id);
+        }
+        queue(Kind.VEHICLE, id, true);
+        return true;
+    }
+
+    // Returns the updated vehicle, or null if there is no such vehicle
+    public synchronized Vehicle setVehicleStatus(String id, String status) {
+        Vehicle current = vehicles.get(id);
+        if (current == null) {
+            return null;
+        }
+        Vehicle updated = new Vehicle(current.getId(), current.getBrand(), current.getModel(),
+                current.getCategory(), current.getDailyRate(), status);
+        putVehicle(updated);
+        return updated;
+    }
+
+    public synchronized int vehicleCount() {
+        return vehicles.size();
+    }
+
+    public synchronized Map<String, Integer> vehicleCountsByCategory() {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Vehicle vehicle : vehicles.values()) {
+            counts.merge(vehicle.getCategory(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    // Customers
+
+    public synchronized List<Customer> customers() {
+        return new ArrayList<>(customers.values());
+    }
+
+    public synchronized Customer customer(String id) {
+        return customers.get(id);
+    }
+
+    public synchronized void putCustomer(Customer customer) {
+        Customer previous = customers.put(customer.getId(), customer);
+        if (journal != null) {
+            journal.customerUpserted(customer);
+        }
+        if (previous != null && isFirstChange(Kind.CUSTOMER, previous.getId())) {
+            putCustomerBase(previous);
+        }
+        queue(Kind.CUSTOMER, customer.getId(), false);
+    }
+
+    public synchronized int customerCount() {
+        return customers.size();
+    }
+
+    // Bookings, joined with their customer and vehicle on the way out
+
+    public synchronized List<Booking> bookings() {
+        List<Booking> joined = new ArrayList<>(bookings.size());
+        for (BookingRecord record : bookings.values()) {
+            joined.add(join(record));
+        }
+        return joined;
+    }
+
+    public synchronized Booking booking(String id) {
+        BookingRecord record = bookings.get(id);
+        return record == null ? null : join(record);
+    }
+
+    // As stored, without the customer and vehicle join
+    public synchronized List<BookingRecord> bookingRecords() {
+        return new ArrayList<>(bookings.values());
+    }
+
+    public synchronized BookingRecord bookingRecord(String id) {
+        return bookings.get(id);
+    }
+
+    public synchronized boolean hasBookings() {
+        return !bookings.isEmpty();
+    }
+
+    public synchronized void putBooking(BookingRecord record) {
+        BookingRecord previous = bookings.put(record.getId(), record);
+        if (previous != null) {
+            unindex(bookingsByVehicle, previous.getVehicleId(), previous.getId());
+            unindex(bookingsByCustomer, previous.getCustomerId(), previous.getId());
+            unindex(bookingsByStatus, previous.getStatus(), previous.getId());
+        }
+        index(bookingsByVehicle, record.getVehicleId(), record.getId());
+        index(bookingsByCustomer, record.getCustomerId(), record.getId());
+        index(bookingsByStatus, record.getStatus(), record.getId());
+        if (journal != null) {
+            journal.bookingUpserted(record);
+        }
+        queue(Kind.BOOKING, record.getId(), false);
+    }
+
+    // Returns the updated booking record, or null if there is no such booking
+    public synchronized BookingRecord setBookingStatus(String id, String status) {
+        BookingRecord current = bookings.get(id);
+        if (current == null) {
+            return null;
+        }
+        BookingRecord updated = current.withStatus(status);
+        putBooking(updated);
+        return updated;
+    }
+
+    public synchronized List<Booking> bookingsForVehicle(String vehicleId) {
+        return joinAll(bookingsByVehicle.get(vehicleId));
+    }
+
+    public synchronized List<Booking> bookingsForCustomer(String customerId) {
+        return joinAll(bookingsByCustomer.get(customerId));
+    }
+
+    public synchronized List<Booking> bookingsWithStatus(String status) {
+        return joinAll(bookingsByStatus.get(status));
+    }
+
+    public synchronized int bookingCountWithStatus(String status) {
+        Set<String> ids = bookingsByStatus.get(status);
+        return ids == null ? 0 : ids.size();
+    }
+
+    // Payments
+
+    public synchronized List<Payment> payments() {
+        return new ArrayList<>(payments.values());
+    }
+
+    public synchronized boolean hasPayments() {
+        return !payments.isEmpty();
+    }
+
+    public synchronized void putPayment(Payment payment) {
+        Payment previous = payments.put(payment.getId(), payment);
+        if (previous != null) {
+            unindex(paymentsByBooking, previous.getBookingId(), previous.getId());
+        }
+        index(paymentsByBooking, payment.getBookingId(), payment.getId());
+        if (journal != null) {
+            journal.paymentUpserted(payment);
+        }
+        queue(Kind.PAYMENT, payment.getId(), false);
+    }
+
+    public synchronized Payment payment(String id) {
+        return payments.get(id);
+    }
+
+    public synchronized List<Payment> paymentsForBooking(String bookingId) {
+        Set<String> ids = paymentsByBooking.get(bookingId);
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        List<Payment> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            result.add(payments.get(id));
+        }
+        return result;
+    }
+
+    public synchronized double totalRevenue() {
+        double total = 0;
+        for (Payment payment : payments.values()) {
+            total += payment.getAmount();
+        }
+        return total;
+    }
+
+    // Users
+
+    public synchronized List<User> users() {
+        return new ArrayList<>(users.values());
+    }
+
+    public synchronized User user(String username) {
+        return users.get(username);
+    }
+
+    // Returns false if the username is already taken
+    public synchronized boolean addUser(User user) {
+        if (users.putIfAbsent(user.getUsername(), user) != null) {
+            return false;
+        }
+        if (journal != null) {
+            journal.userUpserted(user);
+        }
+        queue(Kind.USER, user.getUsername(), false);
+        return true;
+    }
+
+    // Outbox
+
+    // Changes made before this (sample data, journal replay) are not sent to the database
+    public synchronized void startOutbox() {
+        recordingOutbox = true;
+    }
+
+    public synchronized List<OutboxEntry> outbox() {
+        return new ArrayList<>(outbox.values());
+    }
+
+    public synchronized int outboxSize() {
+        return outbox.size();
+    }
+
+    // Drop entries that have been synced, unless the row has changed again since they were read
+    public synchronized void acknowledge(List<OutboxEntry> entries) {
+        for (OutboxEntry entry : entries) {
+            if (outbox.remove(entry.key(), entry)) {
+                dropBase(entry.getKind(), entry.getId());
+                if (journal != null) {
+                    journal.outboxAcknowledged(entry);
+                }
+            }
+        }
+    }
+
+    // The row before its first queued change, or null if it was created offline or is not queued
+    public synchronized Vehicle vehicleBase(String id) {
+        return vehicleBases.get(id);
+    }
+
+    public synchronized Customer customerBase(String id) {
+        return customerBases.get(id);
+    }
+
+    // The row was written to the database but changed again meanwhile: what was written is the new base
+    public synchronized void rebaseVehicle(Vehicle written) {
+        if (outbox.containsKey(Kind.VEHICLE + ":" + written.getId())) {
+            putVehicleBase(written);
+        }
+    }
+
+    public synchronized void rebaseCustomer(Customer written) {
+        if (outbox.containsKey(Kind.CUSTOMER + ":" + written.getId())) {
+            putCustomerBase(written);
+        }
+    }
+
+    // Replayed from the journal
+    synchronized void restoreOutboxEntry(OutboxEntry entry) {
+        outbox.put(entry.key(), entry);
+        outboxSequence = Math.max(outboxSequence, entry.getSequence());
+    }
+
+    synchronized void restoreOutboxAcknowledgement(Kind kind, String id, long sequence) {
+        OutboxEntry current = outbox.get(kind + ":" + id);
+        if (current != null && current.getSequence() == sequence) {
+            outbox.remove(current.key());
+            dropBase(kind, id);
+        }
+    }
+
+    synchronized void restoreVehicleBase(Vehicle base) {
+        vehicleBases.put(base.getId(), base);
+    }
+
+    synchronized void restoreCustomerBase(Customer base) {
+        customerBases.put(base.getId(), base);
+    }
+
+    private boolean isFirstChange(Kind kind, String id) {
+        return recordingOutbox && !outbox.containsKey(kind + ":" + id);
+    }
+
+    private void putVehicleBase(Vehicle base) {
+        vehicleBases.put(base.getId(), base);
+        if (journal != null) {
+            journal.vehicleBaseRecorded(base);
+        }
+    }
+
+    private void putCustomerBase(Customer base) {
+        customerBases.put(base.getId(), base);
+        if (journal != null) {
+            journal.customerBaseRecorded(base);
+        }
+    }
+
+    private void dropBase(Kind kind, String id) {
+        if (kind == Kind.VEHICLE) {
+            vehicleBases.remove(id);
+        } else if (kind == Kind.CUSTOMER) {
+            customerBases.remove(id);
+        }
+    }
+
+    private void queue(Kind kind, String id, boolean removal) {
+        if (!recordingOutbox) {
+            return;
+        }
+        OutboxEntry entry = new OutboxEntry(kind, id, removal, ++outboxSequence);
+        // Re-queuing a row keeps its original place in the order
+        outbox.put(entry.key(), entry);
+        if (journal != null) {
+            journal.outboxQueued(entry);
+        }
+    }
+
+    private Booking join(BookingRecord record) {
+        Customer customer = customers.get(record.getCustomerId());
+        Vehicle vehicle = vehicles.get(record.getVehicleId());
+        return new Booking(
+                record.getId(),
+                record.getCustomerId(),
+                customer == null ? "" : customer.getName(),
+                record.getVehicleId(),
+                vehicle == null ? "" : vehicle.getBrand() + " " + vehicle.getModel(),
+                record.getStartDate(),
+                record.getEndDate(),
+                record.getDailyRate(),
+                record.getStatus(),
+                record.getEmployeeId()
+        );
+    }
+
+    private List<Booking> joinAll(Set<String> ids) {
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        List<Booking> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            result.add(join(bookings.get(id)));
+        }
+        return result;
+    }
+
+    private static void index(Map<String, Set<String>> index, String key, String id) {
+        index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(id);
+    }
+
+    private static void unindex(Map<String, Set<String>> index, String key, String id) {
+        Set<String> ids = index.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    // A row waiting to be sent to the database. The row itself is read from the store at sync time.
+    public static final class OutboxEntry {
+        private final Kind kind;
+        private final String id;
+        private final boolean removal;
+        private final long sequence;
+
+        public OutboxEntry(Kind kind, String id, boolean removal, long sequence) {
+            this.kind = kind;
+            this.id = id;
+            this.removal = removal;
+            this.sequence = sequence;
+        }
+
+        String key() {
+            return kind + ":" + id;
+        }
+
+        public Kind getKind() { return kind; }
+        public String getId() { return id; }
+        public boolean isRemoval() { return removal; }
+        public long getSequence() { return sequence; }
+    }
+
+    // A booking as stored, before it is joined with its customer and vehicle
+    public static final class BookingRecord {
+        private final String id;
+        private final String customerId;
+        private final String vehicleId;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final double dailyRate;
+        private final String status;
+        private final String employeeId;
+
+        public BookingRecord(String id, String customerId, String vehicleId, LocalDate startDate,
+                             LocalDate endDate, double dailyRate, String status, String employeeId) {
+            this.id = id;
+            this.customerId = customerId;
+            this.vehicleId = vehicleId;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.dailyRate = dailyRate;
+            this.status = status;
+            this.employeeId = employeeId;
+        }
+
+        public BookingRecord withStatus(String newStatus) {
+            return new BookingRecord(id, customerId, vehicleId, startDate, endDate, dailyRate, newStatus, employeeId);
+        }
+
+        public String getId() { return id; }
+        public String getCustomerId() { return customerId; }
+        public String getVehicleId() { return vehicleId; }
+        public LocalDate getStartDate() { return startDate; }
+        public LocalDate getEndDate() { return endDate; }
+        public double getDailyRate() { return dailyRate; }
+        public String getStatus() { return status; }
+        public String getEmployeeId() { return employeeId; }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.mitchelltutorial;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency and error counts per named operation (a repository call, a table load, a report), for the
+// Diagnostics tab and JMX.
+// Each operation keeps a histogram of durations in log-linear buckets: eight per power of two, so a
+// percentile read from it is within about 6% of the true value whatever the scale. Recording is a bucket
+// increment and a few LongAdder additions, with no locks, so it is cheap enough to leave on everywhere.
+// Totals run from startup (or the last reset).
+public class OperationMetrics {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Enough buckets for any non-negative long
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public Timer timer(String operation) {
+        return timers.computeIfAbsent(operation, Timer::new);
+    }
+
+    // Starts timing one run of an operation; the run is recorded when the sample is stopped or failed
+    public Sample start(String operation) {
+        return new Sample(timer(operation), System.nanoTime());
+    }
+
+    // Wraps work so each call is timed, and counted as an error if it throws
+    public <T> Callable<T> timed(String operation, Callable<T> work) {
+        return () -> {
+            Sample sample = start(operation);
+            try {
+                T result = work.call();
+                sample.stop();
+                return result;
+            } catch (Exception | Error e) {
+                sample.fail();
+                throw e;
+            }
+        };
+    }
+
+    // One snapshot per operation that has run, sorted by name
+    public List<Snapshot> snapshot() {
+        List<Snapshot> snapshots = new ArrayList<>(timers.size());
+        for (Timer timer : timers.values()) {
+            snapshots.add(timer.snapshot());
+        }
+        snapshots.sort(Comparator.comparing(Snapshot::getName));
+        return snapshots;
+    }
+
+    public void reset() {
+        timers.clear();
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(nanos, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // The smallest duration that falls into the bucket
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return (1L << exponent) | (sub << (exponent - SUB_BUCKET_BITS));
+    }
+
+    // The middle of the bucket, used as the value of everything recorded in it
+    private static long midpoint(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return lowerBound(bucket) + (1L << (exponent - SUB_BUCKET_BITS)) / 2;
+    }
+
+    public static final class Timer {
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Timer(String name) {
+            this.name = name;
+        }
+
+        public void record(long nanos, boolean failed) {
+            buckets.incrementAndGet(bucketOf(nanos));
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        // The buckets are read one at a time, so a snapshot taken while others record may be off by
+        // the runs that finished meanwhile
+        public Snapshot snapshot() {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            return new Snapshot(name, total, errors.sum(),
+                    total == 0 ? 0 : totalNanos.sum() / total,
+                    percentile(counts, total, 0.50),
+                    percentile(counts, total, 0.95),
+                    percentile(counts, total, 0.99),
+                    maxNanos.get());
+        }
+
+        private static long percentile(long[] counts, long total, double quantile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return midpoint(i);
+                }
+            }
+            return midpoint(counts.length - 1);
+        }
+    }
+
+    // One timed run. Only the first stop() or fail() counts, so a sample can be stopped early (e.g. before
+    // an alert waits for the user) and failed or stopped again further down without double counting
+    public static final class Sample {
+        private final Timer timer;
+        private final long startNanos;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Sample(Timer timer, long startNanos) {
+            this.timer = timer;
+            this.startNanos = startNanos;
+        }
+
+        public void stop() {
+            finish(false);
+        }
+
+        public void fail() {
+            finish(true);
+        }
+
+        private void finish(boolean failed) {
+            if (done.compareAndSet(false, true)) {
+                timer.record(System.nanoTime() - startNanos, failed);
+            }
+        }
+    }
+
+    // Durations in milliseconds, as shown in the Diagnostics tab and over JMX
+    public static class Snapshot {
+        private final String name;
+        private final long count;
+        private final long errors;
+        private final long meanNanos;
+        private final long p50Nanos;
+        private final long p95Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+
+        private Snapshot(String name, long count, long errors, long meanNanos,
+                         long p50Nanos, long p95Nanos, long p99Nanos, long maxNanos) {
+            this.name = name;
+            this.count = count;
+            this.errors = errors;
+            this.meanNanos = meanNanos;
+            this.p50Nanos = p50Nanos;
+            this.p95Nanos = p95Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public String getName() { return name; }
+        public long getCount() { return count; }
+        public long getErrors() { return errors; }
+        public double getMeanMillis() { return toMillis(meanNanos); }
+        public double getP50Millis() { return toMillis(p50Nanos); }
+        public double getP95Millis() { return toMillis(p95Nanos); }
+        public double getP99Millis() { return toMillis(p99Nanos); }
+        public double getMaxMillis() { return toMillis(maxNanos); }
+
+        private static double toMillis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.Booking;
+import com.example.mitchelltutorial.VehicleRentalSystem.Payment;
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Settles bookings as one unit of work: the payment is recorded, the booking completed (in the BookingView
+// too) and the vehicle handed back in a single transaction, so a failure part-way leaves nothing half-paid.
+// The same prepared statements are reused for every payment and sent as JDBC batches, which lets
+// an end-of-day closeout settle hundreds of bookings in one commit. The bookings are locked first;
+// any that are missing or no longer active are skipped and reported instead of failing the rest.
+public class PaymentProcessor {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final ConnectionPool pool;
+
+    public PaymentProcessor(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    public Result settle(List<Payment> payments) throws SQLException {
+        Result result = new Result();
+        if (payments.isEmpty()) {
+            return result;
+        }
+
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Map<String, LockedBooking> active = lockActiveBookings(conn, bookingIdsOf(payments));
+                List<Payment> accepted = new ArrayList<>();
+                Set<String> seen = new LinkedHashSet<>();
+                for (Payment p : payments) {
+                    if (!active.containsKey(p.getBookingId())) {
+                        result.skipped.put(p.getBookingId(), "not an active booking");
+                    } else if (!seen.add(p.getBookingId())) {
+                        result.skipped.put(p.getBookingId(), "paid twice in the same batch");
+                    } else {
+                        accepted.add(p);
+                    }
+                }
+
+                Set<String> vehicleIds = new LinkedHashSet<>();
+                ReportRollups.Delta revenue = new ReportRollups.Delta();
+                try (PreparedStatement insertPayment = conn.prepareStatement(
+                        "INSERT INTO payments (id, booking_id, amount, method, payment_date) VALUES (?, ?, ?, ?, ?)");
+                     PreparedStatement completeBooking = conn.prepareStatement(
+                             "UPDATE bookings SET status = 'Completed' WHERE id = ?");
+                     PreparedStatement completeView = conn.prepareStatement(
+                             "UPDATE booking_view SET status = 'Completed' WHERE id = ?")) {
+                    int pending = 0;
+                    for (Payment p : accepted) {
+                        insertPayment.setString(1, p.getId());
+                        insertPayment.setString(2, p.getBookingId());
+                        insertPayment.setDouble(3, p.getAmount());
+                        insertPayment.setString(4, p.getMethod());
+                        insertPayment.setDate(5, java.sql.Date.valueOf(p.getPaymentDate()));
+                        insertPayment.addBatch();
+                        completeBooking.setString(1, p.getBookingId());
+                        completeBooking.addBatch();
+                        completeView.setString(1, p.getBookingId());
+                        completeView.addBatch();
+                        LockedBooking booking = active.get(p.getBookingId());
+                        vehicleIds.add(booking.vehicleId);
+                        revenue.payment(p.getPaymentDate(), booking.category, p.getAmount());
+                        if (++pending == BATCH_SIZE) {
+                            insertPayment.executeBatch();
+                            completeBooking.executeBatch();
+                            completeView.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                    insertPayment.executeBatch();
+                    completeBooking.executeBatch();
+                    completeView.executeBatch();
+                }
+
+                releaseVehicles(conn, vehicleIds);
+                ReportRollups.apply(conn, revenue);
+                result.vehicles.addAll(selectVehicles(conn, vehicleIds));
+                conn.commit();
+                result.settled.addAll(accepted);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        return result;
+    }
+
+    // The offline equivalent, applied to the store under its lock so the sync never sees half a settlement
+    public static Result settleOffline(OfflineStore store, List<Payment> payments) {
+        Result result = new Result();
+        LocalDate today = LocalDate.now();
+        synchronized (store) {
+            Set<String> vehicleIds = new LinkedHashSet<>();
+            for (Payment p : payments) {
+                OfflineStore.BookingRecord booking = store.bookingRecord(p.getBookingId());
+                if (booking == null || !"Active".equals(booking.getStatus())) {
+                    result.skipped.put(p.getBookingId(), "not an active booking");
+                    continue;
+                }
+                store.putPayment(p);
+                store.setBookingStatus(p.getBookingId(), "Completed");
+                vehicleIds.add(booking.getVehicleId());
+                result.settled.add(p);
+            }
+            for (String vehicleId : vehicleIds) {
+                boolean stillOut = false;
+                for (Booking other : store.bookingsForVehicle(vehicleId)) {
+                    if ("Active".equals(other.getStatus()) && !other.getStartDate().isAfter(today)) {
+                        stillOut = true;
+                        break;
+                    }
+                }
+                Vehicle vehicle = stillOut ? store.vehicle(vehicleId) : store.setVehicleStatus(vehicleId, "Available");
+                if (vehicle != null) {
+                    result.vehicles.add(vehicle);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Row locks on the bookings and their vehicles, so nothing pays or cancels them between the check and
+    // the commit. Returns the ones still active
+    private static Map<String, LockedBooking> lockActiveBookings(Connection conn, List<String> bookingIds)
+            throws SQLException {
+        Map<String, LockedBooking> active = new HashMap<>();
+        for (List<String> chunk : chunks(bookingIds)) {
+            try (PreparedStatement ps = conn.prepareStatement(String.format(
+                    "SELECT b.id, b.vehicle_id, b.status, v.category FROM bookings b " +
+                            "JOIN vehicles v ON v.id = b.vehicle_id WHERE b.id IN (%s) FOR UPDATE",
+                    placeholders(chunk.size())))) {
+                bind(ps, chunk);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if ("Active".equals(rs.getString("status"))) {
+                            active.put(rs.getString("id"),
+                                    new LockedBooking(rs.getString("vehicle_id"), rs.getString("category")));
+                        }
+                    }
+                }
+            }
+        }
+        return active;
+    }
+
+    // The vehicle is back unless another active booking for it has already started; the bookings being
+    // settled were completed above, so they no longer count
+    private static void releaseVehicles(Connection conn, Collection<String> vehicleIds) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE vehicles SET status = 'Available' WHERE id = ? AND NOT EXISTS (" +
+                        "SELECT 1 FROM bookings b WHERE b.vehicle_id = ? AND b.status = 'Active' " +
+                        "AND b.start_date <= CURRENT_DATE)")) {
+            int pending = 0;
+            for (String id : vehicleIds) {
+                ps.setString(1, id);
+                ps.setString(2, id);
+                ps.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    ps.executeBatch();
+                    pending = 0;
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static List<Vehicle> selectVehicles(Connection conn, Collection<String> vehicleIds) throws SQLException {
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (List<String> chunk : chunks(new ArrayList<>(vehicleIds))) {
+            try (PreparedStatement ps = conn.prepareStatement(String.format(
+                    "SELECT * FROM vehicles WHERE id IN (%s)", placeholders(chunk.size())))) {
+                bind(ps, chunk);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        vehicles.add(VehicleRepository.MAPPER.map(rs));
+                    }
+                }
+            }
+        }
+        return vehicles;
+    }
+
+    private static List<String> bookingIdsOf(List<Payment> payments) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Payment p : payments) {
+            ids.add(p.getBookingId());
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private static <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += BATCH_SIZE) {
+            chunks.add(items.subList(i, Math.min(items.size(), i + BATCH_SIZE)));
+        }
+        return chunks;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static void bind(PreparedStatement ps, List<String> values) throws SQLException {
+        for (int i = 0; i < values.size(); i++) {
+            ps.setString(i + 1, values.get(i));
+        }
+    }
+
+    private static final class LockedBooking {
+        private final String vehicleId;
+        private final String category;
+
+        private LockedBooking(String vehicleId, String category) {
+            this.vehicleId = vehicleId;
+            this.category = category;
+        }
+    }
+
+    public static class Result {
+        private final List<Payment> settled = new ArrayList<>();
+        private final List<Vehicle> vehicles = new ArrayList<>();
+        private final Map<String, String> skipped = new LinkedHashMap<>();
+
+        public List<Payment> getSettled() { return settled; }
+        // Current rows of the vehicles whose bookings were settled
+        public List<Vehicle> getVehicles() { return vehicles; }
+        // Booking id to the reason it was not settled
+        public Map<String, String> getSkipped() { return skipped; }
+
+        public double getTotal() {
+            double total = 0;
+            for (Payment p : settled) {
+                total += p.getAmount();
+            }
+            return total;
+        }
+
+        public String summary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Settled %d booking(s), M%.2f.", settled.size(), getTotal()));
+            if (!skipped.isEmpty()) {
+                sb.append(String.format("%n%nSkipped %d:", skipped.size()));
+                skipped.forEach((id, reason) -> sb.append(String.format("%n  %s: %s", id, reason)));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.Payment;
+
+import java.sql.SQLException;
+import java.util.List;
+
+// Queries against the payments table; payments are written by the PaymentProcessor
+public class PaymentRepository extends Repository {
+
+    public static final RowMapper<Payment> MAPPER = rs -> new Payment(
+            rs.getString("id"),
+            rs.getString("booking_id"),
+            rs.getDouble("amount"),
+            rs.getString("method"),
+            rs.getDate("payment_date").toLocalDate()
+    );
+
+    public PaymentRepository(ConnectionPool pool, OperationMetrics operations) {
+        super(pool, operations, "payments");
+    }
+
+    public List<Payment> findAll() throws SQLException {
+        return timed("findAll", () -> list("SELECT * FROM payments", MAPPER));
+    }
+}
@@ -0,0 +1,387 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.Booking;
+import com.example.mitchelltutorial.VehicleRentalSystem.Payment;
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+
+// The Reports tab as a PDF: the summary, vehicles per category, and revenue and bookings per month over the
+// chosen range, followed by an appendix listing every booking that starts in the range with its price.
+// The appendix is streamed from the database (or read from the offline store) row by row into
+// PdfStreamWriter pages, so a year of bookings takes no more memory than one page of them. Like the CSV
+// export, the file is written under a temporary name and moved into place once complete.
+public class PdfReportExporter {
+
+    private static final int PROGRESS_EVERY = 500;
+    private static final float MARGIN = 50;
+    private static final float BAR_LABEL_WIDTH = 110;
+    private static final float BAR_VALUE_WIDTH = 90;
+    private static final float APPENDIX_SIZE = 8;
+    private static final String APPENDIX_HEADER = String.format(Locale.ROOT, "%-20s %-16s %-18s %-10s %-10s %4s %10s %-9s",
+            "Booking", "Customer", "Vehicle", "Start", "End", "Days", "Total", "Status");
+    private static final String APPENDIX_ROW = "%-20s %-16.16s %-18.18s %-10s %-10s %4d %10.2f %-9.9s";
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("MMM yyyy");
+    private static final DateTimeFormatter GENERATED = DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm");
+
+    private static final String APPENDIX_QUERY = "SELECT id, customer_name, vehicle_details, start_date, end_date, " +
+            "daily_rate, status FROM booking_view WHERE start_date BETWEEN ? AND ? ORDER BY start_date, id";
+
+    // Called from the exporting thread every few hundred appendix rows
+    @FunctionalInterface
+    public interface ProgressListener {
+        void progress(long rowsWritten, long totalRows);
+    }
+
+    private final ConnectionPool pool;
+    private final OfflineStore store;
+
+    public PdfReportExporter(ConnectionPool pool) {
+        this.pool = pool;
+        this.store = null;
+    }
+
+    public PdfReportExporter(OfflineStore store) {
+        this.pool = null;
+        this.store = store;
+    }
+
+    // Returns the number of bookings in the appendix
+    public long exportReports(Path target, LocalDate start, LocalDate end, DashboardMetrics.Snapshot totals,
+                              ProgressListener listener) throws IOException, SQLException {
+        long[] rows = new long[1];
+        writeAtomically(target, pdf -> {
+            Layout layout = new Layout(pdf);
+            layout.newPage();
+            layout.line(PdfStreamWriter.Font.BOLD, 20, "Hyacinth's Vehicle Rental - Reports");
+            layout.line(PdfStreamWriter.Font.REGULAR, 11, "Period: " + start + " to " + end);
+            layout.line(PdfStreamWriter.Font.REGULAR, 11, "Generated on: " + LocalDateTime.now().format(GENERATED));
+            if (store != null) {
+                layout.line(PdfStreamWriter.Font.REGULAR, 11, "Offline mode: from the data on this desk only");
+            }
+
+            if (store != null) {
+                writeSections(layout, totals, store.vehicleCountsByCategory(), offlineRevenueByCategory(),
+                        offlineMonthly(start, end), start, end);
+                rows[0] = writeOfflineAppendix(layout, start, end, listener);
+            } else {
+                try (Connection conn = pool.getConnection()) {
+                    writeSections(layout, totals, categoryCounts(conn), ReportRollups.revenueByCategory(conn),
+                            onlineMonthly(conn, start, end), start, end);
+                    rows[0] = writeOnlineAppendix(conn, layout, start, end, listener);
+                }
+            }
+        });
+        return rows[0];
+    }
+
+    public static void exportInvoice(Path target, Booking booking, LocalDate invoiceDate) throws IOException {
+        writeAtomically(target, pdf -> InvoiceRenderer.pdf(pdf, booking, invoiceDate));
+    }
+
+    private static void writeSections(Layout layout, DashboardMetrics.Snapshot totals, Map<String, Integer> categories,
+                                      Map<String, Double> revenueByCategory, SortedMap<YearMonth, Month> monthly,
+                                      LocalDate start, LocalDate end) throws IOException {
+        layout.heading("Summary");
+        layout.line(PdfStreamWriter.Font.REGULAR, 11, "Total Vehicles: " + totals.getVehicles());
+        layout.line(PdfStreamWriter.Font.REGULAR, 11, "Total Customers: " + totals.getCustomers());
+        layout.line(PdfStreamWriter.Font.REGULAR, 11, "Active Bookings: " + totals.getActiveBookings());
+        layout.line(PdfStreamWriter.Font.REGULAR, 11, String.format("Total Revenue: $%.2f", totals.getRevenue()));
+        if (!revenueByCategory.isEmpty()) {
+            layout.gap(6);
+            layout.line(PdfStreamWriter.Font.BOLD, 11, "Revenue by Category (all time)");
+            for (Map.Entry<String, Double> entry : revenueByCategory.entrySet()) {
+                layout.line(PdfStreamWriter.Font.MONO, 10, String.format("  %-15s $%,.2f", entry.getKey(), entry.getValue()));
+            }
+        }
+
+        layout.heading("Vehicle Categories");
+        double mostVehicles = categories.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+        for (Map.Entry<String, Integer> entry : categories.entrySet()) {
+            layout.bar(entry.getKey(), entry.getValue(), mostVehicles, entry.getValue() + " vehicles");
+        }
+
+        // Every month of the range is listed, including empty ones
+        for (YearMonth month = YearMonth.from(start); !month.isAfter(YearMonth.from(end)); month = month.plusMonths(1)) {
+            monthly.putIfAbsent(month, new Month());
+        }
+
+        layout.heading("Monthly Revenue");
+        double mostRevenue = monthly.values().stream().mapToDouble(m -> m.revenue).max().orElse(0);
+        for (Map.Entry<YearMonth, Month> entry : monthly.entrySet()) {
+            layout.bar(entry.getKey().format(MONTH), entry.getValue().revenue, mostRevenue,
+                    String.format("$%,.2f", entry.getValue().revenue));
+        }
+
+        layout.heading("Booking Trends");
+        double mostBookings = monthly.values().stream().mapToInt(m -> m.bookings).max().orElse(0);
+        for (Map.Entry<YearMonth, Month> entry : monthly.entrySet()) {
+            layout.bar(entry.getKey().format(MONTH), entry.getValue().bookings, mostBookings,
+                    entry.getValue().bookings + " bookings");
+        }
+    }
+
+    private static Map<String, Integer> categoryCounts(Connection conn) throws SQLException {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT category, COUNT(*) FROM vehicles GROUP BY category ORDER BY category");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                counts.put(rs.getString(1), rs.getInt(2));
+            }
+        }
+        return counts;
+    }
+
+    private static SortedMap<YearMonth, Month> onlineMonthly(Connection conn, LocalDate start, LocalDate end)
+            throws SQLException {
+        SortedMap<YearMonth, Month> monthly = new TreeMap<>();
+        for (Map.Entry<YearMonth, ReportRollups.Totals> entry : ReportRollups.monthly(conn, start, end).entrySet()) {
+            Month month = new Month();
+            month.bookings = entry.getValue().getBookings();
+            month.revenue = entry.getValue().getRevenue();
+            monthly.put(entry.getKey(), month);
+        }
+        return monthly;
+    }
+
+    // Bookings by start date and revenue by payment date, as the rollups count them
+    private SortedMap<YearMonth, Month> offlineMonthly(LocalDate start, LocalDate end) {
+        SortedMap<YearMonth, Month> monthly = new TreeMap<>();
+        for (Booking b : store.bookings()) {
+            if (!b.getStartDate().isBefore(start) && !b.getStartDate().isAfter(end)) {
+                monthly.computeIfAbsent(YearMonth.from(b.getStartDate()), k -> new Month()).bookings++;
+            }
+        }
+        for (Payment p : store.payments()) {
+            if (!p.getPaymentDate().isBefore(start) && !p.getPaymentDate().isAfter(end)) {
+                monthly.computeIfAbsent(YearMonth.from(p.getPaymentDate()), k -> new Month()).revenue += p.getAmount();
+            }
+        }
+        return monthly;
+    }
+
+    private Map<String, Double> offlineRevenueByCategory() {
+        Map<String, Double> revenue = new TreeMap<>();
+        for (Payment p : store.payments()) {
+            OfflineStore.BookingRecord booking = store.bookingRecord(p.getBookingId());
+            Vehicle vehicle = booking == null ? null : store.vehicle(booking.getVehicleId());
+            revenue.merge(vehicle == null ? "Unknown" : vehicle.getCategory(), p.getAmount(), Double::sum);
+        }
+        return revenue;
+    }
+
+    private static long writeOnlineAppendix(Connection conn, Layout layout, LocalDate start, LocalDate end,
+                                            ProgressListener listener) throws IOException, SQLException {
+        long total;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT COUNT(*) FROM bookings WHERE start_date BETWEEN ? AND ?")) {
+            ps.setDate(1, java.sql.Date.valueOf(start));
+            ps.setDate(2, java.sql.Date.valueOf(end));
+            try (ResultSet rs = ps.executeQuery()) {
+                total = rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+        listener.progress(0, total);
+
+        Appendix appendix = new Appendix(layout);
+        try (PreparedStatement ps = conn.prepareStatement(APPENDIX_QUERY,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(SqlDialect.of(conn).streamingFetchSize());
+            ps.setDate(1, java.sql.Date.valueOf(start));
+            ps.setDate(2, java.sql.Date.valueOf(end));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    appendix.row(rs.getString(1), rs.getString(2), rs.getString(3),
+                            rs.getDate(4).toLocalDate(), rs.getDate(5).toLocalDate(), rs.getDouble(6), rs.getString(7));
+                    if (appendix.rows % PROGRESS_EVERY == 0) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            // Otherwise closing a streaming result set reads the rest of it first
+                            ps.cancel();
+                            throw new CancellationException("Export cancelled");
+                        }
+                        listener.progress(appendix.rows, Math.max(appendix.rows, total));
+                    }
+                }
+            }
+        }
+        appendix.finish();
+        listener.progress(appendix.rows, appendix.rows);
+        return appendix.rows;
+    }
+
+    private long writeOfflineAppendix(Layout layout, LocalDate start, LocalDate end, ProgressListener listener)
+            throws IOException {
+        List<Booking> bookings = new ArrayList<>();
+        for (Booking b : store.bookings()) {
+            if (!b.getStartDate().isBefore(start) && !b.getStartDate().isAfter(end)) {
+                bookings.add(b);
+            }
+        }
+        bookings.sort(Comparator.comparing(Booking::getStartDate).thenComparing(Booking::getId));
+        listener.progress(0, bookings.size());
+
+        Appendix appendix = new Appendix(layout);
+        for (Booking b : bookings) {
+            appendix.row(b.getId(), b.getCustomerName(), b.getVehicleDetails(), b.getStartDate(), b.getEndDate(),
+                    b.getDailyRate(), b.getStatus());
+            if (appendix.rows % PROGRESS_EVERY == 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Export cancelled");
+                }
+                listener.progress(appendix.rows, bookings.size());
+            }
+        }
+        appendix.finish();
+        listener.progress(appendix.rows, appendix.rows);
+        return appendix.rows;
+    }
+
+    private static <E extends Exception> void writeAtomically(Path target, PdfBody<E> body) throws IOException, E {
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        boolean complete = false;
+        try {
+            try (PdfStreamWriter pdf = new PdfStreamWriter(partial)) {
+                body.write(pdf);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            complete = true;
+        } finally {
+            if (!complete) {
+                Files.deleteIfExists(partial);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface PdfBody<E extends Exception> {
+        void write(PdfStreamWriter pdf) throws IOException, E;
+    }
+
+    private static final class Month {
+        private int bookings;
+        private double revenue;
+    }
+
+    // The booking list at the end of the report, its column header repeated at the top of every page
+    private static final class Appendix {
+        private final Layout layout;
+        private long rows;
+        private double revenue;
+        private int headerOnPage = -1;
+
+        private Appendix(Layout layout) throws IOException {
+            this.layout = layout;
+            layout.heading("Appendix: Bookings Starting in the Period");
+        }
+
+        private void row(String id, String customer, String vehicle, LocalDate start, LocalDate end, double rate,
+                         String status) throws IOException {
+            layout.ensure(APPENDIX_SIZE + 4);
+            if (headerOnPage != layout.pageNumber) {
+                layout.line(PdfStreamWriter.Font.MONO, APPENDIX_SIZE, APPENDIX_HEADER);
+                layout.rule();
+                headerOnPage = layout.pageNumber;
+            }
+            double total = PricingCalculator.total(start, end, rate);
+            layout.line(PdfStreamWriter.Font.MONO, APPENDIX_SIZE, String.format(Locale.ROOT, APPENDIX_ROW,
+                    id, customer, vehicle, start, end, PricingCalculator.rentalDays(start, end), total, status));
+            rows++;
+            revenue += total;
+        }
+
+        private void finish() throws IOException {
+            if (rows == 0) {
+                layout.line(PdfStreamWriter.Font.REGULAR, 11, "No bookings start in this period.");
+                return;
+            }
+            layout.rule();
+            layout.line(PdfStreamWriter.Font.BOLD, 10, String.format("%,d bookings, $%,.2f at their booked rates",
+                    rows, revenue));
+        }
+    }
+
+    // A cursor moving down the pages, starting a new page when the next line would not fit
+    private static final class Layout {
+        private final PdfStreamWriter pdf;
+        private float y;
+        private int pageNumber;
+
+        private Layout(PdfStreamWriter pdf) {
+            this.pdf = pdf;
+        }
+
+        private void newPage() throws IOException {
+            pdf.beginPage();
+            pageNumber++;
+            pdf.text(PdfStreamWriter.Font.REGULAR, 8, PdfStreamWriter.PAGE_WIDTH - MARGIN - 40, MARGIN / 2,
+                    "Page " + pageNumber);
+            y = PdfStreamWriter.PAGE_HEIGHT - MARGIN;
+        }
+
+        private void ensure(float height) throws IOException {
+            if (y - height < MARGIN) {
+                newPage();
+            }
+        }
+
+        private void line(PdfStreamWriter.Font font, float size, String text) throws IOException {
+            ensure(size * 1.4f);
+            y -= size * 1.4f;
+            pdf.text(font, size, MARGIN, y, text);
+        }
+
+        private void heading(String text) throws IOException {
+            // Keep a heading together with at least a few lines of its section
+            ensure(80);
+            gap(14);
+            line(PdfStreamWriter.Font.BOLD, 14, text);
+            gap(4);
+        }
+
+        private void gap(float height) {
+            y -= height;
+        }
+
+        private void rule() throws IOException {
+            ensure(4);
+            y -= 2;
+            pdf.line(MARGIN, y, PdfStreamWriter.PAGE_WIDTH - MARGIN, y, 0.5f);
+            y -= 2;
+        }
+
+        // A horizontal bar scaled against the largest value in its chart
+        private void bar(String label, double value, double max, String valueText) throws IOException {
+            float height = 12;
+            ensure(height + 6);
+            y -= height + 6;
+            float width = PdfStreamWriter.PAGE_WIDTH - 2 * MARGIN - BAR_LABEL_WIDTH - BAR_VALUE_WIDTH;
+            pdf.text(PdfStreamWriter.Font.REGULAR, 10, MARGIN, y + 2, label);
+            if (max > 0 && value > 0) {
+                pdf.fillRect(MARGIN + BAR_LABEL_WIDTH, y, (float) (width * value / max), height,
+                        33 / 255f, 150 / 255f, 243 / 255f);
+            }
+            pdf.text(PdfStreamWriter.Font.REGULAR, 10, MARGIN + BAR_LABEL_WIDTH + width + 8, y + 2, valueText);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.mitchelltutorial;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+// A minimal PDF writer that streams: each page is compressed and written out as soon as it ends, so only
+// the page being drawn is held in memory however long the document gets. What stays behind per page is
+// its object offsets and a reference in the page list, which are written with the cross-reference table
+// when the writer is closed.
+// Pages are A4 and use the standard Helvetica and Courier fonts, which every viewer has, so nothing is
+// embedded. Text is drawn in WinAnsi (Latin-1); other characters come out as '?'.
+// Coordinates are in points from the bottom left corner of the page, as in PDF itself.
+public class PdfStreamWriter implements Closeable {
+
+    public static final float PAGE_WIDTH = 595.28f;
+    public static final float PAGE_HEIGHT = 841.89f;
+
+    public enum Font {
+        REGULAR("Helvetica"),
+        BOLD("Helvetica-Bold"),
+        MONO("Courier");
+
+        private final String baseFont;
+
+        Font(String baseFont) {
+            this.baseFont = baseFont;
+        }
+
+        private String resourceName() {
+            return "F" + (ordinal() + 1);
+        }
+    }
+
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FIRST_FONT = 3;
+
+    private final OutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final byte[] deflateBuffer = new byte[8192];
+    private final StringBuilder pageList = new StringBuilder();
+    private long[] offsets = new long[64];
+    private int nextObject = FIRST_FONT + Font.values().length;
+    private long position;
+    private int pageCount;
+    private StringBuilder page;
+
+    public PdfStreamWriter(Path target) throws IOException {
+        this(Files.newOutputStream(target));
+    }
+
+    public PdfStreamWriter(OutputStream out) throws IOException {
+        this.out = new BufferedOutputStream(out, 1 << 16);
+        // The binary comment tells transfer tools the file is not plain text
+        write("%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n");
+        for (Font font : Font.values()) {
+            beginObject(FIRST_FONT + font.ordinal());
+            write("<< /Type /Font /Subtype /Type1 /BaseFont /" + font.baseFont + " /Encoding /WinAnsiEncoding >>");
+            endObject();
+        }
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public void beginPage() throws IOException {
+        if (page != null) {
+            endPage();
+        }
+        page = new StringBuilder(4096);
+    }
+
+    // Black text with its baseline at y
+    public void text(Font font, float size, float x, float y, String text) {
+        page.append("BT /").append(font.resourceName()).append(' ').append(number(size)).append(" Tf ")
+                .append(number(x)).append(' ').append(number(y)).append(" Td (");
+        appendEscaped(text);
+        page.append(") Tj ET\n");
+    }
+
+    // Colour components from 0 to 1
+    public void text(Font font, float size, float x, float y, String text, float red, float green, float blue) {
+        page.append("q ").append(number(red)).append(' ').append(number(green)).append(' ').append(number(blue))
+                .append(" rg ");
+        text(font, size, x, y, text);
+        page.append("Q\n");
+    }
+
+    // Colour components from 0 to 1
+    public void fillRect(float x, float y, float width, float height, float red, float green, float blue) {
+        page.append("q ").append(number(red)).append(' ').append(number(green)).append(' ').append(number(blue))
+                .append(" rg ").append(number(x)).append(' ').append(number(y)).append(' ')
+                .append(number(width)).append(' ').append(number(height)).append(" re f Q\n");
+    }
+
+    public void line(float x1, float y1, float x2, float y2, float width) {
+        page.append("q ").append(number(width)).append(" w ").append(number(x1)).append(' ').append(number(y1))
+                .append(" m ").append(number(x2)).append(' ').append(number(y2)).append(" l S Q\n");
+    }
+
+    // Writes the page's compressed content and the page object, then forgets the page
+    public void endPage() throws IOException {
+        if (page == null) {
+            return;
+        }
+        byte[] content = page.toString().getBytes(StandardCharsets.ISO_8859_1);
+        page = null;
+
+        int contentObject = nextObject++;
+        beginObject(contentObject);
+        byte[] compressed = deflate(content);
+        write("<< /Length " + compressed.length + " /Filter /FlateDecode >>\nstream\n");
+        write(compressed);
+        write("\nendstream");
+        endObject();
+
+        int pageObject = nextObject++;
+        beginObject(pageObject);
+        StringBuilder fonts = new StringBuilder();
+        for (Font font : Font.values()) {
+            fonts.append('/').append(font.resourceName()).append(' ').append(FIRST_FONT + font.ordinal()).append(" 0 R ");
+        }
+        write("<< /Type /Page /Parent " + PAGES + " 0 R /MediaBox [0 0 " + number(PAGE_WIDTH) + ' ' +
+                number(PAGE_HEIGHT) + "] /Resources << /Font << " + fonts + ">> >> /Contents " +
+                contentObject + " 0 R >>");
+        endObject();
+
+        pageList.append(pageObject).append(" 0 R ");
+        pageCount++;
+    }
+
+    // Finishes the document: the page list, the catalog, the cross-reference table and the trailer
+    @Override
+    public void close() throws IOException {
+        try {
+            if (page != null) {
+                endPage();
+            }
+            if (pageCount == 0) {
+                beginPage();
+                endPage();
+            }
+            beginObject(PAGES);
+            write("<< /Type /Pages /Kids [" + pageList + "] /Count " + pageCount + " >>");
+            endObject();
+            beginObject(CATALOG);
+            write("<< /Type /Catalog /Pages " + PAGES + " 0 R >>");
+            endObject();
+
+            long xref = position;
+            StringBuilder table = new StringBuilder("xref\n0 ").append(nextObject).append("\n0000000000 65535 f \n");
+            for (int i = 1; i < nextObject; i++) {
+                table.append(String.format(Locale.ROOT, "%010d 00000 n \n", offsets[i]));
+            }
+            table.append("trailer\n<< /Size ").append(nextObject).append(" /Root ").append(CATALOG)
+                    .append(" 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+            write(table.toString());
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private byte[] deflate(byte[] content) {
+        deflater.reset();
+        deflater.setInput(content);
+        deflater.finish();
+        byte[] result = new byte[Math.max(64, content.length / 2)];
+        int length = 0;
+        while (!deflater.finished()) {
+            int n = deflater.deflate(deflateBuffer);
+            if (length + n > result.length) {
+                result = Arrays.copyOf(result, Math.max(result.length * 2, length + n));
+            }
+            System.arraycopy(deflateBuffer, 0, result, length, n);
+            length += n;
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    private void beginObject(int number) throws IOException {
+        if (number >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(offsets.length * 2, number + 1));
+        }
+        offsets[number] = position;
+        write(number + " 0 obj\n");
+    }
+
+    private void endObject() throws IOException {
+        write("\nendobj\n");
+    }
+
+    // Parentheses and backslashes are escaped; anything outside Latin-1 or a control character becomes '?'
+    private void appendEscaped(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                page.append('\\').append(c);
+            } else if (c < 0x20 || (c >= 0x7F && c < 0xA0) || c > 0xFF) {
+                page.append('?');
+            } else {
+                page.append(c);
+            }
+        }
+    }
+
+    private static String number(float value) {
+        if (value == Math.rint(value)) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private void write(String text) throws IOException {
+        write(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        out.write(bytes);
+        position += bytes.length;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.mitchelltutorial;
+
+import java.time.LocalDate;
+
+// Rental pricing, shared by the booking form, the payment form, the closeout and the invoice.
+// A booking covers [start, end), so the end date is the return day and is not charged.
+public final class PricingCalculator {
+
+    private PricingCalculator() {
+    }
+
+    public static long rentalDays(LocalDate start, LocalDate end) {
+        return end.toEpochDay() - start.toEpochDay();
+    }
+
+    public static double total(LocalDate start, LocalDate end, double dailyRate) {
+        return rentalDays(start, end) * dailyRate;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.mitchelltutorial;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Report results by report type and date range, so asking for the same range again costs nothing.
+// Writes say which month they touched (a booking its start date's, a payment its payment date's), and
+// exactly the entries whose range covers that month are dropped. Writes made at another desk are not seen,
+// so entries also expire after a while; that bounds how stale a report can be, not how fresh it usually is.
+// The least recently used entry goes when the cache is full.
+// A result being loaded is shared: the revenue and booking-trend charts ask for the same monthly totals at
+// the same time and only one query runs. An invalidation during the load drops it too, so a result read
+// before a write is handed to whoever was already waiting for it but never kept.
+// Thread safe; loads run on the calling thread, outside the lock.
+public class ReportCache {
+
+    public enum Type {
+        MONTHLY_TOTALS,
+        DAILY_TOTALS,
+        REVENUE_BY_CATEGORY
+    }
+
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws SQLException;
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public ReportCache(int maxEntries, long ttl, TimeUnit unit) {
+        this(maxEntries, ttl, unit, System::nanoTime);
+    }
+
+    ReportCache(int maxEntries, long ttl, TimeUnit unit, LongSupplier clock) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.clock = clock;
+    }
+
+    // A null start or end leaves that side of the range open, as for an all-time report
+    @SuppressWarnings("unchecked")
+    public <V> V get(Type type, LocalDate start, LocalDate end, Loader<V> loader) throws SQLException {
+        Key key = new Key(type, start, end);
+        Entry entry;
+        boolean loading = false;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && clock.getAsLong() - entry.loadedAt > ttlNanos) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry(clock.getAsLong());
+                entries.put(key, entry);
+                loading = true;
+                trim();
+            }
+        }
+
+        if (loading) {
+            try {
+                entry.result.complete(loader.load());
+            } catch (SQLException | RuntimeException | Error e) {
+                discard(key, entry);
+                entry.result.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return (V) entry.result.join();
+        } catch (CompletionException e) {
+            // Another caller's load failed; this one fails the same way, and the next get() tries again
+            if (e.getCause() instanceof SQLException sql) {
+                throw sql;
+            }
+            throw e;
+        }
+    }
+
+    // Drops every entry whose range includes the month
+    public synchronized void invalidate(YearMonth month) {
+        Iterator<Key> it = entries.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().covers(month)) {
+                it.remove();
+            }
+        }
+    }
+
+    // For writes the cache cannot place, e.g. rows brought in by the offline sync
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void discard(Key key, Entry entry) {
+        entries.remove(key, entry);
+    }
+
+    private void trim() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static final class Entry {
+        private final long loadedAt;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Entry(long loadedAt) {
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static final class Key {
+        private final Type type;
+        private final LocalDate start;
+        private final LocalDate end;
+
+        private Key(Type type, LocalDate start, LocalDate end) {
+            this.type = type;
+            this.start = start;
+            this.end = end;
+        }
+
+        private boolean covers(YearMonth month) {
+            return (start == null || !month.isBefore(YearMonth.from(start)))
+                    && (end == null || !month.isAfter(YearMonth.from(end)));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && type == other.type
+                    && Objects.equals(start, other.start) && Objects.equals(end, other.end);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, start, end);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.mitchelltutorial;
+
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Loads the parts of a report side by side in the background, each on its own connection, and hands each
+// result to the FX thread as soon as it arrives so its chart can be drawn while the others are still running.
+// Every statement a part creates gets a query timeout, so a runaway date range fails instead of hanging,
+// and is remembered so cancel() can stop it in the database with Statement.cancel(); interrupting the
+// thread alone would leave the query running until it finished.
+// Starting a run cancels the one before it. Offline there is no pool, and parts are given no connection.
+// All methods must be called on the JavaFX Application Thread.
+public class ReportPipeline {
+
+    @FunctionalInterface
+    public interface Query<T> {
+        T run(Connection conn) throws Exception;
+    }
+
+    // How a run ended, for the status line
+    public interface Listener {
+        // After each part, successful or not
+        void partFinished(String part, Throwable error, int finished, int total);
+
+        // Once every part has finished; not called for a cancelled run
+        void runFinished(int failed);
+    }
+
+    private final BackgroundLoader loader;
+    private final OperationMetrics operations;
+    private final int queryTimeoutSeconds;
+    private Run current;
+
+    public ReportPipeline(BackgroundLoader loader, OperationMetrics operations, int queryTimeoutSeconds) {
+        this.loader = loader;
+        this.operations = operations;
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+    }
+
+    public Run start(ConnectionPool pool, Listener listener) {
+        cancel();
+        current = new Run(pool, listener);
+        return current;
+    }
+
+    public void cancel() {
+        if (current != null) {
+            current.cancel();
+            current = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return current != null && !current.cancelled && current.pending > 0;
+    }
+
+    public final class Run {
+        private final ConnectionPool pool;
+        private final Listener listener;
+        private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+        private final List<Object> keys = new ArrayList<>();
+        private volatile boolean cancelled;
+        private int total;
+        private int pending;
+        private int failed;
+
+        private Run(ConnectionPool pool, Listener listener) {
+            this.pool = pool;
+            this.listener = listener;
+        }
+
+        public <T> void add(String part, Query<T> query, Consumer<T> onResult) {
+            total++;
+            pending++;
+            Object key = "report:" + part;
+            keys.add(key);
+            Task<T> task = loader.submit(key, operations.timed("report." + part, () -> run(query)),
+                    result -> {
+                        if (!cancelled) {
+                            onResult.accept(result);
+                            finished(part, null);
+                        }
+                    },
+                    error -> {
+                        if (!cancelled) {
+                            failed++;
+                            finished(part, error);
+                        }
+                    });
+            task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, e -> cancel());
+        }
+
+        private <T> T run(Query<T> query) throws Exception {
+            if (pool == null) {
+                return query.run(null);
+            }
+            try (Connection conn = pool.getConnection()) {
+                return query.run(watched(conn));
+            }
+        }
+
+        private void finished(String part, Throwable error) {
+            pending--;
+            listener.partFinished(part, error, total - pending, total);
+            if (pending == 0) {
+                listener.runFinished(failed);
+            }
+        }
+
+        // Stops every statement still running in the database, then the tasks waiting on them
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            for (Statement statement : statements) {
+                try {
+                    statement.cancel();
+                } catch (SQLException e) {
+                    // Already finished or closed
+                }
+            }
+            statements.clear();
+            for (Object key : keys) {
+                loader.cancel(key);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        // The connection with every statement it creates timed out and registered for cancel()
+        private Connection watched(Connection conn) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        Object result;
+                        try {
+                            result = method.invoke(conn, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        if (result instanceof Statement statement) {
+                            if (cancelled) {
+                                statement.close();
+                                throw new CancellationException("Report cancelled");
+                            }
+                            statement.setQueryTimeout(queryTimeoutSeconds);
+                            statements.add(statement);
+                        }
+                        return result;
+                    });
+        }
+    }
+}
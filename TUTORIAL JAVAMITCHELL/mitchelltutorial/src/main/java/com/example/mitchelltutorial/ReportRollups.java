@@ -0,0 +1,304 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.Booking;
+import com.example.mitchelltutorial.VehicleRentalSystem.Payment;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Bookings (by start date) and revenue (by payment date) pre-aggregated per day and per month and split by
+// vehicle category, so the reports read a handful of rows per month instead of scanning bookings and payments.
+// Writers add a Delta inside their own transaction, so the rollups never disagree with the rows they count.
+// rebuild() recomputes a date range from the raw tables; it is the backfill, and what the offline sync uses
+// for the rows it brings in. The category is the vehicle's at the time of the write (its current one on a
+// rebuild).
+public final class ReportRollups {
+
+    private static final LocalDate EARLIEST = LocalDate.of(1000, 1, 1);
+    private static final LocalDate LATEST = LocalDate.of(9999, 12, 31);
+
+    private static final String UPSERT_DAILY =
+            "INSERT INTO report_daily (report_day, category, bookings, revenue, payments) VALUES (?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE bookings = bookings + VALUES(bookings), " +
+                    "revenue = revenue + VALUES(revenue), payments = payments + VALUES(payments)";
+    private static final String UPSERT_MONTHLY =
+            "INSERT INTO report_monthly (report_month, category, bookings, revenue, payments) VALUES (?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE bookings = bookings + VALUES(bookings), " +
+                    "revenue = revenue + VALUES(revenue), payments = payments + VALUES(payments)";
+
+    private ReportRollups() {
+    }
+
+    public static void createTables(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS report_daily (" +
+                "report_day DATE NOT NULL, " +
+                "category VARCHAR(30) NOT NULL, " +
+                "bookings INT NOT NULL DEFAULT 0, " +
+                "revenue DECIMAL(14,2) NOT NULL DEFAULT 0, " +
+                "payments INT NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (report_day, category))");
+        // report_month is the first day of the month
+        stmt.execute("CREATE TABLE IF NOT EXISTS report_monthly (" +
+                "report_month DATE NOT NULL, " +
+                "category VARCHAR(30) NOT NULL, " +
+                "bookings INT NOT NULL DEFAULT 0, " +
+                "revenue DECIMAL(14,2) NOT NULL DEFAULT 0, " +
+                "payments INT NOT NULL DEFAULT 0, " +
+                "PRIMARY KEY (report_month, category))");
+    }
+
+    // True when there is history the rollups have never seen, i.e. on the first start after an upgrade
+    static boolean needsBackfill(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT (SELECT COUNT(*) FROM report_daily) = 0 AND " +
+                     "(EXISTS (SELECT 1 FROM bookings) OR EXISTS (SELECT 1 FROM payments))")) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    // Adds the delta to both tables; call inside the transaction that wrote the rows it counts
+    public static void apply(Connection conn, Delta delta) throws SQLException {
+        if (delta.daily.isEmpty()) {
+            return;
+        }
+        Map<Key, Totals> monthly = new HashMap<>();
+        for (Map.Entry<Key, Totals> e : delta.daily.entrySet()) {
+            Key month = new Key(e.getKey().day.withDayOfMonth(1), e.getKey().category);
+            monthly.computeIfAbsent(month, k -> new Totals()).add(e.getValue());
+        }
+        upsert(conn, UPSERT_DAILY, delta.daily);
+        upsert(conn, UPSERT_MONTHLY, monthly);
+    }
+
+    // The backfill: recomputes every day in [from, to] and every month touching it from the raw tables.
+    // Runs in the caller's transaction
+    public static void rebuild(Connection conn, LocalDate from, LocalDate to) throws SQLException {
+        LocalDate firstMonth = from.withDayOfMonth(1);
+        LocalDate monthsEnd = to.withDayOfMonth(to.lengthOfMonth());
+
+        // Whole months, so the monthly totals can be summed straight from the daily rows below
+        execute(conn, "DELETE FROM report_daily WHERE report_day BETWEEN ? AND ?", firstMonth, monthsEnd);
+        execute(conn, "INSERT INTO report_daily (report_day, category, bookings, revenue, payments) " +
+                "SELECT b.start_date, v.category, COUNT(*), 0, 0 FROM bookings b " +
+                "JOIN vehicles v ON v.id = b.vehicle_id " +
+                "WHERE b.start_date BETWEEN ? AND ? GROUP BY b.start_date, v.category", firstMonth, monthsEnd);
+        execute(conn, "INSERT INTO report_daily (report_day, category, bookings, revenue, payments) " +
+                "SELECT p.payment_date, v.category, 0, SUM(p.amount), COUNT(*) FROM payments p " +
+                "JOIN bookings b ON b.id = p.booking_id JOIN vehicles v ON v.id = b.vehicle_id " +
+                "WHERE p.payment_date BETWEEN ? AND ? GROUP BY p.payment_date, v.category " +
+                "ON DUPLICATE KEY UPDATE revenue = VALUES(revenue), payments = VALUES(payments)", firstMonth, monthsEnd);
+
+        execute(conn, "DELETE FROM report_monthly WHERE report_month BETWEEN ? AND ?", firstMonth, monthsEnd);
+        String month = SqlDialect.of(conn).monthStart("report_day");
+        execute(conn, "INSERT INTO report_monthly (report_month, category, bookings, revenue, payments) " +
+                "SELECT " + month + ", category, SUM(bookings), SUM(revenue), SUM(payments) FROM report_daily " +
+                "WHERE report_day BETWEEN ? AND ? GROUP BY " + month + ", category", firstMonth, monthsEnd);
+    }
+
+    public static void rebuildAll(Connection conn) throws SQLException {
+        rebuild(conn, EARLIEST, LATEST);
+    }
+
+    // Rebuilds the months containing the given days, e.g. the dates of the rows merged by the sync
+    public static void rebuildDays(Connection conn, Collection<LocalDate> days) throws SQLException {
+        TreeSet<LocalDate> months = new TreeSet<>();
+        for (LocalDate day : days) {
+            months.add(day.withDayOfMonth(1));
+        }
+        for (LocalDate month : months) {
+            rebuild(conn, month, month);
+        }
+    }
+
+    // Per month across [start, end]: whole months come from report_monthly and the partial months at
+    // either end from report_daily, so the cost depends on the length of the range, not of the history
+    public static SortedMap<YearMonth, Totals> monthly(Connection conn, LocalDate start, LocalDate end)
+            throws SQLException {
+        SortedMap<YearMonth, Totals> result = new TreeMap<>();
+        if (end.isBefore(start)) {
+            return result;
+        }
+        LocalDate firstWhole = start.getDayOfMonth() == 1 ? start : start.plusMonths(1).withDayOfMonth(1);
+        LocalDate afterLastWhole = end.plusDays(1).withDayOfMonth(1);
+
+        if (firstWhole.isBefore(afterLastWhole)) {
+            sumInto(result, conn, "SELECT report_month, bookings, revenue, payments FROM report_monthly " +
+                    "WHERE report_month >= ? AND report_month < ?", firstWhole, afterLastWhole);
+            if (start.isBefore(firstWhole)) {
+                sumInto(result, conn, "SELECT report_day, bookings, revenue, payments FROM report_daily " +
+                        "WHERE report_day >= ? AND report_day < ?", start, firstWhole);
+            }
+            if (!end.isBefore(afterLastWhole)) {
+                sumInto(result, conn, "SELECT report_day, bookings, revenue, payments FROM report_daily " +
+                        "WHERE report_day >= ? AND report_day <= ?", afterLastWhole, end);
+            }
+        } else {
+            // No whole month in the range
+            sumInto(result, conn, "SELECT report_day, bookings, revenue, payments FROM report_daily " +
+                    "WHERE report_day >= ? AND report_day <= ?", start, end);
+        }
+        return result;
+    }
+
+    // The same per-month totals counted from the offline store, which has no rollups
+    public static SortedMap<YearMonth, Totals> monthly(OfflineStore store, LocalDate start, LocalDate end) {
+        SortedMap<YearMonth, Totals> result = new TreeMap<>();
+        for (Booking b : store.bookings()) {
+            if (!b.getStartDate().isBefore(start) && !b.getStartDate().isAfter(end)) {
+                result.computeIfAbsent(YearMonth.from(b.getStartDate()), k -> new Totals()).add(1, 0, 0);
+            }
+        }
+        for (Payment p : store.payments()) {
+            if (!p.getPaymentDate().isBefore(start) && !p.getPaymentDate().isAfter(end)) {
+                result.computeIfAbsent(YearMonth.from(p.getPaymentDate()), k -> new Totals()).add(0, p.getAmount(), 1);
+            }
+        }
+        return result;
+    }
+
+    // Per day across [start, end], summed over the categories; days with nothing on them are left out
+    public static SortedMap<LocalDate, Totals> daily(Connection conn, LocalDate start, LocalDate end)
+            throws SQLException {
+        SortedMap<LocalDate, Totals> result = new TreeMap<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT report_day, bookings, revenue, payments " +
+                "FROM report_daily WHERE report_day >= ? AND report_day <= ?")) {
+            ps.setDate(1, java.sql.Date.valueOf(start));
+            ps.setDate(2, java.sql.Date.valueOf(end));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.computeIfAbsent(rs.getDate(1).toLocalDate(), k -> new Totals())
+                            .add(rs.getInt("bookings"), rs.getDouble("revenue"), rs.getInt("payments"));
+                }
+            }
+        }
+        return result;
+    }
+
+    // All-time revenue per category
+    public static SortedMap<String, Double> revenueByCategory(Connection conn) throws SQLException {
+        SortedMap<String, Double> result = new TreeMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT category, SUM(revenue) FROM report_monthly GROUP BY category");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                result.put(rs.getString(1), rs.getDouble(2));
+            }
+        }
+        return result;
+    }
+
+    public static double totalRevenue(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT SUM(revenue) FROM report_monthly");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getDouble(1) : 0;
+        }
+    }
+
+    private static void sumInto(SortedMap<YearMonth, Totals> result, Connection conn, String sql,
+                                LocalDate from, LocalDate to) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setDate(1, java.sql.Date.valueOf(from));
+            ps.setDate(2, java.sql.Date.valueOf(to));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    YearMonth month = YearMonth.from(rs.getDate(1).toLocalDate());
+                    result.computeIfAbsent(month, k -> new Totals())
+                            .add(rs.getInt("bookings"), rs.getDouble("revenue"), rs.getInt("payments"));
+                }
+            }
+        }
+    }
+
+    private static void upsert(Connection conn, String sql, Map<Key, Totals> rows) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Map.Entry<Key, Totals> e : rows.entrySet()) {
+                ps.setDate(1, java.sql.Date.valueOf(e.getKey().day));
+                ps.setString(2, e.getKey().category);
+                ps.setInt(3, e.getValue().bookings);
+                ps.setDouble(4, e.getValue().revenue);
+                ps.setInt(5, e.getValue().payments);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void execute(Connection conn, String sql, LocalDate from, LocalDate to) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setDate(1, java.sql.Date.valueOf(from));
+            ps.setDate(2, java.sql.Date.valueOf(to));
+            ps.executeUpdate();
+        }
+    }
+
+    // What a write adds to the rollups
+    public static class Delta {
+        private final Map<Key, Totals> daily = new HashMap<>();
+
+        public Delta booking(LocalDate startDate, String category) {
+            totals(startDate, category).add(1, 0, 0);
+            return this;
+        }
+
+        public Delta payment(LocalDate paymentDate, String category, double amount) {
+            totals(paymentDate, category).add(0, amount, 1);
+            return this;
+        }
+
+        private Totals totals(LocalDate day, String category) {
+            return daily.computeIfAbsent(new Key(day, category == null ? "Unknown" : category), k -> new Totals());
+        }
+    }
+
+    public static class Totals {
+        private int bookings;
+        private double revenue;
+        private int payments;
+
+        public int getBookings() { return bookings; }
+        public double getRevenue() { return revenue; }
+        public int getPayments() { return payments; }
+
+        private void add(int bookings, double revenue, int payments) {
+            this.bookings += bookings;
+            this.revenue += revenue;
+            this.payments += payments;
+        }
+
+        private void add(Totals other) {
+            add(other.bookings, other.revenue, other.payments);
+        }
+    }
+
+    private static final class Key {
+        private final LocalDate day;
+        private final String category;
+
+        private Key(LocalDate day, String category) {
+            this.day = day;
+            this.category = category;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && day.equals(other.day) && category.equals(other.category);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(day, category);
+        }
+    }
+}
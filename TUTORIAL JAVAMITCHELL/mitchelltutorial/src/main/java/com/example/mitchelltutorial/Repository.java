@@ -0,0 +1,100 @@
+package com.example.mitchelltutorial;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Base of the table repositories. Every statement and result set is closed by try-with-resources, and
+// statements are prepared with plain SQL strings so the pool's per-connection cache reuses them.
+// Each query comes in two forms: one that borrows its own connection, and one that runs on a connection
+// the caller already holds, for work that has to share a transaction.
+// Public methods run their work through timed(), which records it in the OperationMetrics as
+// "<table>.<operation>".
+abstract class Repository {
+
+    protected final ConnectionPool pool;
+    private final OperationMetrics operations;
+    private final String table;
+
+    protected Repository(ConnectionPool pool, OperationMetrics operations, String table) {
+        this.pool = pool;
+        this.operations = operations;
+        this.table = table;
+    }
+
+    protected <T> T timed(String operation, SqlWork<T> work) throws SQLException {
+        OperationMetrics.Sample sample = operations.start(table + "." + operation);
+        try {
+            T result = work.run();
+            sample.stop();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            sample.fail();
+            throw e;
+        }
+    }
+
+    protected <T> List<T> list(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return list(conn, sql, mapper, params);
+        }
+    }
+
+    protected static <T> List<T> list(Connection conn, String sql, RowMapper<T> mapper, Object... params)
+            throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<T> rows = new ArrayList<>();
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+                return rows;
+            }
+        }
+    }
+
+    // The first row, or null if there is none
+    protected static <T> T first(Connection conn, String sql, RowMapper<T> mapper, Object... params)
+            throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            bind(ps, params);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? mapper.map(rs) : null;
+            }
+        }
+    }
+
+    protected int update(String sql, Object... params) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return update(conn, sql, params);
+        }
+    }
+
+    protected static int update(Connection conn, String sql, Object... params) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            bind(ps, params);
+            return ps.executeUpdate();
+        }
+    }
+
+    private static void bind(PreparedStatement ps, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            Object value = params[i];
+            if (value instanceof LocalDate) {
+                ps.setDate(i + 1, java.sql.Date.valueOf((LocalDate) value));
+            } else {
+                ps.setObject(i + 1, value);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    protected interface SqlWork<T> {
+        T run() throws SQLException;
+    }
+}
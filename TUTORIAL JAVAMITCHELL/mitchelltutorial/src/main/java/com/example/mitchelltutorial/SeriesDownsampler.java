@@ -0,0 +1,64 @@
+package com.example.mitchelltutorial;
+
+// Thins an evenly spaced series to about as many points as there are pixels to draw it on, using
+// largest-triangle-three-buckets (LTTB): the first and last points are kept and, from each of the equal
+// buckets between them, the point that makes the largest triangle with the point kept before it and the
+// average of the next bucket. Unlike averaging, that keeps the peaks and dips a reader looks for.
+// Linear in the number of points and allocation free apart from the result.
+public final class SeriesDownsampler {
+
+    private SeriesDownsampler() {
+    }
+
+    // Indices into values, ascending, of the points to draw from values[from, to); x is the index
+    public static int[] lttb(double[] values, int from, int to, int threshold) {
+        int n = to - from;
+        if (n <= 0) {
+            return new int[0];
+        }
+        if (threshold >= n || threshold < 3) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = from + i;
+            }
+            return all;
+        }
+
+        int[] kept = new int[threshold];
+        kept[0] = from;
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        for (int i = 0; i < threshold - 2; i++) {
+            // The average of the next bucket (the last point, for the last bucket)
+            int averageStart = (int) ((i + 1) * every) + 1;
+            int averageEnd = Math.min((int) ((i + 2) * every) + 1, n);
+            double averageX = 0;
+            double averageY = 0;
+            for (int j = averageStart; j < averageEnd; j++) {
+                averageX += j;
+                averageY += values[from + j];
+            }
+            int averageCount = averageEnd - averageStart;
+            averageX /= averageCount;
+            averageY /= averageCount;
+
+            double ay = values[from + a];
+            int bucketStart = (int) (i * every) + 1;
+            int bucketEnd = (int) ((i + 1) * every) + 1;
+            double largest = -1;
+            int chosen = bucketStart;
+            for (int j = bucketStart; j < bucketEnd; j++) {
+                // Twice the triangle's area; the factor does not change which is largest
+                double area = Math.abs((a - averageX) * (values[from + j] - ay) - (a - j) * (averageY - ay));
+                if (area > largest) {
+                    largest = area;
+                    chosen = j;
+                }
+            }
+            kept[i + 1] = from + chosen;
+            a = chosen;
+        }
+        kept[threshold - 1] = from + n - 1;
+        return kept;
+    }
+}
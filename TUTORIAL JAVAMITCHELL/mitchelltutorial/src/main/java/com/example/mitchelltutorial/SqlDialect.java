@@ -0,0 +1,91 @@
+package com.example.mitchelltutorial;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+
+// The storage backends the app can run on, and the few places their SQL differs.
+// MySQL is the shared server database. H2 runs in-process on a local file, so a single desk (or a test,
+// or a benchmark) needs no server at all. H2 is opened in its MySQL compatibility mode, which accepts
+// the upserts (ON DUPLICATE KEY UPDATE ... VALUES(...)), FOR UPDATE locks and inline indexes used
+// throughout, so only what that mode does not cover goes through here: connection settings, date
+// bucketing and streaming result sets.
+// The backend is chosen with -Drental.db=mysql|h2; -Drental.db.url, .user and .password override the
+// connection settings.
+public enum SqlDialect {
+
+    MYSQL("com.mysql.cj.jdbc.Driver",
+            "jdbc:mysql://localhost:3306/vehicle_rental?rewriteBatchedStatements=true", "root", "password") {
+        @Override
+        public String monthStart(String dateExpression) {
+            return "CAST(DATE_FORMAT(" + dateExpression + ", '%Y-%m-01') AS DATE)";
+        }
+
+        // Connector/J streams a result set row by row only with this fetch size; any other value reads
+        // the whole result into memory before the first row is returned
+        @Override
+        public int streamingFetchSize() {
+            return Integer.MIN_VALUE;
+        }
+    },
+
+    H2("org.h2.Driver",
+            "jdbc:h2:" + OfflineJournal.DEFAULT_DIRECTORY.resolve(Path.of("db", "vehicle_rental")) +
+                    ";MODE=MySQL;DATABASE_TO_LOWER=TRUE", "sa", "") {
+        @Override
+        public String monthStart(String dateExpression) {
+            return "CAST(DATE_TRUNC(MONTH, " + dateExpression + ") AS DATE)";
+        }
+
+        // H2 rejects negative fetch sizes; it spills large results to disk by itself
+        @Override
+        public int streamingFetchSize() {
+            return 1000;
+        }
+    };
+
+    private static final String PROPERTY = "rental.db";
+
+    private final String driverClass;
+    private final String defaultUrl;
+    private final String defaultUser;
+    private final String defaultPassword;
+
+    SqlDialect(String driverClass, String defaultUrl, String defaultUser, String defaultPassword) {
+        this.driverClass = driverClass;
+        this.defaultUrl = defaultUrl;
+        this.defaultUser = defaultUser;
+        this.defaultPassword = defaultPassword;
+    }
+
+    // An expression for the first day of the month of a DATE expression, for grouping by month
+    public abstract String monthStart(String dateExpression);
+
+    // Fetch size that makes a forward-only, read-only result set stream instead of loading in full
+    public abstract int streamingFetchSize();
+
+    public static SqlDialect configured() {
+        String name = System.getProperty(PROPERTY, "mysql");
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown database '" + name + "' in -D" + PROPERTY +
+                    "; expected mysql or h2", e);
+        }
+    }
+
+    // The dialect of an open connection, for code that is handed a connection rather than a pool
+    public static SqlDialect of(Connection conn) throws SQLException {
+        return conn.getMetaData().getDatabaseProductName().equalsIgnoreCase("H2") ? H2 : MYSQL;
+    }
+
+    public ConnectionPool createPool(int maxSize) throws ClassNotFoundException {
+        Class.forName(driverClass);
+        return new ConnectionPool(
+                System.getProperty(PROPERTY + ".url", defaultUrl),
+                System.getProperty(PROPERTY + ".user", defaultUser),
+                System.getProperty(PROPERTY + ".password", defaultPassword),
+                maxSize);
+    }
+}
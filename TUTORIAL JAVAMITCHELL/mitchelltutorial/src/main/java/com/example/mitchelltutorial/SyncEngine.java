@@ -0,0 +1,775 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.OfflineStore.BookingRecord;
+import com.example.mitchelltutorial.OfflineStore.Kind;
+import com.example.mitchelltutorial.OfflineStore.OutboxEntry;
+import com.example.mitchelltutorial.VehicleRentalSystem.Customer;
+import com.example.mitchelltutorial.VehicleRentalSystem.Payment;
+import com.example.mitchelltutorial.VehicleRentalSystem.User;
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Sends the changes queued in the OfflineStore outbox to the database once it is reachable again.
+// Rows go in dependency order (vehicles, customers and users, then bookings, then payments, then
+// vehicle removals) as JDBC batches, one transaction per chunk. If a batch fails its rows are retried
+// one by one so a single bad row is rejected without holding back the rest. New bookings are checked
+// against the vehicle's active bookings in the database first; an overlap means the vehicle was booked
+// while we were offline and the offline booking, and any payment for it, is rejected.
+// Vehicles and customers are merged field by field against the row as it was before the offline edit:
+// a field changed on one side only takes that side's value, one changed differently on both sides is a
+// conflict and the online row is kept. A payment for a booking that was paid or completed online is a
+// conflict too. Conflicts are reported as rejected.
+// Entries are acknowledged in the store as each chunk commits, so an interrupted sync resumes safely.
+public class SyncEngine {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final OfflineStore store;
+    private final ConnectionPool pool;
+
+    public SyncEngine(OfflineStore store, ConnectionPool pool) {
+        this.store = store;
+        this.pool = pool;
+    }
+
+    public Report sync() throws SQLException {
+        Report report = new Report();
+        List<OutboxEntry> entries = store.outbox();
+        if (entries.isEmpty()) {
+            return report;
+        }
+
+        Map<Kind, List<OutboxEntry>> upserts = new EnumMap<>(Kind.class);
+        List<OutboxEntry> vehicleRemovals = new ArrayList<>();
+        for (OutboxEntry entry : entries) {
+            if (entry.isRemoval()) {
+                vehicleRemovals.add(entry);
+            } else {
+                upserts.computeIfAbsent(entry.getKind(), k -> new ArrayList<>()).add(entry);
+            }
+        }
+
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            Set<String> touchedVehicles = new LinkedHashSet<>();
+
+            syncVehicles(conn, upserts.getOrDefault(Kind.VEHICLE, List.of()), touchedVehicles, report);
+            syncCustomers(conn, upserts.getOrDefault(Kind.CUSTOMER, List.of()), report);
+            syncUsers(conn, upserts.getOrDefault(Kind.USER, List.of()), report);
+            Set<String> completedOnline = new HashSet<>();
+            Set<String> rejectedBookings = syncBookings(conn, upserts.getOrDefault(Kind.BOOKING, List.of()),
+                    touchedVehicles, completedOnline, report);
+            syncPayments(conn, upserts.getOrDefault(Kind.PAYMENT, List.of()), rejectedBookings, completedOnline,
+                    touchedVehicles, report);
+            syncVehicleRemovals(conn, vehicleRemovals, report);
+
+            touchedVehicles.removeAll(idsOf(vehicleRemovals));
+            reconcileVehicleStatus(conn, touchedVehicles);
+            refreshRollups(conn, upserts.getOrDefault(Kind.BOOKING, List.of()),
+                    upserts.getOrDefault(Kind.PAYMENT, List.of()), report);
+            refreshBookingView(conn, upserts, report);
+        }
+        return report;
+    }
+
+    // The online rows are locked while they are compared, so the merged row is written over what was read
+    private void syncVehicles(Connection conn, List<OutboxEntry> entries, Set<String> touched, Report report)
+            throws SQLException {
+        String sql = "INSERT INTO vehicles (id, brand, model, category, daily_rate, status) VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE brand = VALUES(brand), model = VALUES(model), category = VALUES(category), " +
+                "daily_rate = VALUES(daily_rate), status = VALUES(status)";
+        for (List<OutboxEntry> chunk : chunks(entries)) {
+            Map<String, Vehicle> online = selectVehicles(conn, idsOf(chunk));
+            Map<String, Vehicle> merged = new HashMap<>();
+            List<OutboxEntry> writes = new ArrayList<>();
+            for (OutboxEntry entry : chunk) {
+                Vehicle offline = store.vehicle(entry.getId());
+                Vehicle current = online.get(entry.getId());
+                Vehicle base = store.vehicleBase(entry.getId());
+                if (offline == null) {
+                    report.rejected(entry, "no longer exists offline");
+                } else if (current == null) {
+                    if (base != null) {
+                        report.rejected(entry, "was deleted online");
+                    } else {
+                        merged.put(entry.getId(), offline);
+                        writes.add(entry);
+                    }
+                } else {
+                    List<String> conflicts = new ArrayList<>();
+                    Vehicle row = mergeVehicle(base, offline, current, conflicts);
+                    if (!conflicts.isEmpty()) {
+                        report.rejected(entry, conflictReason(conflicts));
+                    } else {
+                        merged.put(entry.getId(), row);
+                        writes.add(entry);
+                    }
+                }
+            }
+            store.acknowledge(report.rejectedSince(chunk));
+
+            runBatches(conn, writes, sql, (ps, entry) -> {
+                Vehicle v = merged.get(entry.getId());
+                ps.setString(1, v.getId());
+                ps.setString(2, v.getBrand());
+                ps.setString(3, v.getModel());
+                ps.setString(4, v.getCategory());
+                ps.setDouble(5, v.getDailyRate());
+                ps.setString(6, v.getStatus());
+                return null;
+            }, report);
+            // Releases the row locks when there was nothing to write
+            conn.commit();
+            for (OutboxEntry entry : writes) {
+                if (!report.isRejected(entry)) {
+                    store.rebaseVehicle(merged.get(entry.getId()));
+                    touched.add(entry.getId());
+                }
+            }
+        }
+    }
+
+    private void syncCustomers(Connection conn, List<OutboxEntry> entries, Report report) throws SQLException {
+        String sql = "INSERT INTO customers (id, name, phone, email, license, dob) VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE name = VALUES(name), phone = VALUES(phone), email = VALUES(email), " +
+                "license = VALUES(license), dob = VALUES(dob)";
+        for (List<OutboxEntry> chunk : chunks(entries)) {
+            Map<String, Customer> online = selectCustomers(conn, idsOf(chunk));
+            Map<String, Customer> merged = new HashMap<>();
+            List<OutboxEntry> writes = new ArrayList<>();
+            for (OutboxEntry entry : chunk) {
+                Customer offline = store.customer(entry.getId());
+                Customer current = online.get(entry.getId());
+                Customer base = store.customerBase(entry.getId());
+                if (offline == null) {
+                    report.rejected(entry, "no longer exists offline");
+                } else if (current == null) {
+                    if (base != null) {
+                        report.rejected(entry, "was deleted online");
+                    } else {
+                        merged.put(entry.getId(), offline);
+                        writes.add(entry);
+                    }
+                } else {
+                    List<String> conflicts = new ArrayList<>();
+                    Customer row = mergeCustomer(base, offline, current, conflicts);
+                    if (!conflicts.isEmpty()) {
+                        report.rejected(entry, conflictReason(conflicts));
+                    } else {
+                        merged.put(entry.getId(), row);
+                        writes.add(entry);
+                    }
+                }
+            }
+            store.acknowledge(report.rejectedSince(chunk));
+
+            runBatches(conn, writes, sql, (ps, entry) -> {
+                Customer c = merged.get(entry.getId());
+                ps.setString(1, c.getId());
+                ps.setString(2, c.getName());
+                ps.setString(3, c.getPhone());
+                ps.setString(4, c.getEmail());
+                ps.setString(5, c.getLicense());
+                ps.setDate(6, c.getDob() == null ? null : java.sql.Date.valueOf(c.getDob()));
+                return null;
+            }, report);
+            // Releases the row locks when there was nothing to write
+            conn.commit();
+            for (OutboxEntry entry : writes) {
+                if (!report.isRejected(entry)) {
+                    store.rebaseCustomer(merged.get(entry.getId()));
+                }
+            }
+        }
+    }
+
+    // Without a base (created offline, or queued before bases were kept) every differing field is a conflict
+    private static Vehicle mergeVehicle(Vehicle base, Vehicle offline, Vehicle online, List<String> conflicts) {
+        boolean known = base != null;
+        long cents = pick("daily rate", known, known ? cents(base.getDailyRate()) : null,
+                cents(offline.getDailyRate()), cents(online.getDailyRate()), conflicts);
+        return new Vehicle(offline.getId(),
+                pick("brand", known, known ? base.getBrand() : null, offline.getBrand(), online.getBrand(), conflicts),
+                pick("model", known, known ? base.getModel() : null, offline.getModel(), online.getModel(), conflicts),
+                pick("category", known, known ? base.getCategory() : null, offline.getCategory(),
+                        online.getCategory(), conflicts),
+                cents / 100.0,
+                pick("status", known, known ? base.getStatus() : null, offline.getStatus(), online.getStatus(),
+                        conflicts));
+    }
+
+    private static Customer mergeCustomer(Customer base, Customer offline, Customer online, List<String> conflicts) {
+        boolean known = base != null;
+        return new Customer(offline.getId(),
+                pick("name", known, known ? base.getName() : null, offline.getName(), online.getName(), conflicts),
+                pick("phone", known, known ? base.getPhone() : null, offline.getPhone(), online.getPhone(), conflicts),
+                pick("email", known, known ? base.getEmail() : null, offline.getEmail(), online.getEmail(), conflicts),
+                pick("license", known, known ? base.getLicense() : null, offline.getLicense(), online.getLicense(),
+                        conflicts),
+                pick("date of birth", known, known ? base.getDob() : null, offline.getDob(), online.getDob(),
+                        conflicts));
+    }
+
+    // One field of a three-way merge: the side that changed it wins; both changing it differently is a conflict
+    private static <T> T pick(String field, boolean known, T base, T offline, T online, List<String> conflicts) {
+        if (Objects.equals(offline, online) || known && Objects.equals(offline, base)) {
+            return online;
+        }
+        if (known && Objects.equals(online, base)) {
+            return offline;
+        }
+        conflicts.add(field);
+        return online;
+    }
+
+    // The database keeps two decimals
+    private static long cents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private static String conflictReason(List<String> fields) {
+        return "conflict: " + String.join(", ", fields) + " also changed online; the online version was kept";
+    }
+
+    // A username taken online in the meantime fails on the primary key and is reported as rejected
+    private void syncUsers(Connection conn, List<OutboxEntry> entries, Report report) throws SQLException {
+        runBatches(conn, entries, "INSERT INTO users (username, password, role) VALUES (?, ?, ?)", (ps, entry) -> {
+            User u = store.user(entry.getId());
+            if (u == null) {
+                return "no longer exists offline";
+            }
+            ps.setString(1, u.getUsername());
+            ps.setString(2, u.getPassword());
+            ps.setString(3, u.getRole());
+            return null;
+        }, report);
+    }
+
+    // Returns the ids of bookings that were rejected, so their payments can be rejected too. Fills in the
+    // bookings that were already completed online before this sync wrote them
+    private Set<String> syncBookings(Connection conn, List<OutboxEntry> entries, Set<String> touched,
+                                     Set<String> completedOnline, Report report) throws SQLException {
+        Set<String> rejected = new HashSet<>();
+        for (List<OutboxEntry> chunk : chunks(entries)) {
+            Map<String, BookingRecord> offline = new HashMap<>();
+            Set<String> vehicleIds = new LinkedHashSet<>();
+            for (OutboxEntry entry : chunk) {
+                BookingRecord b = store.bookingRecord(entry.getId());
+                if (b != null) {
+                    offline.put(b.getId(), b);
+                    vehicleIds.add(b.getVehicleId());
+                }
+            }
+
+            // Lock the vehicles so nothing else books them between the check and the insert
+            selectIds(conn, "SELECT id FROM vehicles WHERE id IN (%s) FOR UPDATE", vehicleIds);
+            Map<String, String> onlineStatus = selectPairs(conn, "SELECT id, status FROM bookings WHERE id IN (%s)",
+                    offline.keySet());
+            Set<String> existing = onlineStatus.keySet();
+            onlineStatus.forEach((id, status) -> {
+                if ("Completed".equals(status)) {
+                    completedOnline.add(id);
+                }
+            });
+            Map<String, List<BookingRecord>> onlineByVehicle = bookingsForVehicles(conn, vehicleIds);
+
+            List<OutboxEntry> inserts = new ArrayList<>();
+            List<OutboxEntry> updates = new ArrayList<>();
+            for (OutboxEntry entry : chunk) {
+                BookingRecord b = offline.get(entry.getId());
+                if (b == null) {
+                    report.rejected(entry, "no longer exists offline");
+                    rejected.add(entry.getId());
+                    continue;
+                }
+                if (existing.contains(b.getId())) {
+                    updates.add(entry);
+                    continue;
+                }
+                BookingRecord clash = findOverlap(b, onlineByVehicle.getOrDefault(b.getVehicleId(), List.of()));
+                if (clash != null) {
+                    report.rejected(entry, "vehicle " + b.getVehicleId() + " was booked online from " +
+                            clash.getStartDate() + " to " + clash.getEndDate() + " (" + clash.getId() + ")");
+                    rejected.add(b.getId());
+                    continue;
+                }
+                // Later offline bookings in this sync must not overlap this one either
+                if ("Active".equals(b.getStatus())) {
+                    onlineByVehicle.computeIfAbsent(b.getVehicleId(), k -> new ArrayList<>()).add(b);
+                }
+                inserts.add(entry);
+                touched.add(b.getVehicleId());
+            }
+            // Conflicts are final. The vehicle locks are held until the inserts below commit.
+            store.acknowledge(report.rejectedSince(chunk));
+
+            runBatches(conn, inserts, "INSERT INTO bookings (id, customer_id, vehicle_id, start_date, end_date, " +
+                    "daily_rate, status, employee_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", (ps, entry) -> {
+                BookingRecord b = offline.get(entry.getId());
+                ps.setString(1, b.getId());
+                ps.setString(2, b.getCustomerId());
+                ps.setString(3, b.getVehicleId());
+                ps.setDate(4, java.sql.Date.valueOf(b.getStartDate()));
+                ps.setDate(5, java.sql.Date.valueOf(b.getEndDate()));
+                ps.setDouble(6, b.getDailyRate());
+                ps.setString(7, b.getStatus());
+                ps.setString(8, b.getEmployeeId());
+                return null;
+            }, report);
+            runBatches(conn, updates, "UPDATE bookings SET status = ? WHERE id = ?", (ps, entry) -> {
+                BookingRecord b = offline.get(entry.getId());
+                ps.setString(1, b.getStatus());
+                ps.setString(2, b.getId());
+                touched.add(b.getVehicleId());
+                return null;
+            }, report);
+            rejected.addAll(report.rejectedIds(Kind.BOOKING));
+        }
+        return rejected;
+    }
+
+    private void syncPayments(Connection conn, List<OutboxEntry> entries, Set<String> rejectedBookings,
+                              Set<String> completedOnline, Set<String> touched, Report report) throws SQLException {
+        for (List<OutboxEntry> chunk : chunks(entries)) {
+            Map<String, Payment> offline = new HashMap<>();
+            Set<String> bookingIds = new HashSet<>();
+            for (OutboxEntry entry : chunk) {
+                Payment p = store.payment(entry.getId());
+                if (p != null) {
+                    offline.put(p.getId(), p);
+                    bookingIds.add(p.getBookingId());
+                }
+            }
+            Set<String> existing = selectIds(conn, "SELECT id FROM payments WHERE id IN (%s)", offline.keySet());
+            Set<String> onlineBookings = selectIds(conn, "SELECT id FROM bookings WHERE id IN (%s)", bookingIds);
+            Set<String> paidOnline = selectIds(conn, "SELECT booking_id FROM payments WHERE booking_id IN (%s)",
+                    bookingIds);
+            conn.commit();
+
+            List<OutboxEntry> inserts = new ArrayList<>();
+            List<OutboxEntry> settled = new ArrayList<>();
+            for (OutboxEntry entry : chunk) {
+                Payment p = offline.get(entry.getId());
+                if (p == null) {
+                    report.rejected(entry, "no longer exists offline");
+                } else if (existing.contains(p.getId())) {
+                    report.merged(entry);
+                    settled.add(entry);
+                } else if (rejectedBookings.contains(p.getBookingId()) || !onlineBookings.contains(p.getBookingId())) {
+                    report.rejected(entry, "booking " + p.getBookingId() + " was not synced");
+                } else if (paidOnline.contains(p.getBookingId())) {
+                    report.rejected(entry, "conflict: booking " + p.getBookingId() + " was already paid online");
+                } else if (completedOnline.contains(p.getBookingId())) {
+                    report.rejected(entry, "conflict: booking " + p.getBookingId() + " was already completed online");
+                } else {
+                    inserts.add(entry);
+                }
+            }
+            store.acknowledge(report.rejectedSince(chunk));
+            store.acknowledge(settled);
+
+            runBatches(conn, inserts, "INSERT INTO payments (id, booking_id, amount, method, payment_date) " +
+                    "VALUES (?, ?, ?, ?, ?)", (ps, entry) -> {
+                Payment p = offline.get(entry.getId());
+                ps.setString(1, p.getId());
+                ps.setString(2, p.getBookingId());
+                ps.setDouble(3, p.getAmount());
+                ps.setString(4, p.getMethod());
+                ps.setDate(5, java.sql.Date.valueOf(p.getPaymentDate()));
+                return null;
+            }, report);
+
+            // A paid booking is complete, whichever side it was created on
+            List<String> paid = new ArrayList<>();
+            for (OutboxEntry entry : inserts) {
+                if (!report.isRejected(entry)) {
+                    paid.add(offline.get(entry.getId()).getBookingId());
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE bookings SET status = 'Completed' WHERE id = ?")) {
+                for (String bookingId : paid) {
+                    ps.setString(1, bookingId);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            touched.addAll(selectStrings(conn, "SELECT vehicle_id FROM bookings WHERE id IN (%s)", paid));
+            conn.commit();
+        }
+    }
+
+    // A vehicle that gained bookings online cannot be deleted; the foreign key rejects it
+    private void syncVehicleRemovals(Connection conn, List<OutboxEntry> entries, Report report) throws SQLException {
+        runBatches(conn, entries, "DELETE FROM vehicles WHERE id = ?", (ps, entry) -> {
+            ps.setString(1, entry.getId());
+            return null;
+        }, report);
+    }
+
+    // Rented while an active booking has started (and not been paid), otherwise whatever the last edit
+    // said, but not Rented; active bookings starting later are reservations
+    private void reconcileVehicleStatus(Connection conn, Collection<String> vehicleIds) throws SQLException {
+        if (vehicleIds.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE vehicles SET status = CASE " +
+                        "WHEN EXISTS (SELECT 1 FROM bookings b WHERE b.vehicle_id = vehicles.id AND b.status = 'Active' " +
+                        "AND b.start_date <= CURRENT_DATE) " +
+                        "THEN 'Rented' WHEN status = 'Rented' THEN 'Available' ELSE status END " +
+                        "WHERE id = ?")) {
+            int pending = 0;
+            for (String id : vehicleIds) {
+                ps.setString(1, id);
+                ps.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    ps.executeBatch();
+                    conn.commit();
+                    pending = 0;
+                }
+            }
+            ps.executeBatch();
+            conn.commit();
+        }
+    }
+
+    // Recount the months the merged bookings and payments fall in. If the sync is interrupted before this,
+    // those months stay out of date until the next rollup rebuild
+    private void refreshRollups(Connection conn, List<OutboxEntry> bookings, List<OutboxEntry> payments,
+                                Report report) throws SQLException {
+        Set<LocalDate> days = new HashSet<>();
+        for (OutboxEntry entry : bookings) {
+            BookingRecord b = store.bookingRecord(entry.getId());
+            if (b != null && !report.isRejected(entry)) {
+                days.add(b.getStartDate());
+            }
+        }
+        for (OutboxEntry entry : payments) {
+            Payment p = store.payment(entry.getId());
+            if (p != null && !report.isRejected(entry)) {
+                days.add(p.getPaymentDate());
+            }
+        }
+        if (!days.isEmpty()) {
+            ReportRollups.rebuildDays(conn, days);
+            conn.commit();
+        }
+    }
+
+    // Recopy the merged bookings, the bookings the merged payments completed, and the names and vehicle
+    // details the merged customers and vehicles changed. Interrupted before this, they stay out of date until
+    // the booking view is rebuilt
+    private void refreshBookingView(Connection conn, Map<Kind, List<OutboxEntry>> upserts, Report report)
+            throws SQLException {
+        Set<String> bookingIds = new LinkedHashSet<>(accepted(upserts.getOrDefault(Kind.BOOKING, List.of()), report));
+        for (OutboxEntry entry : upserts.getOrDefault(Kind.PAYMENT, List.of())) {
+            Payment p = store.payment(entry.getId());
+            if (p != null && !report.isRejected(entry)) {
+                bookingIds.add(p.getBookingId());
+            }
+        }
+        List<String> vehicleIds = accepted(upserts.getOrDefault(Kind.VEHICLE, List.of()), report);
+        List<String> customerIds = accepted(upserts.getOrDefault(Kind.CUSTOMER, List.of()), report);
+        if (bookingIds.isEmpty() && vehicleIds.isEmpty() && customerIds.isEmpty()) {
+            return;
+        }
+        BookingView.refreshVehicles(conn, vehicleIds);
+        BookingView.refreshCustomers(conn, customerIds);
+        BookingView.refreshBookings(conn, bookingIds);
+        conn.commit();
+    }
+
+    private static List<String> accepted(List<OutboxEntry> entries, Report report) {
+        List<String> ids = new ArrayList<>();
+        for (OutboxEntry entry : entries) {
+            if (!report.isRejected(entry)) {
+                ids.add(entry.getId());
+            }
+        }
+        return ids;
+    }
+
+    // Half-open date ranges: a booking may start on the day another ends
+    private static BookingRecord findOverlap(BookingRecord booking, List<BookingRecord> others) {
+        for (BookingRecord other : others) {
+            if (!other.getId().equals(booking.getId())
+                    && booking.getStartDate().isBefore(other.getEndDate())
+                    && other.getStartDate().isBefore(booking.getEndDate())) {
+                return other;
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, Vehicle> selectVehicles(Connection conn, List<String> ids) throws SQLException {
+        Map<String, Vehicle> rows = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(String.format(
+                "SELECT * FROM vehicles WHERE id IN (%s) FOR UPDATE", placeholders(ids.size())))) {
+            bind(ps, ids);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.put(rs.getString("id"), new Vehicle(
+                            rs.getString("id"),
+                            rs.getString("brand"),
+                            rs.getString("model"),
+                            rs.getString("category"),
+                            rs.getDouble("daily_rate"),
+                            rs.getString("status")));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static Map<String, Customer> selectCustomers(Connection conn, List<String> ids) throws SQLException {
+        Map<String, Customer> rows = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(String.format(
+                "SELECT * FROM customers WHERE id IN (%s) FOR UPDATE", placeholders(ids.size())))) {
+            bind(ps, ids);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    java.sql.Date dob = rs.getDate("dob");
+                    rows.put(rs.getString("id"), new Customer(
+                            rs.getString("id"),
+                            rs.getString("name"),
+                            rs.getString("phone"),
+                            rs.getString("email"),
+                            rs.getString("license"),
+                            dob == null ? null : dob.toLocalDate()));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static Map<String, List<BookingRecord>> bookingsForVehicles(Connection conn, Collection<String> vehicleIds)
+            throws SQLException {
+        Map<String, List<BookingRecord>> byVehicle = new HashMap<>();
+        for (List<String> chunk : chunks(new ArrayList<>(vehicleIds))) {
+            try (PreparedStatement ps = conn.prepareStatement(String.format(
+                    "SELECT * FROM bookings WHERE status = 'Active' AND vehicle_id IN (%s)", placeholders(chunk.size())))) {
+                bind(ps, chunk);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        BookingRecord b = new BookingRecord(
+                                rs.getString("id"),
+                                rs.getString("customer_id"),
+                                rs.getString("vehicle_id"),
+                                rs.getDate("start_date").toLocalDate(),
+                                rs.getDate("end_date").toLocalDate(),
+                                rs.getDouble("daily_rate"),
+                                rs.getString("status"),
+                                rs.getString("employee_id"));
+                        byVehicle.computeIfAbsent(b.getVehicleId(), k -> new ArrayList<>()).add(b);
+                    }
+                }
+            }
+        }
+        return byVehicle;
+    }
+
+    // Binds one entry's row; returns a rejection reason instead to skip it
+    @FunctionalInterface
+    private interface Binder {
+        String bind(PreparedStatement ps, OutboxEntry entry) throws SQLException;
+    }
+
+    private void runBatches(Connection conn, List<OutboxEntry> entries, String sql, Binder binder, Report report)
+            throws SQLException {
+        for (List<OutboxEntry> chunk : chunks(entries)) {
+            List<OutboxEntry> batched = new ArrayList<>(chunk.size());
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (OutboxEntry entry : chunk) {
+                    String problem = binder.bind(ps, entry);
+                    if (problem != null) {
+                        report.rejected(entry, problem);
+                    } else {
+                        ps.addBatch();
+                        batched.add(entry);
+                    }
+                }
+                ps.executeBatch();
+                conn.commit();
+                batched.forEach(report::merged);
+            } catch (SQLException batchFailure) {
+                conn.rollback();
+                retryOneByOne(conn, batched, sql, binder, report);
+            }
+            store.acknowledge(chunk);
+        }
+    }
+
+    private void retryOneByOne(Connection conn, List<OutboxEntry> entries, String sql, Binder binder, Report report)
+            throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (OutboxEntry entry : entries) {
+                try {
+                    binder.bind(ps, entry);
+                    ps.executeUpdate();
+                    conn.commit();
+                    report.merged(entry);
+                } catch (SQLException rowFailure) {
+                    conn.rollback();
+                    report.rejected(entry, firstLine(rowFailure.getMessage()));
+                }
+            }
+        }
+    }
+
+    private static String firstLine(String message) {
+        if (message == null) {
+            return "rejected by the database";
+        }
+        int newline = message.indexOf('\n');
+        return newline < 0 ? message : message.substring(0, newline);
+    }
+
+    private static Set<String> selectIds(Connection conn, String sqlTemplate, Collection<String> ids) throws SQLException {
+        return new HashSet<>(selectStrings(conn, sqlTemplate, ids));
+    }
+
+    private static List<String> selectStrings(Connection conn, String sqlTemplate, Collection<String> ids)
+            throws SQLException {
+        List<String> result = new ArrayList<>();
+        for (List<String> chunk : chunks(new ArrayList<>(ids))) {
+            try (PreparedStatement ps = conn.prepareStatement(String.format(sqlTemplate, placeholders(chunk.size())))) {
+                bind(ps, chunk);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        result.add(rs.getString(1));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // The first two columns, as key and value
+    private static Map<String, String> selectPairs(Connection conn, String sqlTemplate, Collection<String> ids)
+            throws SQLException {
+        Map<String, String> result = new HashMap<>();
+        for (List<String> chunk : chunks(new ArrayList<>(ids))) {
+            try (PreparedStatement ps = conn.prepareStatement(String.format(sqlTemplate, placeholders(chunk.size())))) {
+                bind(ps, chunk);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        result.put(rs.getString(1), rs.getString(2));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void bind(PreparedStatement ps, List<String> values) throws SQLException {
+        for (int i = 0; i < values.size(); i++) {
+            ps.setString(i + 1, values.get(i));
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += BATCH_SIZE) {
+            chunks.add(items.subList(from, Math.min(items.size(), from + BATCH_SIZE)));
+        }
+        return chunks;
+    }
+
+    private static List<String> idsOf(List<OutboxEntry> entries) {
+        List<String> ids = new ArrayList<>(entries.size());
+        for (OutboxEntry entry : entries) {
+            ids.add(entry.getId());
+        }
+        return ids;
+    }
+
+    // What happened to each outbox entry
+    public static final class Report {
+        private final List<String> merged = new ArrayList<>();
+        private final List<String> rejected = new ArrayList<>();
+        private final Map<OutboxEntry, String> rejections = new HashMap<>();
+        private final LocalDate date = LocalDate.now();
+
+        void merged(OutboxEntry entry) {
+            merged.add(describe(entry));
+        }
+
+        void rejected(OutboxEntry entry, String reason) {
+            rejections.put(entry, reason);
+            rejected.add(describe(entry) + ": " + reason);
+        }
+
+        boolean isRejected(OutboxEntry entry) {
+            return rejections.containsKey(entry);
+        }
+
+        List<OutboxEntry> rejectedSince(List<OutboxEntry> chunk) {
+            List<OutboxEntry> result = new ArrayList<>();
+            for (OutboxEntry entry : chunk) {
+                if (rejections.containsKey(entry)) {
+                    result.add(entry);
+                }
+            }
+            return result;
+        }
+
+        Set<String> rejectedIds(Kind kind) {
+            Set<String> ids = new HashSet<>();
+            for (OutboxEntry entry : rejections.keySet()) {
+                if (entry.getKind() == kind) {
+                    ids.add(entry.getId());
+                }
+            }
+            return ids;
+        }
+
+        void addAll(Report other) {
+            merged.addAll(other.merged);
+            rejected.addAll(other.rejected);
+            rejections.putAll(other.rejections);
+        }
+
+        public List<String> getMerged() { return merged; }
+        public List<String> getRejected() { return rejected; }
+        public boolean isEmpty() { return merged.isEmpty() && rejected.isEmpty(); }
+
+        public String summary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Offline sync on ").append(date).append('\n');
+            sb.append("Merged: ").append(merged.size()).append('\n');
+            sb.append("Rejected: ").append(rejected.size()).append('\n');
+            if (!rejected.isEmpty()) {
+                sb.append('\n');
+                for (String line : rejected) {
+                    sb.append("  ").append(line).append('\n');
+                }
+            }
+            return sb.toString();
+        }
+
+        private static String describe(OutboxEntry entry) {
+            String kind = entry.getKind().name().charAt(0) + entry.getKind().name().substring(1).toLowerCase();
+            return (entry.isRemoval() ? "Delete " : "") + kind + " " + entry.getId();
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.mitchelltutorial;
+
+import javafx.animation.PauseTransition;
+import javafx.geometry.VPos;
+import javafx.scene.Cursor;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+import javafx.util.Duration;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.function.BiConsumer;
+import java.util.function.DoubleFunction;
+
+// A line chart of one value per day, drawn on a single Canvas so years of daily data stay quick to draw and
+// to move around in. The scene-graph charts add a node per point; this strokes one path through at most one
+// point per pixel column, picked by SeriesDownsampler so peaks and dips survive.
+// The mouse wheel zooms around the pointer, dragging pans and a double click goes back to the range last set.
+// Once the view has been still for a moment the owner is asked for just the visible days (onWindowChanged);
+// until they arrive, the days already loaded are redrawn where they now fall.
+// All methods must be called on the JavaFX Application Thread.
+public final class TimeSeriesChart extends Region {
+
+    private static final double LEFT = 80;
+    private static final double RIGHT = 20;
+    private static final double TOP = 36;
+    private static final double BOTTOM = 36;
+    private static final double MIN_DAYS = 7;
+    private static final double MAX_DAYS = 366 * 50;
+    private static final double MIN_LABEL_SPACING = 90;
+    private static final Duration REQUERY_DELAY = Duration.millis(250);
+
+    // Candidate spacings of the date labels, finest first, with how each is written
+    private static final Period[] TICKS = {Period.ofDays(1), Period.ofWeeks(1), Period.ofMonths(1),
+            Period.ofMonths(3), Period.ofYears(1), Period.ofYears(5), Period.ofYears(10)};
+    private static final DateTimeFormatter DAY_LABEL = DateTimeFormatter.ofPattern("d MMM");
+    private static final DateTimeFormatter MONTH_LABEL = DateTimeFormatter.ofPattern("MMM yyyy");
+    private static final DateTimeFormatter YEAR_LABEL = DateTimeFormatter.ofPattern("yyyy");
+
+    private static final Color LINE = Color.web("#2196F3");
+    private static final Color GRID = Color.web("#E0E0E0");
+    private static final Color AXIS_TEXT = Color.web("#616161");
+
+    private final Canvas canvas = new Canvas();
+    private final PauseTransition requery = new PauseTransition(REQUERY_DELAY);
+    private String title = "";
+    private String status = "";
+    private DoubleFunction<String> valueFormat = value -> String.format("%,.0f", value);
+    private BiConsumer<LocalDate, LocalDate> onWindowChanged;
+
+    // The visible days in epoch days, end exclusive; fractional while zooming
+    private double viewStart;
+    private double viewEnd;
+    private LocalDate homeStart;
+    private LocalDate homeEnd;
+
+    // The days loaded so far, one value per day from loadedStart (an epoch day)
+    private long loadedStart;
+    private double[] values = new double[0];
+
+    private double dragX;
+
+    public TimeSeriesChart() {
+        getChildren().add(canvas);
+        setMinSize(200, 150);
+        setPrefSize(800, 400);
+        requery.setOnFinished(e -> requestWindow());
+
+        setOnScroll(e -> {
+            if (homeStart == null || e.getDeltaY() == 0) {
+                return;
+            }
+            double span = viewEnd - viewStart;
+            double zoomed = clamp(span * Math.pow(1.002, -e.getDeltaY()), MIN_DAYS, MAX_DAYS);
+            double anchor = dayAt(e.getX());
+            viewStart = anchor - (anchor - viewStart) * zoomed / span;
+            viewEnd = viewStart + zoomed;
+            viewChanged();
+            // Zooming, not scrolling whatever the chart sits in
+            e.consume();
+        });
+        setOnMousePressed(e -> {
+            dragX = e.getX();
+            setCursor(Cursor.CLOSED_HAND);
+        });
+        setOnMouseDragged(e -> {
+            if (homeStart == null) {
+                return;
+            }
+            double shift = (dragX - e.getX()) * (viewEnd - viewStart) / plotWidth();
+            viewStart += shift;
+            viewEnd += shift;
+            dragX = e.getX();
+            viewChanged();
+        });
+        setOnMouseReleased(e -> setCursor(Cursor.DEFAULT));
+        setOnMouseClicked(e -> {
+            if (e.getClickCount() == 2 && homeStart != null) {
+                setRange(homeStart, homeEnd);
+            }
+        });
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+        draw();
+    }
+
+    public void setValueFormat(DoubleFunction<String> valueFormat) {
+        this.valueFormat = valueFormat;
+        draw();
+    }
+
+    // Called with the first and last visible day whenever the view settles somewhere new
+    public void setOnWindowChanged(BiConsumer<LocalDate, LocalDate> onWindowChanged) {
+        this.onWindowChanged = onWindowChanged;
+    }
+
+    // Shows [start, end] and asks for its data straight away
+    public void setRange(LocalDate start, LocalDate end) {
+        homeStart = start;
+        homeEnd = end;
+        viewStart = start.toEpochDay();
+        viewEnd = end.toEpochDay() + 1;
+        requery.stop();
+        requestWindow();
+    }
+
+    // Asks again for the visible days, e.g. after switching what the values are
+    public void reload() {
+        if (homeStart != null) {
+            values = new double[0];
+            requery.stop();
+            requestWindow();
+        }
+    }
+
+    // One value per day from start; replaces whatever was loaded before
+    public void setData(LocalDate start, double[] values) {
+        this.loadedStart = start.toEpochDay();
+        this.values = values;
+        status = "";
+        draw();
+    }
+
+    // Shown in place of "Loading..." until the next data arrive
+    public void setStatus(String status) {
+        this.status = status;
+        draw();
+    }
+
+    public void clear() {
+        requery.stop();
+        homeStart = null;
+        homeEnd = null;
+        values = new double[0];
+        status = "";
+        draw();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        if (canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight()) {
+            canvas.setWidth(getWidth());
+            canvas.setHeight(getHeight());
+            draw();
+        }
+    }
+
+    private void viewChanged() {
+        draw();
+        requery.playFromStart();
+    }
+
+    private void requestWindow() {
+        if (onWindowChanged == null || homeStart == null) {
+            return;
+        }
+        status = "Loading...";
+        draw();
+        onWindowChanged.accept(LocalDate.ofEpochDay((long) Math.floor(viewStart)),
+                LocalDate.ofEpochDay((long) Math.ceil(viewEnd) - 1));
+    }
+
+    private double plotWidth() {
+        return Math.max(1, getWidth() - LEFT - RIGHT);
+    }
+
+    private double dayAt(double x) {
+        return viewStart + (x - LEFT) / plotWidth() * (viewEnd - viewStart);
+    }
+
+    private void draw() {
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.setFill(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        double plotWidth = width - LEFT - RIGHT;
+        double plotHeight = height - TOP - BOTTOM;
+        if (plotWidth < 10 || plotHeight < 10) {
+            return;
+        }
+
+        g.setFill(Color.BLACK);
+        g.setFont(Font.font("System", FontWeight.BOLD, 15));
+        g.setTextAlign(TextAlignment.CENTER);
+        g.setTextBaseline(VPos.CENTER);
+        g.fillText(title, width / 2, TOP / 2);
+        g.setFont(Font.font("System", 11));
+        g.setFill(AXIS_TEXT);
+        g.setTextAlign(TextAlignment.RIGHT);
+        g.fillText(status, width - RIGHT, TOP / 2);
+        if (homeStart == null) {
+            return;
+        }
+
+        // The visible part of what is loaded, plus a day either side so the line runs off both edges
+        int from = (int) clamp(Math.floor(viewStart) - loadedStart - 1, 0, values.length);
+        int to = (int) clamp(Math.ceil(viewEnd) - loadedStart + 1, 0, values.length);
+        double max = 0;
+        for (int i = from; i < to; i++) {
+            max = Math.max(max, values[i]);
+        }
+        // Whole units at least: there is no half booking, and cents are noise on a revenue axis
+        double step = Math.max(1, niceStep(max / 5));
+        double top = Math.max(step, Math.ceil(max / step) * step);
+        double span = viewEnd - viewStart;
+
+        // Value grid and labels
+        g.setLineWidth(1);
+        g.setTextAlign(TextAlignment.RIGHT);
+        for (double value = 0; value <= top + step / 2; value += step) {
+            double y = Math.round(TOP + plotHeight - value / top * plotHeight) + 0.5;
+            g.setStroke(GRID);
+            g.strokeLine(LEFT, y, LEFT + plotWidth, y);
+            g.fillText(valueFormat.apply(value), LEFT - 8, y);
+        }
+
+        // Date grid and labels, as fine as fits
+        Period tick = TICKS[TICKS.length - 1];
+        for (Period candidate : TICKS) {
+            if (approximateDays(candidate) / span * plotWidth >= MIN_LABEL_SPACING) {
+                tick = candidate;
+                break;
+            }
+        }
+        DateTimeFormatter format = tick.getYears() > 0 ? YEAR_LABEL : tick.getMonths() > 0 ? MONTH_LABEL : DAY_LABEL;
+        g.setTextAlign(TextAlignment.CENTER);
+        g.setTextBaseline(VPos.TOP);
+        LocalDate last = LocalDate.ofEpochDay((long) Math.ceil(viewEnd));
+        for (LocalDate day = firstTick(LocalDate.ofEpochDay((long) Math.floor(viewStart)), tick);
+             day.isBefore(last); day = day.plus(tick)) {
+            double x = Math.round(LEFT + (day.toEpochDay() - viewStart) / span * plotWidth) + 0.5;
+            if (x < LEFT || x > LEFT + plotWidth) {
+                continue;
+            }
+            g.setStroke(GRID);
+            g.strokeLine(x, TOP, x, TOP + plotHeight);
+            g.fillText(day.format(format), x, TOP + plotHeight + 6);
+        }
+
+        // The series, clipped to the plot area
+        g.save();
+        g.beginPath();
+        g.rect(LEFT, TOP, plotWidth, plotHeight);
+        g.clip();
+        int[] points = SeriesDownsampler.lttb(values, from, to, (int) plotWidth);
+        if (points.length > 0) {
+            g.setStroke(LINE);
+            g.setLineWidth(1.5);
+            g.beginPath();
+            for (int i = 0; i < points.length; i++) {
+                // A day's value is drawn in the middle of its column
+                double x = LEFT + (loadedStart + points[i] + 0.5 - viewStart) / span * plotWidth;
+                double y = TOP + plotHeight - values[points[i]] / top * plotHeight;
+                if (i == 0) {
+                    g.moveTo(x, y);
+                } else {
+                    g.lineTo(x, y);
+                }
+            }
+            g.stroke();
+        }
+        g.restore();
+
+        g.setStroke(AXIS_TEXT);
+        g.setLineWidth(1);
+        g.strokeLine(LEFT + 0.5, TOP, LEFT + 0.5, TOP + plotHeight);
+        g.strokeLine(LEFT, TOP + plotHeight + 0.5, LEFT + plotWidth, TOP + plotHeight + 0.5);
+    }
+
+    // The first day on or after day that starts a tick of the given spacing
+    private static LocalDate firstTick(LocalDate day, Period tick) {
+        if (tick.getYears() > 0) {
+            int year = day.getDayOfYear() == 1 ? day.getYear() : day.getYear() + 1;
+            return LocalDate.of(Math.floorDiv(year + tick.getYears() - 1, tick.getYears()) * tick.getYears(), 1, 1);
+        }
+        if (tick.getMonths() > 0) {
+            LocalDate month = day.getDayOfMonth() == 1 ? day : day.plusMonths(1).withDayOfMonth(1);
+            int offset = (month.getMonthValue() - 1) % tick.getMonths();
+            return offset == 0 ? month : month.plusMonths(tick.getMonths() - offset);
+        }
+        return tick.getDays() == 7 ? day.with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY)) : day;
+    }
+
+    private static double approximateDays(Period period) {
+        return period.toTotalMonths() * 30.44 + period.getDays();
+    }
+
+    // 1, 2 or 5 times a power of ten, at least raw
+    private static double niceStep(double raw) {
+        if (raw <= 0) {
+            return 1;
+        }
+        double magnitude = Math.pow(10, Math.floor(Math.log10(raw)));
+        double fraction = raw / magnitude;
+        return (fraction <= 1 ? 1 : fraction <= 2 ? 2 : fraction <= 5 ? 5 : 10) * magnitude;
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.User;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+// Queries and writes against the users table
+public class UserRepository extends Repository {
+
+    // Passwords are never read back for display
+    private static final RowMapper<User> WITHOUT_PASSWORD = rs -> new User(
+            rs.getString("username"),
+            "",
+            rs.getString("role")
+    );
+
+    public UserRepository(ConnectionPool pool, OperationMetrics operations) {
+        super(pool, operations, "users");
+    }
+
+    public boolean authenticate(String username, String password, String role) throws SQLException {
+        return timed("authenticate", () -> {
+            try (Connection conn = pool.getConnection()) {
+                return first(conn, "SELECT username FROM users WHERE username = ? AND password = ? AND role = ?",
+                        rs -> rs.getString(1), username, password, role) != null;
+            }
+        });
+    }
+
+    public List<User> findAll() throws SQLException {
+        return timed("findAll", () -> list("SELECT username, role FROM users", WITHOUT_PASSWORD));
+    }
+
+    public void insert(User user) throws SQLException {
+        timed("insert", () -> update("INSERT INTO users (username, password, role) VALUES (?, ?, ?)",
+                user.getUsername(), user.getPassword(), user.getRole()));
+    }
+}
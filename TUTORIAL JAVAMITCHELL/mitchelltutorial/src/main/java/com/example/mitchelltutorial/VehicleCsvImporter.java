@@ -0,0 +1,482 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Bulk-loads a fleet file in the layout exportVehiclesToCSV writes (ID,Brand,Model,Category,Daily Rate,Status).
+// The file is read from a FileChannel a buffer at a time, handed out in blocks of lines to parser threads,
+// and the parsed blocks are written back in file order, so memory stays constant however big the file is.
+// Rows are upserted with batched INSERT ... ON DUPLICATE KEY UPDATE and committed in chunks; a chunk the
+// database refuses is retried row by row. Invalid rows go to a reject file with their line number and reason.
+// Chunks committed before a cancel or failure stay imported.
+public class VehicleCsvImporter {
+
+    private static final int LINES_PER_BLOCK = 4_096;
+    private static final int BATCH_SIZE = 1_000;
+    private static final int COMMIT_SIZE = 10_000;
+    private static final int READ_BUFFER = 1 << 20;
+
+    private static final Set<String> CATEGORIES = Set.of("Car", "SUV", "Truck", "Van", "Bike");
+    private static final Set<String> STATUSES = Set.of("Available", "Rented", "Maintenance");
+    private static final double MAX_DAILY_RATE = 99_999_999.99;
+
+    private final ConnectionPool pool;
+    private final OfflineStore store;
+
+    public VehicleCsvImporter(ConnectionPool pool) {
+        this.pool = pool;
+        this.store = null;
+    }
+
+    // Offline, rows go straight into the store, which journals them and queues them for the next sync
+    public VehicleCsvImporter(OfflineStore store) {
+        this.pool = null;
+        this.store = store;
+    }
+
+    // Called from the importing thread after every block of lines
+    @FunctionalInterface
+    public interface ProgressListener {
+        void progress(Progress progress);
+    }
+
+    public Progress importFile(Path source, Path rejectFile, ProgressListener listener)
+            throws IOException, SQLException {
+        int parsers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        ExecutorService executor = Executors.newFixedThreadPool(parsers, r -> {
+            Thread t = new Thread(r, "csv-import-parser");
+            t.setDaemon(true);
+            return t;
+        });
+        Deque<Future<List<Row>>> inFlight = new ArrayDeque<>();
+
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+             BufferedWriter rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8);
+             Sink sink = openSink()) {
+            LineReader lines = new LineReader(channel);
+            Progress progress = new Progress(channel.size());
+            rejects.write("Line,Reason,Row\n");
+
+            List<Row> block = new ArrayList<>(LINES_PER_BLOCK);
+            String line;
+            long lineNumber = 0;
+            while ((line = lines.next()) != null) {
+                lineNumber++;
+                if (lineNumber == 1) {
+                    if (line.startsWith("\uFEFF")) {
+                        line = line.substring(1);
+                    }
+                    if (isHeader(line)) {
+                        continue;
+                    }
+                }
+                if (!line.isBlank()) {
+                    block.add(new Row(lineNumber, line));
+                }
+                if (block.size() == LINES_PER_BLOCK) {
+                    List<Row> toParse = block;
+                    inFlight.add(executor.submit(() -> parse(toParse)));
+                    block = new ArrayList<>(LINES_PER_BLOCK);
+                    // Keep every parser busy, but never read further ahead than that
+                    if (inFlight.size() > parsers * 2) {
+                        write(await(inFlight.poll()), sink, rejects, progress);
+                        progress.bytesRead = lines.position;
+                        listener.progress(progress);
+                    }
+                }
+            }
+            if (!block.isEmpty()) {
+                List<Row> toParse = block;
+                inFlight.add(executor.submit(() -> parse(toParse)));
+            }
+            while (!inFlight.isEmpty()) {
+                write(await(inFlight.poll()), sink, rejects, progress);
+            }
+            sink.flush(rejects, progress);
+            progress.bytesRead = progress.totalBytes;
+            listener.progress(progress);
+            return progress;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void write(List<Row> rows, Sink sink, BufferedWriter rejects, Progress progress)
+            throws IOException, SQLException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Import cancelled");
+        }
+        for (Row row : rows) {
+            if (row.vehicle == null) {
+                reject(rejects, row, progress);
+            } else {
+                sink.add(row, rejects, progress);
+            }
+        }
+    }
+
+    private static List<Row> await(Future<List<Row>> parsed) throws IOException {
+        try {
+            return parsed.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Import cancelled");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to parse the file", e.getCause());
+        }
+    }
+
+    private static void reject(BufferedWriter rejects, Row row, Progress progress) throws IOException {
+        rejects.write(Long.toString(row.lineNumber));
+        rejects.write(',');
+        rejects.write(quote(row.problem));
+        rejects.write(',');
+        rejects.write(row.line);
+        rejects.write('\n');
+        progress.rejected++;
+    }
+
+    private static boolean isHeader(String line) {
+        return line.trim().toLowerCase(Locale.ROOT).startsWith("id,");
+    }
+
+    private static List<Row> parse(List<Row> rows) {
+        for (Row row : rows) {
+            List<String> fields = splitFields(row.line);
+            row.problem = validate(fields);
+            if (row.problem == null) {
+                row.vehicle = new Vehicle(fields.get(0), fields.get(1), fields.get(2), fields.get(3),
+                        Double.parseDouble(fields.get(4)), fields.get(5));
+            }
+        }
+        return rows;
+    }
+
+    private static String validate(List<String> fields) {
+        if (fields.size() != 6) {
+            return "expected 6 fields, found " + fields.size();
+        }
+        String problem = checkText("ID", fields.get(0), 20);
+        if (problem == null) {
+            problem = checkText("Brand", fields.get(1), 50);
+        }
+        if (problem == null) {
+            problem = checkText("Model", fields.get(2), 50);
+        }
+        if (problem != null) {
+            return problem;
+        }
+        if (!CATEGORIES.contains(fields.get(3))) {
+            return "unknown category '" + fields.get(3) + "'";
+        }
+        double rate;
+        try {
+            rate = Double.parseDouble(fields.get(4));
+        } catch (NumberFormatException e) {
+            return "invalid daily rate '" + fields.get(4) + "'";
+        }
+        if (!(rate > 0) || rate > MAX_DAILY_RATE) {
+            return "daily rate out of range";
+        }
+        if (!STATUSES.contains(fields.get(5))) {
+            return "unknown status '" + fields.get(5) + "'";
+        }
+        return null;
+    }
+
+    private static String checkText(String name, String value, int maxLength) {
+        if (value.isEmpty()) {
+            return name + " is empty";
+        }
+        return value.length() > maxLength ? name + " longer than " + maxLength + " characters" : null;
+    }
+
+    // Plain comma-separated fields, with optional double quotes around a field and "" for a quote inside one
+    private static List<String> splitFields(String line) {
+        List<String> fields = new ArrayList<>(6);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private Sink openSink() throws SQLException {
+        return store != null ? new StoreSink(store) : new DatabaseSink(pool.getConnection());
+    }
+
+    public static class Progress {
+        private final long totalBytes;
+        private volatile long bytesRead;
+        private volatile long imported;
+        private volatile long rejected;
+
+        private Progress(long totalBytes) {
+            this.totalBytes = totalBytes;
+        }
+
+        public long getTotalBytes() { return totalBytes; }
+        public long getBytesRead() { return bytesRead; }
+        public long getImported() { return imported; }
+        public long getRejected() { return rejected; }
+
+        public double getFraction() {
+            return totalBytes == 0 ? 1 : Math.min(1, (double) bytesRead / totalBytes);
+        }
+    }
+
+    private static final class Row {
+        private final long lineNumber;
+        private final String line;
+        private Vehicle vehicle;
+        private String problem;
+
+        private Row(long lineNumber, String line) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+        }
+    }
+
+    private interface Sink extends AutoCloseable {
+        void add(Row row, BufferedWriter rejects, Progress progress) throws IOException, SQLException;
+
+        void flush(BufferedWriter rejects, Progress progress) throws IOException, SQLException;
+
+        @Override
+        void close() throws SQLException;
+    }
+
+    private static final class StoreSink implements Sink {
+        private final OfflineStore store;
+
+        private StoreSink(OfflineStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public void add(Row row, BufferedWriter rejects, Progress progress) {
+            store.putVehicle(row.vehicle);
+            progress.imported++;
+        }
+
+        @Override
+        public void flush(BufferedWriter rejects, Progress progress) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // Holds the rows of the open transaction so they can be retried one by one if the chunk fails
+    private static final class DatabaseSink implements Sink {
+        private static final String UPSERT =
+                "INSERT INTO vehicles (id, brand, model, category, daily_rate, status) VALUES (?, ?, ?, ?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE brand = VALUES(brand), model = VALUES(model), " +
+                        "category = VALUES(category), daily_rate = VALUES(daily_rate), status = VALUES(status)";
+
+        private final Connection conn;
+        private final PreparedStatement ps;
+        private final List<Row> uncommitted = new ArrayList<>(COMMIT_SIZE);
+        private int batched;
+
+        private DatabaseSink(Connection conn) throws SQLException {
+            this.conn = conn;
+            try {
+                conn.setAutoCommit(false);
+                this.ps = conn.prepareStatement(UPSERT);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public void add(Row row, BufferedWriter rejects, Progress progress) throws IOException, SQLException {
+            uncommitted.add(row);
+            try {
+                bind(row.vehicle);
+                ps.addBatch();
+                if (++batched == BATCH_SIZE) {
+                    ps.executeBatch();
+                    batched = 0;
+                }
+            } catch (SQLException e) {
+                retryOneByOne(rejects, progress);
+                return;
+            }
+            if (uncommitted.size() == COMMIT_SIZE) {
+                flush(rejects, progress);
+            }
+        }
+
+        @Override
+        public void flush(BufferedWriter rejects, Progress progress) throws IOException, SQLException {
+            try {
+                ps.executeBatch();
+                BookingView.refreshVehicles(conn, idsOf(uncommitted));
+                conn.commit();
+                progress.imported += uncommitted.size();
+                uncommitted.clear();
+                batched = 0;
+            } catch (SQLException e) {
+                retryOneByOne(rejects, progress);
+            }
+        }
+
+        private void retryOneByOne(BufferedWriter rejects, Progress progress) throws IOException, SQLException {
+            conn.rollback();
+            ps.clearBatch();
+            batched = 0;
+            for (Row row : uncommitted) {
+                try {
+                    bind(row.vehicle);
+                    ps.executeUpdate();
+                    BookingView.refreshVehicles(conn, List.of(row.vehicle.getId()));
+                    conn.commit();
+                    progress.imported++;
+                } catch (SQLException rowFailure) {
+                    conn.rollback();
+                    row.problem = firstLine(rowFailure.getMessage());
+                    reject(rejects, row, progress);
+                }
+            }
+            uncommitted.clear();
+        }
+
+        private static List<String> idsOf(List<Row> rows) {
+            List<String> ids = new ArrayList<>(rows.size());
+            for (Row row : rows) {
+                ids.add(row.vehicle.getId());
+            }
+            return ids;
+        }
+
+        private void bind(Vehicle v) throws SQLException {
+            ps.setString(1, v.getId());
+            ps.setString(2, v.getBrand());
+            ps.setString(3, v.getModel());
+            ps.setString(4, v.getCategory());
+            ps.setDouble(5, v.getDailyRate());
+            ps.setString(6, v.getStatus());
+        }
+
+        private static String firstLine(String message) {
+            if (message == null) {
+                return "rejected by the database";
+            }
+            int newline = message.indexOf('\n');
+            return newline < 0 ? message : message.substring(0, newline);
+        }
+
+        // Closing the pooled connection rolls back whatever was not committed
+        @Override
+        public void close() throws SQLException {
+            try {
+                ps.close();
+            } finally {
+                conn.close();
+            }
+        }
+    }
+
+    // Splits the channel into lines on '\n' (which never occurs inside a UTF-8 multi-byte sequence)
+    // and decodes each line on its own, so only the buffer and the current line are in memory
+    private static final class LineReader {
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER).flip();
+        private long position;
+        private boolean eof;
+
+        private LineReader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private String next() throws IOException {
+            int scanFrom = buffer.position();
+            while (true) {
+                for (int i = scanFrom; i < buffer.limit(); i++) {
+                    if (buffer.get(i) == '\n') {
+                        String line = decode(buffer.position(), i);
+                        buffer.position(i + 1);
+                        return line;
+                    }
+                }
+                if (eof) {
+                    if (!buffer.hasRemaining()) {
+                        return null;
+                    }
+                    String line = decode(buffer.position(), buffer.limit());
+                    buffer.position(buffer.limit());
+                    return line;
+                }
+                scanFrom = buffer.remaining();
+                buffer.compact();
+                if (!buffer.hasRemaining()) {
+                    // A line longer than the buffer; grow it rather than split the line
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                }
+                int read = channel.read(buffer);
+                buffer.flip();
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    position += read;
+                }
+            }
+        }
+
+        private String decode(int from, int to) {
+            int end = to > from && buffer.get(to - 1) == '\r' ? to - 1 : to;
+            return new String(buffer.array(), buffer.arrayOffset() + from, end - from, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.control.skin.VirtualFlow;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+// Feeds the vehicle table from the database one page at a time using keyset (seek) pagination,
+// so each query is an index range scan no matter how deep the user has scrolled.
+// Only a bounded window of pages is kept; pages falling out of the window are re-read on demand.
+// Sorting and searching are done by the database: a search is a case-insensitive substring match on any one
+// column, like the in-memory VehicleSearchIndex used offline, applied while walking the sort index.
+// All methods run on the JavaFX Application Thread.
+public class VehiclePager {
+
+    // Table property name -> column; every sort also orders by id so the seek key is unique
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "id",
+            "brand", "brand",
+            "model", "model",
+            "category", "category",
+            "dailyRate", "daily_rate",
+            "status", "status"
+    );
+
+    private static final double LOAD_THRESHOLD = 0.9;
+    private static final String FILTER = "(LOWER(id) LIKE ? ESCAPE '!' OR LOWER(brand) LIKE ? ESCAPE '!' " +
+            "OR LOWER(model) LIKE ? ESCAPE '!' OR LOWER(category) LIKE ? ESCAPE '!' OR LOWER(status) LIKE ? ESCAPE '!')";
+    private static final int FILTER_PARAMS = 5;
+
+    private final TableView<Vehicle> table;
+    private final ConnectionPool pool;
+    private final BackgroundLoader loader;
+    private final RowMapper<Vehicle> mapper;
+    private final Consumer<Throwable> onError;
+    private final int pageSize;
+    private final int maxPages;
+
+    private final ObservableList<Vehicle> window = FXCollections.observableArrayList();
+    private final Deque<Integer> pageSizes = new ArrayDeque<>();
+
+    private String sortColumn = "id";
+    private boolean ascending = true;
+    // Lowercase search text; empty shows every vehicle
+    private String filter = "";
+    private boolean hasMoreBefore;
+    private boolean hasMoreAfter;
+
+    // Next page, fetched ahead of the user reaching the bottom
+    private List<Vehicle> prefetched;
+    private boolean appendWhenReady;
+    private boolean loadingPrevious;
+    // A re-read of the window is under way; patches wait for it rather than edit rows it will replace
+    private boolean reseeking;
+    private int generation;
+
+    public VehiclePager(TableView<Vehicle> table, ConnectionPool pool, BackgroundLoader loader,
+                        RowMapper<Vehicle> mapper, Consumer<Throwable> onError, int pageSize, int maxPages) {
+        this.table = table;
+        this.pool = pool;
+        this.loader = loader;
+        this.mapper = mapper;
+        this.onError = onError;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+    }
+
+    public ObservableList<Vehicle> getItems() {
+        return window;
+    }
+
+    public void attach() {
+        table.setItems(window);
+        table.setSortPolicy(t -> {
+            if (t.getItems() != window) {
+                return TableView.DEFAULT_SORT_POLICY.call(t);
+            }
+            String column = "id";
+            boolean asc = true;
+            if (!t.getSortOrder().isEmpty()) {
+                TableColumn<Vehicle, ?> sortBy = t.getSortOrder().get(0);
+                column = columnFor(sortBy);
+                asc = sortBy.getSortType() == TableColumn.SortType.ASCENDING;
+            }
+            if (!column.equals(sortColumn) || asc != ascending) {
+                sortColumn = column;
+                ascending = asc;
+                reload();
+            }
+            return true;
+        });
+
+        if (table.getSkin() != null) {
+            installScrollListener();
+        } else {
+            table.skinProperty().addListener((obs, oldSkin, newSkin) -> {
+                if (newSkin != null) {
+                    installScrollListener();
+                }
+            });
+        }
+    }
+
+    public void reload() {
+        int gen = restart();
+        String column = sortColumn;
+        boolean asc = ascending;
+        String search = filter;
+
+        loader.submit("vehiclePager.reload", () -> fetchPage(null, true, false, column, asc, search, pageSize), rows -> {
+            if (gen != generation) {
+                return;
+            }
+            window.setAll(rows);
+            pageSizes.clear();
+            pageSizes.add(rows.size());
+            hasMoreBefore = false;
+            hasMoreAfter = rows.size() == pageSize;
+            table.scrollTo(0);
+            prefetchNext();
+        }, onError);
+    }
+
+    // Shows only the vehicles matching the search text, from the top
+    public void setFilter(String text) {
+        String search = text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+        if (!search.equals(filter)) {
+            filter = search;
+            reload();
+        }
+    }
+
+    // Keep the window in step with a write made elsewhere. A row that stays where it was is replaced in place;
+    // a new row, or one whose edit moves it in the sort order or out of the search, has the window read again
+    // from its first row, so it lands where the database's order puts it
+    public void patch(Vehicle vehicle) {
+        for (int i = 0; i < window.size(); i++) {
+            if (window.get(i).getId().equals(vehicle.getId())) {
+                if (!reseeking && filter.isEmpty() && sameSortValue(window.get(i), vehicle)) {
+                    window.set(i, vehicle);
+                    return;
+                }
+                break;
+            }
+        }
+        reseek();
+    }
+
+    public void remove(String vehicleId) {
+        for (int i = 0; i < window.size(); i++) {
+            if (window.get(i).getId().equals(vehicleId)) {
+                window.remove(i);
+                shrinkPageContaining(i);
+                return;
+            }
+        }
+    }
+
+    // Cancels whatever is loading; answers still in flight see a new generation and are dropped
+    private int restart() {
+        prefetched = null;
+        appendWhenReady = false;
+        loadingPrevious = false;
+        loader.cancel("vehiclePager.next");
+        loader.cancel("vehiclePager.previous");
+        loader.cancel("vehiclePager.reseek");
+        reseeking = false;
+        return ++generation;
+    }
+
+    // Reads as many rows as the window holds again, starting at its first row (or the top if that is the
+    // first row there is), and keeps the scroll position
+    private void reseek() {
+        Vehicle from = hasMoreBefore && !window.isEmpty() ? window.get(0) : null;
+        int rows = Math.max(pageSize, window.size());
+        int gen = restart();
+        reseeking = true;
+        String column = sortColumn;
+        boolean asc = ascending;
+        String search = filter;
+
+        loader.submit("vehiclePager.reseek", () -> fetchPage(from, true, true, column, asc, search, rows + 1), result -> {
+            if (gen != generation) {
+                return;
+            }
+            reseeking = false;
+            int firstVisible = firstVisibleIndex();
+            boolean more = result.size() > rows;
+            window.setAll(more ? result.subList(0, rows) : result);
+            pageSizes.clear();
+            for (int offset = 0; offset < window.size(); offset += pageSize) {
+                pageSizes.add(Math.min(pageSize, window.size() - offset));
+            }
+            hasMoreAfter = more;
+            scrollToTop(firstVisible);
+            prefetchNext();
+        }, error -> {
+            reseeking = false;
+            onError.accept(error);
+        });
+    }
+
+    private boolean sameSortValue(Vehicle a, Vehicle b) {
+        return switch (sortColumn) {
+            case "brand" -> Objects.equals(a.getBrand(), b.getBrand());
+            case "model" -> Objects.equals(a.getModel(), b.getModel());
+            case "category" -> Objects.equals(a.getCategory(), b.getCategory());
+            case "daily_rate" -> a.getDailyRate() == b.getDailyRate();
+            case "status" -> Objects.equals(a.getStatus(), b.getStatus());
+            default -> true;
+        };
+    }
+
+    private void installScrollListener() {
+        for (Node node : table.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == Orientation.VERTICAL) {
+                ScrollBar bar = (ScrollBar) node;
+                bar.valueProperty().addListener((obs, oldValue, newValue) -> onScroll(bar, newValue.doubleValue()));
+                return;
+            }
+        }
+    }
+
+    private void onScroll(ScrollBar bar, double value) {
+        if (table.getItems() != window || window.isEmpty()) {
+            return;
+        }
+        double fraction = (value - bar.getMin()) / Math.max(1e-9, bar.getMax() - bar.getMin());
+        if (fraction >= LOAD_THRESHOLD && hasMoreAfter) {
+            if (prefetched != null) {
+                appendPrefetched();
+            } else {
+                appendWhenReady = true;
+                prefetchNext();
+            }
+        } else if (fraction <= 1 - LOAD_THRESHOLD && hasMoreBefore && !loadingPrevious) {
+            loadPrevious();
+        }
+    }
+
+    private void prefetchNext() {
+        if (!hasMoreAfter || prefetched != null || loader.isLoading("vehiclePager.next") || window.isEmpty()) {
+            return;
+        }
+        int gen = generation;
+        Vehicle last = window.get(window.size() - 1);
+        String column = sortColumn;
+        boolean asc = ascending;
+        String search = filter;
+        loader.submit("vehiclePager.next", () -> fetchPage(last, true, false, column, asc, search, pageSize), rows -> {
+            if (gen != generation) {
+                return;
+            }
+            prefetched = rows;
+            if (appendWhenReady) {
+                appendPrefetched();
+            }
+        }, onError);
+    }
+
+    private void appendPrefetched() {
+        List<Vehicle> rows = prefetched;
+        prefetched = null;
+        appendWhenReady = false;
+        if (rows.isEmpty()) {
+            hasMoreAfter = false;
+            return;
+        }
+
+        int firstVisible = firstVisibleIndex();
+        window.addAll(rows);
+        pageSizes.addLast(rows.size());
+        hasMoreAfter = rows.size() == pageSize;
+
+        if (pageSizes.size() > maxPages) {
+            int dropped = pageSizes.pollFirst();
+            window.remove(0, dropped);
+            hasMoreBefore = true;
+            scrollToTop(firstVisible - dropped);
+        }
+        prefetchNext();
+    }
+
+    private void loadPrevious() {
+        int gen = generation;
+        loadingPrevious = true;
+        Vehicle first = window.get(0);
+        String column = sortColumn;
+        boolean asc = ascending;
+        String search = filter;
+        loader.submit("vehiclePager.previous", () -> fetchPage(first, false, false, column, asc, search, pageSize), rows -> {
+            if (gen != generation) {
+                return;
+            }
+            loadingPrevious = false;
+            if (rows.isEmpty()) {
+                hasMoreBefore = false;
+                return;
+            }
+
+            int firstVisible = firstVisibleIndex();
+            window.addAll(0, rows);
+            pageSizes.addFirst(rows.size());
+            hasMoreBefore = rows.size() == pageSize;
+
+            if (pageSizes.size() > maxPages) {
+                int dropped = pageSizes.pollLast();
+                window.remove(window.size() - dropped, window.size());
+                hasMoreAfter = true;
+                prefetched = null;
+                loader.cancel("vehiclePager.next");
+            }
+            scrollToTop(firstVisible + rows.size());
+        }, error -> {
+            loadingPrevious = false;
+            onError.accept(error);
+        });
+    }
+
+    private void shrinkPageContaining(int index) {
+        Deque<Integer> rebuilt = new ArrayDeque<>();
+        int offset = 0;
+        for (int size : pageSizes) {
+            int kept = index >= offset && index < offset + size ? size - 1 : size;
+            if (kept > 0) {
+                rebuilt.add(kept);
+            }
+            offset += size;
+        }
+        pageSizes.clear();
+        pageSizes.addAll(rebuilt);
+    }
+
+    private int firstVisibleIndex() {
+        VirtualFlow<?> flow = (VirtualFlow<?>) table.lookup(".virtual-flow");
+        if (flow == null) {
+            return 0;
+        }
+        IndexedCell<?> cell = flow.getFirstVisibleCell();
+        return cell == null ? 0 : cell.getIndex();
+    }
+
+    private void scrollToTop(int index) {
+        VirtualFlow<?> flow = (VirtualFlow<?>) table.lookup(".virtual-flow");
+        if (flow != null) {
+            flow.scrollToTop(Math.max(0, index));
+        }
+    }
+
+    private static String columnFor(TableColumn<Vehicle, ?> column) {
+        Object factory = column.getCellValueFactory();
+        if (factory instanceof PropertyValueFactory) {
+            String property = ((PropertyValueFactory<?, ?>) factory).getProperty();
+            return SORT_COLUMNS.getOrDefault(property, "id");
+        }
+        return "id";
+    }
+
+    // Seek past (forward) or before (backward) the boundary row in the requested order; inclusive also
+    // returns the boundary row itself. Backward pages are read in reverse order and flipped back so the
+    // window stays sorted.
+    private List<Vehicle> fetchPage(Vehicle boundary, boolean forward, boolean inclusive, String column, boolean asc,
+                                    String search, int limit) throws SQLException {
+        boolean up = forward == asc;
+        String cmp = up ? ">" : "<";
+        String idCmp = inclusive ? cmp + "=" : cmp;
+        String dir = up ? "ASC" : "DESC";
+        boolean byId = column.equals("id");
+
+        List<String> conditions = new ArrayList<>(2);
+        if (boundary != null) {
+            conditions.add(byId ? "id " + idCmp + " ?"
+                    : "(" + column + " " + cmp + " ? OR (" + column + " = ? AND id " + idCmp + " ?))");
+        }
+        if (!search.isEmpty()) {
+            conditions.add(FILTER);
+        }
+        StringBuilder sql = new StringBuilder("SELECT * FROM vehicles");
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY ").append(column).append(' ').append(dir);
+        if (!byId) {
+            sql.append(", id ").append(dir);
+        }
+        sql.append(" LIMIT ?");
+
+        List<Vehicle> rows = new ArrayList<>(Math.min(limit, pageSize));
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            if (boundary != null) {
+                if (!byId) {
+                    bindSortValue(ps, i++, boundary, column);
+                    bindSortValue(ps, i++, boundary, column);
+                }
+                ps.setString(i++, boundary.getId());
+            }
+            if (!search.isEmpty()) {
+                String pattern = "%" + search.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+                for (int p = 0; p < FILTER_PARAMS; p++) {
+                    ps.setString(i++, pattern);
+                }
+            }
+            ps.setInt(i, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+            }
+        }
+        if (!forward) {
+            Collections.reverse(rows);
+        }
+        return rows;
+    }
+
+    private static void bindSortValue(PreparedStatement ps, int index, Vehicle vehicle, String column) throws SQLException {
+        switch (column) {
+            case "brand" -> ps.setString(index, vehicle.getBrand());
+            case "model" -> ps.setString(index, vehicle.getModel());
+            case "category" -> ps.setString(index, vehicle.getCategory());
+            case "daily_rate" -> ps.setDouble(index, vehicle.getDailyRate());
+            case "status" -> ps.setString(index, vehicle.getStatus());
+            default -> ps.setString(index, vehicle.getId());
+        }
+    }
+}
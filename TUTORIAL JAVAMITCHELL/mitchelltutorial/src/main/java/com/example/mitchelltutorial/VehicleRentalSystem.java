@@ -1,8 +1,16 @@
 package com.example.mitchelltutorial;
 
+import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
+import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
@@ -17,27 +25,56 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import javafx.util.StringConverter;
 
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 public class VehicleRentalSystem extends Application {
 
-    private Connection conn;
+    private ConnectionPool pool;
+    // Set whenever pool is; unused while offline
+    private VehicleRepository vehicleRepository;
+    private CustomerRepository customerRepository;
+    private BookingRepository bookingRepository;
+    private PaymentRepository paymentRepository;
+    private UserRepository userRepository;
+    private final BackgroundLoader loader = new BackgroundLoader();
     private boolean offlineMode = false;
-    private final List<Map<String, Object>> offlineVehicles = new ArrayList<>();
-    private final List<Map<String, Object>> offlineCustomers = new ArrayList<>();
-    private final List<Map<String, Object>> offlineBookings = new ArrayList<>();
-    private final List<Map<String, Object>> offlinePayments = new ArrayList<>();
-    private final List<Map<String, Object>> offlineUsers = new ArrayList<>();
+    private final OfflineStore offlineStore = new OfflineStore();
+    private OfflineJournal offlineJournal;
+    // While offline, periodically tries the database and syncs the outbox once it answers
+    private Timeline reconnectProbe;
+
+    // Dashboard counters, moved by the write paths; the dashboard redraws from them every second
+    private final DashboardMetrics metrics = new DashboardMetrics();
+    private Timeline dashboardRefresh;
+
+    // Booking and payment ids; replaced by one with a database-assigned node once connected
+    private IdGenerator ids = IdGenerator.local();
+
+    // Latency and error counts per operation, shown in the Diagnostics tab and published over JMX
+    private final OperationMetrics operations = new OperationMetrics();
+    private final Diagnostics diagnostics = new Diagnostics(operations, () -> pool);
+    private final TableView<OperationMetrics.Snapshot> operationTable = new TableView<>();
+    private final Label poolStatsLabel = new Label();
+    private Timeline diagnosticsRefresh;
 
     private String currentUser = "";
     private String currentUserRole = "";
@@ -48,24 +85,95 @@ public class VehicleRentalSystem extends Application {
     private final TableView<Customer> customerTable = new TableView<>();
     private final TableView<Booking> bookingTable = new TableView<>();
     private final TableView<Payment> paymentTable = new TableView<>();
+    private final TableView<User> userTable = new TableView<>();
 
     // Observable lists for data
     private final ObservableList<Vehicle> vehicleData = FXCollections.observableArrayList();
     private final ObservableList<Customer> customerData = FXCollections.observableArrayList();
     private final ObservableList<Booking> bookingData = FXCollections.observableArrayList();
     private final ObservableList<Payment> paymentData = FXCollections.observableArrayList();
+    private final ObservableList<User> userData = FXCollections.observableArrayList();
+
+    // Vehicle search offline: trigram index over vehicleData, results shown through a filtered view.
+    // Online the pager searches in the database
+    private final VehicleSearchIndex vehicleIndex = new VehicleSearchIndex();
+    private final FilteredList<Vehicle> vehicleSearchResults = new FilteredList<>(vehicleData);
+    private String vehicleSearchText = "";
+
+    // Booking dates per vehicle; the booking form only offers vehicles free for the chosen dates.
+    // Offline they come from the index, online from the database, at most BOOKABLE_LIMIT of them
+    private static final int BOOKABLE_LIMIT = 200;
+    private final AvailabilityIndex availability = new AvailabilityIndex();
+    private final ObservableList<Vehicle> bookableVehicles = FXCollections.observableArrayList();
+    // The list stopped at the limit, so a vehicle missing from it may still be free
+    private boolean bookableTruncated;
+    // An online query for the list is under way
+    private boolean bookableLoading;
+    private Runnable onBookableUpdated = () -> { };
+    private String bookableCategory;
+    private LocalDate bookableStart;
+    private LocalDate bookableEnd;
+
+    // Online, the vehicle table pages through the database instead of showing vehicleData, which stays empty
+    private VehiclePager vehiclePager;
+    // Every vehicle against the coming year, in the Booking tab; bookings are fetched only for what is in view.
+    // Online its rows are read from the database while it is shown, and marked stale by vehicle writes meanwhile
+    private FleetCalendarView fleetCalendar;
+    private Tab fleetCalendarTab;
+    private boolean calendarRowsStale = true;
+
+    // In-place patching of the lists above after writes
+    private final ListPatcher<String, Vehicle> vehiclePatcher = new ListPatcher<>(vehicleData, Vehicle::getId);
+    private final ListPatcher<String, Customer> customerPatcher = new ListPatcher<>(customerData, Customer::getId);
+    private final ListPatcher<String, Booking> bookingPatcher = new ListPatcher<>(bookingData, Booking::getId);
+    private final ListPatcher<String, Payment> paymentPatcher = new ListPatcher<>(paymentData, Payment::getId);
 
     // Charts for reporting
     private final PieChart vehicleCategoryChart = new PieChart();
     private final BarChart<String, Number> revenueChart = new BarChart<>(new CategoryAxis(), new NumberAxis());
     private final LineChart<String, Number> bookingTrendChart = new LineChart<>(new CategoryAxis(), new NumberAxis());
 
+    // Report queries run in parallel, each given this long before the database stops it
+    private static final int REPORT_QUERY_TIMEOUT_SECONDS = 30;
+    private final ReportPipeline reportPipeline = new ReportPipeline(loader, operations, REPORT_QUERY_TIMEOUT_SECONDS);
+    private final DatePicker reportStartDate = new DatePicker(LocalDate.now().minusMonths(6));
+    private final DatePicker reportEndDate = new DatePicker(LocalDate.now());
+    private final Label reportStatus = new Label();
+    private Button refreshReportsButton;
+    private Button cancelReportsButton;
+    // Daily revenue or bookings over long ranges; its own pipeline, so moving the chart only cancels its own query
+    private final TimeSeriesChart dailyTrendChart = new TimeSeriesChart();
+    private final ComboBox<String> dailyTrendMetric = new ComboBox<>();
+    private final ReportPipeline dailyTrendPipeline = new ReportPipeline(loader, operations, REPORT_QUERY_TIMEOUT_SECONDS);
+    // Report results by date range, dropped by the bookings and payments that change them
+    private final ReportCache reportCache = new ReportCache(32, 10, TimeUnit.MINUTES);
+
     @Override
     public void start(Stage primaryStage) {
+        vehicleIndex.bindTo(vehicleData, loader, () -> {
+            if (!vehicleSearchText.isEmpty()) {
+                vehicleSearchResults.setPredicate(vehicleIndex.search(vehicleSearchText));
+            }
+        });
+        availability.bindTo(vehicleData, bookingData, this::refreshBookableVehicles);
+        diagnostics.register();
         connectToDatabase();
         initializeUI(primaryStage);
     }
 
+    @Override
+    public void stop() {
+        loader.close();
+        metrics.close();
+        diagnostics.close();
+        if (pool != null) {
+            pool.close();
+        }
+        if (offlineJournal != null) {
+            offlineJournal.close();
+        }
+    }
+
     private void initializeUI(Stage primaryStage) {
         tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
 
@@ -79,9 +187,27 @@ public class VehicleRentalSystem extends Application {
                 new Tab("Booking System", createBookingTab()),
                 new Tab("Payments & Billing", createBillingTab()),
                 new Tab("Reports", createReportsTab()),
-                new Tab("User Management", createUserManagementTab())
+                new Tab("User Management", createUserManagementTab()),
+                new Tab("Diagnostics", createDiagnosticsTab())
         );
 
+        // The diagnostics only redraw while someone is looking at them
+        tabPane.getTabs().get(9).selectedProperty().addListener((obs, wasSelected, selected) -> {
+            if (selected) {
+                refreshDiagnostics();
+                diagnosticsRefresh.play();
+            } else {
+                diagnosticsRefresh.stop();
+            }
+        });
+
+        // Likewise the fleet calendar only reads its rows while it is shown
+        tabPane.getTabs().get(5).selectedProperty().addListener((obs, wasSelected, selected) -> {
+            if (selected) {
+                loadCalendarRows();
+            }
+        });
+
         disableTabsAfterLogin();
 
         // Stylish root layout
@@ -190,25 +316,38 @@ public class VehicleRentalSystem extends Application {
                 return;
             }
 
-            if (authenticate(username, password, role)) {
-                currentUser = username;
-                currentUserRole = role;
-                actiontarget.setText("Login successful!");
-                actiontarget.setStyle("-fx-text-fill: #4CAF50;");
-                enableTabsAfterLogin();
-                showDashboard();
-                loadVehicleData();
-                loadCustomerData();
-                loadBookingData();
-                loadPaymentData();
-                if (role.equals("Employee")) {
-                    tabPane.getTabs().get(8).setDisable(true); // Disable User Management for employees
+            btn.setDisable(true);
+            actiontarget.setText("Signing in...");
+            actiontarget.setStyle("-fx-text-fill: #0D47A1;");
+            loader.submit("login", () -> authenticate(username, password, role), authenticated -> {
+                btn.setDisable(false);
+                if (authenticated) {
+                    currentUser = username;
+                    currentUserRole = role;
+                    actiontarget.setText("Login successful!");
+                    actiontarget.setStyle("-fx-text-fill: #4CAF50;");
+                    enableTabsAfterLogin();
+                    showDashboard();
+                    // These run concurrently in the background; each table fills in as its data arrives
+                    loadVehicleData();
+                    loadCustomerData();
+                    loadBookingData();
+                    loadPaymentData();
+                    loadAllReports(reportStartDate.getValue(), reportEndDate.getValue());
+                    if (role.equals("Employee")) {
+                        tabPane.getTabs().get(8).setDisable(true); // Disable User Management for employees
+                        tabPane.getTabs().get(9).setDisable(true); // and Diagnostics
+                    }
+                    tabPane.getSelectionModel().select(2); // Switch to dashboard
+                } else {
+                    actiontarget.setText("Invalid credentials!");
+                    actiontarget.setStyle("-fx-text-fill: #F44336;");
                 }
-                tabPane.getSelectionModel().select(2); // Switch to dashboard
-            } else {
-                actiontarget.setText("Invalid credentials!");
+            }, ex -> {
+                btn.setDisable(false);
+                actiontarget.setText("Sign in failed: " + ex.getMessage());
                 actiontarget.setStyle("-fx-text-fill: #F44336;");
-            }
+            });
         });
 
         return grid;
@@ -233,6 +372,11 @@ public class VehicleRentalSystem extends Application {
         Button searchButton = new Button("Search");
         searchButton.setStyle("-fx-background-color: #2196F3; -fx-text-fill: white;");
         searchButton.setOnAction(e -> searchVehicles(searchField.getText()));
+
+        // Search as you type, once typing pauses
+        PauseTransition searchDebounce = new PauseTransition(Duration.millis(150));
+        searchDebounce.setOnFinished(e -> searchVehicles(searchField.getText()));
+        searchField.textProperty().addListener((obs, oldText, newText) -> searchDebounce.playFromStart());
         searchBox.getChildren().addAll(searchField, searchButton);
 
         // Table setup
@@ -244,13 +388,15 @@ public class VehicleRentalSystem extends Application {
         Button editButton = createStyledButton("Edit Vehicle", "#2196F3");
         Button deleteButton = createStyledButton("Delete Vehicle", "#F44336");
         Button exportButton = createStyledButton("Export to CSV", "#FF9800");
+        Button importButton = createStyledButton("Import CSV", "#9C27B0");
 
         addButton.setOnAction(e -> showAddVehicleDialog());
         editButton.setOnAction(e -> editSelectedVehicle());
         deleteButton.setOnAction(e -> deleteSelectedVehicle());
-        exportButton.setOnAction(e -> exportVehiclesToCSV());
+        exportButton.setOnAction(e -> exportTableToCSV(CsvExporter.Table.VEHICLES));
+        importButton.setOnAction(e -> importVehiclesFromCSV());
 
-        buttonBox.getChildren().addAll(addButton, editButton, deleteButton, exportButton);
+        buttonBox.getChildren().addAll(addButton, editButton, deleteButton, exportButton, importButton);
 
         vbox.getChildren().addAll(titleBox, searchBox, vehicleTable, buttonBox);
         return new ScrollPane(vbox);
@@ -264,15 +410,17 @@ public class VehicleRentalSystem extends Application {
         }
 
         try {
+            boolean removed;
             if (offlineMode) {
-                offlineVehicles.removeIf(v -> v.get("id").equals(selected.getId()));
+                removed = offlineStore.removeVehicle(selected.getId());
             } else {
-                PreparedStatement ps = conn.prepareStatement("DELETE FROM vehicles WHERE id = ?");
-                ps.setString(1, selected.getId());
-                ps.executeUpdate();
+                removed = vehicleRepository.delete(selected.getId());
+            }
+            if (removed) {
+                metrics.vehicleRemoved();
             }
             showAlert("Success", "Vehicle deleted successfully");
-            loadVehicleData();
+            removeVehicleRow(selected.getId());
         } catch (SQLException e) {
             showAlert("Error", "Failed to delete vehicle: " + e.getMessage());
         }
@@ -346,27 +494,17 @@ public class VehicleRentalSystem extends Application {
         result.ifPresent(vehicle -> {
             try {
                 if (offlineMode) {
-                    Map<String, Object> vehicleMap = new HashMap<>();
-                    vehicleMap.put("id", vehicle.getId());
-                    vehicleMap.put("brand", vehicle.getBrand());
-                    vehicleMap.put("model", vehicle.getModel());
-                    vehicleMap.put("category", vehicle.getCategory());
-                    vehicleMap.put("dailyRate", vehicle.getDailyRate());
-                    vehicleMap.put("status", vehicle.getStatus());
-                    offlineVehicles.add(vehicleMap);
+                    // The store replaces a vehicle with the same id, so only a new one adds to the fleet
+                    if (offlineStore.vehicle(vehicle.getId()) == null) {
+                        metrics.vehicleAdded();
+                    }
+                    offlineStore.putVehicle(vehicle);
                 } else {
-                    PreparedStatement ps = conn.prepareStatement(
-                            "INSERT INTO vehicles (id, brand, model, category, daily_rate, status) VALUES (?, ?, ?, ?, ?, ?)");
-                    ps.setString(1, vehicle.getId());
-                    ps.setString(2, vehicle.getBrand());
-                    ps.setString(3, vehicle.getModel());
-                    ps.setString(4, vehicle.getCategory());
-                    ps.setDouble(5, vehicle.getDailyRate());
-                    ps.setString(6, vehicle.getStatus());
-                    ps.executeUpdate();
+                    vehicleRepository.insert(vehicle);
+                    metrics.vehicleAdded();
                 }
                 showAlert("Success", "Vehicle added successfully");
-                loadVehicleData();
+                patchVehicleRow(vehicle);
             } catch (SQLException e) {
                 showAlert("Error", "Failed to add vehicle: " + e.getMessage());
             }
@@ -446,29 +584,16 @@ public class VehicleRentalSystem extends Application {
         result.ifPresent(vehicle -> {
             try {
                 if (offlineMode) {
-                    for (Map<String, Object> v : offlineVehicles) {
-                        if (v.get("id").equals(vehicle.getId())) {
-                            v.put("brand", vehicle.getBrand());
-                            v.put("model", vehicle.getModel());
-                            v.put("category", vehicle.getCategory());
-                            v.put("dailyRate", vehicle.getDailyRate());
-                            v.put("status", vehicle.getStatus());
-                            break;
-                        }
-                    }
+                    offlineStore.putVehicle(vehicle);
                 } else {
-                    PreparedStatement ps = conn.prepareStatement(
-                            "UPDATE vehicles SET brand = ?, model = ?, category = ?, daily_rate = ?, status = ? WHERE id = ?");
-                    ps.setString(1, vehicle.getBrand());
-                    ps.setString(2, vehicle.getModel());
-                    ps.setString(3, vehicle.getCategory());
-                    ps.setDouble(4, vehicle.getDailyRate());
-                    ps.setString(5, vehicle.getStatus());
-                    ps.setString(6, vehicle.getId());
-                    ps.executeUpdate();
+                    vehicleRepository.update(vehicle);
                 }
                 showAlert("Success", "Vehicle updated successfully");
-                loadVehicleData();
+                patchVehicleRow(vehicle);
+                // The vehicle's bookings show the new brand and model
+                reloadBookingRows("vehicleBookings:" + vehicle.getId(),
+                        () -> offlineMode ? offlineStore.bookingsForVehicle(vehicle.getId())
+                                : bookingRepository.findByVehicle(vehicle.getId()));
             } catch (SQLException e) {
                 showAlert("Error", "Failed to update vehicle: " + e.getMessage());
             }
@@ -476,25 +601,18 @@ public class VehicleRentalSystem extends Application {
     }
 
     private void searchVehicles(String text) {
-        if (text == null || text.isEmpty()) {
-            vehicleTable.setItems(vehicleData);
+        vehicleSearchText = text == null ? "" : text.trim();
+        if (vehiclePager != null) {
+            vehiclePager.setFilter(vehicleSearchText);
             return;
         }
-
-        String searchText = text.toLowerCase();
-        ObservableList<Vehicle> filteredList = FXCollections.observableArrayList();
-
-        for (Vehicle vehicle : vehicleData) {
-            if (vehicle.getId().toLowerCase().contains(searchText) ||
-                    vehicle.getBrand().toLowerCase().contains(searchText) ||
-                    vehicle.getModel().toLowerCase().contains(searchText) ||
-                    vehicle.getCategory().toLowerCase().contains(searchText) ||
-                    vehicle.getStatus().toLowerCase().contains(searchText)) {
-                filteredList.add(vehicle);
-            }
+        if (vehicleSearchText.isEmpty()) {
+            vehicleTable.setItems(vehicleData);
+            return;
         }
 
-        vehicleTable.setItems(filteredList);
+        vehicleSearchResults.setPredicate(vehicleIndex.search(vehicleSearchText));
+        vehicleTable.setItems(vehicleSearchResults);
     }
 
     private void setupVehicleTable() {
@@ -549,9 +667,20 @@ public class VehicleRentalSystem extends Application {
         });
 
         vehicleTable.getColumns().addAll(idCol, brandCol, modelCol, categoryCol, priceCol, statusCol);
+
+        if (!offlineMode) {
+            attachVehiclePager();
+        }
         loadVehicleData();
     }
 
+    private void attachVehiclePager() {
+        vehiclePager = new VehiclePager(vehicleTable, pool, loader, VehicleRepository.MAPPER,
+                ex -> showAlert("Error", "Failed to load vehicle data."), 200, 5);
+        vehiclePager.attach();
+        vehiclePager.setFilter(vehicleSearchText);
+    }
+
     private Node createCustomerTab() {
         VBox vbox = new VBox(15);
         vbox.setPadding(new Insets(20));
@@ -600,6 +729,15 @@ public class VehicleRentalSystem extends Application {
                 dobPicker.getValue()
         ));
 
+        updateButton.setOnAction(e -> updateCustomer(
+                idField.getText(),
+                nameField.getText(),
+                phoneField.getText(),
+                emailField.getText(),
+                licenseField.getText(),
+                dobPicker.getValue()
+        ));
+
         clearButton.setOnAction(e -> {
             idField.clear();
             nameField.clear();
@@ -701,17 +839,43 @@ public class VehicleRentalSystem extends Application {
             }
         });
 
+        ComboBox<String> categoryCombo = new ComboBox<>();
+        categoryCombo.getItems().addAll("All", "Car", "SUV", "Truck", "Van", "Bike");
+        categoryCombo.setValue("All");
+
         DatePicker startDatePicker = new DatePicker(LocalDate.now());
         DatePicker endDatePicker = new DatePicker(LocalDate.now().plusDays(1));
 
-        // Load data into combos
+        // Load data into combos; the vehicle list follows the category and dates
         customerCombo.setItems(customerData);
-        vehicleCombo.setItems(vehicleData.filtered(v -> "Available".equals(v.getStatus())));
+        vehicleCombo.setItems(bookableVehicles);
+        // Keep the chosen vehicle while it is still offered, or may be (past the limit of an online list)
+        onBookableUpdated = () -> {
+            Vehicle chosen = vehicleCombo.getValue();
+            if (chosen == null || bookableLoading) {
+                return;
+            }
+            Vehicle offered = bookableVehicles.stream()
+                    .filter(v -> v.getId().equals(chosen.getId()))
+                    .findFirst()
+                    .orElse(bookableTruncated ? chosen : null);
+            vehicleCombo.setValue(offered);
+        };
+        Runnable filterVehicles = () -> {
+            String category = categoryCombo.getValue();
+            setBookableVehicles("All".equals(category) ? null : category,
+                    startDatePicker.getValue(), endDatePicker.getValue());
+        };
+        categoryCombo.valueProperty().addListener((obs, oldValue, newValue) -> filterVehicles.run());
+        startDatePicker.valueProperty().addListener((obs, oldValue, newValue) -> filterVehicles.run());
+        endDatePicker.valueProperty().addListener((obs, oldValue, newValue) -> filterVehicles.run());
+        filterVehicles.run();
 
         form.addRow(0, new Label("Customer:"), customerCombo);
-        form.addRow(1, new Label("Vehicle:"), vehicleCombo);
-        form.addRow(2, new Label("Start Date:"), startDatePicker);
-        form.addRow(3, new Label("End Date:"), endDatePicker);
+        form.addRow(1, new Label("Category:"), categoryCombo);
+        form.addRow(2, new Label("Vehicle:"), vehicleCombo);
+        form.addRow(3, new Label("Start Date:"), startDatePicker);
+        form.addRow(4, new Label("End Date:"), endDatePicker);
 
         // Calculate price button
         Button calculateButton = createStyledButton("Calculate Price", "#2196F3");
@@ -721,18 +885,19 @@ public class VehicleRentalSystem extends Application {
         calculateButton.setOnAction(e -> {
             if (vehicleCombo.getValue() != null && startDatePicker.getValue() != null
                     && endDatePicker.getValue() != null) {
-                long days = endDatePicker.getValue().toEpochDay() - startDatePicker.getValue().toEpochDay();
-                double total = days * vehicleCombo.getValue().getDailyRate();
+                double total = PricingCalculator.total(startDatePicker.getValue(), endDatePicker.getValue(),
+                        vehicleCombo.getValue().getDailyRate());
                 priceLabel.setText(String.format("M%.2f", total));
             }
         });
 
-        form.addRow(4, calculateButton, priceLabel);
+        form.addRow(5, calculateButton, priceLabel);
 
         // Action buttons
         HBox buttonBox = new HBox(15);
         Button bookButton = createStyledButton("Create Booking", "#4CAF50");
         Button cancelButton = createStyledButton("Cancel Booking", "#F44336");
+        Button exportBookingsButton = createStyledButton("Export to CSV", "#FF9800");
 
         bookButton.setOnAction(e -> {
             if (customerCombo.getValue() == null || vehicleCombo.getValue() == null ||
@@ -749,13 +914,180 @@ public class VehicleRentalSystem extends Application {
             );
         });
 
-        buttonBox.getChildren().addAll(bookButton, cancelButton);
+        exportBookingsButton.setOnAction(e -> exportTableToCSV(CsvExporter.Table.BOOKINGS));
+        buttonBox.getChildren().addAll(bookButton, cancelButton, exportBookingsButton);
 
         // Booking table
         setupBookingTable();
 
         vbox.getChildren().addAll(titleBox, form, buttonBox, bookingTable);
-        return new ScrollPane(vbox);
+
+        TabPane bookingViews = new TabPane();
+        bookingViews.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+        Tab formTab = new Tab("Bookings", new ScrollPane(vbox));
+        Tab calendarTab = new Tab("Fleet Calendar", createFleetCalendar());
+        bookingViews.getTabs().addAll(formTab, calendarTab);
+        fleetCalendarTab = calendarTab;
+        calendarTab.selectedProperty().addListener((obs, wasSelected, selected) -> {
+            if (selected) {
+                loadCalendarRows();
+            }
+        });
+
+        // A free day on the calendar starts a one-day booking of that vehicle in the form
+        fleetCalendar.setOnEmptyCellClicked((vehicle, day) -> {
+            categoryCombo.setValue("All");
+            startDatePicker.setValue(day);
+            endDatePicker.setValue(day.plusDays(1));
+            // Dropped again if the list for these dates says it is not free
+            vehicleCombo.setValue(vehicle);
+            onBookableUpdated.run();
+            bookingViews.getSelectionModel().select(formTab);
+            customerCombo.requestFocus();
+        });
+        fleetCalendar.setOnBookingClicked(booking -> {
+            bookingViews.getSelectionModel().select(formTab);
+            bookingData.stream()
+                    .filter(b -> b.getId().equals(booking.getId()))
+                    .findFirst()
+                    .ifPresent(b -> {
+                        bookingTable.getSelectionModel().select(b);
+                        bookingTable.scrollTo(b);
+                    });
+        });
+        return bookingViews;
+    }
+
+    private Node createFleetCalendar() {
+        fleetCalendar = new FleetCalendarView(loader, this::fetchCalendarBookings,
+                ex -> showAlert("Error", "Failed to load the fleet calendar: " + ex.getMessage()));
+
+        // Offline the rows follow the vehicle list; online loadCalendarRows() reads them
+        vehicleData.addListener((ListChangeListener<Vehicle>) change -> {
+            if (vehiclePager == null) {
+                calendarRowsStale = true;
+                loadCalendarRows();
+            }
+        });
+
+        DatePicker fromPicker = new DatePicker(fleetCalendar.getFirstDay());
+        fromPicker.valueProperty().addListener((obs, oldValue, newValue) -> {
+            if (newValue != null) {
+                fleetCalendar.setFirstDay(newValue);
+            }
+        });
+        Button todayButton = createStyledButton("Today", "#2196F3");
+        todayButton.setOnAction(e -> {
+            LocalDate today = LocalDate.now();
+            long offset = today.toEpochDay() - fleetCalendar.getFirstDay().toEpochDay();
+            if (offset < 0 || offset >= FleetCalendarView.DAYS) {
+                fromPicker.setValue(today.minusDays(7));
+            }
+            fleetCalendar.scrollToDay(today.minusDays(1));
+        });
+        Button refreshButton = createStyledButton("Refresh", "#607D8B");
+        refreshButton.setOnAction(e -> fleetCalendar.refresh());
+
+        Label active = new Label("  Active  ");
+        active.setStyle("-fx-background-color: #2196F3; -fx-text-fill: white; -fx-background-radius: 3;");
+        Label completed = new Label("  Completed  ");
+        completed.setStyle("-fx-background-color: #90A4AE; -fx-text-fill: white; -fx-background-radius: 3;");
+        HBox toolbar = new HBox(10, new Label("From:"), fromPicker, todayButton, refreshButton, active, completed,
+                new Label("Click a free day to start a booking"));
+        toolbar.setAlignment(Pos.CENTER_LEFT);
+        toolbar.setPadding(new Insets(10));
+
+        BorderPane pane = new BorderPane(fleetCalendar);
+        pane.setTop(toolbar);
+        return pane;
+    }
+
+    // Rows grouped by category; online only while the calendar is on screen, otherwise when it is next shown
+    private void loadCalendarRows() {
+        if (fleetCalendar == null || !calendarRowsStale) {
+            return;
+        }
+        if (vehiclePager == null) {
+            calendarRowsStale = false;
+            List<Vehicle> rows = new ArrayList<>(vehicleData);
+            rows.sort(Comparator.comparing(Vehicle::getCategory).thenComparing(Vehicle::getId));
+            fleetCalendar.setVehicles(rows);
+            return;
+        }
+        if (currentUser.isEmpty() || !fleetCalendarTab.isSelected() || !tabPane.getTabs().get(5).isSelected()) {
+            return;
+        }
+        calendarRowsStale = false;
+        loader.submit("calendarRows", operations.timed("loadCalendarRows", vehicleRepository::findAllByCategory),
+                fleetCalendar::setVehicles, ex -> {
+                    calendarRowsStale = true;
+                    showAlert("Error", "Failed to load the fleet calendar: " + ex.getMessage());
+                });
+    }
+
+    private void calendarRowsChanged() {
+        calendarRowsStale = true;
+        loadCalendarRows();
+    }
+
+    // The calendar's bookings for a block of vehicles, on a background thread
+    private List<Booking> fetchCalendarBookings(List<String> vehicleIds, LocalDate from, LocalDate to)
+            throws SQLException {
+        if (!offlineMode) {
+            return bookingRepository.findForCalendar(vehicleIds, from, to);
+        }
+        List<Booking> bookings = new ArrayList<>();
+        for (String vehicleId : vehicleIds) {
+            for (Booking b : offlineStore.bookingsForVehicle(vehicleId)) {
+                if (b.getStartDate().isBefore(to) && b.getEndDate().isAfter(from)
+                        && ("Active".equals(b.getStatus()) || "Completed".equals(b.getStatus()))) {
+                    bookings.add(b);
+                }
+            }
+        }
+        return bookings;
+    }
+
+    private void setBookableVehicles(String category, LocalDate start, LocalDate end) {
+        bookableCategory = category;
+        bookableStart = start;
+        bookableEnd = end;
+        refreshBookableVehicles();
+    }
+
+    private void refreshBookableVehicles() {
+        if (bookableStart == null || bookableEnd == null || !bookableEnd.isAfter(bookableStart)) {
+            loader.cancel("bookableVehicles");
+            showBookableVehicles(List.of(), false);
+            return;
+        }
+        if (vehiclePager == null) {
+            Set<String> free = new HashSet<>(availability.freeVehicles(bookableCategory, bookableStart, bookableEnd));
+            showBookableVehicles(vehicleData.filtered(v -> free.contains(v.getId())), false);
+            return;
+        }
+        if (currentUser.isEmpty()) {
+            return;
+        }
+        String category = bookableCategory;
+        LocalDate start = bookableStart;
+        LocalDate end = bookableEnd;
+        bookableLoading = true;
+        loader.submit("bookableVehicles", () -> vehicleRepository.findFree(category, start, end, BOOKABLE_LIMIT + 1),
+                rows -> {
+                    boolean truncated = rows.size() > BOOKABLE_LIMIT;
+                    showBookableVehicles(truncated ? rows.subList(0, BOOKABLE_LIMIT) : rows, truncated);
+                }, ex -> {
+                    bookableLoading = false;
+                    showAlert("Error", "Failed to load the free vehicles: " + ex.getMessage());
+                });
+    }
+
+    private void showBookableVehicles(List<Vehicle> rows, boolean truncated) {
+        bookableLoading = false;
+        bookableTruncated = truncated;
+        bookableVehicles.setAll(rows);
+        onBookableUpdated.run();
     }
 
     private void setupBookingTable() {
@@ -887,8 +1219,8 @@ public class VehicleRentalSystem extends Application {
         bookingCombo.setOnAction(e -> {
             Booking selected = bookingCombo.getValue();
             if (selected != null) {
-                long days = selected.getEndDate().toEpochDay() - selected.getStartDate().toEpochDay();
-                double total = days * selected.getDailyRate();
+                double total = PricingCalculator.total(selected.getStartDate(), selected.getEndDate(),
+                        selected.getDailyRate());
                 amountField.setText(String.format("M%.2f", total));
             }
         });
@@ -902,6 +1234,8 @@ public class VehicleRentalSystem extends Application {
         HBox buttonBox = new HBox(15);
         Button payButton = createStyledButton("Process Payment", "#4CAF50");
         Button invoiceButton = createStyledButton("Generate Invoice", "#2196F3");
+        Button closeoutButton = createStyledButton("End-of-Day Closeout", "#FF5722");
+        Button exportPaymentsButton = createStyledButton("Export to CSV", "#FF9800");
 
         payButton.setOnAction(e -> {
             if (bookingCombo.getValue() == null || paymentMethod.getValue() == null) {
@@ -910,7 +1244,7 @@ public class VehicleRentalSystem extends Application {
             }
 
             try {
-                double amount = Double.parseDouble(amountField.getText().replace("$", ""));
+                double amount = Double.parseDouble(amountField.getText().replace("M", ""));
                 processPayment(
                         bookingCombo.getValue().getId(),
                         amount,
@@ -930,7 +1264,16 @@ public class VehicleRentalSystem extends Application {
             generateInvoice(bookingCombo.getValue().getId());
         });
 
-        buttonBox.getChildren().addAll(payButton, invoiceButton);
+        closeoutButton.setOnAction(e -> {
+            if (paymentMethod.getValue() == null) {
+                showAlert("Error", "Please select the payment method to record for the closeout");
+                return;
+            }
+            closeOutDay(paymentMethod.getValue());
+        });
+
+        exportPaymentsButton.setOnAction(e -> exportTableToCSV(CsvExporter.Table.PAYMENTS));
+        buttonBox.getChildren().addAll(payButton, invoiceButton, closeoutButton, exportPaymentsButton);
 
         // Payment history table
         setupPaymentTable();
@@ -1015,21 +1358,39 @@ public class VehicleRentalSystem extends Application {
         ((CategoryAxis) bookingTrendChart.getXAxis()).setLabel("Month");
         ((NumberAxis) bookingTrendChart.getYAxis()).setLabel("Number of Bookings");
 
-        reportTabs.getTabs().addAll(categoryTab, revenueTab, trendsTab);
+        // Daily revenue or bookings (Canvas chart, for ranges of years)
+        dailyTrendMetric.getItems().addAll("Revenue", "Bookings");
+        dailyTrendMetric.setValue("Revenue");
+        dailyTrendMetric.setOnAction(e -> showDailyTrendMetric());
+        dailyTrendChart.setOnWindowChanged(this::loadDailyTrend);
+        showDailyTrendMetric();
+        HBox dailyTrendControls = new HBox(10, new Label("Show:"), dailyTrendMetric,
+                new Label("Scroll to zoom, drag to pan, double-click to reset"));
+        dailyTrendControls.setAlignment(Pos.CENTER_LEFT);
+        VBox dailyTrendBox = new VBox(10, dailyTrendControls, dailyTrendChart);
+        VBox.setVgrow(dailyTrendChart, Priority.ALWAYS);
+        Tab dailyTrendTab = new Tab("Daily Trend", dailyTrendBox);
+
+        reportTabs.getTabs().addAll(categoryTab, revenueTab, trendsTab, dailyTrendTab);
 
         // Date range controls
         HBox dateRangeBox = new HBox(15);
-        DatePicker startDate = new DatePicker(LocalDate.now().minusMonths(6));
-        DatePicker endDate = new DatePicker(LocalDate.now());
-        Button refreshButton = createStyledButton("Refresh Reports", "#2196F3");
+        refreshReportsButton = createStyledButton("Refresh Reports", "#2196F3");
+        cancelReportsButton = createStyledButton("Cancel", "#9E9E9E");
+        cancelReportsButton.setDisable(true);
+        reportStatus.setText("Reports load after login.");
 
+        dateRangeBox.setAlignment(Pos.CENTER_LEFT);
         dateRangeBox.getChildren().addAll(
-                new Label("From:"), startDate,
-                new Label("To:"), endDate,
-                refreshButton
+                new Label("From:"), reportStartDate,
+                new Label("To:"), reportEndDate,
+                refreshReportsButton,
+                cancelReportsButton,
+                reportStatus
         );
 
-        refreshButton.setOnAction(e -> loadAllReports(startDate.getValue(), endDate.getValue()));
+        refreshReportsButton.setOnAction(e -> loadAllReports(reportStartDate.getValue(), reportEndDate.getValue()));
+        cancelReportsButton.setOnAction(e -> cancelReports());
 
         // Summary report
         TextArea summaryArea = new TextArea();
@@ -1045,8 +1406,8 @@ public class VehicleRentalSystem extends Application {
         Button exportCSVButton = createStyledButton("Export to CSV", "#FF9800");
         Button exportPDFButton = createStyledButton("Export to PDF", "#F44336");
 
-        exportCSVButton.setOnAction(e -> exportReportsToCSV());
-        exportPDFButton.setOnAction(e -> exportReportsToPDF());
+        exportCSVButton.setOnAction(e -> exportReportsToCSV(reportStartDate.getValue(), reportEndDate.getValue()));
+        exportPDFButton.setOnAction(e -> exportReportsToPDF(reportStartDate.getValue(), reportEndDate.getValue()));
 
         exportBox.getChildren().addAll(exportCSVButton, exportPDFButton);
 
@@ -1059,9 +1420,6 @@ public class VehicleRentalSystem extends Application {
                 exportBox
         );
 
-        // Initial load
-        loadAllReports(startDate.getValue(), endDate.getValue());
-
         return new ScrollPane(vbox);
     }
 
@@ -1119,7 +1477,6 @@ public class VehicleRentalSystem extends Application {
         form.add(addButton, 1, 3);
 
         // Table to display existing users
-        TableView<User> userTable = new TableView<>();
         TableColumn<User, String> usernameCol = new TableColumn<>("Username");
         usernameCol.setCellValueFactory(new PropertyValueFactory<>("username"));
 
@@ -1135,6 +1492,82 @@ public class VehicleRentalSystem extends Application {
         return new ScrollPane(vbox);
     }
 
+    // Admin only: per-operation latencies and errors since startup, and how the connection pool is doing
+    private Node createDiagnosticsTab() {
+        VBox vbox = new VBox(10);
+        vbox.setPadding(new Insets(10));
+
+        Label title = new Label("Diagnostics");
+        title.setStyle("-fx-font-size: 20px; -fx-font-weight: bold; -fx-text-fill: #0D47A1;");
+
+        poolStatsLabel.setStyle("-fx-font-family: monospace;");
+
+        TableColumn<OperationMetrics.Snapshot, String> nameCol = new TableColumn<>("Operation");
+        nameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
+        nameCol.setPrefWidth(260);
+
+        TableColumn<OperationMetrics.Snapshot, Long> countCol = new TableColumn<>("Calls");
+        countCol.setCellValueFactory(new PropertyValueFactory<>("count"));
+
+        TableColumn<OperationMetrics.Snapshot, Long> errorsCol = new TableColumn<>("Errors");
+        errorsCol.setCellValueFactory(new PropertyValueFactory<>("errors"));
+
+        operationTable.getColumns().addAll(nameCol, countCol, errorsCol,
+                millisColumn("Mean (ms)", "meanMillis"),
+                millisColumn("p50 (ms)", "p50Millis"),
+                millisColumn("p95 (ms)", "p95Millis"),
+                millisColumn("p99 (ms)", "p99Millis"),
+                millisColumn("Max (ms)", "maxMillis"));
+        operationTable.setPlaceholder(new Label("Nothing has run yet"));
+        VBox.setVgrow(operationTable, Priority.ALWAYS);
+
+        Button resetButton = createStyledButton("Reset", "#607D8B");
+        resetButton.setOnAction(e -> {
+            operations.reset();
+            refreshDiagnostics();
+        });
+
+        diagnosticsRefresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> refreshDiagnostics()));
+        diagnosticsRefresh.setCycleCount(Timeline.INDEFINITE);
+
+        vbox.getChildren().addAll(title, new Label("Connection pool"), poolStatsLabel,
+                new Label("Operations"), operationTable, resetButton);
+        return vbox;
+    }
+
+    private static TableColumn<OperationMetrics.Snapshot, Double> millisColumn(String title, String property) {
+        TableColumn<OperationMetrics.Snapshot, Double> column = new TableColumn<>(title);
+        column.setCellValueFactory(new PropertyValueFactory<>(property));
+        column.setCellFactory(col -> new TableCell<>() {
+            @Override
+            protected void updateItem(Double value, boolean empty) {
+                super.updateItem(value, empty);
+                setText(empty || value == null ? null : String.format("%.2f", value));
+            }
+        });
+        return column;
+    }
+
+    private void refreshDiagnostics() {
+        operationTable.getItems().setAll(operations.snapshot());
+
+        ConnectionPool.Stats stats = diagnostics.getConnectionPool();
+        if (stats == null) {
+            poolStatsLabel.setText("Offline, no database connections");
+            return;
+        }
+        long statementLookups = stats.getStatementHitCount() + stats.getStatementMissCount();
+        poolStatsLabel.setText(String.format(
+                "In use: %d of %d   Idle: %d   Waiting: %d%n" +
+                        "Borrows: %d   Timeouts: %d   Leaks: %d   Created: %d   Destroyed: %d   Failed validation: %d%n" +
+                        "Statement cache: %d hits, %d misses (%.0f%% hit rate)",
+                stats.getActive(), stats.getMaxSize(), stats.getIdle(), stats.getWaiting(),
+                stats.getBorrowCount(), stats.getTimeoutCount(), stats.getLeakCount(), stats.getCreatedCount(),
+                stats.getDestroyedCount(), stats.getValidationFailureCount(),
+                stats.getStatementHitCount(), stats.getStatementMissCount(),
+                statementLookups == 0 ? 0.0 : 100.0 * stats.getStatementHitCount() / statementLookups));
+    }
+
     private void showDashboard() {
         VBox box = new VBox(20);
         box.setPadding(new Insets(20));
@@ -1148,57 +1581,37 @@ public class VehicleRentalSystem extends Application {
         statsGrid.setHgap(20);
         statsGrid.setVgap(10);
 
-        try {
-            // Total vehicles
-            int totalVehicles = 0;
-            if (offlineMode) {
-                totalVehicles = offlineVehicles.size();
-            } else {
-                PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM vehicles");
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    totalVehicles = rs.getInt(1);
-                }
-            }
-
-            // Total customers
-            int totalCustomers = 0;
-            if (offlineMode) {
-                totalCustomers = offlineCustomers.size();
-            } else {
-                PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM customers");
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    totalCustomers = rs.getInt(1);
-                }
-            }
-
-            // Total revenue
-            double totalRevenue = 0;
-            if (offlineMode) {
-                for (Map<String, Object> payment : offlinePayments) {
-                    totalRevenue += (double) payment.get("amount");
-                }
-            } else {
-                PreparedStatement ps = conn.prepareStatement("SELECT SUM(amount) FROM payments");
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    totalRevenue = rs.getDouble(1);
+        // Drawn from the in-memory counters, so this costs nothing and can redraw every second
+        Label vehiclesValue = new Label();
+        Label customersValue = new Label();
+        Label revenueValue = new Label();
+        Label activeValue = new Label();
+        statsGrid.addRow(0,
+                new Label("Total Vehicles:"), vehiclesValue,
+                new Label("Total Customers:"), customersValue
+        );
+        statsGrid.addRow(1,
+                new Label("Total Revenue:"), revenueValue,
+                new Label("Active Bookings:"), activeValue
+        );
+        Runnable refreshStats = () -> {
+            if (!metrics.isSeeded()) {
+                for (Label value : List.of(vehiclesValue, customersValue, revenueValue, activeValue)) {
+                    value.setText("...");
                 }
+                return;
             }
-
-            statsGrid.addRow(0,
-                    new Label("Total Vehicles:"), new Label(String.valueOf(totalVehicles)),
-                    new Label("Total Customers:"), new Label(String.valueOf(totalCustomers))
-            );
-            statsGrid.addRow(1,
-                    new Label("Total Revenue:"), new Label(String.format("$%.2f", totalRevenue)),
-                    new Label("Active Bookings:"), new Label(String.valueOf(bookingData.filtered(b -> "Active".equals(b.getStatus())).size()))
-            );
-
-        } catch (SQLException ex) {
-            showAlert("Error", "Failed to load dashboard statistics.");
-        }
+            DashboardMetrics.Snapshot stats = metrics.snapshot();
+            vehiclesValue.setText(String.valueOf(stats.getVehicles()));
+            customersValue.setText(String.valueOf(stats.getCustomers()));
+            revenueValue.setText(String.format("$%.2f", stats.getRevenue()));
+            activeValue.setText(String.valueOf(stats.getActiveBookings()));
+        };
+        refreshStats.run();
+        stopDashboardRefresh();
+        dashboardRefresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> refreshStats.run()));
+        dashboardRefresh.setCycleCount(Timeline.INDEFINITE);
+        dashboardRefresh.play();
 
         // Quick actions based on role
         VBox quickActions = new VBox(10);
@@ -1235,18 +1648,39 @@ public class VehicleRentalSystem extends Application {
         logoutButton.setOnAction(e -> {
             currentUser = "";
             currentUserRole = "";
+            stopDashboardRefresh();
             disableTabsAfterLogin();
             tabPane.getSelectionModel().select(1); // Switch to login tab
+            cancelReports();
+            loader.cancelAll();
             vehicleData.clear();
+            if (vehiclePager != null) {
+                vehiclePager.getItems().clear();
+            }
+            bookableVehicles.clear();
+            fleetCalendar.clear();
+            calendarRowsStale = true;
             customerData.clear();
             bookingData.clear();
             paymentData.clear();
+            vehicleCategoryChart.getData().clear();
+            revenueChart.getData().clear();
+            bookingTrendChart.getData().clear();
+            dailyTrendChart.clear();
+            reportStatus.setText("Reports load after login.");
         });
 
         box.getChildren().addAll(welcome, statsGrid, quickActions, logoutButton);
         tabPane.getTabs().set(2, new Tab("Dashboard", box));
     }
 
+    private void stopDashboardRefresh() {
+        if (dashboardRefresh != null) {
+            dashboardRefresh.stop();
+            dashboardRefresh = null;
+        }
+    }
+
     // Helper methods for creating styled UI components
     private Button createStyledButton(String text, String color) {
         Button button = new Button(text);
@@ -1282,11 +1716,33 @@ public class VehicleRentalSystem extends Application {
     // Database operations
     private void connectToDatabase() {
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            conn = DriverManager.getConnection("jdbc:mysql://localhost:3306/vehicle_rental", "root", "password");
+            pool = createPool();
+            initializeSchema(pool);
+            try (Connection conn = pool.getConnection()) {
+                ids = IdGenerator.claim(conn);
+            }
+            offlineMode = false;
+            createRepositories();
+            useDatabaseMetrics(pool);
+        } catch (Exception e) {
+            offlineMode = true;
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+            startOfflineMode();
+        }
+    }
 
+    // MySQL unless -Drental.db=h2 asks for the embedded database
+    private static ConnectionPool createPool() throws ClassNotFoundException {
+        return SqlDialect.configured().createPool(10);
+    }
+
+    private static void initializeSchema(ConnectionPool pool) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
             // Create tables if they don't exist
-            Statement stmt = conn.createStatement();
 
             // Users table
             stmt.execute("CREATE TABLE IF NOT EXISTS users (" +
@@ -1301,7 +1757,13 @@ public class VehicleRentalSystem extends Application {
                     "model VARCHAR(50) NOT NULL, " +
                     "category VARCHAR(30) NOT NULL, " +
                     "daily_rate DECIMAL(10,2) NOT NULL, " +
-                    "status VARCHAR(20) NOT NULL)");
+                    "status VARCHAR(20) NOT NULL, " +
+                    // (column, id) indexes back the keyset-paged, server-sorted vehicle table
+                    "INDEX idx_vehicles_brand (brand, id), " +
+                    "INDEX idx_vehicles_model (model, id), " +
+                    "INDEX idx_vehicles_category (category, id), " +
+                    "INDEX idx_vehicles_rate (daily_rate, id), " +
+                    "INDEX idx_vehicles_status (status, id))");
 
             // Customers table
             stmt.execute("CREATE TABLE IF NOT EXISTS customers (" +
@@ -1322,6 +1784,8 @@ public class VehicleRentalSystem extends Application {
                     "daily_rate DECIMAL(10,2) NOT NULL, " +
                     "status VARCHAR(20) NOT NULL, " +
                     "employee_id VARCHAR(50) NOT NULL, " +
+                    // Backs the fleet calendar's per-vehicle date range reads
+                    "INDEX idx_bookings_vehicle_dates (vehicle_id, start_date), " +
                     "FOREIGN KEY (customer_id) REFERENCES customers(id), " +
                     "FOREIGN KEY (vehicle_id) REFERENCES vehicles(id))");
 
@@ -1334,6 +1798,15 @@ public class VehicleRentalSystem extends Application {
                     "payment_date DATE NOT NULL, " +
                     "FOREIGN KEY (booking_id) REFERENCES bookings(id))");
 
+            // Report rollups
+            ReportRollups.createTables(stmt);
+
+            // Node numbers handed out to the desks' id generators
+            IdGenerator.createTable(stmt);
+
+            // Bookings pre-joined with their customer and vehicle, for the booking table
+            BookingView.createTable(stmt);
+
             // Add default admin user if none exists
             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users");
             if (rs.next() && rs.getInt(1) == 0) {
@@ -1360,114 +1833,221 @@ public class VehicleRentalSystem extends Application {
                         "('C002', 'Jane Williams', '55595678', 'williams.com', 'DL67890', '1985-10-20')");
             }
 
-            offlineMode = false;
-        } catch (Exception e) {
-            offlineMode = true;
+            // First start with rollups on an existing database: count the history once
+            if (ReportRollups.needsBackfill(conn)) {
+                rebuildRollups(conn);
+            }
+            // Likewise for the booking view
+            if (BookingView.needsBackfill(conn)) {
+                rebuildBookingView(conn);
+            }
+        }
+    }
+
+    private static void rebuildRollups(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        ReportRollups.rebuildAll(conn);
+        conn.commit();
+    }
+
+    private static void rebuildBookingView(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        BookingView.rebuild(conn);
+        conn.commit();
+    }
+
+    // Restore work saved by a previous offline session, or start from the sample data
+    private void startOfflineMode() {
+        boolean restored = false;
+        try {
+            offlineJournal = OfflineJournal.open();
+            restored = offlineJournal.restoreInto(offlineStore);
+        } catch (IOException e) {
+            if (offlineJournal != null) {
+                offlineJournal.close();
+                offlineJournal = null;
+            }
+            showAlert("Offline Mode", "Could not open the offline journal: " + e.getMessage() +
+                    "\nChanges made offline will not be saved.");
+        }
+
+        // Attach first so the sample data is journaled along with everything else
+        if (offlineJournal != null) {
+            offlineJournal.attach(offlineStore);
+        }
+
+        if (restored) {
+            showAlert("Offline Mode", "Database connection failed. Running in offline mode with data saved in " +
+                    offlineJournal.getDirectory() + ".");
+        } else {
             showAlert("Offline Mode", "Database connection failed. Running in offline mode with sample data.");
+            loadSampleData();
+        }
+
+        // From here on every change is queued for the database
+        offlineStore.startOutbox();
+        useOfflineMetrics();
+        reconnectProbe = new Timeline(new KeyFrame(Duration.seconds(30), e -> tryReconnect()));
+        reconnectProbe.setCycleCount(Timeline.INDEFINITE);
+        reconnectProbe.play();
+    }
 
-            // Sample offline data
-            Map<String, Object> user1 = new HashMap<>();
-            user1.put("username", "admin");
-            user1.put("password", "admin123");
-            user1.put("role", "Admin");
-
-            Map<String, Object> user2 = new HashMap<>();
-            user2.put("username", "employee");
-            user2.put("password", "emp123");
-            user2.put("role", "Employee");
-
-            offlineUsers.add(user1);
-            offlineUsers.add(user2);
-
-            // Sample vehicles
-            Map<String, Object> vehicle1 = new HashMap<>();
-            vehicle1.put("id", "V001");
-            vehicle1.put("brand", "Tesla");
-            vehicle1.put("model", "Model S");
-            vehicle1.put("category", "Car");
-            vehicle1.put("dailyRate", 150.00);
-            vehicle1.put("status", "Available");
-
-            Map<String, Object> vehicle2 = new HashMap<>();
-            vehicle2.put("id", "V002");
-            vehicle2.put("brand", "BMW");
-            vehicle2.put("model", "X5");
-            vehicle2.put("category", "SUV");
-            vehicle2.put("dailyRate", 120.00);
-            vehicle2.put("status", "Available");
-
-            Map<String, Object> vehicle3 = new HashMap<>();
-            vehicle3.put("id", "V003");
-            vehicle3.put("brand", "Ford");
-            vehicle3.put("model", "Transit");
-            vehicle3.put("category", "Van");
-            vehicle3.put("dailyRate", 100.00);
-            vehicle3.put("status", "Available");
-
-            Map<String, Object> vehicle4 = new HashMap<>();
-            vehicle4.put("id", "V004");
-            vehicle4.put("brand", "Toyota");
-            vehicle4.put("model", "Hilux");
-            vehicle4.put("category", "Truck");
-            vehicle4.put("dailyRate", 110.00);
-            vehicle4.put("status", "Rented");
-
-            Map<String, Object> vehicle5 = new HashMap<>();
-            vehicle5.put("id", "V005");
-            vehicle5.put("brand", "Honda");
-            vehicle5.put("model", "CBR600RR");
-            vehicle5.put("category", "Bike");
-            vehicle5.put("dailyRate", 80.00);
-            vehicle5.put("status", "Maintainance");
-
-            offlineVehicles.add(vehicle1);
-            offlineVehicles.add(vehicle2);
-            offlineVehicles.add(vehicle3);
-            offlineVehicles.add(vehicle4);
-            offlineVehicles.add(vehicle5);
-
-            // Sample customers
-            Map<String, Object> customer1 = new HashMap<>();
-            customer1.put("id", "C001");
-            customer1.put("name", "John Apple");
-            customer1.put("phone", "55501234");
-            customer1.put("email", "john.com");
-            customer1.put("license", "DL12345");
-            customer1.put("dob", LocalDate.of(1980, 5, 15));
-
-            Map<String, Object> customer2 = new HashMap<>();
-            customer2.put("id", "C002");
-            customer2.put("name", "Jane Williams");
-            customer2.put("phone", "55595678");
-            customer2.put("email", "williams.com");
-            customer2.put("license", "DL67890");
-            customer2.put("dob", LocalDate.of(1985, 10, 20));
-
-            offlineCustomers.add(customer1);
-            offlineCustomers.add(customer2);
+    // Quietly stays offline if the database is still unreachable; the probe tries again later
+    private void tryReconnect() {
+        if (!offlineMode || loader.isLoading("reconnect")) {
+            return;
         }
+        ConnectionPool[] candidate = new ConnectionPool[1];
+        Task<ConnectionPool> task = loader.submit("reconnect", () -> {
+            candidate[0] = createPool();
+            initializeSchema(candidate[0]);
+            return candidate[0];
+        }, connected -> syncOutbox(connected, new SyncEngine.Report()), ex -> closePool(candidate[0]));
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, e -> closePool(candidate[0]));
     }
 
-    private boolean authenticate(String username, String password, String role) {
-        if (offlineMode) {
-            for (Map<String, Object> user : offlineUsers) {
-                if (user.get("username").equals(username) &&
-                        user.get("password").equals(password) &&
-                        user.get("role").equals(role)) {
-                    return true;
+    // Rounds repeat until the outbox is empty, so changes made offline during a sync are not left behind
+    private void syncOutbox(ConnectionPool connected, SyncEngine.Report combined) {
+        Task<SyncEngine.Report> task = loader.submit("reconnect", () -> new SyncEngine(offlineStore, connected).sync(),
+                report -> {
+                    combined.addAll(report);
+                    if (offlineStore.outboxSize() > 0) {
+                        syncOutbox(connected, combined);
+                    } else {
+                        goOnline(connected, combined);
+                    }
+                }, ex -> closePool(connected));
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, e -> closePool(connected));
+    }
+
+    private void goOnline(ConnectionPool connected, SyncEngine.Report report) {
+        reconnectProbe.stop();
+        reconnectProbe = null;
+        pool = connected;
+        offlineMode = false;
+        createRepositories();
+        // The sync just wrote rows from every month the desk touched while offline
+        reportCache.clear();
+        try (Connection conn = connected.getConnection()) {
+            ids = IdGenerator.claim(conn);
+        } catch (SQLException e) {
+            // Keep minting with the offline node; it is only less certain to be unique
+        }
+        useDatabaseMetrics(connected);
+        // Everything saved offline has now been merged or reported as rejected, so the next offline start must
+        // not bring it back
+        if (offlineJournal != null) {
+            offlineStore.setJournal(null);
+            try {
+                offlineJournal.clear();
+            } catch (IOException e) {
+                showAlert("Back Online", "Could not clear the offline journal in " + offlineJournal.getDirectory() +
+                        ": " + e.getMessage() + "\nDelete it before the next offline start.");
+            }
+            offlineJournal.close();
+            offlineJournal = null;
+        }
+
+        attachVehiclePager();
+        // The offline lists are not needed online; the views read the database from here on
+        vehicleData.clear();
+        calendarRowsStale = true;
+        fleetCalendar.refresh();
+        if (!currentUser.isEmpty()) {
+            loadVehicleData();
+            loadCustomerData();
+            loadBookingData();
+            loadPaymentData();
+            loadAllReports(reportStartDate.getValue(), reportEndDate.getValue());
+            if (currentUserRole.equals("Admin")) {
+                loadUserData();
+            }
+        }
+
+        Alert alert = new Alert(report.getRejected().isEmpty() ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+        alert.setTitle("Back Online");
+        alert.setHeaderText("Database connection restored. Offline changes have been sent.");
+        alert.setContentText("Merged: " + report.getMerged().size() + "\nRejected: " + report.getRejected().size());
+        TextArea details = new TextArea(report.summary());
+        details.setEditable(false);
+        details.setWrapText(true);
+        alert.getDialogPane().setExpandableContent(details);
+        alert.getDialogPane().setExpanded(!report.getRejected().isEmpty());
+        alert.show();
+    }
+
+    private void createRepositories() {
+        vehicleRepository = new VehicleRepository(pool, operations);
+        customerRepository = new CustomerRepository(pool, operations);
+        bookingRepository = new BookingRepository(pool, operations);
+        paymentRepository = new PaymentRepository(pool, operations);
+        userRepository = new UserRepository(pool, operations);
+    }
+
+    private void useDatabaseMetrics(ConnectionPool source) {
+        metrics.setSource(() -> {
+            try (Connection conn = source.getConnection()) {
+                long vehicles;
+                long customers;
+                long active;
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT (SELECT COUNT(*) FROM vehicles), " +
+                             "(SELECT COUNT(*) FROM customers), (SELECT COUNT(*) FROM bookings WHERE status = 'Active')")) {
+                    rs.next();
+                    vehicles = rs.getLong(1);
+                    customers = rs.getLong(2);
+                    active = rs.getLong(3);
                 }
+                return DashboardMetrics.Snapshot.of(vehicles, customers, active, ReportRollups.totalRevenue(conn));
             }
-            return false;
+        });
+    }
+
+    private void useOfflineMetrics() {
+        metrics.setSource(() -> DashboardMetrics.Snapshot.of(offlineStore.vehicleCount(), offlineStore.customerCount(),
+                offlineStore.bookingCountWithStatus("Active"), offlineStore.totalRevenue()));
+    }
+
+    private static void closePool(ConnectionPool candidate) {
+        if (candidate != null) {
+            candidate.close();
+        }
+    }
+
+    private void loadSampleData() {
+        // Sample offline data
+        offlineStore.addUser(new User("admin", "admin123", "Admin"));
+        offlineStore.addUser(new User("employee", "emp123", "Employee"));
+
+        // Sample vehicles
+        offlineStore.putVehicle(new Vehicle("V001", "Tesla", "Model S", "Car", 150.00, "Available"));
+        offlineStore.putVehicle(new Vehicle("V002", "BMW", "X5", "SUV", 120.00, "Available"));
+        offlineStore.putVehicle(new Vehicle("V003", "Ford", "Transit", "Van", 100.00, "Available"));
+        offlineStore.putVehicle(new Vehicle("V004", "Toyota", "Hilux", "Truck", 110.00, "Rented"));
+        offlineStore.putVehicle(new Vehicle("V005", "Honda", "CBR600RR", "Bike", 80.00, "Maintainance"));
+
+        // Sample customers
+        offlineStore.putCustomer(new Customer("C001", "John Apple", "55501234", "john.com", "DL12345",
+                LocalDate.of(1980, 5, 15)));
+        offlineStore.putCustomer(new Customer("C002", "Jane Williams", "55595678", "williams.com", "DL67890",
+                LocalDate.of(1985, 10, 20)));
+
+        // Sample bookings and payments
+        offlineStore.putBooking(new OfflineStore.BookingRecord("B001", "C001", "V001",
+                LocalDate.now().minusDays(5), LocalDate.now().plusDays(2), 150.00, "Active", "employee"));
+        offlineStore.putBooking(new OfflineStore.BookingRecord("B002", "C002", "V002",
+                LocalDate.now().minusDays(10), LocalDate.now().minusDays(2), 120.00, "Completed", "employee"));
+        offlineStore.putPayment(new Payment("P001", "B002", 960.00, "Credit Card", LocalDate.now().minusDays(2)));
+    }
+
+    private boolean authenticate(String username, String password, String role) {
+        if (offlineMode) {
+            User user = offlineStore.user(username);
+            return user != null && user.getPassword().equals(password) && user.getRole().equals(role);
         }
 
         try {
-            PreparedStatement ps = conn.prepareStatement(
-                    "SELECT * FROM users WHERE username = ? AND password = ? AND role = ?");
-            ps.setString(1, username);
-            ps.setString(2, password);
-            ps.setString(3, role);
-            ResultSet rs = ps.executeQuery();
-            return rs.next();
+            return userRepository.authenticate(username, password, role);
         } catch (SQLException e) {
             return false;
         }
@@ -1476,25 +2056,10 @@ public class VehicleRentalSystem extends Application {
     private boolean addUser(String username, String password, String role) {
         try {
             if (offlineMode) {
-                for (Map<String, Object> user : offlineUsers) {
-                    if (user.get("username").equals(username)) {
-                        return false; // User already exists
-                    }
-                }
-
-                Map<String, Object> newUser = new HashMap<>();
-                newUser.put("username", username);
-                newUser.put("password", password);
-                newUser.put("role", role);
-                offlineUsers.add(newUser);
-                return true;
+                // False if the user already exists
+                return offlineStore.addUser(new User(username, password, role));
             } else {
-                PreparedStatement ps = conn.prepareStatement(
-                        "INSERT INTO users (username, password, role) VALUES (?, ?, ?)");
-                ps.setString(1, username);
-                ps.setString(2, password);
-                ps.setString(3, role);
-                ps.executeUpdate();
+                userRepository.insert(new User(username, password, role));
                 return true;
             }
         } catch (SQLException e) {
@@ -1502,468 +2067,361 @@ public class VehicleRentalSystem extends Application {
         }
     }
 
+    // Offline data is already in memory, so only database reads go to the background
+    private <T> void loadTable(TableView<T> table, ObservableList<T> target, Callable<List<T>> query, String errorMessage) {
+        if (offlineMode) {
+            try {
+                target.setAll(query.call());
+                table.setItems(target);
+            } catch (Exception ex) {
+                showAlert("Error", errorMessage);
+            }
+            return;
+        }
+        loader.loadInto(table, target, query, ex -> showAlert("Error", errorMessage));
+    }
+
     private void loadUserData() {
-        try {
-            ObservableList<User> users = FXCollections.observableArrayList();
-            if (offlineMode) {
-                for (Map<String, Object> user : offlineUsers) {
-                    users.add(new User(
-                            user.get("username").toString(),
-                            "", // Don't show passwords
-                            user.get("role").toString()
-                    ));
-                }
-            } else {
-                PreparedStatement ps = conn.prepareStatement("SELECT username, role FROM users");
-                ResultSet rs = ps.executeQuery();
-                while (rs.next()) {
-                    users.add(new User(
-                            rs.getString("username"),
-                            "", // Don't show passwords
-                            rs.getString("role")
-                    ));
-                }
+        loadTable(userTable, userData, operations.timed("loadUserData", this::fetchUsers), "Failed to load user data.");
+    }
+
+    private List<User> fetchUsers() throws SQLException {
+        List<User> users = new ArrayList<>();
+        if (offlineMode) {
+            for (User user : offlineStore.users()) {
+                users.add(new User(
+                        user.getUsername(),
+                        "", // Don't show passwords
+                        user.getRole()
+                ));
             }
-            TableView<User> userTable = new TableView<>();
-            userTable.setItems(users);
-        } catch (SQLException ex) {
-            showAlert("Error", "Failed to load user data.");
+        } else {
+            users.addAll(userRepository.findAll());
         }
+        return users;
     }
 
+    // Offline the whole fleet is in memory. Online nothing is: the table, its search, the booking form and the
+    // fleet calendar each ask the database for what they show
     private void loadVehicleData() {
-        vehicleData.clear();
-        try {
-            if (offlineMode) {
-                for (Map<String, Object> vehicle : offlineVehicles) {
-                    vehicleData.add(new Vehicle(
-                            vehicle.get("id").toString(),
-                            vehicle.get("brand").toString(),
-                            vehicle.get("model").toString(),
-                            vehicle.get("category").toString(),
-                            (double) vehicle.get("dailyRate"),
-                            vehicle.get("status").toString()
-                    ));
-                }
-            } else {
-                PreparedStatement ps = conn.prepareStatement("SELECT * FROM vehicles");
-                ResultSet rs = ps.executeQuery();
-                while (rs.next()) {
-                    vehicleData.add(new Vehicle(
-                            rs.getString("id"),
-                            rs.getString("brand"),
-                            rs.getString("model"),
-                            rs.getString("category"),
-                            rs.getDouble("daily_rate"),
-                            rs.getString("status")
-                    ));
-                }
-            }
-            vehicleTable.setItems(vehicleData);
-        } catch (SQLException ex) {
-            showAlert("Error", "Failed to load vehicle data.");
+        if (vehiclePager == null) {
+            loadTable(vehicleTable, vehicleData, operations.timed("loadVehicleData", offlineStore::vehicles),
+                    "Failed to load vehicle data.");
+            return;
         }
+        vehiclePager.reload();
+        refreshBookableVehicles();
+        calendarRowsChanged();
     }
 
     private void loadCustomerData() {
-        customerData.clear();
-        try {
-            if (offlineMode) {
-                for (Map<String, Object> customer : offlineCustomers) {
-                    customerData.add(new Customer(
-                            customer.get("id").toString(),
-                            customer.get("name").toString(),
-                            customer.get("phone").toString(),
-                            customer.get("email").toString(),
-                            customer.get("license").toString(),
-                            (LocalDate) customer.get("dob")
-                    ));
-                }
-            } else {
-                PreparedStatement ps = conn.prepareStatement("SELECT * FROM customers");
-                ResultSet rs = ps.executeQuery();
-                while (rs.next()) {
-                    customerData.add(new Customer(
-                            rs.getString("id"),
-                            rs.getString("name"),
-                            rs.getString("phone"),
-                            rs.getString("email"),
-                            rs.getString("license"),
-                            rs.getDate("dob").toLocalDate()
-                    ));
-                }
-            }
-            customerTable.setItems(customerData);
-        } catch (SQLException ex) {
-            showAlert("Error", "Failed to load customer data.");
+        loadTable(customerTable, customerData, operations.timed("loadCustomerData", this::fetchCustomers),
+                "Failed to load customer data.");
+    }
+
+    private List<Customer> fetchCustomers() throws SQLException {
+        List<Customer> customers = new ArrayList<>();
+        if (offlineMode) {
+            customers.addAll(offlineStore.customers());
+        } else {
+            customers.addAll(customerRepository.findAll());
         }
+        return customers;
     }
 
     private void loadBookingData() {
-        bookingData.clear();
-        try {
-            if (offlineMode) {
-                // In a real system, we would have offline booking data
-                // For demo purposes, we'll create some sample bookings
-                if (offlineBookings.isEmpty()) {
-                    Map<String, Object> booking1 = new HashMap<>();
-                    booking1.put("id", "B001");
-                    booking1.put("customer_id", "C001");
-                    booking1.put("vehicle_id", "V001");
-                    booking1.put("start_date", LocalDate.now().minusDays(5));
-                    booking1.put("end_date", LocalDate.now().plusDays(2));
-                    booking1.put("daily_rate", 150.00);
-                    booking1.put("status", "Active");
-                    booking1.put("employee_id", "employee");
-                    offlineBookings.add(booking1);
-
-                    Map<String, Object> booking2 = new HashMap<>();
-                    booking2.put("id", "B002");
-                    booking2.put("customer_id", "C002");
-                    booking2.put("vehicle_id", "V002");
-                    booking2.put("start_date", LocalDate.now().minusDays(10));
-                    booking2.put("end_date", LocalDate.now().minusDays(2));
-                    booking2.put("daily_rate", 120.00);
-                    booking2.put("status", "Completed");
-                    booking2.put("employee_id", "employee");
-                    offlineBookings.add(booking2);
-                }
+        loadTable(bookingTable, bookingData, operations.timed("loadBookingData", this::fetchBookings),
+                "Failed to load booking data.");
+    }
 
-                for (Map<String, Object> booking : offlineBookings) {
-                    String customerId = booking.get("customer_id").toString();
-                    String vehicleId = booking.get("vehicle_id").toString();
+    // Re-reads only the bookings an edit touched and patches them into the table
+    private void reloadBookingRows(String key, Callable<List<Booking>> fetch) {
+        loader.submit(key, operations.timed("reloadBookingRows", fetch), rows -> rows.forEach(bookingPatcher::upsert),
+                ex -> showAlert("Error", "Failed to refresh the bookings: " + ex.getMessage()));
+    }
 
-                    String customerName = "";
-                    for (Map<String, Object> customer : offlineCustomers) {
-                        if (customer.get("id").equals(customerId)) {
-                            customerName = customer.get("name").toString();
-                            break;
-                        }
-                    }
+    private List<Booking> fetchBookings() throws SQLException {
+        List<Booking> bookings = new ArrayList<>();
+        if (offlineMode) {
+            bookings.addAll(offlineStore.bookings());
+        } else {
+            bookings.addAll(bookingRepository.findAll());
+        }
+        return bookings;
+    }
 
-                    String vehicleDetails = "";
-                    for (Map<String, Object> vehicle : offlineVehicles) {
-                        if (vehicle.get("id").equals(vehicleId)) {
-                            vehicleDetails = vehicle.get("brand") + " " + vehicle.get("model");
-                            break;
-                        }
-                    }
+    private void loadPaymentData() {
+        loadTable(paymentTable, paymentData, operations.timed("loadPaymentData", this::fetchPayments),
+                "Failed to load payment data.");
+    }
 
-                    bookingData.add(new Booking(
-                            booking.get("id").toString(),
-                            customerId,
-                            customerName,
-                            vehicleId,
-                            vehicleDetails,
-                            (LocalDate) booking.get("start_date"),
-                            (LocalDate) booking.get("end_date"),
-                            (double) booking.get("daily_rate"),
-                            booking.get("status").toString(),
-                            booking.get("employee_id").toString()
-                    ));
-                }
-            } else {
-                PreparedStatement ps = conn.prepareStatement(
-                        "SELECT b.*, v.brand, v.model, c.name as customer_name " +
-                                "FROM bookings b " +
-                                "JOIN vehicles v ON b.vehicle_id = v.id " +
-                                "JOIN customers c ON b.customer_id = c.id");
-                ResultSet rs = ps.executeQuery();
-                while (rs.next()) {
-                    bookingData.add(new Booking(
-                            rs.getString("id"),
-                            rs.getString("customer_id"),
-                            rs.getString("customer_name"),
-                            rs.getString("vehicle_id"),
-                            rs.getString("brand") + " " + rs.getString("model"),
-                            rs.getDate("start_date").toLocalDate(),
-                            rs.getDate("end_date").toLocalDate(),
-                            rs.getDouble("daily_rate"),
-                            rs.getString("status"),
-                            rs.getString("employee_id")
-                    ));
-                }
-            }
-            bookingTable.setItems(bookingData);
-        } catch (SQLException ex) {
-            showAlert("Error", "Failed to load booking data.");
+    private List<Payment> fetchPayments() throws SQLException {
+        List<Payment> payments = new ArrayList<>();
+        if (offlineMode) {
+            payments.addAll(offlineStore.payments());
+        } else {
+            payments.addAll(paymentRepository.findAll());
         }
+        return payments;
     }
 
-    private void loadPaymentData() {
-        paymentData.clear();
+    private void addCustomer(String id, String name, String phone, String email, String license, LocalDate dob) {
+        Customer customer = new Customer(id, name, phone, email, license, dob);
         try {
             if (offlineMode) {
-                // In a real system, we would have offline payment data
-                // For demo purposes, we'll create some sample payments
-                if (offlinePayments.isEmpty()) {
-                    Map<String, Object> payment1 = new HashMap<>();
-                    payment1.put("id", "P001");
-                    payment1.put("booking_id", "B002");
-                    payment1.put("amount", 960.00);
-                    payment1.put("method", "Credit Card");
-                    payment1.put("payment_date", LocalDate.now().minusDays(2));
-                    offlinePayments.add(payment1);
-                }
-
-                for (Map<String, Object> payment : offlinePayments) {
-                    paymentData.add(new Payment(
-                            payment.get("id").toString(),
-                            payment.get("booking_id").toString(),
-                            (double) payment.get("amount"),
-                            payment.get("method").toString(),
-                            (LocalDate) payment.get("payment_date")
-                    ));
+                // The store replaces a customer with the same id, so only a new one adds to the count
+                if (offlineStore.customer(id) == null) {
+                    metrics.customerAdded();
                 }
+                offlineStore.putCustomer(customer);
             } else {
-                PreparedStatement ps = conn.prepareStatement("SELECT * FROM payments");
-                ResultSet rs = ps.executeQuery();
-                while (rs.next()) {
-                    paymentData.add(new Payment(
-                            rs.getString("id"),
-                            rs.getString("booking_id"),
-                            rs.getDouble("amount"),
-                            rs.getString("method"),
-                            rs.getDate("payment_date").toLocalDate()
-                    ));
-                }
+                customerRepository.insert(customer);
+                metrics.customerAdded();
             }
-            paymentTable.setItems(paymentData);
-        } catch (SQLException ex) {
-            showAlert("Error", "Failed to load payment data.");
+
+            showAlert("Success", "Customer added successfully!");
+            customerPatcher.upsert(customer);
+        } catch (SQLException e) {
+            showAlert("Error", "Failed to add customer: " + e.getMessage());
         }
     }
 
-    private void addCustomer(String id, String name, String phone, String email, String license, LocalDate dob) {
+    private void updateCustomer(String id, String name, String phone, String email, String license, LocalDate dob) {
+        Customer customer = new Customer(id, name, phone, email, license, dob);
         try {
             if (offlineMode) {
-                Map<String, Object> customer = new HashMap<>();
-                customer.put("id", id);
-                customer.put("name", name);
-                customer.put("phone", phone);
-                customer.put("email", email);
-                customer.put("license", license);
-                customer.put("dob", dob);
-                offlineCustomers.add(customer);
-            } else {
-                PreparedStatement ps = conn.prepareStatement(
-                        "INSERT INTO customers (id, name, phone, email, license, dob) VALUES (?, ?, ?, ?, ?, ?)");
-                ps.setString(1, id);
-                ps.setString(2, name);
-                ps.setString(3, phone);
-                ps.setString(4, email);
-                ps.setString(5, license);
-                ps.setDate(6, java.sql.Date.valueOf(dob));
-                ps.executeUpdate();
+                offlineStore.putCustomer(customer);
+            } else if (!customerRepository.update(customer)) {
+                showAlert("Error", "No customer with ID " + id);
+                return;
             }
 
-            showAlert("Success", "Customer added successfully!");
-            loadCustomerData(); // Refresh the customer table
+            showAlert("Success", "Customer updated successfully!");
+            customerPatcher.upsert(customer);
+            // The customer's bookings show the new name
+            reloadBookingRows("customerBookings:" + id,
+                    () -> offlineMode ? offlineStore.bookingsForCustomer(id) : bookingRepository.findByCustomer(id));
         } catch (SQLException e) {
-            showAlert("Error", "Failed to add customer: " + e.getMessage());
+            showAlert("Error", "Failed to update customer: " + e.getMessage());
         }
     }
 
     private void createBooking(String customerId, String vehicleId, LocalDate startDate, LocalDate endDate) {
+        if (!endDate.isAfter(startDate)) {
+            showAlert("Error", "The end date must be after the start date");
+            return;
+        }
+        String conflict = availability.findConflict(vehicleId, startDate, endDate);
+        if (conflict != null) {
+            showAlert("Error", "This vehicle is already booked for those dates (booking " + conflict + ")");
+            return;
+        }
+        // A reservation that starts later leaves the vehicle available until then
+        boolean startsNow = !startDate.isAfter(LocalDate.now());
+
+        // Stopped before any alert, so time spent reading it is not counted
+        OperationMetrics.Sample timing = operations.start("createBooking");
         try {
-            String bookingId = "B" + System.currentTimeMillis();
+            String bookingId = ids.next("B");
             double dailyRate = 0;
+            Booking createdBooking = null;
+            Vehicle rentedVehicle = null;
 
-            // Get vehicle daily rate
             if (offlineMode) {
-                for (Map<String, Object> vehicle : offlineVehicles) {
-                    if (vehicle.get("id").equals(vehicleId)) {
-                        dailyRate = (double) vehicle.get("dailyRate");
-                        break;
-                    }
-                }
-            } else {
-                PreparedStatement ps = conn.prepareStatement("SELECT daily_rate FROM vehicles WHERE id = ?");
-                ps.setString(1, vehicleId);
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    dailyRate = rs.getDouble("daily_rate");
+                Vehicle vehicle = offlineStore.vehicle(vehicleId);
+                if (vehicle != null) {
+                    dailyRate = vehicle.getDailyRate();
                 }
-            }
-
-            if (offlineMode) {
-                Map<String, Object> booking = new HashMap<>();
-                booking.put("id", bookingId);
-                booking.put("customer_id", customerId);
-                booking.put("vehicle_id", vehicleId);
-                booking.put("start_date", startDate);
-                booking.put("end_date", endDate);
-                booking.put("daily_rate", dailyRate);
-                booking.put("status", "Active");
-                booking.put("employee_id", currentUser);
-                offlineBookings.add(booking);
+                offlineStore.putBooking(new OfflineStore.BookingRecord(bookingId, customerId, vehicleId,
+                        startDate, endDate, dailyRate, "Active", currentUser));
 
                 // Update vehicle status
-                for (Map<String, Object> vehicle : offlineVehicles) {
-                    if (vehicle.get("id").equals(vehicleId)) {
-                        vehicle.put("status", "Rented");
-                        break;
-                    }
+                if (startsNow) {
+                    rentedVehicle = offlineStore.setVehicleStatus(vehicleId, "Rented");
                 }
+                createdBooking = offlineStore.booking(bookingId);
             } else {
-                PreparedStatement ps = conn.prepareStatement(
-                        "INSERT INTO bookings (id, customer_id, vehicle_id, start_date, end_date, daily_rate, status, employee_id) " +
-                                "VALUES (?, ?, ?, ?, ?, ?, 'Active', ?)");
-                ps.setString(1, bookingId);
-                ps.setString(2, customerId);
-                ps.setString(3, vehicleId);
-                ps.setDate(4, java.sql.Date.valueOf(startDate));
-                ps.setDate(5, java.sql.Date.valueOf(endDate));
-                ps.setDouble(6, dailyRate);
-                ps.setString(7, currentUser);
-                ps.executeUpdate();
+                try (Connection conn = pool.getConnection()) {
+                    conn.setAutoCommit(false);
+
+                    // Lock the vehicle so a booking made at another desk waits for this one
+                    Vehicle locked = vehicleRepository.findForUpdate(conn, vehicleId);
+                    String category = null;
+                    if (locked != null) {
+                        dailyRate = locked.getDailyRate();
+                        category = locked.getCategory();
+                    }
 
-                // Update vehicle status
-                ps = conn.prepareStatement("UPDATE vehicles SET status = 'Rented' WHERE id = ?");
-                ps.setString(1, vehicleId);
-                ps.executeUpdate();
+                    // The index only knows what this desk has loaded; the database has the final say
+                    String taken = bookingRepository.findConflict(conn, vehicleId, startDate, endDate);
+                    if (taken != null) {
+                        conn.rollback();
+                        timing.stop();
+                        showAlert("Error", "This vehicle is already booked for those dates (booking " + taken + ")");
+                        return;
+                    }
+
+                    bookingRepository.insert(conn, new OfflineStore.BookingRecord(bookingId, customerId, vehicleId,
+                            startDate, endDate, dailyRate, "Active", currentUser));
+
+                    // Update vehicle status
+                    if (startsNow) {
+                        vehicleRepository.setStatus(conn, vehicleId, "Rented");
+                    }
+                    ReportRollups.apply(conn, new ReportRollups.Delta().booking(startDate, category));
+                    conn.commit();
+
+                    createdBooking = bookingRepository.find(conn, bookingId);
+                    rentedVehicle = vehicleRepository.find(conn, vehicleId);
+                }
             }
 
+            timing.stop();
+            metrics.bookingOpened();
+            reportCache.invalidate(YearMonth.from(startDate));
             showAlert("Success", "Booking created successfully! Booking ID: " + bookingId);
-            loadBookingData();
-            loadVehicleData();
+            patchAfterWrite(rentedVehicle, createdBooking, null);
         } catch (SQLException e) {
+            timing.fail();
             showAlert("Error", "Failed to create booking: " + e.getMessage());
         }
     }
 
     private void processPayment(String bookingId, double amount, String method, LocalDate paymentDate) {
+        String paymentId = ids.next("P");
+        OperationMetrics.Sample timing = operations.start("processPayment");
         try {
-            String paymentId = "P" + System.currentTimeMillis();
-
-            if (offlineMode) {
-                Map<String, Object> payment = new HashMap<>();
-                payment.put("id", paymentId);
-                payment.put("booking_id", bookingId);
-                payment.put("amount", amount);
-                payment.put("method", method);
-                payment.put("payment_date", paymentDate);
-                offlinePayments.add(payment);
-
-                // Update booking status
-                for (Map<String, Object> booking : offlineBookings) {
-                    if (booking.get("id").equals(bookingId)) {
-                        booking.put("status", "Completed");
-                        break;
-                    }
-                }
-
-                // Update vehicle status
-                for (Map<String, Object> booking : offlineBookings) {
-                    if (booking.get("id").equals(bookingId)) {
-                        String vehicleId = booking.get("vehicle_id").toString();
-                        for (Map<String, Object> vehicle : offlineVehicles) {
-                            if (vehicle.get("id").equals(vehicleId)) {
-                                vehicle.put("status", "Available");
-                                break;
-                            }
-                        }
-                        break;
-                    }
-                }
-            } else {
-                PreparedStatement ps = conn.prepareStatement(
-                        "INSERT INTO payments (id, booking_id, amount, method, payment_date) VALUES (?, ?, ?, ?, ?)");
-                ps.setString(1, paymentId);
-                ps.setString(2, bookingId);
-                ps.setDouble(3, amount);
-                ps.setString(4, method);
-                ps.setDate(5, java.sql.Date.valueOf(paymentDate));
-                ps.executeUpdate();
-
-                // Update booking status
-                ps = conn.prepareStatement("UPDATE bookings SET status = 'Completed' WHERE id = ?");
-                ps.setString(1, bookingId);
-                ps.executeUpdate();
-
-                // Update vehicle status
-                ps = conn.prepareStatement(
-                        "UPDATE vehicles v JOIN bookings b ON v.id = b.vehicle_id " +
-                                "SET v.status = 'Available' WHERE b.id = ?");
-                ps.setString(1, bookingId);
-                ps.executeUpdate();
+            PaymentProcessor.Result result = settlePayments(
+                    List.of(new Payment(paymentId, bookingId, amount, method, paymentDate)));
+            timing.stop();
+            if (result.getSettled().isEmpty()) {
+                showAlert("Error", "Booking " + bookingId + " is no longer active");
+                return;
             }
-
             showAlert("Success", "Payment processed successfully! Payment ID: " + paymentId);
-            loadPaymentData();
-            loadBookingData();
-            loadVehicleData();
+            patchAfterSettlement(result);
         } catch (SQLException e) {
+            timing.fail();
             showAlert("Error", "Failed to process payment: " + e.getMessage());
         }
     }
 
+    // End-of-day closeout: settle every active booking due back today or earlier in one commit
+    private void closeOutDay(String method) {
+        LocalDate today = LocalDate.now();
+        List<Payment> payments = new ArrayList<>();
+        for (Booking b : bookingData) {
+            if ("Active".equals(b.getStatus()) && !b.getEndDate().isAfter(today)) {
+                String paymentId = ids.next("P");
+                double amount = PricingCalculator.total(b.getStartDate(), b.getEndDate(), b.getDailyRate());
+                payments.add(new Payment(paymentId, b.getId(), amount, method, today));
+            }
+        }
+        if (payments.isEmpty()) {
+            showAlert("Closeout", "No active bookings are due back today.");
+            return;
+        }
+
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+        confirm.setTitle("End-of-Day Closeout");
+        confirm.setHeaderText(null);
+        confirm.setContentText(String.format("Settle %d booking(s) due back by %s as %s?", payments.size(), today, method));
+        if (confirm.showAndWait().filter(ButtonType.OK::equals).isEmpty()) {
+            return;
+        }
+
+        if (offlineMode) {
+            showCloseoutResult(PaymentProcessor.settleOffline(offlineStore, payments));
+            return;
+        }
+        PaymentProcessor processor = new PaymentProcessor(pool);
+        loader.submit("closeout", operations.timed("closeOutDay", () -> processor.settle(payments)),
+                this::showCloseoutResult,
+                error -> showAlert("Error", "Closeout failed, nothing was settled: " + error.getMessage()));
+    }
+
+    private void showCloseoutResult(PaymentProcessor.Result result) {
+        patchAfterSettlement(result);
+        Alert alert = new Alert(result.getSkipped().isEmpty() ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+        alert.setTitle("End-of-Day Closeout");
+        alert.setHeaderText(null);
+        alert.setContentText(result.summary());
+        alert.show();
+    }
+
+    private PaymentProcessor.Result settlePayments(List<Payment> payments) throws SQLException {
+        return offlineMode
+                ? PaymentProcessor.settleOffline(offlineStore, payments)
+                : new PaymentProcessor(pool).settle(payments);
+    }
+
+    // Settled bookings are Completed now, which also releases their dates in the availability index
+    private void patchAfterSettlement(PaymentProcessor.Result result) {
+        metrics.bookingsClosed(result.getSettled().size());
+        metrics.revenueAdded(result.getTotal());
+        for (Payment p : result.getSettled()) {
+            reportCache.invalidate(YearMonth.from(p.getPaymentDate()));
+        }
+        Map<String, Booking> bookingsById = new HashMap<>();
+        for (Booking b : bookingData) {
+            bookingsById.put(b.getId(), b);
+        }
+        for (Payment p : result.getSettled()) {
+            Booking b = bookingsById.get(p.getBookingId());
+            Booking completed = b == null ? null : new Booking(b.getId(), b.getCustomerId(), b.getCustomerName(),
+                    b.getVehicleId(), b.getVehicleDetails(), b.getStartDate(), b.getEndDate(), b.getDailyRate(),
+                    "Completed", b.getEmployeeId());
+            patchAfterWrite(null, completed, p);
+        }
+        result.getVehicles().forEach(this::patchVehicleRow);
+    }
+
+    private void patchVehicleRow(Vehicle vehicle) {
+        if (vehiclePager == null) {
+            vehiclePatcher.upsert(vehicle);
+            return;
+        }
+        vehiclePager.patch(vehicle);
+        refreshBookableVehicles();
+        calendarRowsChanged();
+    }
+
+    private void removeVehicleRow(String vehicleId) {
+        if (vehiclePager == null) {
+            vehiclePatcher.remove(vehicleId);
+            return;
+        }
+        vehiclePager.remove(vehicleId);
+        refreshBookableVehicles();
+        calendarRowsChanged();
+    }
+
+    // Apply the rows touched by a write to the on-screen lists; null means untouched
+    private void patchAfterWrite(Vehicle vehicle, Booking booking, Payment payment) {
+        if (vehicle != null) {
+            patchVehicleRow(vehicle);
+        }
+        if (booking != null) {
+            // Straight away, so a second booking made before the next pulse is checked against this one
+            availability.putBooking(booking);
+            bookingPatcher.upsert(booking);
+            if (fleetCalendar != null) {
+                fleetCalendar.bookingChanged(booking.getVehicleId());
+            }
+        }
+        if (payment != null) {
+            paymentPatcher.upsert(payment);
+        }
+    }
+
     private void generateInvoice(String bookingId) {
         try {
             Booking booking = null;
-            Customer customer = null;
-            Vehicle vehicle = null;
 
             if (offlineMode) {
-                for (Map<String, Object> b : offlineBookings) {
-                    if (b.get("id").equals(bookingId)) {
-                        String customerId = b.get("customer_id").toString();
-                        String vehicleId = b.get("vehicle_id").toString();
-
-                        String customerName = "";
-                        for (Map<String, Object> c : offlineCustomers) {
-                            if (c.get("id").equals(customerId)) {
-                                customerName = c.get("name").toString();
-                                break;
-                            }
-                        }
-
-                        String vehicleDetails = "";
-                        for (Map<String, Object> v : offlineVehicles) {
-                            if (v.get("id").equals(vehicleId)) {
-                                vehicleDetails = v.get("brand") + " " + v.get("model");
-                                break;
-                            }
-                        }
-
-                        booking = new Booking(
-                                b.get("id").toString(),
-                                customerId,
-                                customerName,
-                                vehicleId,
-                                vehicleDetails,
-                                (LocalDate) b.get("start_date"),
-                                (LocalDate) b.get("end_date"),
-                                (double) b.get("daily_rate"),
-                                b.get("status").toString(),
-                                b.get("employee_id").toString()
-                        );
-                        break;
-                    }
-                }
+                booking = offlineStore.booking(bookingId);
             } else {
-                PreparedStatement ps = conn.prepareStatement(
-                        "SELECT b.*, v.brand, v.model, c.name as customer_name " +
-                                "FROM bookings b " +
-                                "JOIN vehicles v ON b.vehicle_id = v.id " +
-                                "JOIN customers c ON b.customer_id = c.id " +
-                                "WHERE b.id = ?");
-                ps.setString(1, bookingId);
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    booking = new Booking(
-                            rs.getString("id"),
-                            rs.getString("customer_id"),
-                            rs.getString("customer_name"),
-                            rs.getString("vehicle_id"),
-                            rs.getString("brand") + " " + rs.getString("model"),
-                            rs.getDate("start_date").toLocalDate(),
-                            rs.getDate("end_date").toLocalDate(),
-                            rs.getDouble("daily_rate"),
-                            rs.getString("status"),
-                            rs.getString("employee_id")
-                    );
-                }
+                booking = bookingRepository.find(bookingId);
             }
 
             if (booking == null) {
@@ -1971,341 +2429,460 @@ public class VehicleRentalSystem extends Application {
                 return;
             }
 
-            // Calculate total
-            long days = booking.getEndDate().toEpochDay() - booking.getStartDate().toEpochDay();
-            double total = days * booking.getDailyRate();
-
-            // Generate HTML invoice
-            String invoice = "<html><head><title>Invoice</title><style>" +
-                    "body { font-family: Arial, sans-serif; margin: 20px; }" +
-                    "h1 { color: #0D47A1; }" +
-                    "table { width: 100%; border-collapse: collapse; margin: 20px 0; }" +
-                    "th { background-color: #0D47A1; color: white; text-align: left; padding: 8px; }" +
-                    "td { padding: 8px; border-bottom: 1px solid #ddd; }" +
-                    ".total { font-weight: bold; font-size: 1.2em; }" +
-                    "</style></head><body>" +
-                    "<h1>Hyacinth's Vehicle Rental - Invoice</h1>" +
-                    "<p><strong>Invoice Date:</strong> " + LocalDate.now().format(DateTimeFormatter.ofPattern("dd MMM yyyy")) + "</p>" +
-                    "<p><strong>Booking ID:</strong> " + booking.getId() + "</p>" +
-                    "<p><strong>Customer:</strong> " + booking.getCustomerName() + "</p>" +
-                    "<p><strong>Vehicle:</strong> " + booking.getVehicleDetails() + "</p>" +
-                    "<table>" +
-                    "<tr><th>Description</th><th>Amount</th></tr>" +
-                    "<tr><td>Rental from " + booking.getStartDate().format(DateTimeFormatter.ofPattern("dd MMM yyyy")) +
-                    " to " + booking.getEndDate().format(DateTimeFormatter.ofPattern("dd MMM yyyy")) + " (" + days + " days)</td>" +
-                    "<td>$" + String.format("%.2f", booking.getDailyRate()) + "/day</td></tr>" +
-                    "<tr><td><strong>Subtotal</strong></td><td>$" + String.format("%.2f", total) + "</td></tr>" +
-                    "<tr><td><strong>Total</strong></td><td class='total'>$" + String.format("%.2f", total) + "</td></tr>" +
-                    "</table>" +
-                    "<p>Thank you for choosing Hyacinth's Vehicle Rental!</p>" +
-                    "</body></html>";
-
             // Show in a dialog
-            Alert invoiceAlert = new Alert(Alert.AlertType.INFORMATION);
+            ButtonType savePdf = new ButtonType("Save as PDF");
+            Alert invoiceAlert = new Alert(Alert.AlertType.INFORMATION, null, ButtonType.OK, savePdf);
             invoiceAlert.setTitle("Invoice for Booking #" + bookingId);
             invoiceAlert.setHeaderText(null);
-            invoiceAlert.setContentText(invoice.replaceAll("<[^>]*>", "")); // Simple text display
-            invoiceAlert.showAndWait();
+            invoiceAlert.setContentText(InvoiceRenderer.text(booking, LocalDate.now()));
+            if (invoiceAlert.showAndWait().filter(savePdf::equals).isPresent()) {
+                saveInvoiceAsPDF(booking);
+            }
 
         } catch (Exception e) {
             showAlert("Error", "Failed to generate invoice: " + e.getMessage());
         }
     }
 
+    // The three report queries run side by side; each chart is drawn as soon as its own query returns
     private void loadAllReports(LocalDate startDate, LocalDate endDate) {
-        loadVehicleCategoryChart();
-        loadRevenueChart(startDate, endDate);
-        loadBookingTrendChart(startDate, endDate);
-    }
-
-    private void loadVehicleCategoryChart() {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            reportStatus.setText("Please choose a valid date range.");
+            return;
+        }
         vehicleCategoryChart.getData().clear();
+        revenueChart.getData().clear();
+        bookingTrendChart.getData().clear();
+        refreshReportsButton.setDisable(true);
+        cancelReportsButton.setDisable(false);
+        reportStatus.setText("Loading reports...");
 
-        try {
-            if (offlineMode) {
-                Map<String, Integer> categoryCounts = new HashMap<>();
-                for (Map<String, Object> vehicle : offlineVehicles) {
-                    String category = vehicle.get("category").toString();
-                    categoryCounts.put(category, categoryCounts.getOrDefault(category, 0) + 1);
+        List<String> failures = new ArrayList<>();
+        ReportPipeline.Run run = reportPipeline.start(offlineMode ? null : pool, new ReportPipeline.Listener() {
+            @Override
+            public void partFinished(String part, Throwable error, int finished, int total) {
+                if (error != null) {
+                    failures.add(part + ": " + describeReportError(error));
                 }
+                reportStatus.setText("Loaded " + finished + " of " + total + " reports...");
+            }
 
-                for (Map.Entry<String, Integer> entry : categoryCounts.entrySet()) {
-                    vehicleCategoryChart.getData().add(new PieChart.Data(
-                            entry.getKey() + " (" + entry.getValue() + ")",
-                            entry.getValue()
-                    ));
-                }
-            } else {
-                PreparedStatement ps = conn.prepareStatement(
-                        "SELECT category, COUNT(*) as count FROM vehicles GROUP BY category");
-                ResultSet rs = ps.executeQuery();
-                while (rs.next()) {
-                    vehicleCategoryChart.getData().add(new PieChart.Data(
-                            rs.getString("category") + " (" + rs.getInt("count") + ")",
-                            rs.getInt("count")
-                    ));
+            @Override
+            public void runFinished(int failed) {
+                refreshReportsButton.setDisable(false);
+                cancelReportsButton.setDisable(true);
+                reportStatus.setText(failed == 0
+                        ? "Reports loaded at " + LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss")) + "."
+                        : failed + " report(s) failed. " + String.join("; ", failures));
+            }
+        });
+        run.add("categories", this::fetchVehicleCategories, this::showVehicleCategoryChart);
+        run.add("revenue", conn -> fetchMonthlyRevenue(conn, startDate, endDate), this::showRevenueChart);
+        run.add("bookingTrend", conn -> fetchMonthlyBookings(conn, startDate, endDate), this::showBookingTrendChart);
+        dailyTrendChart.setRange(startDate, endDate);
+    }
+
+    // Called by the chart with just the days it shows, each time it is zoomed or panned
+    private void loadDailyTrend(LocalDate startDate, LocalDate endDate) {
+        boolean revenue = "Revenue".equals(dailyTrendMetric.getValue());
+        ReportPipeline.Run run = dailyTrendPipeline.start(offlineMode ? null : pool, new ReportPipeline.Listener() {
+            @Override
+            public void partFinished(String part, Throwable error, int finished, int total) {
+                if (error != null) {
+                    dailyTrendChart.setStatus("Failed: " + describeReportError(error));
                 }
             }
-        } catch (SQLException e) {
-            showAlert("Error", "Failed to load vehicle category data.");
+
+            @Override
+            public void runFinished(int failed) {
+            }
+        });
+        run.add("dailyTrend", conn -> fetchDailySeries(conn, startDate, endDate, revenue),
+                values -> dailyTrendChart.setData(startDate, values));
+    }
+
+    private void showDailyTrendMetric() {
+        if ("Revenue".equals(dailyTrendMetric.getValue())) {
+            dailyTrendChart.setTitle("Daily Revenue");
+            dailyTrendChart.setValueFormat(value -> String.format("$%,.0f", value));
+        } else {
+            dailyTrendChart.setTitle("Daily Bookings");
+            dailyTrendChart.setValueFormat(value -> String.format("%,.0f", value));
         }
+        dailyTrendChart.reload();
     }
 
-    private void loadRevenueChart(LocalDate startDate, LocalDate endDate) {
-        revenueChart.getData().clear();
+    // Statement.cancel() on the running queries; whatever has already been drawn stays
+    private void cancelReports() {
+        if (reportPipeline.isRunning()) {
+            reportStatus.setText("Reports cancelled.");
+        }
+        reportPipeline.cancel();
+        dailyTrendPipeline.cancel();
+        refreshReportsButton.setDisable(false);
+        cancelReportsButton.setDisable(true);
+    }
 
-        XYChart.Series<String, Number> series = new XYChart.Series<>();
-        series.setName("Monthly Revenue");
+    private String describeReportError(Throwable error) {
+        if (error instanceof SQLTimeoutException) {
+            return "timed out after " + REPORT_QUERY_TIMEOUT_SECONDS + " s, try a shorter date range";
+        }
+        return error.getMessage();
+    }
 
-        try {
-            if (offlineMode) {
-                // Simulate data for offline mode
-                LocalDate current = startDate.withDayOfMonth(1);
-                Random random = new Random();
-
-                while (!current.isAfter(endDate)) {
-                    double revenue = 5000 + random.nextInt(10000);
-                    series.getData().add(new XYChart.Data<>(
-                            current.format(DateTimeFormatter.ofPattern("MMM yyyy")),
-                            revenue
-                    ));
-                    current = current.plusMonths(1);
-                }
-            } else {
-                PreparedStatement ps = conn.prepareStatement(
-                        "SELECT DATE_FORMAT(payment_date, '%Y-%m') as month, SUM(amount) as total " +
-                                "FROM payments WHERE payment_date BETWEEN ? AND ? " +
-                                "GROUP BY DATE_FORMAT(payment_date, '%Y-%m') ORDER BY month");
-                ps.setDate(1, java.sql.Date.valueOf(startDate));
-                ps.setDate(2, java.sql.Date.valueOf(endDate));
-
-                ResultSet rs = ps.executeQuery();
-                while (rs.next()) {
-                    series.getData().add(new XYChart.Data<>(
-                            rs.getString("month"),
-                            rs.getDouble("total")
-                    ));
-                }
-            }
+    // The report queries below run on a background thread; offline they are given no connection
 
-            revenueChart.getData().add(series);
-        } catch (SQLException e) {
-            showAlert("Error", "Failed to load revenue data: " + e.getMessage());
+    private Map<String, Integer> fetchVehicleCategories(Connection conn) throws SQLException {
+        return conn == null ? offlineStore.vehicleCountsByCategory() : vehicleRepository.countByCategory(conn);
+    }
+
+    private List<XYChart.Data<String, Number>> fetchMonthlyRevenue(Connection conn, LocalDate startDate,
+                                                                    LocalDate endDate) throws SQLException {
+        List<XYChart.Data<String, Number>> points = new ArrayList<>();
+        for (Map.Entry<YearMonth, ReportRollups.Totals> entry :
+                monthlyTotals(conn, startDate, endDate).entrySet()) {
+            if (entry.getValue().getPayments() > 0) {
+                points.add(new XYChart.Data<>(entry.getKey().toString(), entry.getValue().getRevenue()));
+            }
         }
+        return points;
     }
 
-    private void loadBookingTrendChart(LocalDate startDate, LocalDate endDate) {
-        bookingTrendChart.getData().clear();
+    private List<XYChart.Data<String, Number>> fetchMonthlyBookings(Connection conn, LocalDate startDate,
+                                                                     LocalDate endDate) throws SQLException {
+        List<XYChart.Data<String, Number>> points = new ArrayList<>();
+        for (Map.Entry<YearMonth, ReportRollups.Totals> entry :
+                monthlyTotals(conn, startDate, endDate).entrySet()) {
+            if (entry.getValue().getBookings() > 0) {
+                points.add(new XYChart.Data<>(entry.getKey().toString(), entry.getValue().getBookings()));
+            }
+        }
+        return points;
+    }
 
-        XYChart.Series<String, Number> series = new XYChart.Series<>();
-        series.setName("Bookings");
+    // Monthly totals for the range, from the report cache when an earlier report already asked for them.
+    // Offline they are counted from the store, which is not cached
+    private SortedMap<YearMonth, ReportRollups.Totals> monthlyTotals(Connection conn, LocalDate startDate,
+                                                                     LocalDate endDate) throws SQLException {
+        if (conn == null) {
+            return ReportRollups.monthly(offlineStore, startDate, endDate);
+        }
+        return reportCache.get(ReportCache.Type.MONTHLY_TOTALS, startDate, endDate,
+                () -> Collections.unmodifiableSortedMap(ReportRollups.monthly(conn, startDate, endDate)));
+    }
 
-        try {
-            if (offlineMode) {
-                // Simulate data for offline mode
-                LocalDate current = startDate.withDayOfMonth(1);
-                Random random = new Random();
-
-                while (!current.isAfter(endDate)) {
-                    int bookings = 5 + random.nextInt(20);
-                    series.getData().add(new XYChart.Data<>(
-                            current.format(DateTimeFormatter.ofPattern("MMM yyyy")),
-                            bookings
-                    ));
-                    current = current.plusMonths(1);
+    // One value per day of [start, end]: bookings by start date or revenue by payment date, as the rollups count them
+    private double[] fetchDailySeries(Connection conn, LocalDate startDate, LocalDate endDate,
+                                      boolean revenue) throws SQLException {
+        double[] values = new double[(int) (endDate.toEpochDay() - startDate.toEpochDay()) + 1];
+        if (conn == null) {
+            if (revenue) {
+                for (Payment p : offlineStore.payments()) {
+                    addToDay(values, startDate, p.getPaymentDate(), p.getAmount());
                 }
             } else {
-                PreparedStatement ps = conn.prepareStatement(
-                        "SELECT DATE_FORMAT(start_date, '%Y-%m') as month, COUNT(*) as count " +
-                                "FROM bookings WHERE start_date BETWEEN ? AND ? " +
-                                "GROUP BY DATE_FORMAT(start_date, '%Y-%m') ORDER BY month");
-                ps.setDate(1, java.sql.Date.valueOf(startDate));
-                ps.setDate(2, java.sql.Date.valueOf(endDate));
-
-                ResultSet rs = ps.executeQuery();
-                while (rs.next()) {
-                    series.getData().add(new XYChart.Data<>(
-                            rs.getString("month"),
-                            rs.getInt("count")
-                    ));
+                for (Booking b : offlineStore.bookings()) {
+                    addToDay(values, startDate, b.getStartDate(), 1);
                 }
             }
+            return values;
+        }
+        SortedMap<LocalDate, ReportRollups.Totals> days = reportCache.get(ReportCache.Type.DAILY_TOTALS,
+                startDate, endDate, () -> Collections.unmodifiableSortedMap(ReportRollups.daily(conn, startDate, endDate)));
+        for (Map.Entry<LocalDate, ReportRollups.Totals> entry : days.entrySet()) {
+            addToDay(values, startDate, entry.getKey(),
+                    revenue ? entry.getValue().getRevenue() : entry.getValue().getBookings());
+        }
+        return values;
+    }
 
-            bookingTrendChart.getData().add(series);
-        } catch (SQLException e) {
-            showAlert("Error", "Failed to load booking trend data: " + e.getMessage());
+    private static void addToDay(double[] values, LocalDate first, LocalDate day, double amount) {
+        long index = day.toEpochDay() - first.toEpochDay();
+        if (index >= 0 && index < values.length) {
+            values[(int) index] += amount;
+        }
+    }
+
+    private void showVehicleCategoryChart(Map<String, Integer> counts) {
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            vehicleCategoryChart.getData().add(new PieChart.Data(
+                    entry.getKey() + " (" + entry.getValue() + ")",
+                    entry.getValue()
+            ));
         }
     }
 
+    private void showRevenueChart(List<XYChart.Data<String, Number>> points) {
+        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        series.setName("Monthly Revenue");
+        series.getData().setAll(points);
+        revenueChart.getData().add(series);
+    }
+
+    private void showBookingTrendChart(List<XYChart.Data<String, Number>> points) {
+        XYChart.Series<String, Number> series = new XYChart.Series<>();
+        series.setName("Bookings");
+        series.getData().setAll(points);
+        bookingTrendChart.getData().add(series);
+    }
+
     private void generateSummaryReport(TextArea summaryArea) {
         StringBuilder sb = new StringBuilder();
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
         sb.append("Hyacinth's Vehicle Rental - Summary Report\n");
         sb.append("Generated on: ").append(sdf.format(new Date())).append("\n\n");
 
+        OperationMetrics.Sample timing = operations.start("generateSummaryReport");
         try {
-            // Total vehicles
-            int totalVehicles = 0;
-            if (offlineMode) {
-                totalVehicles = offlineVehicles.size();
-            } else {
-                PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM vehicles");
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    totalVehicles = rs.getInt(1);
-                }
-            }
-
-            // Total customers
-            int totalCustomers = 0;
-            if (offlineMode) {
-                totalCustomers = offlineCustomers.size();
-            } else {
-                PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM customers");
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    totalCustomers = rs.getInt(1);
-                }
-            }
-
-            // Total revenue
-            double totalRevenue = 0;
-            if (offlineMode) {
-                for (Map<String, Object> payment : offlinePayments) {
-                    totalRevenue += (double) payment.get("amount");
-                }
-            } else {
-                PreparedStatement ps = conn.prepareStatement("SELECT SUM(amount) FROM payments");
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    totalRevenue = rs.getDouble(1);
-                }
-            }
-
-            sb.append("Total Vehicles: ").append(totalVehicles).append("\n");
-            sb.append("Total Customers: ").append(totalCustomers).append("\n");
-            sb.append("Total Revenue: $").append(String.format("%.2f", totalRevenue)).append("\n\n");
+            DashboardMetrics.Snapshot totals = metrics.snapshot();
+            sb.append("Total Vehicles: ").append(totals.getVehicles()).append("\n");
+            sb.append("Total Customers: ").append(totals.getCustomers()).append("\n");
+            sb.append("Active Bookings: ").append(totals.getActiveBookings()).append("\n");
+            sb.append("Total Revenue: $").append(String.format("%.2f", totals.getRevenue())).append("\n\n");
 
             // Vehicle category breakdown
             sb.append("Vehicle Categories:\n");
             if (offlineMode) {
-                Map<String, Integer> categoryCounts = new HashMap<>();
-                for (Map<String, Object> vehicle : offlineVehicles) {
-                    String category = vehicle.get("category").toString();
-                    categoryCounts.put(category, categoryCounts.getOrDefault(category, 0) + 1);
-                }
-
-                for (Map.Entry<String, Integer> entry : categoryCounts.entrySet()) {
+                for (Map.Entry<String, Integer> entry : offlineStore.vehicleCountsByCategory().entrySet()) {
                     sb.append(String.format("  %-15s: %2d vehicles\n", entry.getKey(), entry.getValue()));
                 }
             } else {
-                PreparedStatement ps = conn.prepareStatement(
-                        "SELECT category, COUNT(*) as count FROM vehicles GROUP BY category");
-                ResultSet rs = ps.executeQuery();
-                while (rs.next()) {
-                    sb.append(String.format("  %-15s: %2d vehicles\n",
-                            rs.getString("category"), rs.getInt("count")));
+                for (Map.Entry<String, Integer> entry : vehicleRepository.countByCategory().entrySet()) {
+                    sb.append(String.format("  %-15s: %2d vehicles\n", entry.getKey(), entry.getValue()));
+                }
+                try (Connection conn = pool.getConnection()) {
+                    sb.append("\nRevenue by Category:\n");
+                    for (Map.Entry<String, Double> entry : reportCache.get(ReportCache.Type.REVENUE_BY_CATEGORY, null, null,
+                            () -> ReportRollups.revenueByCategory(conn)).entrySet()) {
+                        sb.append(String.format("  %-15s: $%.2f\n", entry.getKey(), entry.getValue()));
+                    }
                 }
             }
 
             summaryArea.setText(sb.toString());
+            timing.stop();
         } catch (SQLException ex) {
+            timing.fail();
             showAlert("Error", "Failed to generate summary report.");
         }
     }
 
-    private void exportVehiclesToCSV() {
-        try (FileWriter writer = new FileWriter("vehicles.csv")) {
-            writer.write("ID,Brand,Model,Category,Daily Rate,Status\n");
+    // Streams the whole table from the database (or the offline store) on a background thread;
+    // a file name ending in .gz is compressed
+    private void exportTableToCSV(CsvExporter.Table table) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export " + table.getTitle());
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV files", "*.csv"),
+                new FileChooser.ExtensionFilter("Compressed CSV files", "*.csv.gz"));
+        chooser.setInitialDirectory(new File(System.getProperty("user.dir")));
+        chooser.setInitialFileName(table.getTitle().toLowerCase() + ".csv");
+        File file = chooser.showSaveDialog(vehicleTable.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
 
-            for (Vehicle vehicle : vehicleData) {
-                writer.write(String.format("%s,%s,%s,%s,%.2f,%s\n",
-                        vehicle.getId(),
-                        vehicle.getBrand(),
-                        vehicle.getModel(),
-                        vehicle.getCategory(),
-                        vehicle.getDailyRate(),
-                        vehicle.getStatus()
-                ));
+        String key = "export:" + table;
+        ProgressBar progressBar = new ProgressBar(0);
+        Label progressLabel = new Label("Counting rows...");
+        Alert progressAlert = createProgressDialog("Export " + table.getTitle(), progressLabel, progressBar, key);
+        Consumer<long[]> showProgress = onFxThread(counts -> {
+            progressBar.setProgress(counts[1] == 0 ? 1 : (double) counts[0] / counts[1]);
+            progressLabel.setText(String.format("%,d of %,d rows written", counts[0], counts[1]));
+        });
+
+        CsvExporter exporter = offlineMode ? new CsvExporter(offlineStore) : new CsvExporter(pool);
+        Task<Long> task = loader.submit(key,
+                operations.timed("export." + table, () -> exporter.export(table, file.toPath(),
+                        (written, total) -> showProgress.accept(new long[]{written, total}))),
+                rows -> {
+                    progressAlert.close();
+                    showAlert("Success", String.format("Exported %,d %s to %s", rows,
+                            table.getTitle().toLowerCase(), file.getName()));
+                },
+                error -> {
+                    progressAlert.close();
+                    showAlert("Error", "Failed to export " + table.getTitle().toLowerCase() + ": " + error.getMessage());
+                });
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, e -> showAlert("Export Cancelled",
+                "The export was cancelled; " + file.getName() + " was not written."));
+        progressAlert.show();
+    }
+
+    // A non-blocking dialog with a progress bar; closing it cancels the background work under key
+    private Alert createProgressDialog(String title, Label progressLabel, ProgressBar progressBar, Object key) {
+        progressBar.setPrefWidth(320);
+        Alert progressAlert = new Alert(Alert.AlertType.NONE, null, ButtonType.CANCEL);
+        progressAlert.setTitle(title);
+        progressAlert.getDialogPane().setContent(new VBox(10, progressLabel, progressBar));
+        // Once the work has finished there is nothing left to cancel
+        progressAlert.setOnHidden(e -> loader.cancel(key));
+        return progressAlert;
+    }
+
+    // Hands values from a worker thread to the FX thread, keeping at most one update queued at a time
+    private static <T> Consumer<T> onFxThread(Consumer<T> apply) {
+        AtomicReference<T> latest = new AtomicReference<>();
+        return value -> {
+            if (latest.getAndSet(value) == null) {
+                Platform.runLater(() -> apply.accept(latest.getAndSet(null)));
             }
+        };
+    }
 
-            showAlert("Success", "Vehicle data exported to vehicles.csv");
-        } catch (IOException e) {
-            showAlert("Error", "Failed to export vehicle data: " + e.getMessage());
+    // Bulk upsert from a file in the export layout; invalid rows are written next to it as <name>.rejects.csv
+    private void importVehiclesFromCSV() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Vehicles");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        chooser.setInitialDirectory(new File(System.getProperty("user.dir")));
+        File file = chooser.showOpenDialog(vehicleTable.getScene().getWindow());
+        if (file == null) {
+            return;
         }
+        Path source = file.toPath();
+        Path rejectFile = source.resolveSibling(file.getName().replaceFirst("(?i)\\.csv$", "") + ".rejects.csv");
+
+        ProgressBar progressBar = new ProgressBar(0);
+        Label progressLabel = new Label("Reading " + file.getName() + "...");
+        Alert progressAlert = createProgressDialog("Import Vehicles", progressLabel, progressBar, "vehicleImport");
+        Consumer<VehicleCsvImporter.Progress> showProgress = onFxThread(progress -> {
+            progressBar.setProgress(progress.getFraction());
+            progressLabel.setText(String.format("%,d imported, %,d rejected",
+                    progress.getImported(), progress.getRejected()));
+        });
+
+        VehicleCsvImporter importer = offlineMode
+                ? new VehicleCsvImporter(offlineStore)
+                : new VehicleCsvImporter(pool);
+        Task<VehicleCsvImporter.Progress> task = loader.submit("vehicleImport",
+                operations.timed("importVehicles", () -> importer.importFile(source, rejectFile, showProgress::accept)),
+                result -> {
+                    progressAlert.close();
+                    showAlert("Import Complete", String.format("Imported %,d vehicles.%nRejected %,d rows%s",
+                            result.getImported(), result.getRejected(),
+                            result.getRejected() > 0 ? ", see " + rejectFile : "."));
+                    loadVehicleData();
+                    metrics.reconcileAsync();
+                },
+                error -> {
+                    progressAlert.close();
+                    showAlert("Error", "Import failed: " + error.getMessage()
+                            + "\nRows committed before the failure were kept.");
+                    loadVehicleData();
+                    metrics.reconcileAsync();
+                });
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, e -> {
+            showAlert("Import Cancelled", "Rows committed before the import was cancelled were kept.");
+            loadVehicleData();
+            metrics.reconcileAsync();
+        });
+        progressAlert.show();
     }
 
-    private void exportReportsToCSV() {
-        try (FileWriter writer = new FileWriter("rental_reports.csv")) {
-            // Vehicle category summary
-            writer.write("Vehicle Category Summary\n");
-            writer.write("Category,Count\n");
+    // The category and monthly summaries for the range picked on the Reports tab, written in the background
+    private void exportReportsToCSV(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            showAlert("Error", "Please choose a valid date range");
+            return;
+        }
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Reports to CSV");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV files", "*.csv"),
+                new FileChooser.ExtensionFilter("Compressed CSV files", "*.csv.gz"));
+        chooser.setInitialDirectory(new File(System.getProperty("user.dir")));
+        chooser.setInitialFileName("rental_reports.csv");
+        File file = chooser.showSaveDialog(tabPane.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
 
-            if (offlineMode) {
-                Map<String, Integer> categoryCounts = new HashMap<>();
-                for (Map<String, Object> vehicle : offlineVehicles) {
-                    String category = vehicle.get("category").toString();
-                    categoryCounts.put(category, categoryCounts.getOrDefault(category, 0) + 1);
-                }
+        String key = "export:reports.csv";
+        ProgressBar progressBar = new ProgressBar(0);
+        Label progressLabel = new Label("Reading the reports...");
+        Alert progressAlert = createProgressDialog("Export Reports to CSV", progressLabel, progressBar, key);
+        Consumer<long[]> showProgress = onFxThread(counts -> {
+            progressBar.setProgress(counts[1] == 0 ? 1 : (double) counts[0] / counts[1]);
+            progressLabel.setText(String.format("%,d of %,d rows written", counts[0], counts[1]));
+        });
 
-                for (Map.Entry<String, Integer> entry : categoryCounts.entrySet()) {
-                    writer.write(String.format("%s,%d\n", entry.getKey(), entry.getValue()));
-                }
-            } else {
-                PreparedStatement ps = conn.prepareStatement(
-                        "SELECT category, COUNT(*) as count FROM vehicles GROUP BY category");
-                ResultSet rs = ps.executeQuery();
-                while (rs.next()) {
-                    writer.write(String.format("%s,%d\n",
-                            rs.getString("category"), rs.getInt("count")));
-                }
-            }
+        CsvExporter exporter = offlineMode ? new CsvExporter(offlineStore) : new CsvExporter(pool);
+        Task<Long> task = loader.submit(key,
+                operations.timed("exportReportsToCSV", () -> exporter.exportReports(file.toPath(), startDate, endDate,
+                        (written, total) -> showProgress.accept(new long[]{written, total}))),
+                rows -> {
+                    progressAlert.close();
+                    showAlert("Success", "Reports exported to " + file.getName());
+                },
+                error -> {
+                    progressAlert.close();
+                    showAlert("Error", "Failed to export reports: " + error.getMessage());
+                });
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, e -> showAlert("Export Cancelled",
+                "The export was cancelled; " + file.getName() + " was not written."));
+        progressAlert.show();
+    }
 
-            // Revenue summary
-            writer.write("\nRevenue Summary\n");
-            writer.write("Month,Revenue\n");
+    // The charts and summary for the selected range plus an appendix of its bookings, written in the background
+    private void exportReportsToPDF(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            showAlert("Error", "Please choose a valid date range");
+            return;
+        }
+        File file = choosePdfFile("Export Reports to PDF", "rental_reports.pdf");
+        if (file == null) {
+            return;
+        }
 
-            LocalDate startDate = LocalDate.now().minusMonths(6);
-            LocalDate endDate = LocalDate.now();
+        String key = "export:reports.pdf";
+        ProgressBar progressBar = new ProgressBar(0);
+        Label progressLabel = new Label("Writing summary...");
+        Alert progressAlert = createProgressDialog("Export Reports to PDF", progressLabel, progressBar, key);
+        Consumer<long[]> showProgress = onFxThread(counts -> {
+            progressBar.setProgress(counts[1] == 0 ? 1 : (double) counts[0] / counts[1]);
+            progressLabel.setText(String.format("%,d of %,d bookings written", counts[0], counts[1]));
+        });
 
-            if (offlineMode) {
-                // Simulate data
-                LocalDate current = startDate.withDayOfMonth(1);
-                Random random = new Random();
-
-                while (!current.isAfter(endDate)) {
-                    double revenue = 5000 + random.nextInt(10000);
-                    writer.write(String.format("%s,%.2f\n",
-                            current.format(DateTimeFormatter.ofPattern("MMM yyyy")),
-                            revenue
-                    ));
-                    current = current.plusMonths(1);
-                }
-            } else {
-                PreparedStatement ps = conn.prepareStatement(
-                        "SELECT DATE_FORMAT(payment_date, '%Y-%m') as month, SUM(amount) as total " +
-                                "FROM payments WHERE payment_date BETWEEN ? AND ? " +
-                                "GROUP BY DATE_FORMAT(payment_date, '%Y-%m') ORDER BY month");
-                ps.setDate(1, java.sql.Date.valueOf(startDate));
-                ps.setDate(2, java.sql.Date.valueOf(endDate));
-
-                ResultSet rs = ps.executeQuery();
-                while (rs.next()) {
-                    writer.write(String.format("%s,%.2f\n",
-                            rs.getString("month"),
-                            rs.getDouble("total")
-                    ));
-                }
-            }
+        PdfReportExporter exporter = offlineMode ? new PdfReportExporter(offlineStore) : new PdfReportExporter(pool);
+        DashboardMetrics.Snapshot totals = metrics.snapshot();
+        Task<Long> task = loader.submit(key,
+                operations.timed("exportReportsToPDF", () -> exporter.exportReports(file.toPath(), startDate, endDate,
+                        totals, (written, total) -> showProgress.accept(new long[]{written, total}))),
+                rows -> {
+                    progressAlert.close();
+                    showAlert("Success", String.format("Exported the reports and %,d bookings to %s", rows, file.getName()));
+                },
+                error -> {
+                    progressAlert.close();
+                    showAlert("Error", "Failed to export the reports: " + error.getMessage());
+                });
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, e -> showAlert("Export Cancelled",
+                "The export was cancelled; " + file.getName() + " was not written."));
+        progressAlert.show();
+    }
 
-            showAlert("Success", "Reports exported to rental_reports.csv");
-        } catch (IOException | SQLException e) {
-            showAlert("Error", "Failed to export reports: " + e.getMessage());
+    private void saveInvoiceAsPDF(Booking booking) {
+        File file = choosePdfFile("Save Invoice", "invoice-" + booking.getId() + ".pdf");
+        if (file == null) {
+            return;
         }
+        LocalDate invoiceDate = LocalDate.now();
+        loader.submit("invoice:" + booking.getId(), () -> {
+                    PdfReportExporter.exportInvoice(file.toPath(), booking, invoiceDate);
+                    return file;
+                },
+                saved -> showAlert("Success", "Invoice saved to " + saved.getName()),
+                error -> showAlert("Error", "Failed to save the invoice: " + error.getMessage()));
     }
 
-    private void exportReportsToPDF() {
-        showAlert("Info", "PDF export would be implemented  in a real system.");
+    private File choosePdfFile(String title, String initialName) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(title);
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PDF files", "*.pdf"));
+        chooser.setInitialDirectory(new File(System.getProperty("user.dir")));
+        chooser.setInitialFileName(initialName);
+        return chooser.showSaveDialog(tabPane.getScene().getWindow());
     }
 
     private void showAlert(String title, String message) {
@@ -2317,6 +2894,34 @@ public class VehicleRentalSystem extends Application {
     }
 
     public static void main(String[] args) {
+        // Backfill: recount the report rollups from the bookings and payments, without starting the UI
+        if (args.length > 0 && args[0].equals("--rebuild-rollups")) {
+            try (ConnectionPool rollupPool = createPool()) {
+                initializeSchema(rollupPool);
+                try (Connection conn = rollupPool.getConnection()) {
+                    rebuildRollups(conn);
+                }
+                System.out.println("Report rollups rebuilt.");
+            } catch (ClassNotFoundException | SQLException e) {
+                System.err.println("Failed to rebuild report rollups: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        // Recopy the booking view from the bookings, customers and vehicles, e.g. after editing them by hand
+        if (args.length > 0 && args[0].equals("--rebuild-booking-view")) {
+            try (ConnectionPool viewPool = createPool()) {
+                initializeSchema(viewPool);
+                try (Connection conn = viewPool.getConnection()) {
+                    rebuildBookingView(conn);
+                }
+                System.out.println("Booking view rebuilt.");
+            } catch (ClassNotFoundException | SQLException e) {
+                System.err.println("Failed to rebuild the booking view: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
         launch(args);
     }
 
@@ -0,0 +1,107 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Queries and writes against the vehicles table
+public class VehicleRepository extends Repository {
+
+    public static final RowMapper<Vehicle> MAPPER = rs -> new Vehicle(
+            rs.getString("id"),
+            rs.getString("brand"),
+            rs.getString("model"),
+            rs.getString("category"),
+            rs.getDouble("daily_rate"),
+            rs.getString("status")
+    );
+
+    public VehicleRepository(ConnectionPool pool, OperationMetrics operations) {
+        super(pool, operations, "vehicles");
+    }
+
+    public List<Vehicle> findAll() throws SQLException {
+        return timed("findAll", () -> list("SELECT * FROM vehicles", MAPPER));
+    }
+
+    public Vehicle find(Connection conn, String id) throws SQLException {
+        return timed("find", () -> first(conn, "SELECT * FROM vehicles WHERE id = ?", MAPPER, id));
+    }
+
+    // Up to limit vehicles in service (available or rented: a rental may end before the dates) with no active
+    // booking overlapping [start, end), by id; a null category means every category. Mirrors
+    // AvailabilityIndex.freeVehicles, which answers the same offline
+    public List<Vehicle> findFree(String category, LocalDate start, LocalDate end, int limit) throws SQLException {
+        String sql = "SELECT * FROM vehicles v WHERE v.status IN ('Available', 'Rented') " +
+                (category == null ? "" : "AND v.category = ? ") +
+                "AND NOT EXISTS (SELECT 1 FROM bookings b WHERE b.vehicle_id = v.id AND b.status = 'Active' " +
+                "AND b.start_date < ? AND b.end_date > ?) ORDER BY v.id LIMIT ?";
+        Object[] params = category == null
+                ? new Object[]{end, start, limit}
+                : new Object[]{category, end, start, limit};
+        return timed("findFree", () -> list(sql, MAPPER, params));
+    }
+
+    // Every vehicle grouped by category, the order of the fleet calendar's rows
+    public List<Vehicle> findAllByCategory() throws SQLException {
+        return timed("findAllByCategory", () -> list("SELECT * FROM vehicles ORDER BY category, id", MAPPER));
+    }
+
+    // Locks the row until the caller's transaction ends, so bookings made at two desks queue up
+    public Vehicle findForUpdate(Connection conn, String id) throws SQLException {
+        return timed("findForUpdate", () -> first(conn, "SELECT * FROM vehicles WHERE id = ? FOR UPDATE", MAPPER, id));
+    }
+
+    public void insert(Vehicle vehicle) throws SQLException {
+        timed("insert", () -> update(
+                "INSERT INTO vehicles (id, brand, model, category, daily_rate, status) VALUES (?, ?, ?, ?, ?, ?)",
+                vehicle.getId(), vehicle.getBrand(), vehicle.getModel(), vehicle.getCategory(),
+                vehicle.getDailyRate(), vehicle.getStatus()));
+    }
+
+    // Recopies the brand and model into the vehicle's BookingView rows in the same transaction
+    public boolean update(Vehicle vehicle) throws SQLException {
+        return timed("update", () -> {
+            try (Connection conn = pool.getConnection()) {
+                conn.setAutoCommit(false);
+                int updated = update(conn,
+                        "UPDATE vehicles SET brand = ?, model = ?, category = ?, daily_rate = ?, status = ? WHERE id = ?",
+                        vehicle.getBrand(), vehicle.getModel(), vehicle.getCategory(), vehicle.getDailyRate(),
+                        vehicle.getStatus(), vehicle.getId());
+                BookingView.refreshVehicles(conn, List.of(vehicle.getId()));
+                conn.commit();
+                return updated;
+            }
+        }) > 0;
+    }
+
+    public boolean delete(String id) throws SQLException {
+        return timed("delete", () -> update("DELETE FROM vehicles WHERE id = ?", id)) > 0;
+    }
+
+    public void setStatus(Connection conn, String id, String status) throws SQLException {
+        timed("setStatus", () -> update(conn, "UPDATE vehicles SET status = ? WHERE id = ?", status, id));
+    }
+
+    // Category to number of vehicles, in the order the database returns them
+    public Map<String, Integer> countByCategory() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return countByCategory(conn);
+        }
+    }
+
+    public Map<String, Integer> countByCategory(Connection conn) throws SQLException {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> row : timed("countByCategory", () -> list(conn,
+                "SELECT category, COUNT(*) AS count FROM vehicles GROUP BY category",
+                rs -> Map.entry(rs.getString("category"), rs.getInt("count"))))) {
+            counts.put(row.getKey(), row.getValue());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// In-memory trigram inverted index over vehicle id/brand/model/category/status.
+// Every 3-character substring of each field maps to a sorted list of the slots (one per vehicle)
+// that contain it. A query intersects the postings of its trigrams and then confirms the few
+// remaining candidates against the stored lowercase text, so nothing is allocated per vehicle.
+// One- and two-character queries have no trigram, so they scan the stored text instead.
+public class VehicleSearchIndex {
+
+    // Changes bigger than this (e.g. a full reload) rebuild the index in the background
+    private static final int BULK_CHANGE_THRESHOLD = 1_000;
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    private State state = new State();
+
+    // Changes that arrive while a background rebuild is running, replayed on top of it
+    private List<Runnable> pendingWhileRebuilding;
+
+    // Keep the index in step with a list; onUpdated runs on the FX thread after every index update
+    public void bindTo(ObservableList<Vehicle> source, BackgroundLoader loader, Runnable onUpdated) {
+        rebuild(source);
+        source.addListener((ListChangeListener<Vehicle>) change -> {
+            int touched = 0;
+            while (change.next()) {
+                touched += change.getRemovedSize() + change.getAddedSize();
+            }
+            change.reset();
+
+            if (touched > BULK_CHANGE_THRESHOLD) {
+                List<Vehicle> snapshot = List.copyOf(source);
+                synchronized (this) {
+                    pendingWhileRebuilding = new ArrayList<>();
+                }
+                loader.submit(this, () -> build(snapshot), built -> {
+                    List<Runnable> pending;
+                    synchronized (this) {
+                        state = built;
+                        pending = pendingWhileRebuilding;
+                        pendingWhileRebuilding = null;
+                    }
+                    pending.forEach(Runnable::run);
+                    onUpdated.run();
+                }, error -> {
+                    synchronized (this) {
+                        pendingWhileRebuilding = null;
+                    }
+                });
+                return;
+            }
+
+            while (change.next()) {
+                for (Vehicle removed : change.getRemoved()) {
+                    apply(() -> remove(removed.getId()));
+                }
+                for (Vehicle added : change.getAddedSubList()) {
+                    apply(() -> add(added));
+                }
+            }
+            onUpdated.run();
+        });
+    }
+
+    public synchronized void add(Vehicle vehicle) {
+        remove(vehicle.getId());
+        state.add(vehicle.getId(), normalize(vehicle));
+    }
+
+    public synchronized void remove(String vehicleId) {
+        state.remove(vehicleId);
+        if (state.dead > BULK_CHANGE_THRESHOLD && state.dead > state.slotById.size()) {
+            state = state.compact();
+        }
+    }
+
+    public synchronized void rebuild(List<Vehicle> vehicles) {
+        state = build(vehicles);
+    }
+
+    public synchronized int size() {
+        return state.slotById.size();
+    }
+
+    // Predicate for a FilteredList over the indexed vehicles; a blank query matches everything
+    public Predicate<Vehicle> search(String query) {
+        String q = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        if (q.isEmpty()) {
+            return vehicle -> true;
+        }
+        State snapshot;
+        BitSet hits;
+        synchronized (this) {
+            snapshot = state;
+            hits = snapshot.find(q);
+        }
+        return vehicle -> {
+            Integer slot = snapshot.slotById.get(vehicle.getId());
+            return slot != null && hits.get(slot);
+        };
+    }
+
+    private synchronized void apply(Runnable mutation) {
+        if (pendingWhileRebuilding != null) {
+            pendingWhileRebuilding.add(mutation);
+        }
+        mutation.run();
+    }
+
+    private static State build(List<Vehicle> vehicles) {
+        State built = new State();
+        for (Vehicle vehicle : vehicles) {
+            built.remove(vehicle.getId());
+            built.add(vehicle.getId(), normalize(vehicle));
+        }
+        return built;
+    }
+
+    private static String normalize(Vehicle vehicle) {
+        return (nullToEmpty(vehicle.getId()) + FIELD_SEPARATOR
+                + nullToEmpty(vehicle.getBrand()) + FIELD_SEPARATOR
+                + nullToEmpty(vehicle.getModel()) + FIELD_SEPARATOR
+                + nullToEmpty(vehicle.getCategory()) + FIELD_SEPARATOR
+                + nullToEmpty(vehicle.getStatus())).toLowerCase(Locale.ROOT);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    // Three UTF-16 chars packed into one long
+    private static long trigram(String text, int from) {
+        return ((long) text.charAt(from) << 32) | ((long) text.charAt(from + 1) << 16) | text.charAt(from + 2);
+    }
+
+    private static final class State {
+        private final Map<String, Integer> slotById = new HashMap<>();
+        private final List<String> idBySlot = new ArrayList<>();
+        // Lowercase fields joined by FIELD_SEPARATOR; null once the slot has been removed
+        private final List<String> textBySlot = new ArrayList<>();
+        private final Map<Long, IntList> postings = new HashMap<>();
+        private int dead;
+
+        // Slots only ever grow, so every posting list stays sorted by construction
+        private void add(String id, String text) {
+            int slot = textBySlot.size();
+            slotById.put(id, slot);
+            idBySlot.add(id);
+            textBySlot.add(text);
+
+            int fieldStart = 0;
+            for (int i = 0; i <= text.length(); i++) {
+                if (i == text.length() || text.charAt(i) == FIELD_SEPARATOR) {
+                    indexField(text, fieldStart, i, slot);
+                    fieldStart = i + 1;
+                }
+            }
+        }
+
+        private void indexField(String text, int start, int end, int slot) {
+            for (int i = start; i + 3 <= end; i++) {
+                postings.computeIfAbsent(trigram(text, i), k -> new IntList()).addIfLast(slot);
+            }
+        }
+
+        // Removed slots are tombstoned and filtered out at query time until the next compaction
+        private void remove(String id) {
+            Integer slot = slotById.remove(id);
+            if (slot != null) {
+                textBySlot.set(slot, null);
+                dead++;
+            }
+        }
+
+        private State compact() {
+            State compacted = new State();
+            for (int slot = 0; slot < textBySlot.size(); slot++) {
+                String text = textBySlot.get(slot);
+                if (text != null) {
+                    compacted.add(idBySlot.get(slot), text);
+                }
+            }
+            return compacted;
+        }
+
+        private BitSet find(String q) {
+            BitSet hits = new BitSet(textBySlot.size());
+            if (q.indexOf(FIELD_SEPARATOR) >= 0) {
+                return hits;
+            }
+
+            if (q.length() < 3) {
+                for (int slot = 0; slot < textBySlot.size(); slot++) {
+                    String text = textBySlot.get(slot);
+                    if (text != null && text.contains(q)) {
+                        hits.set(slot);
+                    }
+                }
+                return hits;
+            }
+
+            IntList[] lists = new IntList[q.length() - 2];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = postings.get(trigram(q, i));
+                if (lists[i] == null) {
+                    return hits;
+                }
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+            int[] candidates = Arrays.copyOf(lists[0].values, lists[0].size);
+            int count = candidates.length;
+            for (int i = 1; i < lists.length && count > 0; i++) {
+                count = intersect(candidates, count, lists[i]);
+            }
+
+            for (int i = 0; i < count; i++) {
+                String text = textBySlot.get(candidates[i]);
+                if (text != null && text.contains(q)) {
+                    hits.set(candidates[i]);
+                }
+            }
+            return hits;
+        }
+
+        // In-place intersection of the first count entries of candidates with a sorted list
+        private static int intersect(int[] candidates, int count, IntList other) {
+            int kept = 0;
+            int j = 0;
+            for (int i = 0; i < count && j < other.size; i++) {
+                int value = candidates[i];
+                while (j < other.size && other.values[j] < value) {
+                    j++;
+                }
+                if (j < other.size && other.values[j] == value) {
+                    candidates[kept++] = value;
+                }
+            }
+            return kept;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        // A field can contain the same gram twice; only record the slot once
+        private void addIfLast(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
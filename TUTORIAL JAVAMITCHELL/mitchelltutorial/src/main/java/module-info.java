@@ -5,6 +5,8 @@ module com.example.mitchelltutorial {
     requires org.controlsfx.controls;
     requires org.kordamp.bootstrapfx.core;
     requires java.sql;
+    requires java.management;
+    requires com.h2database;
 
     opens com.example.mitchelltutorial to javafx.fxml;
     exports com.example.mitchelltutorial;
@@ -0,0 +1,158 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.Booking;
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AvailabilityIndexTest {
+
+    private static final LocalDate DAY0 = LocalDate.of(2024, 1, 1);
+    private static final List<String> VEHICLES = List.of("V1", "V2", "V3");
+
+    private final Random random = new Random(7);
+    private final AvailabilityIndex index = new AvailabilityIndex();
+    // What the index should hold: booking id -> booking, active or not
+    private final Map<String, Booking> bookings = new LinkedHashMap<>();
+
+    @Test
+    void randomInsertsAndDeletesMatchABruteForceCheck() {
+        int nextId = 0;
+        for (int step = 0; step < 5_000; step++) {
+            int op = random.nextInt(10);
+            if (op < 5 || bookings.isEmpty()) {
+                put(randomBooking("B" + nextId++));
+            } else if (op < 8) {
+                remove(randomBookingId());
+            } else {
+                // The same booking moved or completed
+                put(randomBooking(randomBookingId()));
+            }
+            if (step % 50 == 0) {
+                assertMatchesBruteForce(30);
+            }
+        }
+        assertMatchesBruteForce(500);
+    }
+
+    @Test
+    void bookingsAddedInDateOrderStayBalanced() {
+        // Ascending starts would make a plain binary tree a list; every insert here rotates
+        for (int i = 0; i < 2_000; i++) {
+            put(booking("B" + i, "V1", i * 3, i * 3 + 2, "Active"));
+        }
+        assertMatchesBruteForce(300);
+        // Deleting from one end forces rotations the other way
+        for (int i = 0; i < 1_500; i++) {
+            remove("B" + i);
+        }
+        assertMatchesBruteForce(300);
+        // Gaps of one day between them: [3i + 2, 3i + 3) is free
+        assertNull(index.findConflict("V1", day(1_502 * 3 + 2), day(1_502 * 3 + 3)));
+        assertEquals("B1600", index.findConflict("V1", day(1_600 * 3 + 1), day(1_600 * 3 + 2)));
+    }
+
+    @Test
+    void rangesAreHalfOpen() {
+        put(booking("B1", "V1", 10, 15, "Active"));
+        // Ending the day it starts, or starting the day it ends, does not clash
+        assertNull(index.findConflict("V1", day(5), day(10)));
+        assertNull(index.findConflict("V1", day(15), day(20)));
+        assertEquals("B1", index.findConflict("V1", day(5), day(11)));
+        assertEquals("B1", index.findConflict("V1", day(14), day(20)));
+        assertEquals("B1", index.findConflict("V1", day(11), day(12)));
+        assertEquals("B1", index.findConflict("V1", day(0), day(30)));
+        assertNull(index.findConflict("V2", day(10), day(15)));
+    }
+
+    @Test
+    void onlyActiveBookingsHoldAVehicle() {
+        index.putVehicle(new Vehicle("V1", "Toyota", "Camry", "Sedan", 50, "Available"));
+        index.putVehicle(new Vehicle("V2", "Ford", "Focus", "Sedan", 40, "Maintenance"));
+        put(booking("B1", "V1", 10, 15, "Active"));
+        assertFalse(index.isFree("V1", day(12), day(13)));
+
+        put(booking("B1", "V1", 10, 15, "Completed"));
+        assertTrue(index.isFree("V1", day(12), day(13)));
+        // Out of service, whatever its bookings
+        assertFalse(index.isFree("V2", day(12), day(13)));
+        assertEquals(List.of("V1"), index.freeVehicles("Sedan", day(12), day(13)));
+    }
+
+    private void assertMatchesBruteForce(int queries) {
+        for (int i = 0; i < queries; i++) {
+            String vehicleId = VEHICLES.get(random.nextInt(VEHICLES.size()));
+            int start = random.nextInt(400);
+            int end = start + 1 + random.nextInt(random.nextBoolean() ? 5 : 60);
+            String conflict = index.findConflict(vehicleId, day(start), day(end));
+            boolean expected = bruteForceOverlap(vehicleId, day(start), day(end));
+            if (!expected) {
+                assertNull(conflict, () -> vehicleId + " " + start + ".." + end + " should be free");
+            } else {
+                assertNotNull(conflict, () -> vehicleId + " " + start + ".." + end + " should clash");
+                // Whichever booking is named must really be active and overlapping
+                Booking named = bookings.get(conflict);
+                assertEquals(vehicleId, named.getVehicleId());
+                assertEquals("Active", named.getStatus());
+                assertTrue(overlaps(named, day(start), day(end)));
+            }
+        }
+    }
+
+    private boolean bruteForceOverlap(String vehicleId, LocalDate start, LocalDate end) {
+        for (Booking booking : bookings.values()) {
+            if (booking.getVehicleId().equals(vehicleId) && "Active".equals(booking.getStatus())
+                    && overlaps(booking, start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean overlaps(Booking booking, LocalDate start, LocalDate end) {
+        return booking.getStartDate().isBefore(end) && start.isBefore(booking.getEndDate());
+    }
+
+    private void put(Booking booking) {
+        bookings.put(booking.getId(), booking);
+        index.putBooking(booking);
+    }
+
+    private void remove(String bookingId) {
+        bookings.remove(bookingId);
+        index.removeBooking(bookingId);
+    }
+
+    private String randomBookingId() {
+        List<String> ids = new ArrayList<>(bookings.keySet());
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    // Many equal start dates, so ties on start are broken by booking id
+    private Booking randomBooking(String id) {
+        int start = random.nextInt(100) * 4;
+        int length = 1 + random.nextInt(random.nextInt(10) == 0 ? 90 : 6);
+        String status = random.nextInt(5) == 0 ? "Completed" : "Active";
+        return booking(id, VEHICLES.get(random.nextInt(VEHICLES.size())), start, start + length, status);
+    }
+
+    private static Booking booking(String id, String vehicleId, int startDay, int endDay, String status) {
+        return new Booking(id, "C1", "Ann", vehicleId, "Toyota Camry", day(startDay), day(endDay), 50, status, "emp");
+    }
+
+    private static LocalDate day(int offset) {
+        return DAY0.plusDays(offset);
+    }
+}
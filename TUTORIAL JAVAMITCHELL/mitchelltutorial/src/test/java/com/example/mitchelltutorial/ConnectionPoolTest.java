@@ -0,0 +1,203 @@
+package com.example.mitchelltutorial;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionPoolTest {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private ConnectionPool pool;
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    // A fresh in-memory database per pool, kept while any connection is open
+    private static ConnectionPool newPool(int maxSize, long borrowTimeoutMillis, long leakThresholdMillis) {
+        return new ConnectionPool("jdbc:h2:mem:pool" + DATABASES.incrementAndGet(), "sa", "", maxSize,
+                borrowTimeoutMillis, 600_000, leakThresholdMillis, 2);
+    }
+
+    @Test
+    void borrowingPastTheBoundTimesOut() throws SQLException {
+        pool = newPool(1, 100, 60_000);
+        Connection held = pool.getConnection();
+        try {
+            long start = System.nanoTime();
+            assertThrows(SQLTransientConnectionException.class, () -> pool.getConnection());
+            assertTrue(System.nanoTime() - start >= 90_000_000L, "gave up before the borrow timeout");
+            assertEquals(1, pool.getStats().getTimeoutCount());
+            assertEquals(1, pool.getStats().getActive());
+        } finally {
+            held.close();
+        }
+        pool.getConnection().close();
+        assertEquals(1, pool.getStats().getCreatedCount(), "the returned connection is reused");
+    }
+
+    @Test
+    void returnedHandleCannotBeUsed() throws SQLException {
+        pool = newPool(1, 100, 60_000);
+        Connection first = pool.getConnection();
+        first.close();
+        assertTrue(first.isClosed());
+        assertThrows(SQLException.class, first::createStatement);
+        first.close();
+        assertEquals(0, pool.getStats().getActive(), "closing twice releases once");
+    }
+
+    @Test
+    void connectionClosedWhileBorrowedIsDestroyedOnReturn() throws SQLException {
+        pool = newPool(2, 100, 60_000);
+        try (Connection conn = pool.getConnection()) {
+            conn.unwrap(Connection.class).close();
+            conn.setAutoCommit(false);
+        } catch (SQLException expected) {
+            // The driver refuses; the pool still takes the handle back
+        }
+        assertEquals(1, pool.getStats().getDestroyedCount());
+        assertEquals(0, pool.getStats().getIdle());
+        try (Connection conn = pool.getConnection(); ResultSet rs = conn.createStatement().executeQuery("SELECT 1")) {
+            assertTrue(rs.next());
+        }
+        assertEquals(2, pool.getStats().getCreatedCount());
+    }
+
+    @Test
+    void idleConnectionThatFailsValidationIsReplaced() throws Exception {
+        pool = newPool(2, 100, 60_000);
+        Connection raw;
+        try (Connection conn = pool.getConnection()) {
+            raw = conn.unwrap(Connection.class);
+        }
+        raw.close();
+        // Past the window in which a recently returned connection is trusted without a check
+        Thread.sleep(600);
+        try (Connection conn = pool.getConnection()) {
+            assertNotSame(raw, conn.unwrap(Connection.class));
+            assertTrue(conn.isValid(1));
+        }
+        assertEquals(1, pool.getStats().getValidationFailureCount());
+        assertEquals(1, pool.getStats().getDestroyedCount());
+    }
+
+    @Test
+    void connectionHeldPastTheThresholdIsReportedOnce() throws Exception {
+        pool = newPool(2, 100, 10);
+        Connection leaked = pool.getConnection();
+        Thread.sleep(30);
+        pool.housekeep();
+        pool.housekeep();
+        assertEquals(1, pool.getStats().getLeakCount());
+        leaked.close();
+
+        Connection quick = pool.getConnection();
+        quick.close();
+        pool.housekeep();
+        assertEquals(1, pool.getStats().getLeakCount(), "returned within the threshold");
+    }
+
+    @Test
+    void preparedStatementIsReusedAfterClose() throws SQLException {
+        pool = newPool(1, 100, 60_000);
+        try (Connection conn = pool.getConnection()) {
+            PreparedStatement raw;
+            try (PreparedStatement ps = conn.prepareStatement("SELECT ?")) {
+                raw = ps.unwrap(PreparedStatement.class);
+                ps.setInt(1, 7);
+                try (ResultSet rs = ps.executeQuery()) {
+                    assertTrue(rs.next());
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT ?")) {
+                assertSame(raw, ps.unwrap(PreparedStatement.class));
+                // Parameters do not carry over from the previous use
+                assertThrows(SQLException.class, ps::executeQuery);
+            }
+        }
+        assertEquals(1, pool.getStats().getStatementMissCount());
+        assertEquals(1, pool.getStats().getStatementHitCount());
+    }
+
+    @Test
+    void statementLeftOpenIsReusedOnTheNextBorrow() throws SQLException {
+        pool = newPool(1, 100, 60_000);
+        PreparedStatement leftOpen;
+        try (Connection conn = pool.getConnection()) {
+            leftOpen = conn.prepareStatement("SELECT 1");
+            leftOpen.executeQuery();
+        }
+        assertTrue(leftOpen.isClosed());
+        try (Connection conn = pool.getConnection(); PreparedStatement ps = conn.prepareStatement("SELECT 1")) {
+            assertEquals(1, pool.getStats().getStatementHitCount());
+            // The earlier caller's proxy cannot reach the statement now lent to this one
+            assertThrows(SQLException.class, leftOpen::executeQuery);
+            assertSame(conn, ps.getConnection());
+        }
+    }
+
+    @Test
+    void queryTimeoutIsResetOnReturnAndTheStatementKept() throws SQLException {
+        pool = newPool(1, 100, 60_000);
+        try (Connection conn = pool.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT 1")) {
+                ps.setQueryTimeout(5);
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT 1")) {
+                assertEquals(0, ps.getQueryTimeout());
+            }
+        }
+        assertEquals(1, pool.getStats().getStatementHitCount());
+    }
+
+    @Test
+    void statementWithChangedSettingsIsNotReused() throws SQLException {
+        pool = newPool(1, 100, 60_000);
+        try (Connection conn = pool.getConnection()) {
+            PreparedStatement raw;
+            try (PreparedStatement ps = conn.prepareStatement("SELECT 1")) {
+                raw = ps.unwrap(PreparedStatement.class);
+                ps.setMaxRows(1);
+            }
+            assertTrue(raw.isClosed());
+            try (PreparedStatement ps = conn.prepareStatement("SELECT 1")) {
+                assertEquals(0, ps.getMaxRows());
+            }
+        }
+        assertEquals(0, pool.getStats().getStatementHitCount());
+        assertEquals(2, pool.getStats().getStatementMissCount());
+    }
+
+    @Test
+    void uncommittedWorkIsRolledBackOnReturn() throws SQLException {
+        pool = newPool(1, 100, 60_000);
+        try (Connection conn = pool.getConnection()) {
+            conn.createStatement().execute("CREATE TABLE t (id INT)");
+            conn.setAutoCommit(false);
+            conn.createStatement().execute("INSERT INTO t VALUES (1)");
+        }
+        try (Connection conn = pool.getConnection();
+             ResultSet rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM t")) {
+            assertTrue(conn.getAutoCommit());
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+}
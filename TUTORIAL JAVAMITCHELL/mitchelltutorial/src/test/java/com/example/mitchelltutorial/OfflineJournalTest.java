@@ -0,0 +1,291 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.OfflineStore.BookingRecord;
+import com.example.mitchelltutorial.OfflineStore.OutboxEntry;
+import com.example.mitchelltutorial.VehicleRentalSystem.Customer;
+import com.example.mitchelltutorial.VehicleRentalSystem.Payment;
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OfflineJournalTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void emptyDirectoryRestoresNothing() throws IOException {
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            assertFalse(journal.restoreInto(new OfflineStore()));
+        }
+    }
+
+    @Test
+    void changesBeforeAndAfterCompactionAreReplayed() throws IOException {
+        OfflineStore store = new OfflineStore();
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            journal.attach(store);
+            store.putVehicle(new Vehicle("V1", "Toyota", "Camry", "Sedan", 50, "Available"));
+            store.putVehicle(new Vehicle("V2", "Ford", "Focus", "Hatchback", 40, "Available"));
+            store.putCustomer(new Customer("C1", "Ann", "555", "ann@example.com", "L1", LocalDate.of(1990, 1, 1)));
+            store.putBooking(new BookingRecord("B1", "C1", "V1", DAY, DAY.plusDays(3), 50, "Active", "emp"));
+
+            store.compactJournal();
+            assertTrue(Files.size(directory.resolve("offline.snapshot")) > 0);
+
+            // On top of the snapshot: an edit, a removal and new rows
+            store.setBookingStatus("B1", "Completed");
+            store.removeVehicle("V2");
+            store.putVehicle(new Vehicle("V3", "Kia", "Rio", "Compact", 30, "Maintenance"));
+            store.putPayment(new Payment("P1", "B1", 150, "Cash", DAY.plusDays(3)));
+        }
+
+        OfflineStore restored = new OfflineStore();
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            assertTrue(journal.restoreInto(restored));
+        }
+        assertEquals(List.of("V1", "V3"), vehicleIds(restored));
+        assertEquals("Maintenance", restored.vehicle("V3").getStatus());
+        assertEquals("Ann", restored.customer("C1").getName());
+        assertEquals(LocalDate.of(1990, 1, 1), restored.customer("C1").getDob());
+        assertEquals("Completed", restored.bookingRecord("B1").getStatus());
+        assertEquals(DAY.plusDays(3), restored.bookingRecord("B1").getEndDate());
+        assertEquals(150, restored.totalRevenue());
+    }
+
+    @Test
+    void nullFieldsAreJournaledAndReplayed() throws IOException {
+        OfflineStore store = new OfflineStore();
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            journal.attach(store);
+            // What the vehicle dialog builds when the category and status combos are left unset
+            store.putVehicle(new Vehicle("V1", "Toyota", "Camry", null, 50, null));
+            store.putCustomer(new Customer("C1", "Ann", null, null, "L1", null));
+            store.compactJournal();
+            // Still journaling after the first record, through the snapshot and into the new log
+            store.putVehicle(new Vehicle("V2", "Ford", "Focus", null, 40, null));
+        }
+
+        OfflineStore restored = new OfflineStore();
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            assertTrue(journal.restoreInto(restored));
+        }
+        assertEquals(List.of("V1", "V2"), vehicleIds(restored));
+        assertNull(restored.vehicle("V1").getCategory());
+        assertNull(restored.vehicle("V1").getStatus());
+        assertEquals("Camry", restored.vehicle("V1").getModel());
+        assertNull(restored.vehicle("V2").getStatus());
+        assertNull(restored.customer("C1").getPhone());
+        assertEquals("L1", restored.customer("C1").getLicense());
+    }
+
+    @Test
+    void corruptRecordEndsReplayAtTheLastGoodOne() throws IOException {
+        writeVehicles("V1", "V2", "V3", "V4");
+        List<Integer> offsets = recordOffsets();
+        assertEquals(4, offsets.size());
+        // Flip a payload byte of the third record: its checksum no longer matches
+        int offset = offsets.get(2) + 8 + 4;
+        overwrite(offset, (byte) (readByte(offset) ^ 0x5A));
+
+        assertRestoresThenAppends(List.of("V1", "V2"));
+    }
+
+    @Test
+    void tornRecordEndsReplayAtTheLastGoodOne() throws IOException {
+        writeVehicles("V1", "V2", "V3");
+        List<Integer> offsets = recordOffsets();
+        // A length that runs past the end of the file, as if the write never finished
+        overwriteInt(offsets.get(2), Integer.MAX_VALUE - 1);
+
+        assertRestoresThenAppends(List.of("V1", "V2"));
+    }
+
+    @Test
+    void outboxAcknowledgementsSurviveARestart() throws IOException {
+        OfflineStore store = new OfflineStore();
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            journal.attach(store);
+            store.startOutbox();
+            store.putVehicle(new Vehicle("V1", "Toyota", "Camry", "Sedan", 50, "Available"));
+            store.putVehicle(new Vehicle("V2", "Ford", "Focus", "Hatchback", 40, "Available"));
+            store.putCustomer(new Customer("C1", "Ann", "555", "ann@example.com", "L1", null));
+
+            // A sync reads the outbox, and V2 changes again before it is acknowledged
+            List<OutboxEntry> sent = store.outbox();
+            store.setVehicleStatus("V2", "Rented");
+            store.acknowledge(sent);
+            assertEquals(List.of("V2"), outboxIds(store));
+        }
+
+        OfflineStore restored = new OfflineStore();
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            assertTrue(journal.restoreInto(restored));
+        }
+        assertEquals(List.of("V2"), outboxIds(restored));
+        assertEquals("Rented", restored.vehicle("V2").getStatus());
+        assertNull(restored.customer("C1").getDob());
+    }
+
+    @Test
+    void outboxAcknowledgementsSurviveACompaction() throws IOException {
+        OfflineStore store = new OfflineStore();
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            journal.attach(store);
+            store.startOutbox();
+            store.putVehicle(new Vehicle("V1", "Toyota", "Camry", "Sedan", 50, "Available"));
+            store.putVehicle(new Vehicle("V2", "Ford", "Focus", "Hatchback", 40, "Available"));
+            List<OutboxEntry> sent = store.outbox();
+            store.compactJournal();
+            store.acknowledge(sent.subList(0, 1));
+            store.putVehicle(new Vehicle("V3", "Kia", "Rio", "Compact", 30, "Available"));
+        }
+
+        OfflineStore restored = new OfflineStore();
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            assertTrue(journal.restoreInto(restored));
+            // Sequences carry on after the restored ones, so a new change is not mistaken for an acknowledged one
+            journal.attach(restored);
+            restored.startOutbox();
+            restored.putVehicle(new Vehicle("V2", "Ford", "Focus", "Hatchback", 45, "Available"));
+            List<OutboxEntry> outbox = restored.outbox();
+            assertEquals(List.of("V2", "V3"), outboxIds(restored));
+            assertTrue(outbox.get(0).getSequence() > outbox.get(1).getSequence());
+        }
+    }
+
+    @Test
+    void baseRowsSurviveARestartAndACompaction() throws IOException {
+        OfflineStore store = new OfflineStore();
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            journal.attach(store);
+            store.putVehicle(new Vehicle("V1", "Toyota", "Camry", "Sedan", 50, "Available"));
+            store.putVehicle(new Vehicle("V2", "Ford", "Focus", "Hatchback", 40, "Available"));
+            store.startOutbox();
+            store.putVehicle(new Vehicle("V1", "Toyota", "Camry", "Sedan", 55, "Available"));
+            store.putVehicle(new Vehicle("V1", "Toyota", "Camry", "Sedan", 60, "Available"));
+            store.compactJournal();
+            store.setVehicleStatus("V2", "Maintenance");
+        }
+
+        OfflineStore restored = new OfflineStore();
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            assertTrue(journal.restoreInto(restored));
+        }
+        // The rows as they were before the first offline change, not the intermediate edit
+        assertEquals(50, restored.vehicleBase("V1").getDailyRate());
+        assertEquals("Available", restored.vehicleBase("V2").getStatus());
+        assertEquals(60, restored.vehicle("V1").getDailyRate());
+    }
+
+    @Test
+    void clearedJournalRestoresNothing() throws IOException {
+        OfflineStore store = new OfflineStore();
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            journal.attach(store);
+            store.putVehicle(new Vehicle("V1", "Toyota", "Camry", "Sedan", 50, "Available"));
+            store.compactJournal();
+            store.putVehicle(new Vehicle("V2", "Ford", "Focus", "Hatchback", 40, "Available"));
+            journal.clear();
+        }
+        assertFalse(Files.exists(directory.resolve("offline.snapshot")));
+
+        OfflineStore restored = new OfflineStore();
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            assertFalse(journal.restoreInto(restored));
+            journal.attach(restored);
+            restored.putVehicle(new Vehicle("V3", "Kia", "Rio", "Compact", 30, "Available"));
+        }
+        OfflineStore again = new OfflineStore();
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            assertTrue(journal.restoreInto(again));
+        }
+        assertEquals(List.of("V3"), vehicleIds(again));
+    }
+
+    private void writeVehicles(String... ids) throws IOException {
+        OfflineStore store = new OfflineStore();
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            journal.attach(store);
+            for (String id : ids) {
+                store.putVehicle(new Vehicle(id, "Brand " + id, "Model", "Sedan", 50, "Available"));
+            }
+        }
+    }
+
+    // After the bad record nothing is restored, and a change made then is kept on the next restart
+    private void assertRestoresThenAppends(List<String> expected) throws IOException {
+        OfflineStore store = new OfflineStore();
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            assertTrue(journal.restoreInto(store));
+            assertEquals(expected, vehicleIds(store));
+            journal.attach(store);
+            store.putVehicle(new Vehicle("NEW", "Kia", "Rio", "Compact", 30, "Available"));
+        }
+
+        OfflineStore restored = new OfflineStore();
+        try (OfflineJournal journal = OfflineJournal.open(directory)) {
+            assertTrue(journal.restoreInto(restored));
+        }
+        List<String> withNew = new ArrayList<>(expected);
+        withNew.add("NEW");
+        assertEquals(withNew, vehicleIds(restored));
+        assertNotNull(restored.vehicle("NEW"));
+    }
+
+    // Start of each record in the log: [length][crc32c][payload], up to the first zero length
+    private List<Integer> recordOffsets() throws IOException {
+        ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(directory.resolve("offline.journal")));
+        List<Integer> offsets = new ArrayList<>();
+        int position = 0;
+        while (position + 8 <= log.limit() && log.getInt(position) > 0) {
+            offsets.add(position);
+            position += 8 + log.getInt(position);
+        }
+        return offsets;
+    }
+
+    private byte readByte(int offset) throws IOException {
+        return Files.readAllBytes(directory.resolve("offline.journal"))[offset];
+    }
+
+    private void overwrite(int offset, byte value) throws IOException {
+        write(offset, ByteBuffer.wrap(new byte[] {value}));
+    }
+
+    private void overwriteInt(int offset, int value) throws IOException {
+        write(offset, ByteBuffer.allocate(4).putInt(0, value));
+    }
+
+    private void write(int offset, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve("offline.journal"), StandardOpenOption.WRITE)) {
+            channel.write(bytes, offset);
+        }
+    }
+
+    private static List<String> vehicleIds(OfflineStore store) {
+        return store.vehicles().stream().map(Vehicle::getId).toList();
+    }
+
+    private static List<String> outboxIds(OfflineStore store) {
+        return store.outbox().stream().map(OutboxEntry::getId).toList();
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.OfflineStore.BookingRecord;
+import com.example.mitchelltutorial.OfflineStore.OutboxEntry;
+import com.example.mitchelltutorial.VehicleRentalSystem.Customer;
+import com.example.mitchelltutorial.VehicleRentalSystem.Payment;
+import com.example.mitchelltutorial.VehicleRentalSystem.User;
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyncEngineTest {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    private static final LocalDate DAY = LocalDate.now().plusDays(10);
+
+    private ConnectionPool pool;
+    private OfflineStore store;
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        pool = new ConnectionPool("jdbc:h2:mem:sync" + DATABASES.incrementAndGet() + ";MODE=MySQL", "sa", "", 2);
+        try (Connection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE users (username VARCHAR(50) PRIMARY KEY, password VARCHAR(50) NOT NULL, " +
+                    "role VARCHAR(20) NOT NULL)");
+            stmt.execute("CREATE TABLE vehicles (id VARCHAR(20) PRIMARY KEY, brand VARCHAR(50) NOT NULL, " +
+                    "model VARCHAR(50) NOT NULL, category VARCHAR(30) NOT NULL, daily_rate DECIMAL(10,2) NOT NULL, " +
+                    "status VARCHAR(20) NOT NULL)");
+            stmt.execute("CREATE TABLE customers (id VARCHAR(20) PRIMARY KEY, name VARCHAR(100) NOT NULL, " +
+                    "phone VARCHAR(20), email VARCHAR(100), license VARCHAR(50), dob DATE)");
+            stmt.execute("CREATE TABLE bookings (id VARCHAR(20) PRIMARY KEY, customer_id VARCHAR(20) NOT NULL, " +
+                    "vehicle_id VARCHAR(20) NOT NULL, start_date DATE NOT NULL, end_date DATE NOT NULL, " +
+                    "daily_rate DECIMAL(10,2) NOT NULL, status VARCHAR(20) NOT NULL, employee_id VARCHAR(50) NOT NULL, " +
+                    "FOREIGN KEY (customer_id) REFERENCES customers(id), FOREIGN KEY (vehicle_id) REFERENCES vehicles(id))");
+            stmt.execute("CREATE TABLE payments (id VARCHAR(20) PRIMARY KEY, booking_id VARCHAR(20) NOT NULL, " +
+                    "amount DECIMAL(10,2) NOT NULL, method VARCHAR(30) NOT NULL, payment_date DATE NOT NULL, " +
+                    "FOREIGN KEY (booking_id) REFERENCES bookings(id))");
+            BookingView.createTable(stmt);
+            ReportRollups.createTables(stmt);
+            stmt.execute("INSERT INTO users VALUES ('admin', 'admin123', 'Admin')");
+            stmt.execute("INSERT INTO vehicles VALUES ('V1', 'Toyota', 'Camry', 'Sedan', 50, 'Available'), " +
+                    "('V2', 'Ford', 'Focus', 'Hatchback', 40, 'Available')");
+            stmt.execute("INSERT INTO customers VALUES ('C1', 'Ann', '555', 'ann@example.com', 'L1', '1990-01-01')");
+        }
+        // What the desk had when it went offline
+        store = new OfflineStore();
+        store.putVehicle(new Vehicle("V1", "Toyota", "Camry", "Sedan", 50, "Available"));
+        store.putVehicle(new Vehicle("V2", "Ford", "Focus", "Hatchback", 40, "Available"));
+        store.putCustomer(new Customer("C1", "Ann", "555", "ann@example.com", "L1", LocalDate.of(1990, 1, 1)));
+    }
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void onlineOverlapRejectsTheOfflineBookingAndItsPayment() throws SQLException {
+        execute("INSERT INTO bookings VALUES ('BON', 'C1', 'V1', '" + DAY + "', '" + DAY.plusDays(3) + "', 50, " +
+                "'Active', 'emp')");
+        store.startOutbox();
+        store.putBooking(new BookingRecord("B1", "C1", "V1", DAY.minusDays(1), DAY.plusDays(1), 50, "Active", "emp"));
+        store.putPayment(new Payment("P1", "B1", 100, "Cash", DAY));
+        // Starts the day the online booking ends: the ranges are half-open, so this one is fine
+        store.putBooking(new BookingRecord("B2", "C1", "V1", DAY.plusDays(3), DAY.plusDays(5), 50, "Active", "emp"));
+
+        SyncEngine.Report report = new SyncEngine(store, pool).sync();
+
+        assertEquals(2, report.getRejected().size(), report.summary());
+        assertTrue(report.getRejected().get(0).startsWith("Booking B1: vehicle V1 was booked online"));
+        assertTrue(report.getRejected().get(1).startsWith("Payment P1: booking B1 was not synced"));
+        assertEquals(List.of("BON", "B2"), strings("SELECT id FROM bookings ORDER BY start_date"));
+        assertEquals(List.of(), strings("SELECT id FROM payments"));
+        assertEquals(0, store.outboxSize());
+    }
+
+    @Test
+    void failedBatchFallsBackToRowByRow() throws SQLException {
+        store.startOutbox();
+        store.addUser(new User("bob", "pw", "Employee"));
+        // Taken online in the meantime: fails the batch on the primary key
+        store.addUser(new User("admin", "other", "Employee"));
+        store.addUser(new User("carol", "pw", "Employee"));
+
+        SyncEngine.Report report = new SyncEngine(store, pool).sync();
+
+        assertEquals(List.of("User bob", "User carol"), report.getMerged());
+        assertEquals(1, report.getRejected().size());
+        assertTrue(report.getRejected().get(0).startsWith("User admin: "));
+        assertEquals(List.of("admin123", "pw", "pw"), strings("SELECT password FROM users ORDER BY username"));
+        assertEquals(0, store.outboxSize());
+    }
+
+    @Test
+    void rowChangedAgainMidSyncStaysQueued() throws SQLException {
+        // Another edit lands right after the sync has read the row
+        store = new OfflineStore() {
+            private boolean edited;
+
+            @Override
+            public synchronized Vehicle vehicle(String id) {
+                Vehicle read = super.vehicle(id);
+                if (!edited && "V1".equals(id) && read.getDailyRate() == 55) {
+                    edited = true;
+                    putVehicle(new Vehicle("V1", "Toyota", "Camry", "Sedan", 60, "Available"));
+                }
+                return read;
+            }
+        };
+        store.putVehicle(new Vehicle("V1", "Toyota", "Camry", "Sedan", 50, "Available"));
+        store.startOutbox();
+        store.putVehicle(new Vehicle("V1", "Toyota", "Camry", "Sedan", 55, "Available"));
+
+        SyncEngine.Report first = new SyncEngine(store, pool).sync();
+        assertEquals(List.of("Vehicle V1"), first.getMerged());
+        assertEquals(List.of("55.00"), strings("SELECT daily_rate FROM vehicles WHERE id = 'V1'"));
+        List<OutboxEntry> left = store.outbox();
+        assertEquals(1, left.size());
+        assertEquals("V1", left.get(0).getId());
+
+        // The first write is the new base, so the second round is not mistaken for an online change
+        SyncEngine.Report second = new SyncEngine(store, pool).sync();
+        assertEquals(List.of(), second.getRejected(), second.summary());
+        assertEquals(List.of("60.00"), strings("SELECT daily_rate FROM vehicles WHERE id = 'V1'"));
+        assertEquals(0, store.outboxSize());
+    }
+
+    @Test
+    void fieldsChangedOnDifferentSidesAreMerged() throws SQLException {
+        execute("UPDATE vehicles SET status = 'Maintenance' WHERE id = 'V1'");
+        execute("UPDATE customers SET phone = '777' WHERE id = 'C1'");
+        store.startOutbox();
+        store.putVehicle(new Vehicle("V1", "Toyota", "Camry", "Sedan", 65, "Available"));
+        store.putCustomer(new Customer("C1", "Ann", "555", "ann@new.example.com", "L1", LocalDate.of(1990, 1, 1)));
+
+        SyncEngine.Report report = new SyncEngine(store, pool).sync();
+
+        assertEquals(List.of(), report.getRejected(), report.summary());
+        assertEquals(List.of("65.00 Maintenance"),
+                strings("SELECT CONCAT(daily_rate, ' ', status) FROM vehicles WHERE id = 'V1'"));
+        assertEquals(List.of("777 ann@new.example.com"),
+                strings("SELECT CONCAT(phone, ' ', email) FROM customers WHERE id = 'C1'"));
+    }
+
+    @Test
+    void fieldChangedDifferentlyOnBothSidesKeepsTheOnlineRow() throws SQLException {
+        execute("UPDATE vehicles SET daily_rate = 70 WHERE id = 'V1'");
+        execute("DELETE FROM vehicles WHERE id = 'V2'");
+        store.startOutbox();
+        store.putVehicle(new Vehicle("V1", "Toyota", "Camry Hybrid", "Sedan", 65, "Available"));
+        store.putVehicle(new Vehicle("V2", "Ford", "Focus", "Hatchback", 45, "Available"));
+        // Created on both sides with the same id
+        execute("INSERT INTO vehicles VALUES ('V3', 'Kia', 'Rio', 'Compact', 30, 'Available')");
+        store.putVehicle(new Vehicle("V3", "Kia", "Picanto", "Compact", 30, "Available"));
+
+        SyncEngine.Report report = new SyncEngine(store, pool).sync();
+
+        assertEquals(List.of(
+                "Vehicle V1: conflict: daily rate also changed online; the online version was kept",
+                "Vehicle V2: was deleted online",
+                "Vehicle V3: conflict: model also changed online; the online version was kept"), report.getRejected());
+        assertEquals(List.of("Camry 70.00", "Rio 30.00"),
+                strings("SELECT CONCAT(model, ' ', daily_rate) FROM vehicles ORDER BY id"));
+        assertEquals(0, store.outboxSize());
+    }
+
+    @Test
+    void paymentForABookingPaidOrCompletedOnlineIsAConflict() throws SQLException {
+        execute("INSERT INTO bookings VALUES ('B1', 'C1', 'V1', '" + DAY + "', '" + DAY.plusDays(2) + "', 50, " +
+                "'Completed', 'emp')");
+        execute("INSERT INTO payments VALUES ('PON', 'B1', 100, 'Card', '" + DAY + "')");
+        execute("INSERT INTO bookings VALUES ('B2', 'C1', 'V2', '" + DAY + "', '" + DAY.plusDays(2) + "', 40, " +
+                "'Completed', 'emp')");
+        execute("INSERT INTO bookings VALUES ('B3', 'C1', 'V2', '" + DAY.plusDays(5) + "', '" + DAY.plusDays(6) +
+                "', 40, 'Active', 'emp')");
+        store.putBooking(new BookingRecord("B1", "C1", "V1", DAY, DAY.plusDays(2), 50, "Active", "emp"));
+        store.putBooking(new BookingRecord("B2", "C1", "V2", DAY, DAY.plusDays(2), 40, "Active", "emp"));
+        store.putBooking(new BookingRecord("B3", "C1", "V2", DAY.plusDays(5), DAY.plusDays(6), 40, "Active", "emp"));
+        store.startOutbox();
+        for (String booking : List.of("B1", "B2", "B3")) {
+            store.putPayment(new Payment("P" + booking, booking, 80, "Cash", DAY));
+            store.setBookingStatus(booking, "Completed");
+        }
+
+        SyncEngine.Report report = new SyncEngine(store, pool).sync();
+
+        List<String> rejected = new ArrayList<>(report.getRejected());
+        assertEquals(List.of(
+                "Payment PB1: conflict: booking B1 was already paid online",
+                "Payment PB2: conflict: booking B2 was already completed online"), rejected);
+        assertEquals(List.of("PB3", "PON"), strings("SELECT id FROM payments ORDER BY id"));
+        assertEquals(List.of("Completed"), strings("SELECT status FROM bookings WHERE id = 'B3'"));
+        assertEquals(0, store.outboxSize());
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private List<String> strings(String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Connection conn = pool.getConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                values.add(rs.getString(1));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.mitchelltutorial;
+
+import com.example.mitchelltutorial.VehicleRentalSystem.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VehicleSearchIndexTest {
+
+    // A small alphabet, so that short queries hit many vehicles and long ones still hit some
+    private static final String ALPHABET = "abcAB1-";
+
+    private final Random random = new Random(42);
+    private final Map<String, Vehicle> vehicles = new LinkedHashMap<>();
+    private final VehicleSearchIndex index = new VehicleSearchIndex();
+
+    @Test
+    void randomEditsMatchASubstringScan() {
+        for (int i = 0; i < 300; i++) {
+            put(randomVehicle("V" + i));
+        }
+        index.rebuild(new ArrayList<>(vehicles.values()));
+        assertMatchesScan();
+
+        for (int step = 0; step < 3_000; step++) {
+            int op = random.nextInt(10);
+            if (op < 5 || vehicles.isEmpty()) {
+                put(randomVehicle("V" + random.nextInt(600)));
+            } else if (op < 8) {
+                remove(randomId());
+            } else {
+                // An edit: same id, new text; the old slot is tombstoned
+                put(randomVehicle(randomId()));
+            }
+            if (step % 500 == 250) {
+                index.rebuild(new ArrayList<>(vehicles.values()));
+            }
+            if (step % 100 == 0) {
+                assertMatchesScan();
+            }
+        }
+        assertMatchesScan();
+    }
+
+    @Test
+    void compactionKeepsTheLiveVehicles() {
+        for (int i = 0; i < 3_000; i++) {
+            put(randomVehicle("V" + i));
+        }
+        // Past the threshold and more dead slots than live ones: the index compacts during the removals
+        List<String> ids = new ArrayList<>(vehicles.keySet());
+        for (int i = 0; i < 2_500; i++) {
+            remove(ids.remove(random.nextInt(ids.size())));
+            if (i % 250 == 0) {
+                assertMatchesScan();
+            }
+        }
+        assertEquals(500, index.size());
+        assertMatchesScan();
+
+        for (int i = 0; i < 200; i++) {
+            put(randomVehicle("N" + i));
+        }
+        assertMatchesScan();
+    }
+
+    @Test
+    void shortQueriesScanTheText() {
+        for (int i = 0; i < 200; i++) {
+            put(randomVehicle("V" + i));
+        }
+        for (int i = 0; i < 50; i++) {
+            remove(randomId());
+        }
+        for (char first : ALPHABET.toCharArray()) {
+            assertQuery(String.valueOf(first));
+            for (char second : ALPHABET.toCharArray()) {
+                assertQuery("" + first + second);
+            }
+        }
+    }
+
+    @Test
+    void queryDoesNotMatchAcrossFields() {
+        put(new Vehicle("V1", "Toyota", "Camry", "Sedan", 50, "Available"));
+        put(new Vehicle("V2", "Ford", "Focus", "Hatchback", 40, "Rented"));
+        assertEquals(Set.of(), matches("tacam"));
+        assertEquals(Set.of(), matches("yca"));
+        assertEquals(Set.of("V1"), matches("  CAMRY "));
+        assertEquals(Set.of("V1", "V2"), matches(""));
+        assertEquals(Set.of("V2"), matches("rent"));
+    }
+
+    private void put(Vehicle vehicle) {
+        vehicles.put(vehicle.getId(), vehicle);
+        index.add(vehicle);
+    }
+
+    private void remove(String id) {
+        vehicles.remove(id);
+        index.remove(id);
+    }
+
+    private String randomId() {
+        List<String> ids = new ArrayList<>(vehicles.keySet());
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private Vehicle randomVehicle(String id) {
+        return new Vehicle(id, randomText(), randomText(), randomText(), 10, random.nextBoolean() ? "Available" : "Rented");
+    }
+
+    private String randomText() {
+        StringBuilder text = new StringBuilder();
+        int length = 1 + random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return text.toString();
+    }
+
+    private void assertMatchesScan() {
+        for (int i = 0; i < 40; i++) {
+            int length = 1 + random.nextInt(5);
+            StringBuilder query = new StringBuilder();
+            for (int j = 0; j < length; j++) {
+                query.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            assertQuery(query.toString());
+        }
+        // A whole stored field finds at least its own vehicle
+        for (Vehicle vehicle : List.copyOf(vehicles.values()).subList(0, Math.min(20, vehicles.size()))) {
+            assertQuery(vehicle.getModel());
+        }
+    }
+
+    private void assertQuery(String query) {
+        assertEquals(scan(query), matches(query), () -> "query \"" + query + "\"");
+    }
+
+    private Set<String> matches(String query) {
+        Predicate<Vehicle> predicate = index.search(query);
+        Set<String> ids = new TreeSet<>();
+        for (Vehicle vehicle : vehicles.values()) {
+            if (predicate.test(vehicle)) {
+                ids.add(vehicle.getId());
+            }
+        }
+        return ids;
+    }
+
+    // The brute-force answer: a case-insensitive substring of any one field
+    private Set<String> scan(String query) {
+        String q = query.trim().toLowerCase(Locale.ROOT);
+        Set<String> ids = new TreeSet<>();
+        for (Vehicle vehicle : vehicles.values()) {
+            for (String field : List.of(vehicle.getId(), vehicle.getBrand(), vehicle.getModel(),
+                    vehicle.getCategory(), vehicle.getStatus())) {
+                if (field.toLowerCase(Locale.ROOT).contains(q)) {
+                    ids.add(vehicle.getId());
+                    break;
+                }
+            }
+        }
+        return ids;
+    }
+}
@@ -1,53 +1,120 @@
 
 -- VEHICLE RENTAL SYSTEM DATABASE SETUP
+-- The schema the application creates on first start. Runs unchanged on MySQL and on the embedded
+-- H2 database (MODE=MySQL), e.g. for preparing a database by hand.
+
+-- USERS TABLE
+CREATE TABLE IF NOT EXISTS users (
+    username VARCHAR(50) PRIMARY KEY,
+    password VARCHAR(50) NOT NULL,
+    role VARCHAR(20) NOT NULL
+);
 
 -- VEHICLES TABLE
 CREATE TABLE IF NOT EXISTS vehicles (
-    vehicle_id INTEGER PRIMARY KEY AUTOINCREMENT,
-    brand TEXT NOT NULL,
-    model TEXT NOT NULL,
-    category TEXT NOT NULL,
-    price_per_day REAL NOT NULL,
-    availability TEXT NOT NULL CHECK(availability IN ('Available', 'Rented'))
+    id VARCHAR(20) PRIMARY KEY,
+    brand VARCHAR(50) NOT NULL,
+    model VARCHAR(50) NOT NULL,
+    category VARCHAR(30) NOT NULL,
+    daily_rate DECIMAL(10,2) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    INDEX idx_vehicles_brand (brand, id),
+    INDEX idx_vehicles_model (model, id),
+    INDEX idx_vehicles_category (category, id),
+    INDEX idx_vehicles_rate (daily_rate, id),
+    INDEX idx_vehicles_status (status, id)
 );
 
 -- CUSTOMERS TABLE
 CREATE TABLE IF NOT EXISTS customers (
-    customer_id INTEGER PRIMARY KEY AUTOINCREMENT,
-    name TEXT NOT NULL,
-    contact TEXT NOT NULL,
-    license_number TEXT NOT NULL UNIQUE
+    id VARCHAR(20) PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    phone VARCHAR(20),
+    email VARCHAR(100),
+    license VARCHAR(50),
+    dob DATE
 );
 
 -- BOOKINGS TABLE
 CREATE TABLE IF NOT EXISTS bookings (
-    booking_id INTEGER PRIMARY KEY AUTOINCREMENT,
-    customer_id INTEGER NOT NULL,
-    vehicle_id INTEGER NOT NULL,
-    start_date TEXT NOT NULL,
-    end_date TEXT NOT NULL,
-    payment_method TEXT NOT NULL,
-    additional_fee REAL DEFAULT 0,
-    late_fee REAL DEFAULT 0,
-    total_amount REAL NOT NULL,
-    status TEXT DEFAULT 'Active',
-    FOREIGN KEY(customer_id) REFERENCES customers(customer_id),
-    FOREIGN KEY(vehicle_id) REFERENCES vehicles(vehicle_id)
+    id VARCHAR(20) PRIMARY KEY,
+    customer_id VARCHAR(20) NOT NULL,
+    vehicle_id VARCHAR(20) NOT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    daily_rate DECIMAL(10,2) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    employee_id VARCHAR(50) NOT NULL,
+    FOREIGN KEY (customer_id) REFERENCES customers(id),
+    FOREIGN KEY (vehicle_id) REFERENCES vehicles(id)
+);
+
+-- PAYMENTS TABLE
+CREATE TABLE IF NOT EXISTS payments (
+    id VARCHAR(20) PRIMARY KEY,
+    booking_id VARCHAR(20) NOT NULL,
+    amount DECIMAL(10,2) NOT NULL,
+    method VARCHAR(30) NOT NULL,
+    payment_date DATE NOT NULL,
+    FOREIGN KEY (booking_id) REFERENCES bookings(id)
 );
 
+-- REPORT ROLLUPS (report_month is the first day of the month)
+CREATE TABLE IF NOT EXISTS report_daily (
+    report_day DATE NOT NULL,
+    category VARCHAR(30) NOT NULL,
+    bookings INT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14,2) NOT NULL DEFAULT 0,
+    payments INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (report_day, category)
+);
+
+CREATE TABLE IF NOT EXISTS report_monthly (
+    report_month DATE NOT NULL,
+    category VARCHAR(30) NOT NULL,
+    bookings INT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14,2) NOT NULL DEFAULT 0,
+    payments INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (report_month, category)
+);
+
+-- BOOKING VIEW (bookings pre-joined with their customer's name and vehicle's brand and model)
+CREATE TABLE IF NOT EXISTS booking_view (
+    id VARCHAR(20) PRIMARY KEY,
+    customer_id VARCHAR(20) NOT NULL,
+    customer_name VARCHAR(100) NOT NULL,
+    vehicle_id VARCHAR(20) NOT NULL,
+    vehicle_details VARCHAR(101) NOT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    daily_rate DECIMAL(10,2) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    employee_id VARCHAR(50) NOT NULL,
+    INDEX idx_booking_view_vehicle_dates (vehicle_id, start_date),
+    INDEX idx_booking_view_start (start_date, id),
+    INDEX idx_booking_view_customer (customer_id)
+);
+
+-- ID GENERATOR NODES (each desk claims the next node number on start)
+CREATE TABLE IF NOT EXISTS id_nodes (
+    name VARCHAR(30) PRIMARY KEY,
+    next_node BIGINT NOT NULL
+);
+
+-- SAMPLE USERS DATA
+INSERT INTO users VALUES
+('admin', 'admin123', 'Admin'),
+('employee', 'emp123', 'Employee');
+
 -- SAMPLE VEHICLES DATA
-INSERT INTO vehicles (brand, model, category, price_per_day, availability) VALUES 
-('Mazda', 'CX-5', 'Car', 300, 'Available'),
-('Honda', 'Civic', 'Car', 280, 'Available'),
-('BMW', 'X5', 'SUV', 500, 'Available'),
-('Isuzu', 'D-Max', 'Truck', 400, 'Rented');
+INSERT INTO vehicles VALUES
+('V001', 'Tesla', 'Model S', 'Car', 150.00, 'Available'),
+('V002', 'BMW', 'X5', 'SUV', 120.00, 'Available'),
+('V003', 'Ford', 'Transit', 'Van', 100.00, 'Available'),
+('V004', 'Toyota', 'Hilux', 'Truck', 110.00, 'Rented'),
+('V005', 'Honda', 'CBR600RR', 'Bike', 80.00, 'Maintenance');
 
 -- SAMPLE CUSTOMERS DATA
-INSERT INTO customers (name, contact, license_number) VALUES 
-('Alice Moleko', '1234567890', 'LS12345'),
-('Thabo Mokoena', '0987654321', 'LS98765');
-
--- SAMPLE BOOKINGS DATA
-INSERT INTO bookings (customer_id, vehicle_id, start_date, end_date, payment_method, additional_fee, late_fee, total_amount) VALUES 
-(1, 1, '2025-04-01', '2025-04-05', 'Cash', 50, 0, 1250),
-(2, 2, '2025-04-03', '2025-04-10', 'Online', 0, 100, 2060);
+INSERT INTO customers VALUES
+('C001', 'John Apple', '55501234', 'john.com', 'DL12345', '1980-05-15'),
+('C002', 'Jane Williams', '55595678', 'williams.com', 'DL67890', '1985-10-20');